@@ -0,0 +1,137 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.core.common.model.entitlements.Acl;
+import org.opengroup.osdu.core.common.model.entitlements.GroupInfo;
+import org.opengroup.osdu.core.common.model.entitlements.Groups;
+import org.opengroup.osdu.core.common.model.storage.RecordMetadata;
+import org.opengroup.osdu.dataset.service.GroupIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the batch ACL check of EntitlementsAndCacheServiceImpl.hasValidAccess as it was before
+ * (kept here verbatim as the baseline) against the GroupIndex based one, for a user in 100 groups.
+ * One record in four is visible to the user, through its last owner.
+ *
+ * Run with -prof gc to compare allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AclEvaluationBenchmark {
+
+    private static final String DOMAIN = "@opendes.contoso.com";
+    private static final int USER_GROUPS = 100;
+
+    @Param({"10", "1000", "10000"})
+    public int records;
+
+    private Groups groups;
+    private GroupIndex groupIndex;
+    private List<RecordMetadata> recordsMetadata;
+
+    @Setup
+    public void setup() {
+        List<GroupInfo> groupInfos = new ArrayList<>();
+        for (int i = 0; i < USER_GROUPS; i++) {
+            GroupInfo groupInfo = new GroupInfo();
+            groupInfo.setName("data.member." + i);
+            groupInfo.setEmail("data.member." + i + DOMAIN);
+            groupInfos.add(groupInfo);
+        }
+        this.groups = new Groups();
+        this.groups.setGroups(groupInfos);
+        this.groupIndex = GroupIndex.of(this.groups);
+
+        this.recordsMetadata = new ArrayList<>();
+        for (int i = 0; i < this.records; i++) {
+            String lastOwner = i % 4 == 0 ? "data.member." + (i % USER_GROUPS) : "data.stranger." + i;
+            RecordMetadata recordMetadata = new RecordMetadata();
+            recordMetadata.setId("opendes:dataset--File.Generic:" + i);
+            recordMetadata.setAcl(new Acl(
+                    new String[]{"data.viewers.a" + DOMAIN, "data.viewers.b" + DOMAIN},
+                    new String[]{"data.owners.a" + DOMAIN, lastOwner + DOMAIN}));
+            this.recordsMetadata.add(recordMetadata);
+        }
+    }
+
+    @Benchmark
+    public List<RecordMetadata> legacyHasValidAccess() {
+        List<RecordMetadata> result = new ArrayList<>();
+        for (RecordMetadata recordMetadata : this.recordsMetadata) {
+            if (legacyHasAccess(recordMetadata.getAcl(), this.groups)) {
+                result.add(recordMetadata);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<RecordMetadata> indexedHasValidAccess() {
+        List<RecordMetadata> result = new ArrayList<>(this.recordsMetadata.size());
+        for (RecordMetadata recordMetadata : this.recordsMetadata) {
+            if (this.groupIndex.containsAny(recordMetadata.getAcl().getViewers())
+                    || this.groupIndex.containsAny(recordMetadata.getAcl().getOwners())) {
+                result.add(recordMetadata);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public GroupIndex buildGroupIndex() {
+        return GroupIndex.of(this.groups);
+    }
+
+    private static boolean legacyHasAccess(Acl storageAcl, Groups groups) {
+        String[] viewers = storageAcl.getViewers();
+        String[] owners = storageAcl.getOwners();
+        Set<String> aclList = new HashSet<>();
+
+        for (String viewer : viewers) {
+            aclList.add(viewer.split("@")[0]);
+        }
+        for (String owner : owners) {
+            aclList.add(owner.split("@")[0]);
+        }
+
+        String[] acls = new String[aclList.size()];
+        if (groups.any(aclList.toArray(acls))) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.core.common.dms.model.CopyDmsRequest;
+import org.opengroup.osdu.core.common.dms.model.CopyDmsResponse;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
+import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.core.common.model.storage.MultiRecordInfo;
+import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
+import org.opengroup.osdu.core.common.storage.IStorageFactory;
+import org.opengroup.osdu.core.common.storage.IStorageService;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.IDmsFactory;
+import org.opengroup.osdu.dataset.dms.IDmsProvider;
+import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
+import org.opengroup.osdu.dataset.model.response.GetCreateUpdateDatasetRegistryResponse;
+import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
+import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
+import org.opengroup.osdu.dataset.schema.ISchemaFactory;
+import org.opengroup.osdu.dataset.schema.ISchemaService;
+import org.opengroup.osdu.dataset.service.DatasetDmsServiceImpl;
+import org.opengroup.osdu.dataset.service.DatasetRegistryServiceImpl;
+import org.opengroup.osdu.dataset.util.FanOutExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the dataset service methods end to end against in-memory Storage, Schema and DMS stand-ins,
+ * so the measured time is the service's own work: id validation, routing to the DMS, fan-out,
+ * merging and ordering of the responses. Half of the datasets belong to a second DMS so every
+ * request fans out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetServiceBenchmark {
+
+    private static final String PARTITION = "osdu";
+
+    @Param({"1", "20", "500"})
+    public int datasets;
+
+    private FanOutExecutor fanOutExecutor;
+    private DatasetDmsServiceImpl dmsService;
+    private DatasetRegistryServiceImpl registryService;
+
+    private List<String> ids;
+    private List<Record> records;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        this.ids = new ArrayList<>();
+        this.records = new ArrayList<>();
+        for (int i = 0; i < this.datasets; i++) {
+            String type = i % 2 == 0 ? "File" : "FileCollection";
+            String id = String.format("%s:dataset--%s.Generic:%d", PARTITION, type, i);
+            Record record = JsonMappingBenchmark.record(id);
+            record.setKind(String.format("osdu:wks:dataset--%s.Generic:1.0.0", type));
+            this.ids.add(id);
+            this.records.add(record);
+        }
+
+        Map<String, String> headerValues = new HashMap<>();
+        headerValues.put(DpsHeaders.DATA_PARTITION_ID, PARTITION);
+        headerValues.put(DpsHeaders.AUTHORIZATION, "Bearer benchmark");
+        DpsHeaders headers = DpsHeaders.createFromMap(headerValues);
+
+        Map<String, DmsServiceProperties> registrations = new HashMap<>();
+        registrations.put("dataset--File.*", new DmsServiceProperties("https://file-dms", true, null, true));
+        registrations.put("dataset--FileCollection.*", new DmsServiceProperties("https://collection-dms", true, null, true));
+        IDatasetDmsServiceMap dmsServiceMap = () -> registrations;
+
+        DatasetConfig datasetConfig = new DatasetConfig();
+        this.fanOutExecutor = new FanOutExecutor("benchmark-fan-out", datasetConfig.getDmsFanOutPoolSize(),
+                datasetConfig.getDmsFanOutQueueSize());
+        IStorageService storageService = storageService();
+
+        this.dmsService = new DatasetDmsServiceImpl(null);
+        inject(this.dmsService, "headers", headers);
+        inject(this.dmsService, "dmsFactory", (IDmsFactory) (h, route) -> new InMemoryDms());
+        inject(this.dmsService, "dmsServiceMap", dmsServiceMap);
+        inject(this.dmsService, "datasetConfig", datasetConfig);
+        inject(this.dmsService, "fanOutExecutor", this.fanOutExecutor);
+        inject(this.dmsService, "storageFactory", (IStorageFactory) h -> storageService);
+
+        ISchemaService schemaService = kind -> kind;
+        this.registryService = new DatasetRegistryServiceImpl();
+        inject(this.registryService, "headers", headers);
+        inject(this.registryService, "storageFactory", (IStorageFactory) h -> storageService);
+        inject(this.registryService, "schemaFactory", (ISchemaFactory) h -> schemaService);
+        inject(this.registryService, "dmsFactory", (IDmsFactory) (h, route) -> new InMemoryDms());
+        inject(this.registryService, "dmsServiceMap", dmsServiceMap);
+        inject(this.registryService, "datasetConfig", datasetConfig);
+        inject(this.registryService, "fanOutExecutor", this.fanOutExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        this.fanOutExecutor.shutdown();
+    }
+
+    @Benchmark
+    public RetrievalInstructionsResponse getRetrievalInstructions() {
+        return this.dmsService.getRetrievalInstructions(this.ids);
+    }
+
+    @Benchmark
+    public GetCreateUpdateDatasetRegistryResponse registerDatasets() {
+        return this.registryService.createOrUpdateDatasetRegistry(this.records);
+    }
+
+    @Benchmark
+    public GetCreateUpdateDatasetRegistryResponse getDatasetRegistries() {
+        return this.registryService.getDatasetRegistries(this.ids);
+    }
+
+    @SuppressWarnings("unchecked")
+    private IStorageService storageService() {
+        Map<String, Record> stored = new HashMap<>();
+        for (Record record : this.records) {
+            stored.put(record.getId(), record);
+        }
+        // IStorageService has many methods the benchmarks never call, so only the used ones answer
+        return (IStorageService) Proxy.newProxyInstance(IStorageService.class.getClassLoader(),
+                new Class<?>[]{IStorageService.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "upsertRecord":
+                            Record[] upserted = (Record[]) args[0];
+                            UpsertRecords upsertRecords = new UpsertRecords();
+                            upsertRecords.setRecordIds(new ArrayList<>(upserted.length));
+                            upsertRecords.setRecordIdVersions(new ArrayList<>(upserted.length));
+                            for (Record record : upserted) {
+                                upsertRecords.getRecordIds().add(record.getId());
+                                upsertRecords.getRecordIdVersions().add(record.getId() + ":1622541600000000");
+                            }
+                            return upsertRecords;
+                        case "getRecords":
+                            MultiRecordInfo info = new MultiRecordInfo();
+                            info.setRecords(new ArrayList<>());
+                            info.setInvalidRecords(new ArrayList<>());
+                            info.setRetryRecords(new ArrayList<>());
+                            for (String id : (Collection<String>) args[0]) {
+                                info.getRecords().add(stored.get(id));
+                            }
+                            return info;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static final class InMemoryDms implements IDmsProvider {
+
+        @Override
+        public GetDatasetStorageInstructionsResponse getStorageInstructions() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public RetrievalInstructionsResponse getRetrievalInstructions(GetDatasetRegistryRequest request) {
+            RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+            response.setProviderKey("AWS");
+            // answer in reverse so the service has to restore the request order
+            for (int i = request.datasetRegistryIds.size() - 1; i >= 0; i--) {
+                String id = request.datasetRegistryIds.get(i);
+                Map<String, Object> retrievalProperties = new HashMap<>();
+                retrievalProperties.put("signedUrl", "https://bucket.s3.amazonaws.com/" + id);
+                DatasetRetrievalProperties properties = new DatasetRetrievalProperties();
+                properties.setDatasetRegistryId(id);
+                properties.setRetrievalProperties(retrievalProperties);
+                response.getDatasets().add(properties);
+            }
+            return response;
+        }
+
+        @Override
+        public List<CopyDmsResponse> copyDmsToPersistentStorage(CopyDmsRequest copyDmsRequest) {
+            List<CopyDmsResponse> responses = new ArrayList<>();
+            for (Record record : copyDmsRequest.getDatasetSources()) {
+                responses.add(new CopyDmsResponse(true, "s3://persistent/" + record.getId()));
+            }
+            return responses;
+        }
+    }
+}
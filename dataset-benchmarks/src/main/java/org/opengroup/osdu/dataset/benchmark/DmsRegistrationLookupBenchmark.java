@@ -0,0 +1,124 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.dataset.dms.DmsRegistrationLookup;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares resolving the DMS of a kind by scanning the whole registration table against point
+ * lookups of its candidate keys through DmsRegistrationLookup, on an in-memory stand-in for the
+ * DynamoDB table. Every item the stand-in returns costs readCost CPU tokens, standing in for
+ * reading and unmarshalling it; scans pay it per item in the table, point lookups per key asked.
+ *
+ * The cold variants start from an empty lookup cache on every call, the warm ones measure the
+ * steady state, including repeated requests for a kind that is not registered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DmsRegistrationLookupBenchmark {
+
+    private static final String PARTITION = "opendes";
+    private static final List<KindSubType> REGISTERED = Collections.singletonList(KindSubType.of("dataset--File.Generic"));
+    private static final List<KindSubType> UNREGISTERED = Collections.singletonList(KindSubType.of("dataset--Unknown.Generic"));
+
+    @Param({"20", "200", "2000"})
+    public int tableSize;
+
+    @Param({"200"})
+    public int readCost;
+
+    private Map<String, DmsServiceProperties> table;
+    private DmsRegistrationLookup warmLookup;
+
+    @Setup
+    public void setup() {
+        this.table = new HashMap<>();
+        this.table.put("dataset--File.*", new DmsServiceProperties("https://file"));
+        for (int i = 1; i < this.tableSize; i++) {
+            this.table.put("dataset--Other" + i + ".*", new DmsServiceProperties("https://other-" + i));
+        }
+        this.warmLookup = new DmsRegistrationLookup(60, 60, 10000);
+        this.warmLookup.get(PARTITION, REGISTERED, this::getItems);
+        this.warmLookup.get(PARTITION, UNREGISTERED, this::getItems);
+    }
+
+    @Benchmark
+    public DmsRoutingIndex.Route scan() {
+        return DmsRoutingIndex.of(this.scanTable()).route(REGISTERED.get(0));
+    }
+
+    @Benchmark
+    public DmsRoutingIndex.Route pointLookupCold() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 60, 10000);
+        return DmsRoutingIndex.of(lookup.get(PARTITION, REGISTERED, this::getItems)).route(REGISTERED.get(0));
+    }
+
+    @Benchmark
+    public DmsRoutingIndex.Route pointLookupWarm() {
+        return DmsRoutingIndex.of(this.warmLookup.get(PARTITION, REGISTERED, this::getItems)).route(REGISTERED.get(0));
+    }
+
+    @Benchmark
+    public DmsRoutingIndex.Route unregisteredKindWarm() {
+        return DmsRoutingIndex.of(this.warmLookup.get(PARTITION, UNREGISTERED, this::getItems)).route(UNREGISTERED.get(0));
+    }
+
+    private Map<String, DmsServiceProperties> scanTable() {
+        Map<String, DmsServiceProperties> items = new HashMap<>();
+        for (Map.Entry<String, DmsServiceProperties> item : this.table.entrySet()) {
+            Blackhole.consumeCPU(this.readCost);
+            items.put(item.getKey(), item.getValue());
+        }
+        return items;
+    }
+
+    private Map<String, DmsServiceProperties> getItems(Set<String> keys) {
+        Map<String, DmsServiceProperties> items = new HashMap<>();
+        for (String key : keys) {
+            Blackhole.consumeCPU(this.readCost);
+            DmsServiceProperties item = this.table.get(key);
+            if (item != null) {
+                items.put(key, item);
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,171 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.core.common.dms.model.CopyDmsResponse;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
+import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
+import org.opengroup.osdu.core.common.model.entitlements.Acl;
+import org.opengroup.osdu.core.common.model.legal.Legal;
+import org.opengroup.osdu.core.common.model.storage.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and parses the payloads the service exchanges with Storage and the DMS, with the
+ * Jackson ObjectMapper used by the controllers and the Gson instance os-core-common clients use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMappingBenchmark {
+
+    @Param({"1", "100"})
+    public int datasets;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Gson gson = new Gson();
+
+    private List<Record> records;
+    private RetrievalInstructionsResponse retrievalInstructions;
+    private List<CopyDmsResponse> copyDmsResponses;
+
+    private String recordsJson;
+    private String retrievalInstructionsJson;
+    private String copyDmsResponsesJson;
+
+    @Setup
+    public void setup() throws IOException {
+        this.records = new ArrayList<>();
+        this.retrievalInstructions = new RetrievalInstructionsResponse();
+        this.retrievalInstructions.setProviderKey("AWS");
+        this.copyDmsResponses = new ArrayList<>();
+        for (int i = 0; i < this.datasets; i++) {
+            String id = "osdu:dataset--File.Generic:" + i;
+            this.records.add(record(id));
+
+            Map<String, Object> retrievalProperties = new HashMap<>();
+            retrievalProperties.put("signedUrl", "https://bucket.s3.amazonaws.com/" + i
+                    + "?X-Amz-Date=20210601T100000Z&X-Amz-Expires=3600&X-Amz-Signature=abc");
+            retrievalProperties.put("unsignedUrl", "s3://bucket/" + i);
+            DatasetRetrievalProperties properties = new DatasetRetrievalProperties();
+            properties.setDatasetRegistryId(id);
+            properties.setRetrievalProperties(retrievalProperties);
+            this.retrievalInstructions.getDatasets().add(properties);
+
+            this.copyDmsResponses.add(new CopyDmsResponse(true, "s3://persistent/" + i));
+        }
+
+        this.recordsJson = this.objectMapper.writeValueAsString(this.records.toArray(new Record[0]));
+        this.retrievalInstructionsJson = this.objectMapper.writeValueAsString(this.retrievalInstructions);
+        this.copyDmsResponsesJson = this.objectMapper.writeValueAsString(this.copyDmsResponses.toArray(new CopyDmsResponse[0]));
+    }
+
+    @Benchmark
+    public String jacksonWriteRecords() throws IOException {
+        return this.objectMapper.writeValueAsString(this.records);
+    }
+
+    @Benchmark
+    public String gsonWriteRecords() {
+        return this.gson.toJson(this.records);
+    }
+
+    @Benchmark
+    public Record[] jacksonReadRecords() throws IOException {
+        return this.objectMapper.readValue(this.recordsJson, Record[].class);
+    }
+
+    @Benchmark
+    public Record[] gsonReadRecords() {
+        return this.gson.fromJson(this.recordsJson, Record[].class);
+    }
+
+    @Benchmark
+    public String jacksonWriteRetrievalInstructions() throws IOException {
+        return this.objectMapper.writeValueAsString(this.retrievalInstructions);
+    }
+
+    @Benchmark
+    public String gsonWriteRetrievalInstructions() {
+        return this.gson.toJson(this.retrievalInstructions);
+    }
+
+    @Benchmark
+    public RetrievalInstructionsResponse jacksonReadRetrievalInstructions() throws IOException {
+        return this.objectMapper.readValue(this.retrievalInstructionsJson, RetrievalInstructionsResponse.class);
+    }
+
+    @Benchmark
+    public RetrievalInstructionsResponse gsonReadRetrievalInstructions() {
+        return this.gson.fromJson(this.retrievalInstructionsJson, RetrievalInstructionsResponse.class);
+    }
+
+    @Benchmark
+    public CopyDmsResponse[] jacksonReadCopyDmsResponses() throws IOException {
+        return this.objectMapper.readValue(this.copyDmsResponsesJson, CopyDmsResponse[].class);
+    }
+
+    @Benchmark
+    public CopyDmsResponse[] gsonReadCopyDmsResponses() {
+        return this.gson.fromJson(this.copyDmsResponsesJson, CopyDmsResponse[].class);
+    }
+
+    static Record record(String id) {
+        Map<String, Object> datasetProperties = new HashMap<>();
+        Map<String, Object> fileSourceInfo = new HashMap<>();
+        fileSourceInfo.put("FileSource", "s3://bucket/" + id);
+        fileSourceInfo.put("PreloadFilePath", "s3://staging/" + id);
+        datasetProperties.put("FileSourceInfo", fileSourceInfo);
+        Map<String, Object> data = new HashMap<>();
+        data.put("DatasetProperties", datasetProperties);
+        data.put("Name", id);
+        data.put("Description", "benchmark dataset");
+
+        Legal legal = new Legal();
+        legal.setLegaltags(Collections.singleton("osdu-public-usa-dataset"));
+        legal.setOtherRelevantDataCountries(Collections.singleton("US"));
+
+        Record record = new Record();
+        record.setId(id);
+        record.setKind("osdu:wks:dataset--File.Generic:1.0.0");
+        record.setAcl(new Acl(new String[]{"data.default.viewers@osdu.example.com"},
+                new String[]{"data.default.owners@osdu.example.com"}));
+        record.setLegal(legal);
+        record.setData(data);
+        return record;
+    }
+}
@@ -0,0 +1,129 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares routing record ids and kinds to their DMS with the split() based lookup the services
+ * used before (kept here verbatim as the baseline) against KindSubType + DmsRoutingIndex.
+ *
+ * Run with -prof gc to compare allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KindRoutingBenchmark {
+
+    // an exact registration, a wildcard registration and an unregistered kind
+    @Param({"dataset--File.Generic", "dataset--FileCollection.Bluware.OpenVDS", "dataset--Unregistered.Generic"})
+    public String kindSubType;
+
+    private String recordId;
+    private String kind;
+    private Map<String, DmsServiceProperties> registry;
+    private DmsRoutingIndex routingIndex;
+
+    @Setup
+    public void setup() {
+        this.recordId = "opendes:" + this.kindSubType + ":8f5bd1a8-8b57-4e1a-b2a1-8e4bc1f21c07";
+        this.kind = "osdu:wks:" + this.kindSubType + ":1.0.0";
+
+        this.registry = new HashMap<>();
+        this.registry.put("dataset--File.Generic", new DmsServiceProperties("https://file"));
+        this.registry.put("dataset--File.*", new DmsServiceProperties("https://file"));
+        this.registry.put("dataset--FileCollection.*", new DmsServiceProperties("https://file-collection"));
+        this.registry.put("dataset--ConnectedSource.*", new DmsServiceProperties("https://connected-source"));
+        for (int i = 0; i < 20; i++) {
+            this.registry.put("dataset--Other" + i + ".*", new DmsServiceProperties("https://other-" + i));
+        }
+        this.routingIndex = DmsRoutingIndex.of(this.registry);
+    }
+
+    @Benchmark
+    public void legacyRouteRecordId(Blackhole blackhole) {
+        blackhole.consume(legacyRoute(legacyKindSubTypeFromId(this.recordId)));
+    }
+
+    @Benchmark
+    public void indexedRouteRecordId(Blackhole blackhole) {
+        blackhole.consume(this.routingIndex.route(KindSubType.fromRecordId(this.recordId)));
+    }
+
+    @Benchmark
+    public void legacyRouteKind(Blackhole blackhole) {
+        blackhole.consume(legacyRoute(legacyKindSubTypeFromKind(this.kind)));
+    }
+
+    @Benchmark
+    public void indexedRouteKind(Blackhole blackhole) {
+        blackhole.consume(this.routingIndex.route(KindSubType.fromKind(this.kind)));
+    }
+
+    @Benchmark
+    public boolean legacyRecordIdMatchesKind() {
+        String[] recordIdSplitByColon = this.recordId.split(":");
+        String[] kindSplitByColon = this.kind.split(":");
+        return recordIdSplitByColon[1].equalsIgnoreCase(kindSplitByColon[2]);
+    }
+
+    @Benchmark
+    public boolean indexedRecordIdMatchesKind() {
+        return KindSubType.fromRecordId(this.recordId).equalsIgnoreCase(KindSubType.fromKind(this.kind));
+    }
+
+    private DmsServiceProperties legacyRoute(String kindSubType) {
+        String kindSubTypeCatchAll = legacyKindSubTypeCatchAll(kindSubType);
+        String dmsMapId = null;
+        if (this.registry.containsKey(kindSubType)) {
+            dmsMapId = kindSubType;
+        } else if (this.registry.containsKey(kindSubTypeCatchAll)) {
+            dmsMapId = kindSubTypeCatchAll;
+        }
+        return this.registry.get(dmsMapId);
+    }
+
+    private static String legacyKindSubTypeFromId(String id) {
+        return id.split(":")[1];
+    }
+
+    private static String legacyKindSubTypeFromKind(String kind) {
+        return kind.split(":")[2];
+    }
+
+    private static String legacyKindSubTypeCatchAll(String kindSubType) {
+        return kindSubType.split("\\.")[0] + ".*";
+    }
+}
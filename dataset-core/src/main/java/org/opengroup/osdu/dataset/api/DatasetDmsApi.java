@@ -14,21 +14,29 @@
 
 package org.opengroup.osdu.dataset.api;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.opengroup.osdu.core.common.dms.constants.DatasetConstants;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.dataset.logging.AuditLogger;
 import org.opengroup.osdu.dataset.model.request.DeliveryRole;
-import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
+import org.opengroup.osdu.dataset.model.request.GetRetrievalInstructionsRequest;
+import org.opengroup.osdu.dataset.model.response.DatasetRetrievalDeliveryItem;
 import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
 import org.opengroup.osdu.dataset.service.DatasetDmsService;
+import org.opengroup.osdu.dataset.util.JsonStreamWriter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -36,6 +44,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -56,6 +65,9 @@ public class DatasetDmsApi {
 	@Inject
 	private AuditLogger auditLogger;
 
+	@Inject
+	private ObjectMapper objectMapper;
+
 
     @GetMapping("/getStorageInstructions")	
 	@PreAuthorize("@authorizationFilter.hasRole('" + DeliveryRole.VIEWER + "')")
@@ -115,7 +127,7 @@ public class DatasetDmsApi {
 	@PostMapping(value={"/retrievalInstructions","/getRetrievalInstructions"})
 	@PreAuthorize("@authorizationFilter.hasRole('" + DeliveryRole.VIEWER + "')")
 	public ResponseEntity<Object> retrievalInstructions_post(
-			@RequestBody @Valid @NotNull GetDatasetRegistryRequest request) {
+			@RequestBody @Valid @NotNull GetRetrievalInstructionsRequest request) {
 
 		return getRetrievalInstructions(request.datasetRegistryIds);
 	}
@@ -132,6 +144,49 @@ public class DatasetDmsApi {
 	*/
 
 
+	@PostMapping(value={"/retrievalInstructions","/getRetrievalInstructions"}, produces = JsonStreamWriter.APPLICATION_NDJSON_VALUE)
+	@PreAuthorize("@authorizationFilter.hasRole('" + DeliveryRole.VIEWER + "')")
+	public void retrievalInstructions_ndjson(
+			@RequestBody @Valid @NotNull GetRetrievalInstructionsRequest request, HttpServletResponse servletResponse) throws IOException {
+
+		streamRetrievalInstructions(request.datasetRegistryIds, true, servletResponse);
+	}
+
+	@PostMapping(value={"/retrievalInstructions","/getRetrievalInstructions"}, params = "stream=true")
+	@PreAuthorize("@authorizationFilter.hasRole('" + DeliveryRole.VIEWER + "')")
+	public void retrievalInstructions_stream(
+			@RequestBody @Valid @NotNull GetRetrievalInstructionsRequest request,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			HttpServletResponse servletResponse) throws IOException {
+
+		streamRetrievalInstructions(request.datasetRegistryIds, JsonStreamWriter.acceptsNdjson(accept), servletResponse);
+	}
+
+	/**
+	 * NDJSON lines carry the provider key of their DMS; the JSON document has the shape of
+	 * RetrievalInstructionsResponse with the provider key written after the datasets. A DMS failing
+	 * after the first datasets went out ends the stream with an error record.
+	 */
+	private void streamRetrievalInstructions(List<String> datasetRegistryIds, boolean ndjson, HttpServletResponse servletResponse)
+			throws IOException {
+		try (JsonStreamWriter writer = JsonStreamWriter.open(servletResponse, this.objectMapper, ndjson, "datasets")) {
+			try {
+				this.datasetDmsService.streamRetrievalInstructions(datasetRegistryIds, response -> {
+					for (DatasetRetrievalProperties dataset : response.getDatasets()) {
+						writer.write(ndjson ? new DatasetRetrievalDeliveryItem(dataset.getDatasetRegistryId(),
+								dataset.getRetrievalProperties(), response.getProviderKey()) : dataset);
+					}
+					writer.setTrailingField("providerKey", response.getProviderKey());
+					writer.flush();
+				});
+			} catch (RuntimeException e) {
+				writer.fail(e);
+				return;
+			}
+			writer.finish();
+		}
+	}
+
 	private ResponseEntity<Object> getRetrievalInstructions(List<String> datasetRegistryIds)
 	{
 		Object response = this.datasetDmsService.getRetrievalInstructions(datasetRegistryIds);
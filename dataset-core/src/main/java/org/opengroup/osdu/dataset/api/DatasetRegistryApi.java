@@ -14,21 +14,28 @@
 
 package org.opengroup.osdu.dataset.api;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.core.common.model.storage.StorageRole;
+import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
 import org.opengroup.osdu.dataset.logging.AuditLogger;
 import org.opengroup.osdu.dataset.model.request.CreateDatasetRegistryRequest;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
 import org.opengroup.osdu.dataset.model.response.GetCreateUpdateDatasetRegistryResponse;
 import org.opengroup.osdu.dataset.service.DatasetRegistryService;
+import org.opengroup.osdu.dataset.util.JsonStreamWriter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -37,6 +44,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -49,6 +57,10 @@ import org.springframework.web.context.annotation.RequestScope;
 @Validated
 public class DatasetRegistryApi {
 
+	private static final String PREFER = "Prefer";
+	private static final String PREFERENCE_APPLIED = "Preference-Applied";
+	private static final String RETURN_MINIMAL = "return=minimal";
+
 	@Inject
 	private DpsHeaders headers;
 
@@ -58,6 +70,9 @@ public class DatasetRegistryApi {
 	@Inject
 	private AuditLogger auditLogger;
 
+	@Inject
+	private ObjectMapper objectMapper;
+
 	@PutMapping("/registerDataset")	
 	@PreAuthorize("@authorizationFilter.hasRole('" + StorageRole.CREATOR + "', '" + StorageRole.ADMIN + "')")
 	public ResponseEntity<GetCreateUpdateDatasetRegistryResponse> createOrUpdateDatasetRegistry(
@@ -68,6 +83,21 @@ public class DatasetRegistryApi {
 			return new ResponseEntity<GetCreateUpdateDatasetRegistryResponse>(response, HttpStatus.CREATED);
 	}
 
+	@PutMapping(value = "/registerDataset", headers = PREFER)
+	@PreAuthorize("@authorizationFilter.hasRole('" + StorageRole.CREATOR + "', '" + StorageRole.ADMIN + "')")
+	public ResponseEntity<?> createOrUpdateDatasetRegistryWithPreference(
+		@RequestBody @Valid @NotNull CreateDatasetRegistryRequest request,
+		@RequestHeader(PREFER) String prefer) {
+
+			if (!prefersMinimalReturn(prefer)) {
+				return createOrUpdateDatasetRegistry(request);
+			}
+
+			UpsertRecords response = this.dataRegistryService.createOrUpdateDatasetRegistryMinimal(request.datasetRegistries);
+			this.auditLogger.registerDatasetSuccess(Collections.singletonList(response.toString()));
+			return ResponseEntity.status(HttpStatus.CREATED).header(PREFERENCE_APPLIED, RETURN_MINIMAL).body(response);
+	}
+
 	@GetMapping("/getDatasetRegistry")	
 	@PreAuthorize("@authorizationFilter.hasRole('" + StorageRole.CREATOR + "', '" + StorageRole.ADMIN + "', '" + StorageRole.VIEWER + "')")
 	public ResponseEntity<GetCreateUpdateDatasetRegistryResponse> getDatasetRegistry( 
@@ -89,4 +119,46 @@ public class DatasetRegistryApi {
 			this.auditLogger.readDatasetRegistriesSuccess(Collections.singletonList(response.toString()));
 			return new ResponseEntity<GetCreateUpdateDatasetRegistryResponse>(response, HttpStatus.OK);
 	}
+
+	@PostMapping(value = "/getDatasetRegistry", produces = JsonStreamWriter.APPLICATION_NDJSON_VALUE)
+	@PreAuthorize("@authorizationFilter.hasRole('" + StorageRole.CREATOR + "', '" + StorageRole.ADMIN + "', '" + StorageRole.VIEWER + "')")
+	public void getDatasetRegistryNdjson(
+		@RequestBody @Valid @NotNull GetDatasetRegistryRequest request, HttpServletResponse servletResponse) throws IOException {
+			streamDatasetRegistries(request.datasetRegistryIds, true, servletResponse);
+	}
+
+	@PostMapping(value = "/getDatasetRegistry", params = "stream=true")
+	@PreAuthorize("@authorizationFilter.hasRole('" + StorageRole.CREATOR + "', '" + StorageRole.ADMIN + "', '" + StorageRole.VIEWER + "')")
+	public void getDatasetRegistryStream(
+		@RequestBody @Valid @NotNull GetDatasetRegistryRequest request,
+		@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+		HttpServletResponse servletResponse) throws IOException {
+			streamDatasetRegistries(request.datasetRegistryIds, JsonStreamWriter.acceptsNdjson(accept), servletResponse);
+	}
+
+	private static boolean prefersMinimalReturn(String prefer) {
+		for (String preference : prefer.split(",")) {
+			if (RETURN_MINIMAL.equalsIgnoreCase(preference.trim())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void streamDatasetRegistries(List<String> datasetRegistryIds, boolean ndjson, HttpServletResponse servletResponse) throws IOException {
+		try (JsonStreamWriter writer = JsonStreamWriter.open(servletResponse, this.objectMapper, ndjson, "datasetRegistries")) {
+			try {
+				this.dataRegistryService.streamDatasetRegistries(datasetRegistryIds, records -> {
+					records.forEach(writer::write);
+					writer.flush();
+				});
+			} catch (RuntimeException e) {
+				// once records went out the failure can only be reported in the body
+				writer.fail(e);
+				return;
+			}
+			writer.finish();
+		}
+		this.auditLogger.readDatasetRegistriesSuccess(datasetRegistryIds);
+	}
 }
\ No newline at end of file
@@ -1,5 +1,9 @@
 package org.opengroup.osdu.dataset.di;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -9,4 +13,98 @@ import org.springframework.context.annotation.Configuration;
 @Data
 public class DatasetConfig {
     private boolean useRestDms = false;
+
+    // bounded pool used to call several DMS at once within a single request
+    private int dmsFanOutPoolSize = 16;
+    private int dmsFanOutQueueSize = 64;
+    private long dmsFanOutTimeoutMillis = 30000;
+
+    // process wide cache of schemas looked up while registering datasets
+    private boolean schemaCacheEnabled = true;
+    private int schemaCacheMaxSize = 1000;
+    private int schemaCacheExpirationSeconds = 3600;
+    private long schemaCacheMaxLoadWaitMillis = 10000;
+    // cached schemas are only served to callers holding one of these roles, as the Schema service requires
+    private List<String> schemaCacheReaderRoles = Arrays.asList("service.schema-service.viewers",
+            "service.schema-service.editors");
+
+    // opt-in cache of retrieval instructions; entries expire shortly before their signed URLs do
+    private boolean retrievalInstructionsCacheEnabled = false;
+    private int retrievalInstructionsCacheMaxSize = 10000;
+    private int retrievalInstructionsCacheMaxTtlSeconds = 3600;
+    private int retrievalInstructionsCacheExpiryMarginSeconds = 60;
+
+    // opt-in pool of storage instructions fetched ahead of demand, per partition, kindSubType and caller
+    private boolean storageInstructionsPoolEnabled = false;
+    private int storageInstructionsPoolMaxSize = 8;
+    private int storageInstructionsPoolMaxPools = 1000;
+    private int storageInstructionsPoolMaxTtlSeconds = 900;
+    private int storageInstructionsPoolExpiryMarginSeconds = 120;
+    private int storageInstructionsPoolDemandWindowSeconds = 60;
+    private int storageInstructionsPoolRefillThreads = 4;
+
+    // record reads larger than this are split into chunks read concurrently on the fan-out pool,
+    // at most this many chunks at a time per request (0 for no bound)
+    private int storageGetRecordsChunkSize = 20;
+    private int storageGetRecordsMaxConcurrentChunks = 4;
+    private long storageGetRecordsTimeoutMillis = 30000;
+
+    // retrieval instructions for up to this many ids per request (0 for no limit); duplicate ids are
+    // fetched once, and each DMS is called with batches of its preferred size (by base URL, else the
+    // default; 0 for a single batch), at most this many batches at a time per request
+    private int retrievalInstructionsMaxIds = 10000;
+    private int dmsRetrievalBatchSize = 100;
+    private Map<String, Integer> dmsRetrievalBatchSizeByBaseUrl = new HashMap<>();
+    private int dmsRetrievalMaxConcurrentBatches = 8;
+
+    // read registered datasets back from Storage; false answers from copies of the submitted records instead,
+    // saving a Storage read but leaving out the fields Storage fills in itself (createUser, createTime, ...)
+    private boolean registerDatasetReadAfterWrite = true;
+
+    // opt-in Server-Timing breakdown of every response; callers sending "TE: trailers" also get it as JSON trailer
+    private boolean serverTimingEnabled = false;
+
+    // opt-in, per DMS base URL: bounded concurrent calls with a short queue, and a circuit breaker failing fast
+    // with 503; rejections are not retried, so when enabling it allow more calls than dmsFanOutPoolSize plus
+    // the request threads that may call one DMS at the same time
+    private boolean dmsBulkheadEnabled = false;
+    private int dmsBulkheadMaxConcurrentCalls = 20;
+    private int dmsBulkheadMaxQueuedCalls = 20;
+    private long dmsBulkheadMaxQueueWaitMillis = 1000;
+    private int dmsCircuitBreakerWindowSize = 20;
+    private int dmsCircuitBreakerMinimumCalls = 10;
+    private int dmsCircuitBreakerFailureRateThreshold = 50;
+    private int dmsCircuitBreakerOpenSeconds = 30;
+    private int dmsCircuitBreakerHalfOpenCalls = 3;
+
+    // opt-in hedging of DMS reads: a second call once the first is slower than this percentile of recent calls
+    private boolean dmsHedgingEnabled = false;
+    private int dmsHedgingPercentile = 95;
+    private long dmsHedgingMinDelayMillis = 20;
+    private int dmsHedgingBudgetPercent = 5;
+    private int dmsHedgingPoolSize = 64;
+
+    // retries of idempotent downstream reads after 429, server errors or no answer, within a per downstream budget
+    private boolean downstreamRetryEnabled = true;
+    private int downstreamRetryMaxAttempts = 3;
+    private long downstreamRetryBaseDelayMillis = 50;
+    private long downstreamRetryMaxDelayMillis = 1000;
+    private long downstreamRetryMaxRetryAfterMillis = 5000;
+    private int downstreamRetryBudgetPercent = 10;
+    private int downstreamRetryBudgetMaxTokens = 10;
+
+    // request deadline from the Request-Timeout header (ms, capped), else the default of the endpoint, e.g.
+    // requestDeadlineMillisByEndpoint.retrievalInstructions=10000, else the overall default; 0 for none
+    private long requestDeadlineMaxMillis = 300000;
+    private long requestDeadlineDefaultMillis = 0;
+    private Map<String, Long> requestDeadlineMillisByEndpoint = new HashMap<>();
+
+    // pooled keep-alive client shared by the outbound DMS and Schema clients
+    private long outboundHttpConnectTimeoutMillis = 5000;
+    private long outboundHttpReadTimeoutMillis = 30000;
+    private long outboundHttpWriteTimeoutMillis = 30000;
+    private long outboundHttpIdleTimeoutMillis = 300000;
+    private int outboundHttpMaxIdleConnectionsPerHost = 5;
+    private Map<String, Integer> outboundHttpMaxIdleConnectionsByHost = new HashMap<>();
+    private boolean outboundHttpHttp2Enabled = true;
 }
@@ -15,6 +15,7 @@
 package org.opengroup.osdu.dataset.di;
 
 import lombok.AllArgsConstructor;
+import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.dataset.dms.DmsFactory;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +28,7 @@ import org.springframework.stereotype.Component;
 public class DmsClientFactory extends AbstractFactoryBean<IDmsFactory> {
 
 	private final DatasetConfig datasetConfig;
+	private final IHttpClient httpClient;
 
 	@Override
 	public Class<?> getObjectType() {
@@ -35,6 +37,6 @@ public class DmsClientFactory extends AbstractFactoryBean<IDmsFactory> {
 
 	@Override
 	protected IDmsFactory createInstance() throws Exception {
-		return new DmsFactory(datasetConfig);
+		return new DmsFactory(datasetConfig, httpClient);
 	}
 }
@@ -0,0 +1,44 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.di;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.opengroup.osdu.dataset.dms.DmsHedging;
+import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class DmsHedgingFactory extends AbstractFactoryBean<DmsHedging> {
+
+	private final DatasetConfig datasetConfig;
+	private final MeterRegistry meterRegistry;
+
+	@Override
+	public Class<?> getObjectType() {
+		return DmsHedging.class;
+	}
+
+	@Override
+	protected DmsHedging createInstance() throws Exception {
+		return new DmsHedging(datasetConfig, meterRegistry);
+	}
+
+	@Override
+	protected void destroyInstance(DmsHedging instance) throws Exception {
+		instance.shutdown();
+	}
+}
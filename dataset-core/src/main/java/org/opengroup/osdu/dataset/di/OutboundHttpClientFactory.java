@@ -0,0 +1,54 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.di;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.opengroup.osdu.dataset.http.PooledHttpClient;
+import org.opengroup.osdu.dataset.http.PooledHttpClientConfig;
+import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class OutboundHttpClientFactory extends AbstractFactoryBean<PooledHttpClient> {
+
+	private final DatasetConfig datasetConfig;
+	private final MeterRegistry meterRegistry;
+
+	@Override
+	public Class<?> getObjectType() {
+		return PooledHttpClient.class;
+	}
+
+	@Override
+	protected PooledHttpClient createInstance() throws Exception {
+		return new PooledHttpClient(PooledHttpClientConfig
+				.builder()
+				.connectTimeoutMillis(datasetConfig.getOutboundHttpConnectTimeoutMillis())
+				.readTimeoutMillis(datasetConfig.getOutboundHttpReadTimeoutMillis())
+				.writeTimeoutMillis(datasetConfig.getOutboundHttpWriteTimeoutMillis())
+				.idleTimeoutMillis(datasetConfig.getOutboundHttpIdleTimeoutMillis())
+				.maxIdleConnectionsPerHost(datasetConfig.getOutboundHttpMaxIdleConnectionsPerHost())
+				.maxIdleConnectionsByHost(datasetConfig.getOutboundHttpMaxIdleConnectionsByHost())
+				.http2Enabled(datasetConfig.isOutboundHttpHttp2Enabled())
+				.build(), meterRegistry);
+	}
+
+	@Override
+	protected void destroyInstance(PooledHttpClient instance) throws Exception {
+		instance.shutdown();
+	}
+}
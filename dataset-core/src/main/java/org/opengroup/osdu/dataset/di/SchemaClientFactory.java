@@ -16,10 +16,17 @@
 package org.opengroup.osdu.dataset.di;
 
 import lombok.RequiredArgsConstructor;
+import org.opengroup.osdu.core.common.entitlements.IEntitlementsAndCacheService;
+import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.http.json.HttpResponseBodyMapper;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.dataset.schema.ISchemaFactory;
+import org.opengroup.osdu.dataset.schema.ISchemaRemoteCache;
 import org.opengroup.osdu.dataset.schema.SchemaAPIConfig;
+import org.opengroup.osdu.dataset.schema.SchemaCache;
 import org.opengroup.osdu.dataset.schema.SchemaFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
 import org.springframework.stereotype.Component;
@@ -29,6 +36,14 @@ import org.springframework.stereotype.Component;
 public class SchemaClientFactory extends AbstractFactoryBean<ISchemaFactory> {
 
 	private final HttpResponseBodyMapper bodyMapper;
+	private final DatasetConfig datasetConfig;
+	private final IHttpClient httpClient;
+
+	@Autowired(required = false)
+	private ISchemaRemoteCache schemaRemoteCache;
+
+	@Autowired(required = false)
+	private IEntitlementsAndCacheService entitlementsAndCacheService;
 
 	@Value("${SCHEMA_API}")
 	private String SCHEMA_API;
@@ -40,10 +55,27 @@ public class SchemaClientFactory extends AbstractFactoryBean<ISchemaFactory> {
 
 	@Override
 	protected ISchemaFactory createInstance() throws Exception {
+		SchemaCache schemaCache = datasetConfig.isSchemaCacheEnabled()
+				? new SchemaCache(datasetConfig.getSchemaCacheMaxSize(), datasetConfig.getSchemaCacheExpirationSeconds(),
+						schemaRemoteCache, datasetConfig.getSchemaCacheMaxLoadWaitMillis())
+				: null;
 		return new SchemaFactory(SchemaAPIConfig
 				.builder()
 				.rootUrl(SCHEMA_API)
 				.build(),
-				bodyMapper);
+				bodyMapper,
+				schemaCache,
+				httpClient,
+				entitlementsAndCacheService == null ? null : this::mayReadSchemas);
+	}
+
+	// a caller whose groups cannot be looked up is not refused here, it just asks the Schema service itself
+	private boolean mayReadSchemas(DpsHeaders headers) {
+		try {
+			entitlementsAndCacheService.authorize(headers, datasetConfig.getSchemaCacheReaderRoles().toArray(new String[0]));
+			return true;
+		} catch (AppException e) {
+			return false;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.util.RequestDeadline;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Isolates the DMS from each other, per base URL, so a slow or failing DMS cannot take the
+ * threads every other request needs.
+ *
+ * Each DMS gets a bulkhead, a bounded number of concurrent calls with a short queue in front of
+ * it, and a {@link DmsCircuitBreaker}. Calls beyond the queue, calls that waited too long in it
+ * and calls to a DMS whose breaker is open fail right away with 503 instead of waiting on the DMS.
+ * Failures are server errors and calls that got no answer at all; client errors show the DMS is up.
+ */
+@Slf4j
+public class DmsBulkheads {
+
+    private final boolean enabled;
+    private final DatasetConfig datasetConfig;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public DmsBulkheads(DatasetConfig datasetConfig, MeterRegistry meterRegistry) {
+        this(datasetConfig, meterRegistry, System::currentTimeMillis);
+    }
+
+    DmsBulkheads(DatasetConfig datasetConfig, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.enabled = datasetConfig.isDmsBulkheadEnabled();
+        this.datasetConfig = datasetConfig;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the provider with every call going through the bulkhead of its DMS
+     */
+    public IDmsProvider guard(IDmsProvider dmsProvider, DmsServiceProperties dmsServiceProperties) {
+        if (!this.enabled || dmsProvider == null) {
+            return dmsProvider;
+        }
+        Bulkhead bulkhead = this.bulkheads.computeIfAbsent(
+                String.valueOf(dmsServiceProperties.getDmsServiceBaseUrl()), Bulkhead::new);
+        return (IDmsProvider) Proxy.newProxyInstance(IDmsProvider.class.getClassLoader(),
+                new Class<?>[]{IDmsProvider.class},
+                (proxy, method, args) -> method.getDeclaringClass() == Object.class
+                        ? invoke(dmsProvider, method, args)
+                        : bulkhead.call(dmsProvider, method, args));
+    }
+
+    /**
+     * @return the state of every DMS called so far, by base URL
+     */
+    public Map<String, Map<String, Object>> describe() {
+        Map<String, Map<String, Object>> states = new TreeMap<>();
+        this.bulkheads.forEach((target, bulkhead) -> states.put(target, bulkhead.describe()));
+        return states;
+    }
+
+    static boolean isFailure(Throwable e) {
+        if (e instanceof AppException) {
+            return ((AppException) e).getError().getCode() >= 500;
+        }
+        if (e instanceof DmsException) {
+            HttpResponse response = ((DmsException) e).getHttpResponse();
+            return response == null || response.getResponseCode() == 0 || response.getResponseCode() >= 500;
+        }
+        return true;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static AppException unavailable(String message) {
+        return new AppException(HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                message);
+    }
+
+    private final class Bulkhead {
+
+        private final String target;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final DmsCircuitBreaker circuitBreaker;
+        private final Counter rejectedFull;
+        private final Counter rejectedOpen;
+
+        private Bulkhead(String target) {
+            this.target = target;
+            this.permits = new Semaphore(datasetConfig.getDmsBulkheadMaxConcurrentCalls(), true);
+            this.circuitBreaker = new DmsCircuitBreaker(
+                    datasetConfig.getDmsCircuitBreakerWindowSize(),
+                    datasetConfig.getDmsCircuitBreakerMinimumCalls(),
+                    datasetConfig.getDmsCircuitBreakerFailureRateThreshold(),
+                    TimeUnit.SECONDS.toMillis(datasetConfig.getDmsCircuitBreakerOpenSeconds()),
+                    datasetConfig.getDmsCircuitBreakerHalfOpenCalls(),
+                    clock);
+
+            Tags tags = Tags.of("target", target);
+            this.rejectedFull = meterRegistry.counter("dataset.dms.rejections", tags.and("reason", "bulkhead_full"));
+            this.rejectedOpen = meterRegistry.counter("dataset.dms.rejections", tags.and("reason", "circuit_open"));
+            meterRegistry.gauge("dataset.dms.bulkhead.active", tags, this,
+                    bulkhead -> datasetConfig.getDmsBulkheadMaxConcurrentCalls() - bulkhead.permits.availablePermits());
+            meterRegistry.gauge("dataset.dms.bulkhead.queued", tags, this.queued);
+            meterRegistry.gauge("dataset.dms.circuitbreaker.state", tags, this.circuitBreaker,
+                    breaker -> breaker.getState().ordinal());
+        }
+
+        Object call(IDmsProvider dmsProvider, Method method, Object[] args) throws Throwable {
+            if (!this.circuitBreaker.tryAcquire()) {
+                this.rejectedOpen.increment();
+                throw unavailable("DMS is unavailable after repeated failures, try again later");
+            }
+            if (!this.acquirePermit()) {
+                this.circuitBreaker.onNotCalled();
+                this.rejectedFull.increment();
+                log.warn(String.format("Rejected call to DMS %s, too many calls in progress", this.target));
+                throw unavailable("DMS is busy, too many calls in progress, try again later");
+            }
+
+            try {
+                Object result = invoke(dmsProvider, method, args);
+                this.circuitBreaker.onSuccess();
+                return result;
+            } catch (Throwable e) {
+                if (RequestDeadline.isSet() && RequestDeadline.remainingMillis(1) == 0) {
+                    // cut short by the caller's deadline, says nothing about the DMS
+                    this.circuitBreaker.onNotCalled();
+                } else if (isFailure(e)) {
+                    this.circuitBreaker.onFailure();
+                } else {
+                    this.circuitBreaker.onSuccess();
+                }
+                throw e;
+            } finally {
+                this.permits.release();
+            }
+        }
+
+        private boolean acquirePermit() {
+            if (this.permits.tryAcquire()) {
+                return true;
+            }
+            if (this.queued.incrementAndGet() > datasetConfig.getDmsBulkheadMaxQueuedCalls()) {
+                this.queued.decrementAndGet();
+                return false;
+            }
+            try {
+                return this.permits.tryAcquire(datasetConfig.getDmsBulkheadMaxQueueWaitMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                this.queued.decrementAndGet();
+            }
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("circuitBreaker", this.circuitBreaker.getState().name());
+            state.put("bufferedCalls", this.circuitBreaker.getBufferedCalls());
+            state.put("failedCalls", this.circuitBreaker.getFailedCalls());
+            state.put("activeCalls", datasetConfig.getDmsBulkheadMaxConcurrentCalls() - this.permits.availablePermits());
+            state.put("queuedCalls", this.queued.get());
+            state.put("rejectedCalls", (long) (this.rejectedFull.count() + this.rejectedOpen.count()));
+            return state;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Count based circuit breaker over the outcomes of the last calls to one DMS.
+ *
+ * Closed, it lets every call through and opens once at least the minimum number of calls has been
+ * seen and the share of failures among them reaches the threshold. Open, it rejects every call
+ * until the open duration has passed and then lets a few trial calls through, half open: a failing
+ * trial opens it again, once all trials succeeded it closes with a clean window.
+ */
+class DmsCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int bufferedCalls;
+    private int failedCalls;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    DmsCircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openMillis, int halfOpenCalls,
+                      LongSupplier clock) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+    }
+
+    /**
+     * @return whether a call may go ahead; every permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onNotCalled()}
+     */
+    synchronized boolean tryAcquire() {
+        if (this.state == State.OPEN) {
+            if (this.clock.getAsLong() - this.openedAt < this.openMillis) {
+                return false;
+            }
+            this.state = State.HALF_OPEN;
+            this.trialsStarted = 0;
+            this.trialsSucceeded = 0;
+        }
+        if (this.state == State.HALF_OPEN) {
+            if (this.trialsStarted >= this.halfOpenCalls) {
+                return false;
+            }
+            this.trialsStarted++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (this.state == State.HALF_OPEN) {
+            if (++this.trialsSucceeded >= this.halfOpenCalls) {
+                this.close();
+            }
+        } else if (this.state == State.CLOSED) {
+            this.record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (this.state == State.HALF_OPEN) {
+            this.open();
+        } else if (this.state == State.CLOSED) {
+            this.record(true);
+            if (this.bufferedCalls >= this.minimumCalls
+                    && this.failedCalls * 100 >= this.failureRateThreshold * this.bufferedCalls) {
+                this.open();
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit whose call never reached the DMS.
+     */
+    synchronized void onNotCalled() {
+        if (this.state == State.HALF_OPEN && this.trialsStarted > this.trialsSucceeded) {
+            this.trialsStarted--;
+        }
+    }
+
+    synchronized State getState() {
+        if (this.state == State.OPEN && this.clock.getAsLong() - this.openedAt >= this.openMillis) {
+            // reported as half open already, the next call will be a trial
+            return State.HALF_OPEN;
+        }
+        return this.state;
+    }
+
+    synchronized int getBufferedCalls() {
+        return this.bufferedCalls;
+    }
+
+    synchronized int getFailedCalls() {
+        return this.failedCalls;
+    }
+
+    private void record(boolean failed) {
+        if (this.bufferedCalls == this.window.length) {
+            if (this.window[this.position]) {
+                this.failedCalls--;
+            }
+        } else {
+            this.bufferedCalls++;
+        }
+        this.window[this.position] = failed;
+        if (failed) {
+            this.failedCalls++;
+        }
+        this.position = (this.position + 1) % this.window.length;
+    }
+
+    private void open() {
+        this.state = State.OPEN;
+        this.openedAt = this.clock.getAsLong();
+    }
+
+    private void close() {
+        this.state = State.CLOSED;
+        this.position = 0;
+        this.bufferedCalls = 0;
+        this.failedCalls = 0;
+    }
+}
@@ -0,0 +1,37 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Circuit breaker and bulkhead state of every DMS called since startup, at /actuator/dms.
+ */
+@Component
+@Endpoint(id = "dms")
+@RequiredArgsConstructor
+public class DmsEndpoint {
+
+    private final DmsBulkheads dmsBulkheads;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> dms() {
+        return this.dmsBulkheads.describe();
+    }
+}
@@ -26,10 +26,15 @@ public class DmsFactory implements IDmsFactory {
 
     private DatasetConfig datasetConfig;
 
-    private IHttpClient httpClient = new HttpClient();
+    private IHttpClient httpClient;
 
     public DmsFactory(DatasetConfig datasetConfig) {
+        this(datasetConfig, new HttpClient());
+    }
+
+    public DmsFactory(DatasetConfig datasetConfig, IHttpClient httpClient) {
         this.datasetConfig = datasetConfig;
+        this.httpClient = httpClient;
     }
 
     @Override
@@ -0,0 +1,327 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.metrics.RequestTimings;
+import org.opengroup.osdu.dataset.util.AttemptScope;
+import org.opengroup.osdu.dataset.util.RequestDeadline;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Hedges the idempotent reads of the DMS, per base URL: when a call has not answered within the
+ * configured percentile of the recent latencies of its DMS, the same call is sent a second time and
+ * whichever answers first wins. Only the tail is hedged, so the extra load stays small, and a
+ * budget caps it: every call earns a fraction of a hedge, every hedge spends a whole one. The
+ * latencies are those of the calls, from the first attempt until the answer, not of the attempts:
+ * a hedge that wins says little about how slow the DMS is, and the attempt it beat, cancelled
+ * without an answer, took at least as long as the call.
+ *
+ * A call is hedged or retried, not both, so it reaches the DMS at most as often as the retries
+ * allow: an attempt that is already retrying is not hedged, and once hedged neither attempt
+ * retries. The attempt that loses is cancelled together with its outbound call, which releases
+ * its connection and its bulkhead permit.
+ *
+ * Both attempts run on a dedicated pool, which is why providers are created with a copy of the
+ * request headers. When that pool is saturated the call runs unhedged on the calling thread.
+ */
+public class DmsHedging {
+
+    private static final Set<String> HEDGED_METHODS = new HashSet<>(Arrays.asList(
+            "getRetrievalInstructions", "getDatasetRetrievalInstructions"));
+    private static final int WINDOW_SIZE = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 16;
+    // hedges saved up by quiet periods, spent at most in one burst
+    private static final double MAX_BUDGET = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetPerCall;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+    public DmsHedging(DatasetConfig datasetConfig, MeterRegistry meterRegistry) {
+        this.enabled = datasetConfig.isDmsHedgingEnabled();
+        this.percentile = datasetConfig.getDmsHedgingPercentile() / 100.0;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(datasetConfig.getDmsHedgingMinDelayMillis());
+        this.budgetPerCall = datasetConfig.getDmsHedgingBudgetPercent() / 100.0;
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(0, Math.max(2, datasetConfig.getDmsHedgingPoolSize()),
+                60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "dms-hedging");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Creates the provider, hedging its reads when enabled.
+     */
+    public IDmsProvider create(IDmsFactory dmsFactory, DpsHeaders headers, DmsServiceProperties dmsServiceProperties) {
+        if (!this.enabled) {
+            return dmsFactory.create(headers, dmsServiceProperties);
+        }
+        // the attempts run on pool threads, out of reach of request scoped headers
+        DpsHeaders callHeaders = headers == null ? null : DpsHeaders.createFromMap(headers.getHeaders());
+        IDmsProvider dmsProvider = dmsFactory.create(callHeaders, dmsServiceProperties);
+        if (dmsProvider == null) {
+            return null;
+        }
+        Target target = this.targets.computeIfAbsent(
+                String.valueOf(dmsServiceProperties.getDmsServiceBaseUrl()), Target::new);
+        return (IDmsProvider) Proxy.newProxyInstance(IDmsProvider.class.getClassLoader(),
+                new Class<?>[]{IDmsProvider.class},
+                (proxy, method, args) -> HEDGED_METHODS.contains(method.getName())
+                        ? target.call(() -> invoke(dmsProvider, method, args))
+                        : invoke(dmsProvider, method, args));
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private final class Target {
+
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private int position;
+        private int samples;
+        private volatile long thresholdNanos = Long.MAX_VALUE;
+        private double budget;
+
+        private final Counter unhedged;
+        private final Counter primaryWon;
+        private final Counter hedgeWon;
+        private final Counter overBudget;
+        private final Counter retrying;
+
+        private Target(String target) {
+            Tags tags = Tags.of("target", target);
+            meterRegistry.gauge("dataset.dms.hedging.threshold", tags, this, Target::thresholdMillis);
+            this.unhedged = meterRegistry.counter("dataset.dms.hedging.calls", tags.and("outcome", "not_hedged"));
+            this.primaryWon = meterRegistry.counter("dataset.dms.hedging.calls", tags.and("outcome", "primary_won"));
+            this.hedgeWon = meterRegistry.counter("dataset.dms.hedging.calls", tags.and("outcome", "hedge_won"));
+            this.overBudget = meterRegistry.counter("dataset.dms.hedging.calls", tags.and("outcome", "over_budget"));
+            this.retrying = meterRegistry.counter("dataset.dms.hedging.calls", tags.and("outcome", "retrying"));
+        }
+
+        Object call(Callable<Object> attempt) throws Exception {
+            this.earnBudget();
+            BlockingQueue<Attempt> completed = new LinkedBlockingQueue<>();
+            AttemptScope scope = new AttemptScope();
+            long startNanos = System.nanoTime();
+            Future<?> primary = this.submit(scope.bind(attempt), completed, false);
+            if (primary == null) {
+                // pool saturated, no room for hedging either
+                this.unhedged.increment();
+                return this.timed(attempt);
+            }
+
+            Future<?> hedge = null;
+            Attempt first = null;
+            boolean sampled = false;
+            try {
+                long hedgeDelayNanos = Math.max(this.thresholdNanos, minDelayNanos);
+                if (RequestDeadline.isSet()) {
+                    hedgeDelayNanos = Math.min(hedgeDelayNanos,
+                            TimeUnit.MILLISECONDS.toNanos(RequestDeadline.remainingMillis(Long.MAX_VALUE)));
+                }
+                first = completed.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    this.unhedged.increment();
+                    sampled = this.sample(first, startNanos);
+                    return first.result();
+                }
+                RequestDeadline.check("hedging DMS call");
+                if (!this.trySpendBudget()) {
+                    this.overBudget.increment();
+                } else if (!scope.tryHedge()) {
+                    // the primary is retrying already, a hedge on top would only add to the load
+                    this.refundBudget();
+                    this.retrying.increment();
+                } else {
+                    hedge = this.submit(scope.bind(attempt), completed, true);
+                    if (hedge == null) {
+                        scope.hedgeNotSent();
+                        this.refundBudget();
+                    }
+                }
+
+                first = this.awaitAttempt(completed);
+                if (first.error != null && hedge != null) {
+                    // one attempt failing is not the end, the other one may still answer
+                    first = this.awaitAttempt(completed);
+                }
+                if (hedge != null) {
+                    (first.hedge ? this.hedgeWon : this.primaryWon).increment();
+                } else {
+                    this.unhedged.increment();
+                }
+                sampled = this.sample(first, startNanos);
+                return first.result();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AppException(HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                        "Interrupted while waiting for DMS", e);
+            } finally {
+                boolean primaryAnswered = first != null && !first.hedge || primary.isDone();
+                if (!sampled && !primaryAnswered) {
+                    // given up on while the DMS had not answered yet: the call took at least this long
+                    this.record(System.nanoTime() - startNanos);
+                }
+                scope.cancel();
+                primary.cancel(true);
+                if (hedge != null) {
+                    hedge.cancel(true);
+                }
+            }
+        }
+
+        private Attempt awaitAttempt(BlockingQueue<Attempt> completed) throws InterruptedException {
+            if (!RequestDeadline.isSet()) {
+                return completed.take();
+            }
+            Attempt attempt = completed.poll(RequestDeadline.remainingMillis(Long.MAX_VALUE), TimeUnit.MILLISECONDS);
+            if (attempt == null) {
+                throw RequestDeadline.exceeded("DMS answered");
+            }
+            return attempt;
+        }
+
+        /**
+         * Records the latency of the call the attempt answered, if it did.
+         */
+        private boolean sample(Attempt attempt, long startNanos) {
+            if (attempt.error != null) {
+                return false;
+            }
+            this.record(System.nanoTime() - startNanos);
+            return true;
+        }
+
+        private Future<?> submit(Callable<Object> attempt, BlockingQueue<Attempt> completed, boolean hedge) {
+            Callable<Object> propagated = RequestDeadline.propagate(RequestTimings.propagate(attempt));
+            try {
+                return executor.submit(() -> {
+                    try {
+                        completed.add(new Attempt(propagated.call(), null, hedge));
+                    } catch (Exception e) {
+                        completed.add(new Attempt(null, e, hedge));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                return null;
+            }
+        }
+
+        private Object timed(Callable<Object> attempt) throws Exception {
+            long start = System.nanoTime();
+            Object result = attempt.call();
+            this.record(System.nanoTime() - start);
+            return result;
+        }
+
+        private synchronized void record(long latencyNanos) {
+            this.latencies[this.position] = latencyNanos;
+            this.position = (this.position + 1) % WINDOW_SIZE;
+            this.samples++;
+            if (this.samples >= MIN_SAMPLES && this.samples % RECOMPUTE_EVERY == 0) {
+                long[] window = Arrays.copyOf(this.latencies, Math.min(this.samples, WINDOW_SIZE));
+                Arrays.sort(window);
+                int index = (int) Math.ceil(percentile * window.length) - 1;
+                this.thresholdNanos = window[Math.max(0, Math.min(index, window.length - 1))];
+            }
+        }
+
+        // the configured percentile of the recent call latencies, hedges wait at least the minimum delay
+        private double thresholdMillis() {
+            long threshold = this.thresholdNanos;
+            return threshold == Long.MAX_VALUE ? Double.NaN : threshold / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        private synchronized void earnBudget() {
+            this.budget = Math.min(MAX_BUDGET, this.budget + budgetPerCall);
+        }
+
+        private synchronized boolean trySpendBudget() {
+            if (this.budget < 1) {
+                return false;
+            }
+            this.budget--;
+            return true;
+        }
+
+        private synchronized void refundBudget() {
+            this.budget = Math.min(MAX_BUDGET, this.budget + 1);
+        }
+    }
+
+    private static final class Attempt {
+
+        private final Object value;
+        private final Exception error;
+        private final boolean hedge;
+
+        private Attempt(Object value, Exception error, boolean hedge) {
+            this.value = value;
+            this.error = error;
+            this.hedge = hedge;
+        }
+
+        Object result() throws Exception {
+            if (this.error != null) {
+                throw this.error;
+            }
+            return this.value;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves DMS registrations key by key for registries that support point lookups, caching what
+ * it finds, and what it does not find, per partition.
+ *
+ * A kind sub type needs every registry key that could route it (see
+ * {@link DmsRoutingIndex#candidateKeys(KindSubType)}); most of those keys are not registered, so
+ * absent keys are cached as well, for a shorter time, and repeated requests for unknown kinds do
+ * not reach the registry again.
+ *
+ * At most maxSize keys are cached; a full lookup drops expired keys first, then the ones loaded
+ * longest ago.
+ */
+public class DmsRegistrationLookup {
+
+    /**
+     * Reads the given registry keys; keys that are not registered are left out of the result.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Map<String, DmsServiceProperties> load(Set<String> registryKeys);
+    }
+
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public DmsRegistrationLookup(int ttlSeconds, int negativeTtlSeconds, int maxSize) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+        this.maxSize = maxSize;
+    }
+
+    public Map<String, DmsServiceProperties> get(String partitionId, Collection<KindSubType> kindSubTypes,
+                                                 Loader loader) {
+        Map<String, DmsServiceProperties> registrations = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        for (KindSubType kindSubType : kindSubTypes) {
+            for (String registryKey : DmsRoutingIndex.candidateKeys(kindSubType)) {
+                Entry entry = this.entries.get(cacheKey(partitionId, registryKey));
+                if (entry == null || entry.expiresAtMillis <= now) {
+                    missing.add(registryKey);
+                } else if (entry.dmsServiceProperties != null) {
+                    registrations.put(registryKey, entry.dmsServiceProperties);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return registrations;
+        }
+
+        Map<String, DmsServiceProperties> loaded = loader.load(missing);
+        now = System.currentTimeMillis();
+        this.evictIfFull(missing.size(), now);
+        for (String registryKey : missing) {
+            DmsServiceProperties dmsServiceProperties = loaded.get(registryKey);
+            long ttl = dmsServiceProperties == null ? this.negativeTtlMillis : this.ttlMillis;
+            this.entries.put(cacheKey(partitionId, registryKey), new Entry(dmsServiceProperties, now, now + ttl));
+            if (dmsServiceProperties != null) {
+                registrations.put(registryKey, dmsServiceProperties);
+            }
+        }
+        return registrations;
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    private void evictIfFull(int incoming, long now) {
+        if (this.entries.size() + incoming <= this.maxSize) {
+            return;
+        }
+        this.entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+        int excess = this.entries.size() + incoming - this.maxSize;
+        if (excess <= 0) {
+            return;
+        }
+
+        // make room for a tenth of the capacity at once, so a full lookup does not sort on every load
+        int evictions = Math.max(excess, this.maxSize / 10);
+        List<Map.Entry<String, Entry>> oldest = new ArrayList<>(this.entries.entrySet());
+        oldest.sort(Comparator.comparingLong(cached -> cached.getValue().loadedAtMillis));
+        for (int i = 0; i < evictions && i < oldest.size(); i++) {
+            this.entries.remove(oldest.get(i).getKey(), oldest.get(i).getValue());
+        }
+    }
+
+    private static String cacheKey(String partitionId, String registryKey) {
+        return partitionId + ':' + registryKey;
+    }
+
+    private static final class Entry {
+
+        private final DmsServiceProperties dmsServiceProperties;
+        private final long loadedAtMillis;
+        private final long expiresAtMillis;
+
+        private Entry(DmsServiceProperties dmsServiceProperties, long loadedAtMillis, long expiresAtMillis) {
+            this.dmsServiceProperties = dmsServiceProperties;
+            this.loadedAtMillis = loadedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.opengroup.osdu.dataset.retry.RetryPolicy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps any DMS factory, the core one or one a provider registers in its place, so the providers
+ * it creates are hedged, their reads retried and each attempt goes through the bulkhead of its DMS,
+ * where an open circuit breaker stops retries as well. Runs after the metrics post processor, so
+ * every attempt is timed but rejected calls never reach the timer.
+ */
+@Component
+public class DmsResiliencePostProcessor implements BeanPostProcessor, Ordered {
+
+    public static final Set<String> DMS_READS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("getRetrievalInstructions", "getDatasetRetrievalInstructions")));
+
+    // looked up lazily, post processors are created before most other beans
+    private final ObjectProvider<DmsBulkheads> dmsBulkheadsProvider;
+    private final ObjectProvider<RetryPolicy> retryPolicyProvider;
+    private final ObjectProvider<DmsHedging> dmsHedgingProvider;
+
+    public DmsResiliencePostProcessor(ObjectProvider<DmsBulkheads> dmsBulkheadsProvider,
+                                      ObjectProvider<RetryPolicy> retryPolicyProvider,
+                                      ObjectProvider<DmsHedging> dmsHedgingProvider) {
+        this.dmsBulkheadsProvider = dmsBulkheadsProvider;
+        this.retryPolicyProvider = retryPolicyProvider;
+        this.dmsHedgingProvider = dmsHedgingProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof IDmsFactory) {
+            IDmsFactory dmsFactory = (IDmsFactory) bean;
+            IDmsFactory bulkheaded = (headers, dmsServiceProperties) -> this.dmsBulkheadsProvider.getObject()
+                    .guard(dmsFactory.create(headers, dmsServiceProperties), dmsServiceProperties);
+            IDmsFactory retried = (headers, dmsServiceProperties) -> this.retryPolicyProvider.getObject()
+                    .retry(IDmsProvider.class, bulkheaded.create(headers, dmsServiceProperties), "dms", DMS_READS);
+            return (IDmsFactory) (headers, dmsServiceProperties) -> this.dmsHedgingProvider.getObject()
+                    .create(retried, headers, dmsServiceProperties);
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
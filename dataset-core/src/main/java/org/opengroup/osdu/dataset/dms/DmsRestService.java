@@ -48,10 +48,11 @@ public class DmsRestService implements IDmsProvider {
 
     // TODO: Use StorageInstructionsResponse from OS-Core-Lib once existing APIs are removed.
     @Override
-    public GetDatasetStorageInstructionsResponse getStorageInstructions() {
+    public GetDatasetStorageInstructionsResponse getStorageInstructions() throws DmsException {
         String url = this.createUrl("/storageInstructions");
         HttpResponse result = this.httpClient
                 .send(HttpRequest.post().url(url).headers(this.headers.getHeaders()).build());
+        this.checkResponse(result);
         try {
             return OBJECT_MAPPER.readValue(result.getBody(), GetDatasetStorageInstructionsResponse.class);
         } catch (JsonProcessingException e) {
@@ -67,10 +68,12 @@ public class DmsRestService implements IDmsProvider {
     }
 
     @Override
-    public RetrievalInstructionsResponse getRetrievalInstructions(GetDatasetRegistryRequest request) {
+    public RetrievalInstructionsResponse getRetrievalInstructions(GetDatasetRegistryRequest request)
+            throws DmsException {
         String url = this.createUrl("/retrievalInstructions");
         HttpResponse result = this.httpClient
                 .send(HttpRequest.post(request).url(url).headers(this.headers.getHeaders()).build());
+        this.checkResponse(result);
 
         try {
             return OBJECT_MAPPER.readValue(result.getBody(), RetrievalInstructionsResponse.class);
@@ -80,10 +83,11 @@ public class DmsRestService implements IDmsProvider {
     }
 
     @Override
-    public List<CopyDmsResponse> copyDmsToPersistentStorage(CopyDmsRequest copyDmsRequest) {
+    public List<CopyDmsResponse> copyDmsToPersistentStorage(CopyDmsRequest copyDmsRequest) throws DmsException {
         String url = this.createUrl("/copy");
         HttpResponse result = this.httpClient
                 .send(HttpRequest.post(copyDmsRequest).url(url).headers(this.headers.getHeaders()).build());
+        this.checkResponse(result);
         try {
             return OBJECT_MAPPER.readValue(result.getBody(), new TypeReference<List<CopyDmsResponse>>(){});
         } catch (JsonProcessingException e) {
@@ -91,6 +95,20 @@ public class DmsRestService implements IDmsProvider {
         }
     }
 
+    /**
+     * Fails calls the DMS answered with an error, or did not answer at all, the way DmsService does:
+     * with a DmsException carrying the response, so retries and the circuit breaker can tell
+     * transient failures apart and callers report them through ExceptionUtils.handleDmsException.
+     */
+    private void checkResponse(HttpResponse result) throws DmsException {
+        if (result.getException() != null) {
+            throw new DmsException("DMS did not answer", result);
+        }
+        if (result.getResponseCode() >= HttpStatus.SC_BAD_REQUEST) {
+            throw new DmsException("Error making request to DMS service", result);
+        }
+    }
+
     private String createUrl(String path) {
         try {
             URIBuilder uriBuilder = new URIBuilder(dmsServiceProperties.getDmsServiceBaseUrl());
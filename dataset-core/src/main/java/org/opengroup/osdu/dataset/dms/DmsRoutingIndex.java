@@ -0,0 +1,135 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes a {@link KindSubType} to the DMS registered for it, precompiled from a
+ * resource type to DMS map as returned by IDatasetDmsServiceMap.
+ *
+ * Precedence:
+ * 1. exact registration, e.g. dataset--File.Generic
+ * 2. wildcard registration "prefix.*" with the longest matching prefix, where prefixes end on a
+ *    '.' boundary, e.g. dataset--File.Generic.Sub is routed to dataset--File.Generic.* before
+ *    dataset--File.*. A wildcard also covers its bare prefix, dataset--File.* routes dataset--File.
+ *
+ * Registries that keep their registrations as a snapshot build the index along with the snapshot
+ * (see IDatasetDmsServiceIndex), so it is compiled once per registry change rather than per request.
+ */
+public final class DmsRoutingIndex {
+
+    private static final String WILDCARD_SUFFIX = ".*";
+
+    private final Map<String, DmsServiceProperties> registrations;
+    private final Map<String, Route> exactRoutes = new HashMap<>();
+    private final Map<String, Route> wildcardRoutes = new HashMap<>();
+    private final boolean[] wildcardPrefixLengths;
+
+    private DmsRoutingIndex(Map<String, DmsServiceProperties> source) {
+        this.registrations = source;
+        int maxPrefixLength = -1;
+        for (Map.Entry<String, DmsServiceProperties> entry : source.entrySet()) {
+            String dmsMapId = entry.getKey();
+            Route route = new Route(dmsMapId, entry.getValue());
+            this.exactRoutes.put(dmsMapId, route);
+            if (dmsMapId.endsWith(WILDCARD_SUFFIX)) {
+                String prefix = dmsMapId.substring(0, dmsMapId.length() - WILDCARD_SUFFIX.length());
+                this.wildcardRoutes.put(prefix, route);
+                maxPrefixLength = Math.max(maxPrefixLength, prefix.length());
+            }
+        }
+        this.wildcardPrefixLengths = new boolean[maxPrefixLength + 1];
+        for (String prefix : this.wildcardRoutes.keySet()) {
+            this.wildcardPrefixLengths[prefix.length()] = true;
+        }
+    }
+
+    public static DmsRoutingIndex of(Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap) {
+        return new DmsRoutingIndex(kindSubTypeToDmsServiceMap);
+    }
+
+    /**
+     * @return every registry key that could route the kind sub type, in order of precedence: the
+     * kind sub type itself, then its wildcard registrations from the longest prefix to the shortest
+     */
+    public static List<String> candidateKeys(KindSubType kindSubType) {
+        String value = kindSubType.getValue();
+        List<String> keys = new ArrayList<>();
+        keys.add(value);
+        int end = value.length();
+        while (end > 0) {
+            keys.add(value.substring(0, end) + WILDCARD_SUFFIX);
+            end = value.lastIndexOf('.', end - 1);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the registrations the index was built from, keyed by registry key
+     */
+    public Map<String, DmsServiceProperties> getRegistrations() {
+        return this.registrations;
+    }
+
+    /**
+     * @return the matching route, or null when no DMS is registered for the kind sub type
+     */
+    public Route route(KindSubType kindSubType) {
+        String value = kindSubType.getValue();
+        Route route = this.exactRoutes.get(value);
+        if (route != null || this.wildcardRoutes.isEmpty()) {
+            return route;
+        }
+
+        // probe the whole value first, then every prefix ending before a '.', longest first
+        int end = value.length();
+        while (end >= 0) {
+            if (end < this.wildcardPrefixLengths.length && this.wildcardPrefixLengths[end]) {
+                route = this.wildcardRoutes.get(end == value.length() ? value : value.substring(0, end));
+                if (route != null) {
+                    return route;
+                }
+            }
+            end = end == 0 ? -1 : value.lastIndexOf('.', end - 1);
+        }
+        return null;
+    }
+
+    public static final class Route {
+
+        private final String dmsMapId;
+        private final DmsServiceProperties dmsServiceProperties;
+
+        private Route(String dmsMapId, DmsServiceProperties dmsServiceProperties) {
+            this.dmsMapId = dmsMapId;
+            this.dmsServiceProperties = dmsServiceProperties;
+        }
+
+        /**
+         * @return the registry key that matched, used to group datasets per DMS
+         */
+        public String getDmsMapId() {
+            return this.dmsMapId;
+        }
+
+        public DmsServiceProperties getDmsServiceProperties() {
+            return this.dmsServiceProperties;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+/**
+ * The GroupType/IndividualType part of a kind or record id (e.g. dataset--File.Generic), which is
+ * what DMS registrations are keyed on.
+ *
+ * kind:      authority:source:dataset--File.Generic:1.0.0
+ * record id: tenant:dataset--File.Generic:uniqueId
+ *
+ * Both are parsed in a single scan without regex or intermediate arrays.
+ */
+public final class KindSubType {
+
+    private final String value;
+
+    private KindSubType(String value) {
+        this.value = value;
+    }
+
+    public static KindSubType of(String kindSubType) {
+        if (kindSubType == null) {
+            throw new IllegalArgumentException("kindSubType cannot be null");
+        }
+        return new KindSubType(kindSubType);
+    }
+
+    public static KindSubType fromKind(String kind) {
+        return new KindSubType(segment(kind, 2));
+    }
+
+    public static KindSubType fromRecordId(String recordId) {
+        return new KindSubType(segment(recordId, 1));
+    }
+
+    public String getValue() {
+        return this.value;
+    }
+
+    public boolean equalsIgnoreCase(KindSubType other) {
+        return other != null && this.value.equalsIgnoreCase(other.value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof KindSubType && this.value.equals(((KindSubType) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.value;
+    }
+
+    // returns the colon separated segment at the given index, like split(":")[index] would
+    private static String segment(String source, int index) {
+        if (source == null) {
+            throw new IllegalArgumentException("kind or record id cannot be null");
+        }
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            int colon = source.indexOf(':', start);
+            if (colon < 0) {
+                throw new IllegalArgumentException(String.format("'%s' does not contain a kind sub type", source));
+            }
+            start = colon + 1;
+        }
+        int end = source.indexOf(':', start);
+        return source.substring(start, end < 0 ? source.length() : end);
+    }
+}
@@ -0,0 +1,98 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.cache.VmCache;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
+import org.opengroup.osdu.dataset.util.SignedUrlExpiry;
+
+/**
+ * Retrieval instructions of single datasets, keyed by partition, record id and record version.
+ *
+ * An entry lives until shortly before the earliest signed URL in it expires, and never longer than
+ * the configured maximum. Instructions without a recognizable expiry are not cached. The cache does
+ * no authorization itself: callers must only look up records the current user was allowed to read.
+ */
+public class RetrievalInstructionsCache {
+
+    private final ICache<String, Entry> cache;
+    private final long maxTtlMillis;
+    private final long expiryMarginMillis;
+
+    public RetrievalInstructionsCache(int maxSize, int maxTtlSeconds, int expiryMarginSeconds) {
+        this.cache = new VmCache<>(maxTtlSeconds, maxSize);
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(maxTtlSeconds);
+        this.expiryMarginMillis = TimeUnit.SECONDS.toMillis(expiryMarginSeconds);
+    }
+
+    public Entry get(String partitionId, String recordId, Long version) {
+        String key = getCacheKey(partitionId, recordId, version);
+        Entry entry = this.cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis <= System.currentTimeMillis()) {
+            this.cache.delete(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return whether the instructions could be cached
+     */
+    public boolean put(String partitionId, String recordId, Long version, String providerKey,
+                       DatasetRetrievalProperties datasetRetrievalProperties) {
+        Long urlExpiry = SignedUrlExpiry.earliestExpiry(datasetRetrievalProperties.getRetrievalProperties());
+        if (urlExpiry == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(urlExpiry - this.expiryMarginMillis, now + this.maxTtlMillis);
+        if (expiresAt <= now) {
+            return false;
+        }
+        this.cache.put(getCacheKey(partitionId, recordId, version),
+                new Entry(providerKey, datasetRetrievalProperties, expiresAt));
+        return true;
+    }
+
+    private static String getCacheKey(String partitionId, String recordId, Long version) {
+        return String.format("retrieval-instructions:%s:%s:%s", partitionId, recordId, version);
+    }
+
+    public static final class Entry {
+
+        private final String providerKey;
+        private final DatasetRetrievalProperties datasetRetrievalProperties;
+        private final long expiresAtMillis;
+
+        private Entry(String providerKey, DatasetRetrievalProperties datasetRetrievalProperties, long expiresAtMillis) {
+            this.providerKey = providerKey;
+            this.datasetRetrievalProperties = datasetRetrievalProperties;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getProviderKey() {
+            return this.providerKey;
+        }
+
+        public DatasetRetrievalProperties getDatasetRetrievalProperties() {
+            return this.datasetRetrievalProperties;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.dms;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+import org.opengroup.osdu.dataset.util.SignedUrlExpiry;
+
+/**
+ * Keeps storage instructions fetched ahead of time, one pool per key (partition, kindSubType and
+ * caller), so uploads can take a ready answer instead of waiting on the DMS.
+ *
+ * A take never blocks: it returns a pooled instruction or null, in which case the caller asks the
+ * DMS directly. Every take counts as demand and, when the pool is below its target, schedules a
+ * refill in the background with the loader of that take. The target follows the demand seen in the
+ * last window, so idle pools drain and stop being refilled. Instructions are only pooled when their
+ * signed URLs carry a recognizable expiry and are dropped a margin before it. A pool whose DMS hands
+ * out instructions that cannot be pooled stops refilling for a while, twice as long every time.
+ *
+ * The loader of a take runs with the caller's credentials, so it is only used up to the time the
+ * caller says those credentials stay valid.
+ */
+@Slf4j
+public class StorageInstructionsPool {
+
+    private static final long MAX_UNPOOLABLE_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final int maxPoolSize;
+    private final int maxPools;
+    private final long maxTtlMillis;
+    private final long expiryMarginMillis;
+    private final long demandWindowMillis;
+    private final ThreadPoolExecutor refillExecutor;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private final AtomicInteger pooledInstructions = new AtomicInteger();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter refills;
+    private final Counter refillFailures;
+
+    public StorageInstructionsPool(int maxPoolSize, int maxPools, int maxTtlSeconds, int expiryMarginSeconds,
+                                   int demandWindowSeconds, int refillThreads, MeterRegistry meterRegistry) {
+        this.maxPoolSize = maxPoolSize;
+        this.maxPools = maxPools;
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(maxTtlSeconds);
+        this.expiryMarginMillis = TimeUnit.SECONDS.toMillis(expiryMarginSeconds);
+        this.demandWindowMillis = TimeUnit.SECONDS.toMillis(demandWindowSeconds);
+        this.refillExecutor = new ThreadPoolExecutor(refillThreads, refillThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxPools), runnable -> {
+                    Thread thread = new Thread(runnable, "storage-instructions-refill");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.refillExecutor.allowCoreThreadTimeOut(true);
+
+        this.hits = meterRegistry.counter("dataset.storage.instructions.pool.takes", "result", "hit");
+        this.misses = meterRegistry.counter("dataset.storage.instructions.pool.takes", "result", "miss");
+        this.expired = meterRegistry.counter("dataset.storage.instructions.pool.expired");
+        this.refills = meterRegistry.counter("dataset.storage.instructions.pool.refills", "outcome", "success");
+        this.refillFailures = meterRegistry.counter("dataset.storage.instructions.pool.refills", "outcome", "failure");
+        meterRegistry.gauge("dataset.storage.instructions.pool.size", this.pooledInstructions);
+        meterRegistry.gauge("dataset.storage.instructions.pool.count", this.pools, Map::size);
+    }
+
+    /**
+     * @return pooled storage instructions, or null when none are ready
+     */
+    public GetDatasetStorageInstructionsResponse take(String key, Callable<GetDatasetStorageInstructionsResponse> loader) {
+        return this.take(key, Long.MAX_VALUE, loader);
+    }
+
+    /**
+     * @param loaderValidUntilMillis epoch millis after which the loader must not be called anymore,
+     *                               e.g. the expiry of the token it calls the DMS with
+     * @return pooled storage instructions, or null when none are ready
+     */
+    public GetDatasetStorageInstructionsResponse take(String key, long loaderValidUntilMillis,
+                                                      Callable<GetDatasetStorageInstructionsResponse> loader) {
+        Pool pool = this.getPool(key);
+        if (pool == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        pool.recordDemand();
+        GetDatasetStorageInstructionsResponse instructions = pool.poll();
+        if (instructions == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        this.scheduleRefill(pool, loaderValidUntilMillis, loader);
+        return instructions;
+    }
+
+    public void shutdown() {
+        this.refillExecutor.shutdownNow();
+    }
+
+    private Pool getPool(String key) {
+        Pool pool = this.pools.get(key);
+        if (pool != null) {
+            return pool;
+        }
+        if (this.pools.size() >= this.maxPools) {
+            this.evictIdlePools();
+            if (this.pools.size() >= this.maxPools) {
+                return null;
+            }
+        }
+        return this.pools.computeIfAbsent(key, k -> new Pool());
+    }
+
+    private void evictIdlePools() {
+        Iterator<Pool> iterator = this.pools.values().iterator();
+        while (iterator.hasNext()) {
+            Pool pool = iterator.next();
+            if (pool.isIdle()) {
+                iterator.remove();
+                pool.clear();
+            }
+        }
+    }
+
+    private void scheduleRefill(Pool pool, long loaderValidUntilMillis,
+                                Callable<GetDatasetStorageInstructionsResponse> loader) {
+        long now = System.currentTimeMillis();
+        if (now >= loaderValidUntilMillis || pool.isBackingOff(now)) {
+            return;
+        }
+        if (pool.needsRefill() && pool.refilling.compareAndSet(false, true)) {
+            try {
+                this.refillExecutor.execute(() -> this.refill(pool, loaderValidUntilMillis, loader));
+            } catch (RejectedExecutionException e) {
+                // every refill thread is busy; a later take will try again
+                pool.refilling.set(false);
+            }
+        }
+    }
+
+    private void refill(Pool pool, long loaderValidUntilMillis, Callable<GetDatasetStorageInstructionsResponse> loader) {
+        try {
+            while (pool.needsRefill() && System.currentTimeMillis() < loaderValidUntilMillis
+                    && !Thread.currentThread().isInterrupted()) {
+                GetDatasetStorageInstructionsResponse instructions = loader.call();
+                Long urlExpiry = instructions == null ? null
+                        : SignedUrlExpiry.earliestExpiry(instructions.getStorageLocation());
+                long now = System.currentTimeMillis();
+                long expiresAt = urlExpiry == null ? now
+                        : Math.min(urlExpiry - this.expiryMarginMillis, now + this.maxTtlMillis);
+                if (expiresAt <= now) {
+                    // no recognizable expiry, or too short lived to be handed out later
+                    pool.backOff(now);
+                    this.refillFailures.increment();
+                    return;
+                }
+                pool.poolable();
+                pool.offer(instructions, expiresAt);
+                this.refills.increment();
+            }
+        } catch (Exception e) {
+            this.refillFailures.increment();
+            log.warn(String.format("Failed to refill storage instructions pool: %s", e.getMessage()));
+        } finally {
+            pool.refilling.set(false);
+        }
+    }
+
+    private final class Pool {
+
+        private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+        private final AtomicInteger demandInWindow = new AtomicInteger();
+        private volatile int target;
+        private volatile long lastDemand = System.currentTimeMillis();
+        private volatile long backOffUntil;
+        private volatile int unpoolableResponses;
+
+        void recordDemand() {
+            long now = System.currentTimeMillis();
+            this.lastDemand = now;
+            long start = this.windowStart.get();
+            if (now - start >= demandWindowMillis && this.windowStart.compareAndSet(start, now)) {
+                // the target follows the last window's demand and halves for every quiet window
+                int demand = this.demandInWindow.getAndSet(0);
+                long quietWindows = (now - start) / demandWindowMillis - 1;
+                int decayed = quietWindows > 0 ? 0 : this.target / 2;
+                this.target = Math.min(maxPoolSize, Math.max(demand, decayed));
+            }
+            if (this.demandInWindow.incrementAndGet() > this.target) {
+                this.target = Math.min(maxPoolSize, this.demandInWindow.get());
+            }
+        }
+
+        GetDatasetStorageInstructionsResponse poll() {
+            Entry entry;
+            while ((entry = this.entries.poll()) != null) {
+                this.size.decrementAndGet();
+                pooledInstructions.decrementAndGet();
+                if (entry.expiresAtMillis > System.currentTimeMillis()) {
+                    return entry.instructions;
+                }
+                expired.increment();
+            }
+            return null;
+        }
+
+        void offer(GetDatasetStorageInstructionsResponse instructions, long expiresAtMillis) {
+            this.entries.offer(new Entry(instructions, expiresAtMillis));
+            this.size.incrementAndGet();
+            pooledInstructions.incrementAndGet();
+        }
+
+        void backOff(long now) {
+            int times = Math.min(this.unpoolableResponses++, 30);
+            long firstBackOff = Math.max(demandWindowMillis, TimeUnit.SECONDS.toMillis(1));
+            this.backOffUntil = now + Math.min(firstBackOff << times, MAX_UNPOOLABLE_BACKOFF_MILLIS);
+        }
+
+        void poolable() {
+            this.unpoolableResponses = 0;
+        }
+
+        boolean isBackingOff(long now) {
+            return now < this.backOffUntil;
+        }
+
+        boolean needsRefill() {
+            return this.size.get() < this.target;
+        }
+
+        boolean isIdle() {
+            return System.currentTimeMillis() - this.lastDemand > maxTtlMillis;
+        }
+
+        void clear() {
+            while (this.entries.poll() != null) {
+                this.size.decrementAndGet();
+                pooledInstructions.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final GetDatasetStorageInstructionsResponse instructions;
+        private final long expiresAtMillis;
+
+        private Entry(GetDatasetStorageInstructionsResponse instructions, long expiresAtMillis) {
+            this.instructions = instructions;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
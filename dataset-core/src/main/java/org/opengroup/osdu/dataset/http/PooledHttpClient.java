@@ -0,0 +1,203 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.opengroup.osdu.core.common.http.HttpRequest;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.http.IHttpClient;
+import org.opengroup.osdu.dataset.util.AttemptScope;
+import org.opengroup.osdu.dataset.util.RequestDeadline;
+
+/**
+ * IHttpClient backed by OkHttp, shared by every outbound client of the service.
+ *
+ * Each downstream host gets its own keep-alive connection pool, sized by default or per host, while
+ * all hosts share one dispatcher and configuration. HTTP/2 is negotiated over TLS where the
+ * downstream and the JVM support it, so concurrent calls to one host share a connection. Failures
+ * are reported the way core-common's HttpClient reports them: as a response carrying the exception.
+ * Within a request deadline, calls are cut off when it passes and fail with 504, and downstream
+ * services are told the time left in the Request-Timeout header. Calls made within an
+ * {@link AttemptScope} are aborted when it is cancelled.
+ */
+@Slf4j
+public class PooledHttpClient implements IHttpClient {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    private final OkHttpClient baseClient;
+    private final PooledHttpClientConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OkHttpClient> hostClients = new ConcurrentHashMap<>();
+
+    public PooledHttpClient(PooledHttpClientConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.baseClient = new OkHttpClient.Builder()
+                .connectTimeout(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .protocols(config.isHttp2Enabled()
+                        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    @Override
+    public HttpResponse send(HttpRequest request) {
+        HttpResponse output = new HttpResponse();
+        output.setRequest(request);
+        long start = System.currentTimeMillis();
+
+        try {
+            Request okRequest = toOkRequest(request);
+            Call call = clientFor(okRequest.url()).newCall(okRequest);
+            if (RequestDeadline.isSet()) {
+                // the whole call, connecting included, gets no more than the request has left
+                call.timeout().timeout(Math.max(1, RequestDeadline.remainingMillis(Long.MAX_VALUE)), TimeUnit.MILLISECONDS);
+            }
+            // interrupting the calling thread does not stop a blocked call, cancelling it does
+            Runnable cancellation = call::cancel;
+            AttemptScope.register(cancellation);
+            try (Response response = call.execute()) {
+                ResponseBody body = response.body();
+                // read first, so a call aborted halfway is reported without a status, as unanswered
+                output.setBody(body == null ? "" : body.string());
+                output.setResponseCode(response.code());
+                output.setHeaders(response.headers().toMultimap());
+                output.setContentType(response.header(CONTENT_TYPE, ""));
+            } finally {
+                AttemptScope.unregister(cancellation);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            if (e instanceof IOException && RequestDeadline.isSet() && RequestDeadline.remainingMillis(1) == 0) {
+                throw RequestDeadline.exceeded(String.format("%s %s completed", request.getHttpMethod(), request.getUrl()));
+            }
+            log.warn(String.format("Outbound %s %s failed: %s", request.getHttpMethod(), request.getUrl(), e.getMessage()));
+            output.setException(e);
+        }
+
+        output.setLatency(System.currentTimeMillis() - start);
+        return output;
+    }
+
+    public void shutdown() {
+        this.baseClient.dispatcher().executorService().shutdown();
+        for (OkHttpClient client : this.hostClients.values()) {
+            client.connectionPool().evictAll();
+        }
+    }
+
+    private OkHttpClient clientFor(HttpUrl url) {
+        String host = url.host() + ":" + url.port();
+        return this.hostClients.computeIfAbsent(host, this::newHostClient);
+    }
+
+    private OkHttpClient newHostClient(String host) {
+        ConnectionPool connectionPool = new ConnectionPool(this.config.maxIdleConnectionsFor(host),
+                this.config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+        Tags tags = Tags.of("host", host);
+        this.meterRegistry.gauge("dataset.outbound.http.pool.connections", tags.and("state", "total"),
+                connectionPool, ConnectionPool::connectionCount);
+        this.meterRegistry.gauge("dataset.outbound.http.pool.connections", tags.and("state", "idle"),
+                connectionPool, ConnectionPool::idleConnectionCount);
+        Counter newConnections = this.meterRegistry.counter("dataset.outbound.http.connections", tags.and("type", "new"));
+        Counter reusedConnections = this.meterRegistry.counter("dataset.outbound.http.connections", tags.and("type", "reused"));
+
+        return this.baseClient.newBuilder()
+                .connectionPool(connectionPool)
+                .eventListenerFactory(call -> new ConnectionReuseListener(newConnections, reusedConnections))
+                .build();
+    }
+
+    private static Request toOkRequest(HttpRequest request) {
+        Request.Builder builder = new Request.Builder().url(request.getUrl());
+        String contentType = null;
+        if (request.getHeaders() != null) {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                if (header.getKey() == null || header.getValue() == null) {
+                    continue;
+                }
+                if (CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                    contentType = header.getValue();
+                }
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+
+        if (RequestDeadline.isSet()) {
+            builder.header(RequestDeadline.HEADER, String.valueOf(RequestDeadline.remainingMillis(Long.MAX_VALUE)));
+        }
+
+        String method = request.getHttpMethod();
+        RequestBody body = null;
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            MediaType mediaType = contentType == null ? JSON : MediaType.parse(contentType);
+            body = RequestBody.create(mediaType, request.getBody() == null ? "" : request.getBody());
+        }
+        return builder.method(method, body).build();
+    }
+
+    /**
+     * Counts whether each call got a fresh connection or reused a pooled one.
+     */
+    private static final class ConnectionReuseListener extends EventListener {
+
+        private final Counter newConnections;
+        private final Counter reusedConnections;
+        private boolean connected;
+
+        private ConnectionReuseListener(Counter newConnections, Counter reusedConnections) {
+            this.newConnections = newConnections;
+            this.reusedConnections = reusedConnections;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            this.connected = true;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            (this.connected ? this.newConnections : this.reusedConnections).increment();
+            this.connected = false;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.http;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PooledHttpClientConfig {
+
+    @Builder.Default
+    private long connectTimeoutMillis = 5000;
+
+    @Builder.Default
+    private long readTimeoutMillis = 30000;
+
+    @Builder.Default
+    private long writeTimeoutMillis = 30000;
+
+    // how long an unused connection is kept alive in its pool
+    @Builder.Default
+    private long idleTimeoutMillis = 300000;
+
+    @Builder.Default
+    private int maxIdleConnectionsPerHost = 5;
+
+    // overrides of maxIdleConnectionsPerHost keyed by "host:port"
+    @Builder.Default
+    private Map<String, Integer> maxIdleConnectionsByHost = new HashMap<>();
+
+    @Builder.Default
+    private boolean http2Enabled = true;
+
+    public int maxIdleConnectionsFor(String host) {
+        return this.maxIdleConnectionsByHost.getOrDefault(host, this.maxIdleConnectionsPerHost);
+    }
+}
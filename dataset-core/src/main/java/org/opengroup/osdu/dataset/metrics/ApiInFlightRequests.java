@@ -0,0 +1,81 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.opengroup.osdu.dataset.api.DatasetDmsApi;
+import org.opengroup.osdu.dataset.api.DatasetRegistryApi;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Counts the requests each dataset endpoint is currently serving, as gauge
+ * dataset.api.requests.inflight tagged with the endpoint (controller and method name).
+ */
+@Component
+public class ApiInFlightRequests implements HandlerInterceptor {
+
+    private static final Set<Class<?>> INSTRUMENTED_APIS =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(DatasetDmsApi.class, DatasetRegistryApi.class)));
+    private static final String IN_FLIGHT_ATTRIBUTE = ApiInFlightRequests.class.getName() + ".inFlight";
+
+    private final MeterRegistry meterRegistry;
+    // the registry only keeps weak references to gauge state
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public ApiInFlightRequests(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && INSTRUMENTED_APIS.contains(((HandlerMethod) handler).getBeanType())) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            String endpoint = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+            AtomicInteger counter = this.inFlight.computeIfAbsent(endpoint, this::register);
+            counter.incrementAndGet();
+            request.setAttribute(IN_FLIGHT_ATTRIBUTE, counter);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object counter = request.getAttribute(IN_FLIGHT_ATTRIBUTE);
+        if (counter instanceof AtomicInteger) {
+            request.removeAttribute(IN_FLIGHT_ATTRIBUTE);
+            ((AtomicInteger) counter).decrementAndGet();
+        }
+    }
+
+    private AtomicInteger register(String endpoint) {
+        AtomicInteger counter = new AtomicInteger();
+        Gauge.builder("dataset.api.requests.inflight", counter, AtomicInteger::get)
+                .tag("endpoint", endpoint)
+                .register(this.meterRegistry);
+        return counter;
+    }
+}
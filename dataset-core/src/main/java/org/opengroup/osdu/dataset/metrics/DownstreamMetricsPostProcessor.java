@@ -0,0 +1,84 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.opengroup.osdu.core.common.entitlements.IEntitlementsFactory;
+import org.opengroup.osdu.core.common.entitlements.IEntitlementsService;
+import org.opengroup.osdu.core.common.storage.IStorageFactory;
+import org.opengroup.osdu.core.common.storage.IStorageService;
+import org.opengroup.osdu.dataset.dms.IDmsFactory;
+import org.opengroup.osdu.dataset.dms.IDmsProvider;
+import org.opengroup.osdu.dataset.schema.ISchemaFactory;
+import org.opengroup.osdu.dataset.schema.ISchemaService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters the clients of the DMS, Storage, Schema and Entitlements. The client factories are
+ * wrapped as they are created, which also covers the factories providers register in place of
+ * the core ones. DMS timers are additionally tagged with the DMS base URL.
+ */
+@Component
+public class DownstreamMetricsPostProcessor implements BeanPostProcessor, Ordered {
+
+    // looked up lazily, post processors are created before most other beans
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private volatile MeterRegistry meterRegistry;
+
+    public DownstreamMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof IDmsFactory) {
+            IDmsFactory dmsFactory = (IDmsFactory) bean;
+            return (IDmsFactory) (headers, dmsServiceProperties) -> MeteredClients.meter(IDmsProvider.class,
+                    dmsFactory.create(headers, dmsServiceProperties), this.meterRegistry(),
+                    "dms", Tags.of("target", String.valueOf(dmsServiceProperties.getDmsServiceBaseUrl())));
+        }
+        if (bean instanceof IStorageFactory) {
+            return MeteredClients.meterCreated(IStorageFactory.class, (IStorageFactory) bean, IStorageService.class,
+                    this::meterRegistry, "storage");
+        }
+        if (bean instanceof ISchemaFactory) {
+            ISchemaFactory schemaFactory = (ISchemaFactory) bean;
+            return (ISchemaFactory) headers -> MeteredClients.meter(ISchemaService.class, schemaFactory.create(headers),
+                    this.meterRegistry(), "schema", Tags.empty());
+        }
+        if (bean instanceof IEntitlementsFactory) {
+            return MeteredClients.meterCreated(IEntitlementsFactory.class, (IEntitlementsFactory) bean,
+                    IEntitlementsService.class, this::meterRegistry, "entitlements");
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        // wraps first, so whatever later post processors put around the clients stays out of the timings
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private MeterRegistry meterRegistry() {
+        if (this.meterRegistry == null) {
+            this.meterRegistry = this.meterRegistryProvider.getObject();
+        }
+        return this.meterRegistry;
+    }
+}
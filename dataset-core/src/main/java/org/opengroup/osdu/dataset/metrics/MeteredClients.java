@@ -0,0 +1,121 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.opengroup.osdu.dataset.util.RequestDeadline;
+
+/**
+ * Wraps clients of downstream services so every call through their interface is timed, in the
+ * meter registry and in the timings of the current request. The timers are named per downstream, tagged with the called method as operation and with outcome
+ * success or failure, and publish percentiles as well as a histogram so they can be aggregated
+ * across instances. Clients are proxied through their interface since several of them come from
+ * os-core-common and grow methods over time. Being the one place every downstream call passes,
+ * the proxies also refuse calls once the request deadline has passed.
+ */
+public final class MeteredClients {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private MeteredClients() {
+    }
+
+    /**
+     * @param dependency names the timer, dataset.{dependency}.requests, and the request timing of the calls
+     */
+    public static <T> T meter(Class<T> clientType, T client, MeterRegistry meterRegistry, String dependency, Tags tags) {
+        return clientType.cast(Proxy.newProxyInstance(clientType.getClassLoader(), new Class<?>[]{clientType},
+                new TimingHandler(client, meterRegistry, dependency, tags)));
+    }
+
+    /**
+     * Wraps a factory so the clients it creates are metered. Each client is tagged the same way.
+     */
+    public static <F, T> F meterCreated(Class<F> factoryType, F factory, Class<T> clientType,
+                                        Supplier<MeterRegistry> meterRegistry, String dependency) {
+        return factoryType.cast(Proxy.newProxyInstance(factoryType.getClassLoader(), new Class<?>[]{factoryType},
+                (proxy, method, args) -> {
+                    Object result = invoke(factory, method, args);
+                    if (method.getReturnType() == clientType && result != null) {
+                        return meter(clientType, clientType.cast(result), meterRegistry.get(), dependency, Tags.empty());
+                    }
+                    return result;
+                }));
+    }
+
+    public static Timer timer(MeterRegistry meterRegistry, String timerName, Tags tags, String operation, String outcome) {
+        return Timer.builder(timerName)
+                .tags(tags)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class TimingHandler implements InvocationHandler {
+
+        private final Object client;
+        private final MeterRegistry meterRegistry;
+        private final String dependency;
+        private final String timerName;
+        private final Tags tags;
+
+        private TimingHandler(Object client, MeterRegistry meterRegistry, String dependency, Tags tags) {
+            this.client = client;
+            this.meterRegistry = meterRegistry;
+            this.dependency = dependency;
+            this.timerName = "dataset." + dependency + ".requests";
+            this.tags = tags;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return MeteredClients.invoke(this.client, method, args);
+            }
+
+            RequestDeadline.check(String.format("%s %s", this.dependency, method.getName()));
+            long start = System.nanoTime();
+            String outcome = "failure";
+            try {
+                Object result = MeteredClients.invoke(this.client, method, args);
+                outcome = "success";
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                timer(this.meterRegistry, this.timerName, this.tags, method.getName(), outcome)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+                RequestTimings.record(this.dependency, elapsed);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent per stage and downstream dependency within one request, reported back to the caller
+ * as Server-Timing. A context only exists while DatasetFilter has timing enabled; without one,
+ * recording is a thread local lookup and nothing else. Work handed to other threads takes the
+ * context along through {@link #propagate(Callable)}.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    // few names per request, recorded from the request thread and the fan-out threads
+    private final Map<String, long[]> timings = new LinkedHashMap<>();
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings start() {
+        RequestTimings requestTimings = new RequestTimings();
+        CURRENT.set(requestTimings);
+        return requestTimings;
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void record(String name, long nanos) {
+        RequestTimings requestTimings = CURRENT.get();
+        if (requestTimings != null) {
+            requestTimings.add(name, nanos);
+        }
+    }
+
+    /**
+     * @return the call, running with the current context on whichever thread executes it
+     */
+    public static <T> Callable<T> propagate(Callable<T> call) {
+        RequestTimings requestTimings = CURRENT.get();
+        if (requestTimings == null) {
+            return call;
+        }
+        return () -> {
+            RequestTimings previous = CURRENT.get();
+            CURRENT.set(requestTimings);
+            try {
+                return call.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return e.g. {@code dms;dur=41.2;desc="2 calls", validate;dur=3.0, total;dur=52.7}
+     */
+    public String toServerTiming() {
+        StringBuilder serverTiming = new StringBuilder();
+        synchronized (this.timings) {
+            for (Map.Entry<String, long[]> timing : this.timings.entrySet()) {
+                serverTiming.append(timing.getKey()).append(";dur=").append(millis(timing.getValue()[0]));
+                if (timing.getValue()[1] > 1) {
+                    serverTiming.append(";desc=\"").append(timing.getValue()[1]).append(" calls\"");
+                }
+                serverTiming.append(", ");
+            }
+        }
+        return serverTiming.append("total;dur=").append(millis(System.nanoTime() - this.startNanos)).toString();
+    }
+
+    /**
+     * @return e.g. {@code {"dms":{"durationMillis":41.2,"count":2},"total":{"durationMillis":52.7,"count":1}}}
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        synchronized (this.timings) {
+            for (Map.Entry<String, long[]> timing : this.timings.entrySet()) {
+                appendJson(json, timing.getKey(), timing.getValue()[0], timing.getValue()[1]).append(',');
+            }
+        }
+        return appendJson(json, "total", System.nanoTime() - this.startNanos, 1).append('}').toString();
+    }
+
+    private void add(String name, long nanos) {
+        synchronized (this.timings) {
+            long[] timing = this.timings.computeIfAbsent(name, k -> new long[2]);
+            timing[0] += nanos;
+            timing[1]++;
+        }
+    }
+
+    private static StringBuilder appendJson(StringBuilder json, String name, long nanos, long count) {
+        return json.append('"').append(name).append("\":{\"durationMillis\":").append(millis(nanos))
+                .append(",\"count\":").append(count).append('}');
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -27,7 +27,7 @@ public class CreateDatasetRegistryRequest {
     
     @ValidNotNullCollection
 	@NotEmpty(message = DatasetRegistryValidationDoc.MISSING_DATASET_REGISTRIES_ARRAY)
-	@Size(min = 1, max = 20, message = DatasetRegistryValidationDoc.MAX_DATASET_REGISTRIES_EXCEEDED) //TODO: need to support pagination of storage record get and then extend this back to 500
+	@Size(min = 1, max = 500, message = DatasetRegistryValidationDoc.MAX_DATASET_REGISTRIES_EXCEEDED)
     public List<Record> datasetRegistries;
 
 }
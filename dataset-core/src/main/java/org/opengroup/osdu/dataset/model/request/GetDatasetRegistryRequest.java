@@ -26,7 +26,7 @@ public class GetDatasetRegistryRequest {
     
     @ValidNotNullCollection
 	@NotEmpty(message = DatasetRegistryValidationDoc.MISSING_DATASET_REGISTRY_IDS_ARRAY)
-	@Size(min = 1, max = 20, message = DatasetRegistryValidationDoc.MISSING_DATASET_REGISTRY_IDS_ARRAY) //TODO: need to support pagination of storage record get and then extend this back to 500
+	@Size(min = 1, max = 500, message = DatasetRegistryValidationDoc.MAX_DATASET_REGISTRY_IDS_EXCEEDED)
     public List<String> datasetRegistryIds;
 
 }
@@ -0,0 +1,34 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.model.request;
+
+import java.util.List;
+
+import javax.validation.constraints.NotEmpty;
+
+import org.opengroup.osdu.core.common.model.storage.validation.ValidNotNullCollection;
+import org.opengroup.osdu.dataset.model.validation.DatasetRegistryValidationDoc;
+
+/**
+ * Request for retrieval instructions. Unlike GetDatasetRegistryRequest it is not capped at 500 ids:
+ * the ids are split into batches per DMS, and the limit is osdu.dataset.config.retrievalInstructionsMaxIds.
+ */
+public class GetRetrievalInstructionsRequest {
+
+    @ValidNotNullCollection
+    @NotEmpty(message = DatasetRegistryValidationDoc.MISSING_DATASET_REGISTRY_IDS_ARRAY)
+    public List<String> datasetRegistryIds;
+
+}
@@ -0,0 +1,30 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.provider.interfaces;
+
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+
+/**
+ * A DMS registry that keeps its registrations as a snapshot and builds the routing index together
+ * with it, so requests route against a precompiled index instead of indexing the registry again.
+ */
+public interface IDatasetDmsServiceIndex extends IDatasetDmsServiceMap {
+
+    /**
+     * @return the index of the registrations {@link #getResourceTypeToDmsServiceMap()} returns
+     */
+    DmsRoutingIndex getRoutingIndex();
+}
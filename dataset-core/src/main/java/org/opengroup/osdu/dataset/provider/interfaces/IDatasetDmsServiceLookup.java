@@ -0,0 +1,56 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.provider.interfaces;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+
+/**
+ * A DMS registry that can resolve only the registrations a request needs instead of handing out
+ * the whole registry.
+ */
+public interface IDatasetDmsServiceLookup extends IDatasetDmsServiceMap {
+
+    /**
+     * @return the registrations that may route any of the given kind sub types, keyed like
+     * {@link #getResourceTypeToDmsServiceMap()}; kind sub types without a registration are absent
+     */
+    Map<String, DmsServiceProperties> getResourceTypeToDmsServiceMap(Collection<KindSubType> kindSubTypes);
+
+    /**
+     * @return the routing index of the registrations that may route any of the given kind sub types
+     */
+    default DmsRoutingIndex getRoutingIndex(Collection<KindSubType> kindSubTypes) {
+        return DmsRoutingIndex.of(getResourceTypeToDmsServiceMap(kindSubTypes));
+    }
+
+    /**
+     * @return the routing index for the given kind sub types, from the registry's own index where it
+     * keeps one, otherwise built from the registrations it returns
+     */
+    static DmsRoutingIndex resolve(IDatasetDmsServiceMap dmsServiceMap, Collection<KindSubType> kindSubTypes) {
+        if (dmsServiceMap instanceof IDatasetDmsServiceLookup) {
+            return ((IDatasetDmsServiceLookup) dmsServiceMap).getRoutingIndex(kindSubTypes);
+        }
+        if (dmsServiceMap instanceof IDatasetDmsServiceIndex) {
+            return ((IDatasetDmsServiceIndex) dmsServiceMap).getRoutingIndex();
+        }
+        return DmsRoutingIndex.of(dmsServiceMap.getResourceTypeToDmsServiceMap());
+    }
+}
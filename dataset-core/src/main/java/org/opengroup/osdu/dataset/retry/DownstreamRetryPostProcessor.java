@@ -0,0 +1,67 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.retry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.opengroup.osdu.core.common.storage.IStorageFactory;
+import org.opengroup.osdu.core.common.storage.IStorageService;
+import org.opengroup.osdu.dataset.schema.ISchemaFactory;
+import org.opengroup.osdu.dataset.schema.ISchemaService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retries the record reads of Storage and the schema lookups. Runs after the metrics post processor,
+ * so every attempt is timed on its own. DMS reads are retried along with the other DMS guards in
+ * DmsResiliencePostProcessor.
+ */
+@Component
+public class DownstreamRetryPostProcessor implements BeanPostProcessor, Ordered {
+
+    public static final Set<String> STORAGE_READS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("getRecord", "getRecords")));
+    public static final Set<String> SCHEMA_READS = Collections.singleton("getSchema");
+
+    // looked up lazily, post processors are created before most other beans
+    private final ObjectProvider<RetryPolicy> retryPolicyProvider;
+
+    public DownstreamRetryPostProcessor(ObjectProvider<RetryPolicy> retryPolicyProvider) {
+        this.retryPolicyProvider = retryPolicyProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof IStorageFactory) {
+            return RetryPolicy.retryCreated(IStorageFactory.class, (IStorageFactory) bean, IStorageService.class,
+                    this.retryPolicyProvider::getObject, "storage", STORAGE_READS);
+        }
+        if (bean instanceof ISchemaFactory) {
+            ISchemaFactory schemaFactory = (ISchemaFactory) bean;
+            return (ISchemaFactory) headers -> this.retryPolicyProvider.getObject()
+                    .retry(ISchemaService.class, schemaFactory.create(headers), "schema", SCHEMA_READS);
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.retry;
+
+/**
+ * Token bucket bounding the retries sent to one downstream: every call earns a fraction of a retry,
+ * every retry spends a whole one. While a downstream keeps failing, its retries therefore stay
+ * within that fraction of the calls instead of multiplying the load on it.
+ */
+class RetryBudget {
+
+    private final double tokensPerCall;
+    private final double maxTokens;
+    private double tokens;
+
+    RetryBudget(int percentOfCalls, int maxTokens) {
+        this.tokensPerCall = percentOfCalls / 100.0;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    synchronized void onCall() {
+        this.tokens = Math.min(this.maxTokens, this.tokens + this.tokensPerCall);
+    }
+
+    synchronized boolean tryRetry() {
+        if (this.tokens < 1) {
+            return false;
+        }
+        this.tokens--;
+        return true;
+    }
+
+    synchronized double getTokens() {
+        return this.tokens;
+    }
+}
@@ -0,0 +1,240 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.core.common.model.http.DpsException;
+import org.opengroup.osdu.core.common.model.storage.StorageException;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.util.AttemptScope;
+import org.opengroup.osdu.dataset.util.RequestDeadline;
+
+/**
+ * Retries idempotent reads of downstream services that failed transiently: with 429, a server
+ * error or without an answer at all. Attempts are spaced by exponential backoff with full jitter,
+ * or by the downstream's Retry-After when it asks for longer, and are only made while the request
+ * deadline leaves room for them. Each downstream has a {@link RetryBudget} so retries cannot pile
+ * onto a downstream that is failing for everyone.
+ *
+ * Clients are proxied through their interface, like the metered ones, and only the given methods
+ * are retried. Failures the service raises itself, such as an open circuit breaker, carry no
+ * downstream response and are never retried. Neither are attempts of a call that has been
+ * hedged, see {@link AttemptScope}.
+ */
+@Slf4j
+public class RetryPolicy {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = new HashSet<>(Arrays.asList(429, 500, 502, 503, 504));
+
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxRetryAfterMillis;
+    private final int budgetPercent;
+    private final int budgetMaxTokens;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public RetryPolicy(DatasetConfig datasetConfig, MeterRegistry meterRegistry) {
+        this.enabled = datasetConfig.isDownstreamRetryEnabled();
+        this.maxAttempts = Math.max(1, datasetConfig.getDownstreamRetryMaxAttempts());
+        this.baseDelayMillis = datasetConfig.getDownstreamRetryBaseDelayMillis();
+        this.maxDelayMillis = datasetConfig.getDownstreamRetryMaxDelayMillis();
+        this.maxRetryAfterMillis = datasetConfig.getDownstreamRetryMaxRetryAfterMillis();
+        this.budgetPercent = datasetConfig.getDownstreamRetryBudgetPercent();
+        this.budgetMaxTokens = datasetConfig.getDownstreamRetryBudgetMaxTokens();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param dependency names the retry budget and the counter, dataset.{dependency}.retries
+     * @param idempotentMethods the methods of the client that may be retried
+     */
+    public <T> T retry(Class<T> clientType, T client, String dependency, Set<String> idempotentMethods) {
+        if (!this.enabled || this.maxAttempts == 1 || client == null) {
+            return client;
+        }
+        RetryBudget budget = this.budgets.computeIfAbsent(dependency, this::newBudget);
+        return clientType.cast(Proxy.newProxyInstance(clientType.getClassLoader(), new Class<?>[]{clientType},
+                (proxy, method, args) -> idempotentMethods.contains(method.getName())
+                        ? this.invokeWithRetries(client, method, args, dependency, budget)
+                        : invoke(client, method, args)));
+    }
+
+    /**
+     * Wraps a factory so the clients it creates are retried by the policy supplied at that time.
+     */
+    public static <F, T> F retryCreated(Class<F> factoryType, F factory, Class<T> clientType,
+                                        Supplier<RetryPolicy> retryPolicy, String dependency,
+                                        Set<String> idempotentMethods) {
+        return factoryType.cast(Proxy.newProxyInstance(factoryType.getClassLoader(), new Class<?>[]{factoryType},
+                (proxy, method, args) -> {
+                    Object result = invoke(factory, method, args);
+                    if (method.getReturnType() == clientType && result != null) {
+                        return retryPolicy.get().retry(clientType, clientType.cast(result), dependency, idempotentMethods);
+                    }
+                    return result;
+                }));
+    }
+
+    private Object invokeWithRetries(Object client, Method method, Object[] args, String dependency,
+                                     RetryBudget budget) throws Throwable {
+        budget.onCall();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return invoke(client, method, args);
+            } catch (Throwable e) {
+                HttpResponse response = transientFailure(e);
+                if (response == null || attempt >= this.maxAttempts) {
+                    throw e;
+                }
+
+                long delayMillis = this.backoffMillis(attempt);
+                Long retryAfterMillis = retryAfterMillis(response);
+                if (retryAfterMillis != null) {
+                    if (retryAfterMillis > this.maxRetryAfterMillis) {
+                        this.count(dependency, "retry_after_too_long");
+                        throw e;
+                    }
+                    delayMillis = Math.max(delayMillis, retryAfterMillis);
+                }
+                if (RequestDeadline.remainingMillis(Long.MAX_VALUE) <= delayMillis) {
+                    this.count(dependency, "deadline");
+                    throw e;
+                }
+                if (!AttemptScope.tryRetry()) {
+                    // a hedge of this call is out already and counts as its retry
+                    this.count(dependency, "hedged");
+                    throw e;
+                }
+                if (!budget.tryRetry()) {
+                    this.count(dependency, "budget_exhausted");
+                    throw e;
+                }
+
+                this.count(dependency, "retried");
+                log.debug(String.format("Retrying %s %s in %d ms after status %d, attempt %d of %d", dependency,
+                        method.getName(), delayMillis, response.getResponseCode(), attempt + 1, this.maxAttempts));
+                sleep(delayMillis, e);
+            }
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(this.maxDelayMillis, this.baseDelayMillis << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private RetryBudget newBudget(String dependency) {
+        RetryBudget budget = new RetryBudget(this.budgetPercent, this.budgetMaxTokens);
+        this.meterRegistry.gauge(String.format("dataset.%s.retries.budget", dependency), budget, RetryBudget::getTokens);
+        return budget;
+    }
+
+    private void count(String dependency, String outcome) {
+        this.meterRegistry.counter(String.format("dataset.%s.retries", dependency), "outcome", outcome).increment();
+    }
+
+    /**
+     * @return the downstream response of a failure worth retrying, or null
+     */
+    static HttpResponse transientFailure(Throwable e) {
+        Throwable cause = e;
+        for (int depth = 0; cause != null && depth < 5; depth++, cause = next(cause)) {
+            HttpResponse response = null;
+            if (cause instanceof DpsException) {
+                response = ((DpsException) cause).getHttpResponse();
+            } else if (cause instanceof StorageException) {
+                response = ((StorageException) cause).getHttpResponse();
+            }
+            if (response != null) {
+                boolean unanswered = response.getResponseCode() == 0 && response.getException() != null;
+                return unanswered || RETRYABLE_STATUSES.contains(response.getResponseCode()) ? response : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the delay the downstream asked for in its Retry-After header, in seconds or as date
+     */
+    static Long retryAfterMillis(HttpResponse response) {
+        Map<String, List<String>> headers = response.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!"Retry-After".equalsIgnoreCase(header.getKey()) || header.getValue() == null
+                    || header.getValue().isEmpty()) {
+                continue;
+            }
+            String value = header.getValue().get(0).trim();
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                try {
+                    return Math.max(0, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                            .toEpochMilli() - System.currentTimeMillis());
+                } catch (DateTimeParseException e1) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Throwable next(Throwable e) {
+        if (e instanceof AppException && ((AppException) e).getOriginalException() != null) {
+            return ((AppException) e).getOriginalException();
+        }
+        return e.getCause() == e ? null : e.getCause();
+    }
+
+    private static void sleep(long millis, Throwable failure) throws Throwable {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
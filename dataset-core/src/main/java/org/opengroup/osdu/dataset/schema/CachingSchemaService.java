@@ -0,0 +1,44 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.schema;
+
+import org.opengroup.osdu.core.common.model.http.DpsException;
+
+/**
+ * Serves schemas from the shared {@link SchemaCache} and only calls the wrapped service on a miss.
+ *
+ * Schemas are cached per data partition and shared by its callers. The Schema service has no
+ * per-schema access control: any caller holding one of its reader roles in a partition may read
+ * every schema of that partition. SchemaFactory therefore only hands this out to callers holding
+ * such a role (see DatasetConfig.schemaCacheReaderRoles); others always ask the Schema service.
+ */
+public class CachingSchemaService implements ISchemaService {
+
+    private final ISchemaService schemaService;
+    private final SchemaCache schemaCache;
+    private final String partitionId;
+
+    public CachingSchemaService(ISchemaService schemaService, SchemaCache schemaCache, String partitionId) {
+        this.schemaService = schemaService;
+        this.schemaCache = schemaCache;
+        this.partitionId = partitionId;
+    }
+
+    @Override
+    public Object getSchema(String kind) throws DpsException {
+        String key = String.format("schema:%s:%s", this.partitionId, kind);
+        return this.schemaCache.get(key, () -> this.schemaService.getSchema(kind));
+    }
+}
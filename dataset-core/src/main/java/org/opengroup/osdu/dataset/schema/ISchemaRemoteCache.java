@@ -0,0 +1,24 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.schema;
+
+import org.opengroup.osdu.core.common.cache.ICache;
+
+/**
+ * Optional cache shared by all service instances (typically Redis) that sits behind the
+ * in-process schema cache. Providers that want the second tier register a bean of this type.
+ */
+public interface ISchemaRemoteCache extends ICache<String, Object> {
+}
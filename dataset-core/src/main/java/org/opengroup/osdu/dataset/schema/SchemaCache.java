@@ -0,0 +1,130 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.schema;
+
+import lombok.extern.slf4j.Slf4j;
+import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.cache.VmCache;
+import org.opengroup.osdu.core.common.model.http.DpsException;
+import org.opengroup.osdu.dataset.util.SingleFlight;
+
+/**
+ * Process wide schema cache: a bounded in-memory tier with expiry in front of an optional
+ * remote tier. Concurrent misses for the same key share a single load, so a burst of requests
+ * for a new kind results in one call to the Schema service. Callers waiting on another caller's
+ * load give up with 504 after maxLoadWaitMillis instead of hanging with it.
+ *
+ * Failed loads are not cached. The remote tier is best effort; when it is unreachable the
+ * schema is loaded from the Schema service as if the tier did not exist.
+ */
+@Slf4j
+public class SchemaCache {
+
+    public static final long DEFAULT_MAX_LOAD_WAIT_MILLIS = 10000;
+
+    private final ICache<String, Object> localCache;
+    private final ISchemaRemoteCache remoteCache;
+    private final SingleFlight<String, Object> loads = new SingleFlight<>();
+    private final long maxLoadWaitMillis;
+
+    public SchemaCache(int maxSize, int expirationSeconds, ISchemaRemoteCache remoteCache) {
+        this(maxSize, expirationSeconds, remoteCache, DEFAULT_MAX_LOAD_WAIT_MILLIS);
+    }
+
+    public SchemaCache(int maxSize, int expirationSeconds, ISchemaRemoteCache remoteCache, long maxLoadWaitMillis) {
+        this.localCache = new VmCache<>(expirationSeconds, maxSize);
+        this.remoteCache = remoteCache;
+        this.maxLoadWaitMillis = maxLoadWaitMillis;
+    }
+
+    public Object get(String key, SchemaLoader loader) throws DpsException {
+        Object schema = this.localCache.get(key);
+        if (schema != null) {
+            return schema;
+        }
+
+        try {
+            return this.loads.load(key, this.maxLoadWaitMillis, () -> {
+                try {
+                    return this.load(key, loader);
+                } catch (DpsException e) {
+                    throw new LoadFailure(e);
+                }
+            });
+        } catch (LoadFailure e) {
+            throw e.dpsException;
+        }
+    }
+
+    private Object load(String key, SchemaLoader loader) throws DpsException {
+        // another caller may have finished loading between our miss and taking the load over
+        Object schema = this.localCache.get(key);
+        if (schema != null) {
+            return schema;
+        }
+
+        schema = this.getFromRemoteCache(key);
+        if (schema == null) {
+            schema = loader.load();
+            this.putToRemoteCache(key, schema);
+        }
+        this.localCache.put(key, schema);
+        return schema;
+    }
+
+    private Object getFromRemoteCache(String key) {
+        if (this.remoteCache == null) {
+            return null;
+        }
+        try {
+            return this.remoteCache.get(key);
+        } catch (RuntimeException e) {
+            log.warn(String.format("Unable to read schema '%s' from remote cache: %s", key, e.getMessage()));
+            return null;
+        }
+    }
+
+    private void putToRemoteCache(String key, Object schema) {
+        if (this.remoteCache == null) {
+            return;
+        }
+        try {
+            this.remoteCache.put(key, schema);
+        } catch (RuntimeException e) {
+            log.warn(String.format("Unable to write schema '%s' to remote cache: %s", key, e.getMessage()));
+        }
+    }
+
+    @FunctionalInterface
+    public interface SchemaLoader {
+        Object load() throws DpsException;
+    }
+
+    /**
+     * Carries the checked DpsException of a load through SingleFlight, which only rethrows
+     * unchecked exceptions to the callers sharing the load.
+     */
+    private static final class LoadFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DpsException dpsException;
+
+        LoadFailure(DpsException dpsException) {
+            super(dpsException);
+            this.dpsException = dpsException;
+        }
+    }
+}
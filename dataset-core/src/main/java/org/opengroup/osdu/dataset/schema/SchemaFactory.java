@@ -17,7 +17,10 @@
 
 package org.opengroup.osdu.dataset.schema;
 
+import java.util.function.Predicate;
+
 import org.opengroup.osdu.core.common.http.HttpClient;
+import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.http.json.HttpResponseBodyMapper;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 
@@ -25,14 +28,38 @@ public class SchemaFactory implements ISchemaFactory {
     
     private final SchemaAPIConfig config;
     private final HttpResponseBodyMapper bodyMapper;
+    private final SchemaCache schemaCache;
+    private final IHttpClient httpClient;
+    private final Predicate<DpsHeaders> mayUseSchemaCache;
 
     public SchemaFactory(SchemaAPIConfig config, HttpResponseBodyMapper bodyMapper) {
+        this(config, bodyMapper, null);
+    }
+
+    public SchemaFactory(SchemaAPIConfig config, HttpResponseBodyMapper bodyMapper, SchemaCache schemaCache) {
+        this(config, bodyMapper, schemaCache, new HttpClient());
+    }
+
+    public SchemaFactory(SchemaAPIConfig config, HttpResponseBodyMapper bodyMapper, SchemaCache schemaCache,
+                         IHttpClient httpClient) {
+        this(config, bodyMapper, schemaCache, httpClient, null);
+    }
+
+    /**
+     * @param mayUseSchemaCache whether a caller may be served cached schemas; callers it rejects
+     *                          always ask the Schema service, null serves every caller from the cache
+     */
+    public SchemaFactory(SchemaAPIConfig config, HttpResponseBodyMapper bodyMapper, SchemaCache schemaCache,
+                         IHttpClient httpClient, Predicate<DpsHeaders> mayUseSchemaCache) {
         if (config == null) {
             throw new IllegalArgumentException("SchemaAPIConfig cannot be empty");
         }
 
         this.config = config;
         this.bodyMapper = bodyMapper;
+        this.schemaCache = schemaCache;
+        this.httpClient = httpClient;
+        this.mayUseSchemaCache = mayUseSchemaCache;
     }
 
     @Override
@@ -40,6 +67,10 @@ public class SchemaFactory implements ISchemaFactory {
         if (headers == null) {
             throw new NullPointerException("headers cannot be null");
         }
-        return new SchemaService(this.config, new HttpClient(), headers, bodyMapper);
+        ISchemaService schemaService = new SchemaService(this.config, this.httpClient, headers, bodyMapper);
+        if (this.schemaCache == null || (this.mayUseSchemaCache != null && !this.mayUseSchemaCache.test(headers))) {
+            return schemaService;
+        }
+        return new CachingSchemaService(schemaService, this.schemaCache, headers.getPartitionId());
     }
 }
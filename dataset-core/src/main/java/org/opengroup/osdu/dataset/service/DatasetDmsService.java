@@ -15,6 +15,7 @@
 package org.opengroup.osdu.dataset.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
 import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
@@ -32,4 +33,13 @@ public interface DatasetDmsService {
     default RetrievalInstructionsResponse getRetrievalInstructions(List<String> datasetRegistryIds) {
         return null;
     }
+
+    // new retrieval, handing the instructions to the consumer as each DMS answers
+    default void streamRetrievalInstructions(List<String> datasetRegistryIds,
+                                             Consumer<RetrievalInstructionsResponse> responseConsumer) {
+        RetrievalInstructionsResponse response = getRetrievalInstructions(datasetRegistryIds);
+        if (response != null) {
+            responseConsumer.accept(response);
+        }
+    }
 }
@@ -15,30 +15,54 @@
 package org.opengroup.osdu.dataset.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
 import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
 import org.opengroup.osdu.core.common.http.json.HttpResponseBodyMapper;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.core.common.model.storage.MultiRecordInfo;
 import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.model.storage.StorageException;
+import org.opengroup.osdu.core.common.storage.IStorageFactory;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
 import org.opengroup.osdu.dataset.dms.DmsException;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.opengroup.osdu.dataset.dms.IDmsProvider;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+import org.opengroup.osdu.dataset.dms.RetrievalInstructionsCache;
+import org.opengroup.osdu.dataset.dms.StorageInstructionsPool;
+import org.opengroup.osdu.dataset.metrics.RequestTimings;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
+import org.opengroup.osdu.dataset.model.response.DatasetRetrievalDeliveryItem;
 import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
 import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
 import org.opengroup.osdu.dataset.model.validation.DmsValidationDoc;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceLookup;
 import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
+import org.opengroup.osdu.dataset.util.BearerTokens;
+import org.opengroup.osdu.dataset.util.ChunkedRecordsReader;
+import org.opengroup.osdu.dataset.util.FanOutExecutor;
+import org.opengroup.osdu.dataset.util.RequestPositions;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import static org.opengroup.osdu.dataset.util.ExceptionUtils.handleDmsException;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DatasetDmsServiceImpl implements DatasetDmsService {
@@ -52,26 +76,32 @@ public class DatasetDmsServiceImpl implements DatasetDmsService {
     @Inject
     private IDatasetDmsServiceMap dmsServiceMap;
 
+    @Inject
+    private DatasetConfig datasetConfig;
+
+    @Inject
+    private FanOutExecutor fanOutExecutor;
+
+    @Inject
+    private IStorageFactory storageFactory;
+
+    @Inject
+    private RetrievalInstructionsCache retrievalInstructionsCache;
+
+    @Inject
+    private StorageInstructionsPool storageInstructionsPool;
+
     private final HttpResponseBodyMapper bodyMapper;
 
     @Override
     public GetDatasetStorageInstructionsResponse getStorageInstructions(String kindSubType) {
 
-        Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap = dmsServiceMap.getResourceTypeToDmsServiceMap();
-
-        DmsServiceProperties dmsServiceProperties = null;
-        
-        String kindSubTypeCatchAll = getKindSubTypeCatchAll(kindSubType);
-        String dmsMapId = null;
-
-        if (kindSubTypeToDmsServiceMap.containsKey(kindSubType)) {
-            dmsMapId = kindSubType;
-        }
-        else if (kindSubTypeToDmsServiceMap.containsKey(kindSubTypeCatchAll)) {
-            dmsMapId = kindSubTypeCatchAll;
-        }
-        
-        dmsServiceProperties = kindSubTypeToDmsServiceMap.get(dmsMapId);
+        long routing = System.nanoTime();
+        KindSubType parsedKindSubType = KindSubType.of(kindSubType);
+        DmsRoutingIndex.Route route = IDatasetDmsServiceLookup.resolve(dmsServiceMap,
+                Collections.singletonList(parsedKindSubType)).route(parsedKindSubType);
+        RequestTimings.record("route", System.nanoTime() - routing);
+        DmsServiceProperties dmsServiceProperties = route == null ? null : route.getDmsServiceProperties();
 
         if (dmsServiceProperties == null) {
             throw new AppException(HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.getReasonPhrase(),
@@ -84,6 +114,13 @@ public class DatasetDmsServiceImpl implements DatasetDmsService {
                     String.format(DmsValidationDoc.DMS_STORAGE_NOT_SUPPORTED_ERROR, kindSubType));
         }
 
+        if (datasetConfig.isStorageInstructionsPoolEnabled()) {
+            GetDatasetStorageInstructionsResponse pooled = takePooledStorageInstructions(kindSubType, dmsServiceProperties);
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+
         GetDatasetStorageInstructionsResponse response = null;
 
         try {
@@ -98,6 +135,25 @@ public class DatasetDmsServiceImpl implements DatasetDmsService {
         return response;
     }
 
+    /**
+     * Pools are kept per caller as well: storage instructions may be scoped to whoever asked for them,
+     * so they are never handed to another user. The refill runs later on a pool thread with the
+     * caller's token, hence the snapshot of the request headers, and only until that token expires;
+     * callers whose token expiry cannot be read are not pooled.
+     */
+    private GetDatasetStorageInstructionsResponse takePooledStorageInstructions(String kindSubType,
+                                                                                DmsServiceProperties dmsServiceProperties) {
+        Long tokenExpiry = BearerTokens.expiresAtMillis(headers.getAuthorization());
+        if (tokenExpiry == null) {
+            return null;
+        }
+        String poolKey = String.format("storage-instructions:%s:%s:%s", headers.getPartitionId(), kindSubType,
+                BearerTokens.fingerprint(headers.getAuthorization()));
+        DpsHeaders headersSnapshot = DpsHeaders.createFromMap(headers.getHeaders());
+        return storageInstructionsPool.take(poolKey, tokenExpiry,
+                () -> dmsFactory.create(headersSnapshot, dmsServiceProperties).getStorageInstructions());
+    }
+
     /**
      * 1. Parse the KindSubType from Dataset Registry ID
      * 
@@ -105,62 +161,301 @@ public class DatasetDmsServiceImpl implements DatasetDmsService {
      * dms handlers a. map datasets to DMS for use by DMS caller b. throw exception
      * if any unhandled
      * 
-     * 3. Call each DMS one by one and get the delivery instructions a. group all
-     * same type dms types b. merge all responses into a single delivery object
+     * 3. Call every DMS at once and get the delivery instructions a. group all
+     * same type dms types b. split each group into batches of the size the DMS
+     * prefers c. merge all responses into a single delivery object, ordered the
+     * same way as the requested ids
+     *
+     * Ids requested more than once are fetched once and answered at every position
+     * they were requested at.
      */
 
     @Override
     public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(List<String> datasetRegistryIds) {
 
-        Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap = dmsServiceMap.getResourceTypeToDmsServiceMap();
+        checkRetrievalRequestSize(datasetRegistryIds);
+        RequestPositions requestPositions = RequestPositions.of(datasetRegistryIds);
+        List<String> distinctIds = requestPositions.distinctIds();
 
-        HashMap<String, GetDatasetRegistryRequest> datasetRegistryRequestMap =
-                segregateDatasetIdsToDms(datasetRegistryIds, kindSubTypeToDmsServiceMap);
+        long routing = System.nanoTime();
+        DmsRoutingIndex routingIndex = IDatasetDmsServiceLookup.resolve(dmsServiceMap,
+                kindSubTypesOfRecordIds(distinctIds));
 
-        GetDatasetRetrievalInstructionsResponse mergedResponse = new GetDatasetRetrievalInstructionsResponse(new ArrayList<>());
-          
-        for (Map.Entry<String,GetDatasetRegistryRequest> datasetRegistryRequestEntry : datasetRegistryRequestMap.entrySet()) {
-            try {
-                IDmsProvider dmsProvider = dmsFactory.create(headers, kindSubTypeToDmsServiceMap.get(datasetRegistryRequestEntry.getKey()));
-                GetDatasetRetrievalInstructionsResponse entryResponse = dmsProvider.getDatasetRetrievalInstructions(datasetRegistryRequestEntry.getValue());
-                mergedResponse.getDelivery().addAll(entryResponse.getDelivery());
-            }
-            catch(DmsException e) {
-                handleDmsException(e);
-            }
+        Map<String, GetDatasetRegistryRequest> datasetRegistryRequestMap =
+                segregateDatasetIdsToDms(distinctIds, routingIndex);
+        RequestTimings.record("route", System.nanoTime() - routing);
+
+        List<GetDatasetRetrievalInstructionsResponse> entryResponses = callEachDms(
+                batchesOf(datasetRegistryRequestMap, routingIndex.getRegistrations()), IDmsProvider::getDatasetRetrievalInstructions);
+
+        List<DatasetRetrievalDeliveryItem> delivery = new ArrayList<>();
+        for (GetDatasetRetrievalInstructionsResponse entryResponse : entryResponses) {
+            delivery.addAll(entryResponse.getDelivery());
         }
-        return mergedResponse;
+        return new GetDatasetRetrievalInstructionsResponse(
+                requestPositions.scatter(delivery, DatasetRetrievalDeliveryItem::getDatasetRegistryId));
     }
 
 
     @Override
     public RetrievalInstructionsResponse getRetrievalInstructions(List<String> datasetRegistryIds)
     {
-        Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap = dmsServiceMap.getResourceTypeToDmsServiceMap();
+        checkRetrievalRequestSize(datasetRegistryIds);
+        if (datasetConfig.isRetrievalInstructionsCacheEnabled()) {
+            return getCachedRetrievalInstructions(datasetRegistryIds);
+        }
+        return fetchRetrievalInstructions(datasetRegistryIds);
+    }
+
+    /**
+     * Hands each DMS response to the consumer as soon as it and the DMS before it have answered,
+     * with its datasets in request order. The cache works on whole responses, so with the cache
+     * enabled the instructions are handed over at once.
+     */
+    @Override
+    public void streamRetrievalInstructions(List<String> datasetRegistryIds,
+                                            Consumer<RetrievalInstructionsResponse> responseConsumer) {
+        checkRetrievalRequestSize(datasetRegistryIds);
+        if (datasetConfig.isRetrievalInstructionsCacheEnabled()) {
+            responseConsumer.accept(getCachedRetrievalInstructions(datasetRegistryIds));
+            return;
+        }
 
-        HashMap<String, GetDatasetRegistryRequest> datasetRegistryRequestMap =
-                segregateDatasetIdsToDms(datasetRegistryIds, kindSubTypeToDmsServiceMap);
+        RequestPositions requestPositions = RequestPositions.of(datasetRegistryIds);
+        List<String> distinctIds = requestPositions.distinctIds();
+
+        long routing = System.nanoTime();
+        DmsRoutingIndex routingIndex = IDatasetDmsServiceLookup.resolve(dmsServiceMap,
+                kindSubTypesOfRecordIds(distinctIds));
+
+        Map<String, GetDatasetRegistryRequest> datasetRegistryRequestMap =
+                segregateDatasetIdsToDms(distinctIds, routingIndex);
+        RequestTimings.record("route", System.nanoTime() - routing);
+
+        forEachDms(batchesOf(datasetRegistryRequestMap, routingIndex.getRegistrations()), IDmsProvider::getRetrievalInstructions,
+                entryResponse -> responseConsumer.accept(scatter(entryResponse, requestPositions)));
+    }
 
+    private void checkRetrievalRequestSize(List<String> datasetRegistryIds) {
+        int maxIds = datasetConfig.getRetrievalInstructionsMaxIds();
+        if (maxIds > 0 && datasetRegistryIds.size() > maxIds) {
+            throw new AppException(HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                    String.format(DmsValidationDoc.MAX_RETRIEVAL_INSTRUCTIONS_IDS_EXCEEDED, maxIds));
+        }
+    }
+
+    /**
+     * Serves retrieval instructions from the cache where possible. The records are read from Storage
+     * with the caller's credentials first: Storage only returns records the caller may see, so only
+     * those are looked up in the cache, and their version is part of the cache key so an updated
+     * record never gets stale instructions.
+     */
+    private RetrievalInstructionsResponse getCachedRetrievalInstructions(List<String> datasetRegistryIds) {
+        RequestPositions requestPositions = RequestPositions.of(datasetRegistryIds);
+        Map<String, Record> visibleRecords = getVisibleRecords(requestPositions.distinctIds());
+        if (visibleRecords == null) {
+            return fetchRetrievalInstructions(datasetRegistryIds);
+        }
+
+        String partitionId = headers.getPartitionId();
         RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+        List<String> missedIds = new ArrayList<>();
+        for (String datasetRegistryId : requestPositions.distinctIds()) {
+            Record record = visibleRecords.get(datasetRegistryId);
+            RetrievalInstructionsCache.Entry entry = record == null ? null
+                    : retrievalInstructionsCache.get(partitionId, datasetRegistryId, record.getVersion());
+            if (entry == null) {
+                missedIds.add(datasetRegistryId);
+            } else {
+                response.getDatasets().add(entry.getDatasetRetrievalProperties());
+                response.setProviderKey(entry.getProviderKey());
+            }
+        }
 
-        for (Map.Entry<String,GetDatasetRegistryRequest> datasetRegistryRequestEntry : datasetRegistryRequestMap.entrySet()) {
-            try {
-                IDmsProvider dmsProvider = dmsFactory.create(headers, kindSubTypeToDmsServiceMap.get(datasetRegistryRequestEntry.getKey()));
-                RetrievalInstructionsResponse entryResponse = dmsProvider.getRetrievalInstructions(datasetRegistryRequestEntry.getValue());
-                response.getDatasets().addAll(entryResponse.getDatasets());
-                response.setProviderKey(entryResponse.getProviderKey());
+        if (!missedIds.isEmpty()) {
+            RetrievalInstructionsResponse fetched = fetchRetrievalInstructions(missedIds);
+            for (DatasetRetrievalProperties dataset : fetched.getDatasets()) {
+                Record record = visibleRecords.get(dataset.getDatasetRegistryId());
+                if (record != null) {
+                    retrievalInstructionsCache.put(partitionId, record.getId(), record.getVersion(),
+                            fetched.getProviderKey(), dataset);
+                }
+                response.getDatasets().add(dataset);
+            }
+            if (fetched.getProviderKey() != null) {
+                response.setProviderKey(fetched.getProviderKey());
             }
-            catch(DmsException e) {
-                handleDmsException(e);
+        }
+
+        return scatter(response, requestPositions);
+    }
+
+    /**
+     * @return the records the caller can read keyed by id, or null when Storage could not be asked,
+     *         in which case the cache is bypassed and the DMS enforce access as usual. Failures of
+     *         the request itself, such as its deadline passing, are not worked around.
+     */
+    private Map<String, Record> getVisibleRecords(List<String> datasetRegistryIds) {
+        try {
+            MultiRecordInfo records = getRecords(datasetRegistryIds);
+            Map<String, Record> visibleRecords = new HashMap<>();
+            if (records != null && records.getRecords() != null) {
+                for (Record record : records.getRecords()) {
+                    visibleRecords.put(record.getId(), record);
+                }
             }
+            return visibleRecords;
+        } catch (StorageException e) {
+            log.warn(String.format("Bypassing retrieval instructions cache, Storage lookup failed: %s", e.getMessage()));
+            return null;
         }
+    }
+
+    /**
+     * Storage only returns a limited number of records per call, so larger reads are split into
+     * chunks that are read concurrently, each with its own copy of the request headers.
+     */
+    private MultiRecordInfo getRecords(List<String> ids) throws StorageException {
+        int chunkSize = datasetConfig.getStorageGetRecordsChunkSize();
+        if (chunkSize <= 0 || ids.size() <= chunkSize) {
+            return storageFactory.create(headers).getRecords(ids);
+        }
+
+        DpsHeaders headersSnapshot = DpsHeaders.createFromMap(headers.getHeaders());
+        return ChunkedRecordsReader.getRecords(ids, chunkSize, fanOutExecutor,
+                datasetConfig.getStorageGetRecordsMaxConcurrentChunks(), datasetConfig.getStorageGetRecordsTimeoutMillis(),
+                chunk -> storageFactory.create(headersSnapshot).getRecords(chunk));
+    }
+
+    private RetrievalInstructionsResponse fetchRetrievalInstructions(List<String> datasetRegistryIds) {
+        RequestPositions requestPositions = RequestPositions.of(datasetRegistryIds);
+        List<String> distinctIds = requestPositions.distinctIds();
+
+        long routing = System.nanoTime();
+        DmsRoutingIndex routingIndex = IDatasetDmsServiceLookup.resolve(dmsServiceMap,
+                kindSubTypesOfRecordIds(distinctIds));
+
+        Map<String, GetDatasetRegistryRequest> datasetRegistryRequestMap =
+                segregateDatasetIdsToDms(distinctIds, routingIndex);
+        RequestTimings.record("route", System.nanoTime() - routing);
+
+        List<RetrievalInstructionsResponse> entryResponses = callEachDms(
+                batchesOf(datasetRegistryRequestMap, routingIndex.getRegistrations()), IDmsProvider::getRetrievalInstructions);
+
+        RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+        for (RetrievalInstructionsResponse entryResponse : entryResponses) {
+            response.getDatasets().addAll(entryResponse.getDatasets());
+            response.setProviderKey(entryResponse.getProviderKey());
+        }
+        return scatter(response, requestPositions);
+    }
+
+    /**
+     * Puts the datasets of the response at the positions their ids were requested at, repeating
+     * the datasets of ids requested more than once.
+     */
+    private static RetrievalInstructionsResponse scatter(RetrievalInstructionsResponse response,
+                                                         RequestPositions requestPositions) {
+        List<DatasetRetrievalProperties> datasets =
+                requestPositions.scatter(response.getDatasets(), DatasetRetrievalProperties::getDatasetRegistryId);
+        response.getDatasets().clear();
+        response.getDatasets().addAll(datasets);
         return response;
     }
 
+    /**
+     * Splits the ids of every DMS group into batches of the size the DMS prefers, in group order.
+     * The batch size is looked up by the base URL of the DMS, falling back to the default.
+     */
+    private List<DmsBatch> batchesOf(Map<String, GetDatasetRegistryRequest> datasetRegistryRequestMap,
+                                     Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap) {
+        List<DmsBatch> batches = new ArrayList<>(datasetRegistryRequestMap.size());
+        for (Map.Entry<String, GetDatasetRegistryRequest> entry : datasetRegistryRequestMap.entrySet()) {
+            DmsServiceProperties dmsServiceProperties = kindSubTypeToDmsServiceMap.get(entry.getKey());
+            List<String> ids = entry.getValue().datasetRegistryIds;
+            int batchSize = datasetConfig.getDmsRetrievalBatchSizeByBaseUrl()
+                    .getOrDefault(dmsServiceProperties.getDmsServiceBaseUrl(), datasetConfig.getDmsRetrievalBatchSize());
+
+            if (batchSize <= 0 || ids.size() <= batchSize) {
+                batches.add(new DmsBatch(dmsServiceProperties, entry.getValue()));
+                continue;
+            }
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                GetDatasetRegistryRequest request = new GetDatasetRegistryRequest();
+                request.datasetRegistryIds = new ArrayList<>(ids.subList(from, Math.min(from + batchSize, ids.size())));
+                batches.add(new DmsBatch(dmsServiceProperties, request));
+            }
+        }
+        return batches;
+    }
 
+    /**
+     * Calls the DMS with every batch and returns the responses in batch order. A single batch is
+     * called on the request thread; several batches are called concurrently, at most
+     * dmsRetrievalMaxConcurrentBatches at a time, each with its own copy of the request headers
+     * since DMS clients may add to them (e.g. AppKey) and the request scoped headers cannot be
+     * reached from the pool threads.
+     */
+    private <T> List<T> callEachDms(List<DmsBatch> batches, DmsCall<T> dmsCall) {
 
-    private HashMap<String, GetDatasetRegistryRequest> segregateDatasetIdsToDms(List<String> datasetRegistryIds, Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap) {
-        HashMap<String, GetDatasetRegistryRequest> datasetRegistryRequestMap = new HashMap<>();
+        if (batches.size() == 1) {
+            DmsBatch batch = batches.get(0);
+            return Collections.singletonList(callDms(headers, batch.dmsServiceProperties, batch.request, dmsCall));
+        }
+
+        return fanOutExecutor.invokeAll(dmsCalls(batches, dmsCall), datasetConfig.getDmsRetrievalMaxConcurrentBatches(),
+                datasetConfig.getDmsFanOutTimeoutMillis());
+    }
+
+    /**
+     * Like callEachDms, but hands each response to the consumer on the request thread as soon as
+     * it and the responses of the batches before it are in.
+     */
+    private <T> void forEachDms(List<DmsBatch> batches, DmsCall<T> dmsCall, Consumer<T> responseConsumer) {
+
+        if (batches.size() == 1) {
+            callEachDms(batches, dmsCall).forEach(responseConsumer);
+            return;
+        }
+
+        fanOutExecutor.invokeAllInOrder(dmsCalls(batches, dmsCall), datasetConfig.getDmsRetrievalMaxConcurrentBatches(),
+                datasetConfig.getDmsFanOutTimeoutMillis(), responseConsumer);
+    }
+
+    private <T> List<Callable<T>> dmsCalls(List<DmsBatch> batches, DmsCall<T> dmsCall) {
+        List<Callable<T>> calls = new ArrayList<>(batches.size());
+        for (DmsBatch batch : batches) {
+            DpsHeaders callHeaders = DpsHeaders.createFromMap(headers.getHeaders());
+            calls.add(() -> callDms(callHeaders, batch.dmsServiceProperties, batch.request, dmsCall));
+        }
+        return calls;
+    }
+
+    private <T> T callDms(DpsHeaders callHeaders, DmsServiceProperties dmsServiceProperties,
+                          GetDatasetRegistryRequest request, DmsCall<T> dmsCall) {
+        try {
+            IDmsProvider dmsProvider = dmsFactory.create(callHeaders, dmsServiceProperties);
+            return dmsCall.call(dmsProvider, request);
+        } catch (DmsException e) {
+            handleDmsException(e);
+            return null;
+        }
+    }
+
+
+    // ids that are not well formed are left out here and rejected by segregateDatasetIdsToDms
+    private static Set<KindSubType> kindSubTypesOfRecordIds(List<String> datasetRegistryIds) {
+        Set<KindSubType> kindSubTypes = new LinkedHashSet<>();
+        for (String datasetRegistryId : datasetRegistryIds) {
+            if (Record.isRecordIdValidFormatAndTenant(datasetRegistryId, "osdu")) {
+                kindSubTypes.add(KindSubType.fromRecordId(datasetRegistryId));
+            }
+        }
+        return kindSubTypes;
+    }
+
+    private Map<String, GetDatasetRegistryRequest> segregateDatasetIdsToDms(List<String> datasetRegistryIds, DmsRoutingIndex routingIndex) {
+        Map<String, GetDatasetRegistryRequest> datasetRegistryRequestMap = new LinkedHashMap<>();
 
         for (String datasetRegistryId : datasetRegistryIds) {
 
@@ -171,21 +466,14 @@ public class DatasetDmsServiceImpl implements DatasetDmsService {
                 throw new AppException(HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.getReasonPhrase(), String.format("Dataset Registry: '%s' is an Invalid ID", datasetRegistryId), datasetRegistryId);
             }
 
-            String kindSubType = getKindSubTypeFromID(datasetRegistryId);
-            String kindSubTypeCatchAll = getKindSubTypeCatchAll(kindSubType);
-            String dmsMapId = null;
-
-            if (kindSubTypeToDmsServiceMap.containsKey(kindSubType)) {
-                dmsMapId = kindSubType;
-            }
-            else if (kindSubTypeToDmsServiceMap.containsKey(kindSubTypeCatchAll)) {
-                dmsMapId = kindSubTypeCatchAll;
-            }
-            else {
+            KindSubType kindSubType = KindSubType.fromRecordId(datasetRegistryId);
+            DmsRoutingIndex.Route route = routingIndex.route(kindSubType);
+            if (route == null) {
                 throw new AppException(HttpStatus.BAD_REQUEST.value(),
                 HttpStatus.BAD_REQUEST.getReasonPhrase(),
                 String.format(DmsValidationDoc.KIND_SUB_TYPE_NOT_REGISTERED_ERROR, kindSubType));
             }
+            String dmsMapId = route.getDmsMapId();
 
             if (!datasetRegistryRequestMap.containsKey(dmsMapId)) {
                 GetDatasetRegistryRequest request = new GetDatasetRegistryRequest();
@@ -201,19 +489,19 @@ public class DatasetDmsServiceImpl implements DatasetDmsService {
         return datasetRegistryRequestMap;
     }
 
-    private String getKindSubTypeFromID(String id) {
-        String[] idSplitByColon = id.split(":");
-
-        String kindSubType = idSplitByColon[1]; //grab GroupType/IndividualType
-
-        return kindSubType;
+    @FunctionalInterface
+    private interface DmsCall<T> {
+        T call(IDmsProvider dmsProvider, GetDatasetRegistryRequest request) throws DmsException;
     }
 
-    private String getKindSubTypeCatchAll(String kindSubType) {
-        String[] splitByPeriod = kindSubType.split("\\.");
+    private static final class DmsBatch {
 
-        String kindSubTypeCatchAll = splitByPeriod[0] + ".*";
+        private final DmsServiceProperties dmsServiceProperties;
+        private final GetDatasetRegistryRequest request;
 
-        return kindSubTypeCatchAll;
+        DmsBatch(DmsServiceProperties dmsServiceProperties, GetDatasetRegistryRequest request) {
+            this.dmsServiceProperties = dmsServiceProperties;
+            this.request = request;
+        }
     }
 }
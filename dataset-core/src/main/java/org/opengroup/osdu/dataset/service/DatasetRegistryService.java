@@ -15,14 +15,23 @@
 package org.opengroup.osdu.dataset.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
 import org.opengroup.osdu.dataset.model.response.GetCreateUpdateDatasetRegistryResponse;
 
 public interface DatasetRegistryService {
 
 	GetCreateUpdateDatasetRegistryResponse createOrUpdateDatasetRegistry(List<Record> datasetRegistries);
+	// only the ids and versions Storage assigned, for callers that prefer a minimal response
+	UpsertRecords createOrUpdateDatasetRegistryMinimal(List<Record> datasetRegistries);
 	GetCreateUpdateDatasetRegistryResponse getDatasetRegistries(List<String> datasetRegistryIds);
+
+	// hands the dataset registries to the consumer a batch at a time, in the order of the ids
+	default void streamDatasetRegistries(List<String> datasetRegistryIds, Consumer<List<Record>> recordsConsumer) {
+		recordsConsumer.accept(getDatasetRegistries(datasetRegistryIds).getDatasetRegistries());
+	}
 	void deleteDatasetRegistry(String datasetRegistryId);
 
 }
\ No newline at end of file
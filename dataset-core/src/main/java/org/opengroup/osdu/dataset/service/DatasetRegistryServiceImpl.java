@@ -14,13 +14,21 @@
 
 package org.opengroup.osdu.dataset.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.inject.Inject;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.opengroup.osdu.core.common.dms.model.CopyDmsRequest;
 import org.opengroup.osdu.core.common.dms.model.CopyDmsResponse;
 import org.opengroup.osdu.core.common.http.json.HttpResponseBodyMapper;
@@ -34,23 +42,31 @@ import org.opengroup.osdu.core.common.model.storage.StorageException;
 import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
 import org.opengroup.osdu.core.common.storage.IStorageFactory;
 import org.opengroup.osdu.core.common.storage.IStorageService;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
 import org.opengroup.osdu.dataset.dms.DmsException;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.opengroup.osdu.dataset.dms.IDmsProvider;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+import org.opengroup.osdu.dataset.metrics.RequestTimings;
 import org.opengroup.osdu.dataset.model.request.SchemaExceptionResponse;
 import org.opengroup.osdu.dataset.model.request.SchemaExceptionResponseBody;
 import org.opengroup.osdu.dataset.model.request.StorageExceptionResponse;
 import org.opengroup.osdu.dataset.model.response.GetCreateUpdateDatasetRegistryResponse;
 import org.opengroup.osdu.dataset.model.validation.DmsValidationDoc;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceLookup;
 import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
 import org.opengroup.osdu.dataset.schema.ISchemaFactory;
 import org.opengroup.osdu.dataset.schema.ISchemaService;
+import org.opengroup.osdu.dataset.util.ChunkedRecordsReader;
+import org.opengroup.osdu.dataset.util.FanOutExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import static org.opengroup.osdu.dataset.util.ExceptionUtils.handleDmsException;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DatasetRegistryServiceImpl implements DatasetRegistryService {
@@ -65,6 +81,8 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
      */
     final String DATASET_KIND_REGEX = "^[\\w\\-\\.]+:[\\w\\-\\.]+:dataset--+[\\w\\-\\.]+:[0-9]+.[0-9]+.[0-9]+$";
 
+    private static final ObjectMapper RECORD_MAPPER = new ObjectMapper();
+
     private HttpResponseBodyMapper bodyMapper;
 
     @Inject
@@ -82,6 +100,12 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
     @Inject
     private IDatasetDmsServiceMap dmsServiceMap;
 
+    @Inject
+    private DatasetConfig datasetConfig;
+
+    @Inject
+    private FanOutExecutor fanOutExecutor;
+
     Pattern datasetKindPattern = Pattern.compile(DATASET_KIND_REGEX);
 
     @Override
@@ -106,14 +130,68 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
     public GetCreateUpdateDatasetRegistryResponse createOrUpdateDatasetRegistry(List<Record> datasetRegistries) {
 
         IStorageService storageService = this.storageFactory.create(headers);
+
+        UpsertRecords storageResponse = this.upsertDatasetRegistries(storageService, datasetRegistries);
+
+        if (!datasetConfig.isRegisterDatasetReadAfterWrite()) {
+            List<Record> registeredRecords = this.representLocally(datasetRegistries, storageResponse);
+            if (registeredRecords != null) {
+                return new GetCreateUpdateDatasetRegistryResponse(registeredRecords);
+            }
+        }
+
+        long start = System.nanoTime();
+
+        List<String> recordIds = storageResponse.getRecordIds();
+
+        MultiRecordInfo getRecordsResponse = null;
+
+        try {
+            getRecordsResponse = getRecords(storageService, recordIds);
+        } catch (StorageException e) {
+            try {
+                StorageExceptionResponse body = bodyMapper.parseBody(e.getHttpResponse(), StorageExceptionResponse.class);
+                throw new AppException(body.getCode(), "Storage Service: " + body.getReason(), body.getMessage());
+            } catch (HttpResponseBodyParsingException e1) {
+                throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                        HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                        "Failed to parse error from Storage Service");
+            }
+        }
+
+        long read = System.nanoTime() - start;
+        RequestTimings.record("storageRead", read);
+        log.debug(String.format("registerDataset read %d records back from Storage in %d ms",
+                recordIds.size(), toMillis(read)));
+
+        GetCreateUpdateDatasetRegistryResponse response = new GetCreateUpdateDatasetRegistryResponse(
+                getRecordsResponse.getRecords());
+
+        return response;
+    }
+
+    @Override
+    public UpsertRecords createOrUpdateDatasetRegistryMinimal(List<Record> datasetRegistries) {
+
+        IStorageService storageService = this.storageFactory.create(headers);
+
+        return this.upsertDatasetRegistries(storageService, datasetRegistries);
+    }
+
+    private UpsertRecords upsertDatasetRegistries(IStorageService storageService, List<Record> datasetRegistries) {
+
         ISchemaService schemaService = this.schemaFactory.create(headers);
 
+        long start = System.nanoTime();
         this.validateDatasets(schemaService, datasetRegistries);
+        long validated = System.nanoTime();
 
-        Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap = dmsServiceMap.getResourceTypeToDmsServiceMap();
-        Map<String, CopyDmsRequest> datasetRegistryRequestMap = this.segregateDatasetsBasedOnKind(datasetRegistries);
+        // one snapshot routes the datasets and supplies their DMS, so every routed key is found in it
+        DmsRoutingIndex routingIndex = IDatasetDmsServiceLookup.resolve(dmsServiceMap, kindSubTypesOf(datasetRegistries));
+        Map<String, CopyDmsRequest> datasetRegistryRequestMap = this.segregateDatasetsBasedOnKind(datasetRegistries, routingIndex);
 
-        this.copyDmsToPersistentStorage(datasetRegistryRequestMap, kindSubTypeToDmsServiceMap);
+        this.copyDmsToPersistentStorage(datasetRegistryRequestMap, routingIndex.getRegistrations());
+        long copied = System.nanoTime();
 
         UpsertRecords storageResponse = null;
         try {
@@ -130,13 +208,92 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
 
         }
 
+        long upserted = System.nanoTime();
+        RequestTimings.record("validate", validated - start);
+        RequestTimings.record("dmsCopy", copied - validated);
+        RequestTimings.record("storageUpsert", upserted - copied);
+        log.debug(String.format("registerDataset of %d records took %d ms: validate=%d ms, dmsCopy=%d ms, storageUpsert=%d ms",
+                datasetRegistries.size(), toMillis(upserted - start), toMillis(validated - start),
+                toMillis(copied - validated), toMillis(upserted - copied)));
+
+        return storageResponse;
+    }
+
+    /**
+     * Builds the registered records from copies of the submitted ones instead of reading them back
+     * from Storage, when registerDatasetReadAfterWrite is turned off. That is only safe when Storage
+     * reports one id and version per submitted record, in submission order, and skipped none of
+     * them; otherwise null is returned and the records are read back. Fields Storage fills in itself
+     * (e.g. createUser, createTime) are not included. The caller's records are left untouched.
+     */
+    private List<Record> representLocally(List<Record> datasetRegistries, UpsertRecords storageResponse) {
+
         List<String> recordIds = storageResponse.getRecordIds();
+        if (recordIds == null || recordIds.size() != datasetRegistries.size()
+                || (storageResponse.getSkippedRecordIds() != null && !storageResponse.getSkippedRecordIds().isEmpty())
+                || storageResponse.getRecordIdVersions() == null) {
+            return null;
+        }
+
+        Map<String, Long> versions = new HashMap<>();
+        for (String recordIdVersion : storageResponse.getRecordIdVersions()) {
+            int separator = recordIdVersion.lastIndexOf(':');
+            try {
+                versions.put(recordIdVersion.substring(0, separator), Long.parseLong(recordIdVersion.substring(separator + 1)));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                return null;
+            }
+        }
+
+        for (int i = 0; i < recordIds.size(); i++) {
+            String submittedId = datasetRegistries.get(i).getId();
+            if ((submittedId != null && !submittedId.equals(recordIds.get(i))) || !versions.containsKey(recordIds.get(i))) {
+                return null;
+            }
+        }
+
+        List<Record> registeredRecords = new ArrayList<>(datasetRegistries.size());
+        for (int i = 0; i < recordIds.size(); i++) {
+            Record record = RECORD_MAPPER.convertValue(datasetRegistries.get(i), Record.class);
+            record.setId(recordIds.get(i));
+            record.setVersion(versions.get(recordIds.get(i)));
+            registeredRecords.add(record);
+        }
+        return registeredRecords;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Storage only returns a limited number of records per call, so larger reads are split into
+     * chunks that are read concurrently, each with its own copy of the request headers.
+     */
+    private MultiRecordInfo getRecords(IStorageService storageService, List<String> ids) throws StorageException {
+        int chunkSize = datasetConfig.getStorageGetRecordsChunkSize();
+        if (chunkSize <= 0 || ids.size() <= chunkSize) {
+            return storageService.getRecords(ids);
+        }
+
+        DpsHeaders headersSnapshot = DpsHeaders.createFromMap(headers.getHeaders());
+        return ChunkedRecordsReader.getRecords(ids, chunkSize, fanOutExecutor,
+                datasetConfig.getStorageGetRecordsMaxConcurrentChunks(), datasetConfig.getStorageGetRecordsTimeoutMillis(),
+                chunk -> storageFactory.create(headersSnapshot).getRecords(chunk));
+    }
+
+    public GetCreateUpdateDatasetRegistryResponse getDatasetRegistries(List<String> datasetRegistryIds) {
 
         MultiRecordInfo getRecordsResponse = null;
 
         try {
-            getRecordsResponse = storageService.getRecords(recordIds);
+
+            IStorageService storageService = this.storageFactory.create(headers);
+
+            getRecordsResponse = getRecords(storageService, datasetRegistryIds);
+
         } catch (StorageException e) {
+
             try {
                 StorageExceptionResponse body = bodyMapper.parseBody(e.getHttpResponse(), StorageExceptionResponse.class);
                 throw new AppException(body.getCode(), "Storage Service: " + body.getReason(), body.getMessage());
@@ -153,15 +310,26 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
         return response;
     }
 
-    public GetCreateUpdateDatasetRegistryResponse getDatasetRegistries(List<String> datasetRegistryIds) {
+    /**
+     * Reads the chunks concurrently and hands each one over as soon as it and the chunks before it
+     * are read, so only a few chunks are held in memory at a time.
+     */
+    @Override
+    public void streamDatasetRegistries(List<String> datasetRegistryIds, Consumer<List<Record>> recordsConsumer) {
 
-        MultiRecordInfo getRecordsResponse = null;
+        int chunkSize = datasetConfig.getStorageGetRecordsChunkSize();
+        if (chunkSize <= 0 || datasetRegistryIds.size() <= chunkSize) {
+            recordsConsumer.accept(getDatasetRegistries(datasetRegistryIds).getDatasetRegistries());
+            return;
+        }
 
         try {
 
-            IStorageService storageService = this.storageFactory.create(headers);
-
-            getRecordsResponse = storageService.getRecords(datasetRegistryIds);
+            DpsHeaders headersSnapshot = DpsHeaders.createFromMap(headers.getHeaders());
+            ChunkedRecordsReader.forEachChunk(datasetRegistryIds, chunkSize, fanOutExecutor,
+                    datasetConfig.getStorageGetRecordsMaxConcurrentChunks(), datasetConfig.getStorageGetRecordsTimeoutMillis(),
+                    chunk -> storageFactory.create(headersSnapshot).getRecords(chunk),
+                    chunkResponse -> recordsConsumer.accept(chunkResponse.getRecords()));
 
         } catch (StorageException e) {
 
@@ -174,11 +342,6 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
                         "Failed to parse error from Storage Service");
             }
         }
-
-        GetCreateUpdateDatasetRegistryResponse response = new GetCreateUpdateDatasetRegistryResponse(
-                getRecordsResponse.getRecords());
-
-        return response;
     }
 
     //this should be in os-core-common, but placing here until it's able to be put inside the Record class
@@ -189,13 +352,8 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
                 return false;
 
             //id should be split by colons. ex: tenant:groupType--individualType:uniqueId
-            String[] recordIdSplitByColon = recordId.split(":");
-
             //make sure groupType/individualType is correct
-            String[] kindSplitByColon = kind.split(":");
-            String kindSubType = kindSplitByColon[2]; //grab GroupType/IndividualType
-
-            if (!recordIdSplitByColon[1].equalsIgnoreCase(kindSubType))
+            if (!KindSubType.fromRecordId(recordId).equalsIgnoreCase(KindSubType.fromKind(kind)))
                 return false;
 
             return true;
@@ -262,62 +420,72 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
         return matchFound;
     }
 
-    private String getKindSubtype(String kind) {
-        // TODO: change this to regex.
-        String[] kindSplitByColon = kind.split(":");
-        String kindSubType = kindSplitByColon[2]; //grab GroupType/IndividualType
-        return kindSubType;
-    }
-
-    private String getKindSubTypeCatchAll(String kindSubType) {
-        String[] splitByPeriod = kindSubType.split("\\.");
+    /**
+     * Asks every DMS that supports staging locations to copy its datasets to persistent storage.
+     * Several DMS are called concurrently; the first copy that fails cancels the others.
+     */
+    public void copyDmsToPersistentStorage(Map<String, CopyDmsRequest> datasetRegistryRequestMap,
+                    Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap) {
+        List<String> stagingKindSubTypes = new ArrayList<>();
+        for (String kindSubType : datasetRegistryRequestMap.keySet()) {
+            if (kindSubTypeToDmsServiceMap.get(kindSubType).isStagingLocationSupported()) {
+                stagingKindSubTypes.add(kindSubType);
+            }
+        }
 
-        String kindSubTypeCatchAll = splitByPeriod[0] + ".*";
+        if (stagingKindSubTypes.size() == 1) {
+            String kindSubType = stagingKindSubTypes.get(0);
+            copyDms(headers, kindSubTypeToDmsServiceMap.get(kindSubType), datasetRegistryRequestMap.get(kindSubType));
+            return;
+        }
 
-        return kindSubTypeCatchAll;
+        List<Callable<Void>> copyCalls = new ArrayList<>(stagingKindSubTypes.size());
+        for (String kindSubType : stagingKindSubTypes) {
+            // each call gets its own copy of the headers, the request scoped ones are not reachable from the pool
+            DpsHeaders callHeaders = DpsHeaders.createFromMap(headers.getHeaders());
+            DmsServiceProperties dmsServiceProperties = kindSubTypeToDmsServiceMap.get(kindSubType);
+            CopyDmsRequest copyDmsRequest = datasetRegistryRequestMap.get(kindSubType);
+            copyCalls.add(() -> copyDms(callHeaders, dmsServiceProperties, copyDmsRequest));
+        }
+        fanOutExecutor.invokeAll(copyCalls, datasetConfig.getDmsFanOutTimeoutMillis());
     }
 
-    public void copyDmsToPersistentStorage(Map<String, CopyDmsRequest> datasetRegistryRequestMap,
-                    Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap) {
-        for (Map.Entry<String, CopyDmsRequest> datasetRegistryRequestEntry : datasetRegistryRequestMap.entrySet()) {
-            try {
-                DmsServiceProperties dmsServiceProperties = kindSubTypeToDmsServiceMap.get(datasetRegistryRequestEntry.getKey());
-                if (dmsServiceProperties.isStagingLocationSupported()) {
-                    IDmsProvider dmsProvider = dmsFactory.create(headers, dmsServiceProperties);
-                    List<CopyDmsResponse> entryResponse = dmsProvider.copyDmsToPersistentStorage(datasetRegistryRequestEntry.getValue());
-                    for (CopyDmsResponse response: entryResponse) {
-                        if (!response.isSuccess()) {
-                            throw new AppException(400, "Bad Request", "Invalid dataset metadata");
-                        }
-                    }
+    private Void copyDms(DpsHeaders callHeaders, DmsServiceProperties dmsServiceProperties, CopyDmsRequest copyDmsRequest) {
+        try {
+            IDmsProvider dmsProvider = dmsFactory.create(callHeaders, dmsServiceProperties);
+            List<CopyDmsResponse> entryResponse = dmsProvider.copyDmsToPersistentStorage(copyDmsRequest);
+            for (CopyDmsResponse response: entryResponse) {
+                if (!response.isSuccess()) {
+                    throw new AppException(400, "Bad Request", "Invalid dataset metadata");
                 }
             }
-            catch(DmsException e) {
-                handleDmsException(e);
-            }
         }
+        catch(DmsException e) {
+            handleDmsException(e);
+        }
+        return null;
+    }
+
+    private static Set<KindSubType> kindSubTypesOf(List<Record> datasets) {
+        Set<KindSubType> kindSubTypes = new LinkedHashSet<>();
+        for (Record dataset : datasets) {
+            kindSubTypes.add(KindSubType.fromKind(dataset.getKind()));
+        }
+        return kindSubTypes;
     }
 
-    private Map<String, CopyDmsRequest> segregateDatasetsBasedOnKind(List<Record> datasets) {
+    private Map<String, CopyDmsRequest> segregateDatasetsBasedOnKind(List<Record> datasets, DmsRoutingIndex routingIndex) {
         Map<String, CopyDmsRequest> datasetRegistryRequestMap = new HashMap<>();
-        Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap = dmsServiceMap.getResourceTypeToDmsServiceMap();
 
         for (Record datasetRegistryRecord : datasets) {
-            String kindSubType = getKindSubtype(datasetRegistryRecord.getKind());
-            String kindSubTypeCatchAll = getKindSubTypeCatchAll(kindSubType);
-            String dmsMapId = null;
-
-            if (kindSubTypeToDmsServiceMap.containsKey(kindSubType)) {
-                dmsMapId = kindSubType;
-            }
-            else if (kindSubTypeToDmsServiceMap.containsKey(kindSubTypeCatchAll)) {
-                dmsMapId = kindSubTypeCatchAll;
-            }
-            else {
+            KindSubType kindSubType = KindSubType.fromKind(datasetRegistryRecord.getKind());
+            DmsRoutingIndex.Route route = routingIndex.route(kindSubType);
+            if (route == null) {
                 throw new AppException(HttpStatus.BAD_REQUEST.value(),
                         HttpStatus.BAD_REQUEST.getReasonPhrase(),
                         String.format(DmsValidationDoc.KIND_SUB_TYPE_NOT_REGISTERED_ERROR, kindSubType));
             }
+            String dmsMapId = route.getDmsMapId();
 
             if (!datasetRegistryRequestMap.containsKey(dmsMapId)) {
                 CopyDmsRequest request = new CopyDmsRequest();
@@ -331,4 +499,4 @@ public class DatasetRegistryServiceImpl implements DatasetRegistryService {
         }
         return datasetRegistryRequestMap;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -15,11 +15,18 @@
 
 package org.opengroup.osdu.dataset.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import org.apache.http.HttpStatus;
@@ -29,13 +36,13 @@ import org.opengroup.osdu.core.common.entitlements.IEntitlementsFactory;
 import org.opengroup.osdu.core.common.entitlements.IEntitlementsService;
 import org.opengroup.osdu.core.common.http.HttpResponse;
 import org.opengroup.osdu.core.common.logging.JaxRsDpsLog;
-import org.opengroup.osdu.core.common.model.entitlements.Acl;
 import org.opengroup.osdu.core.common.model.entitlements.EntitlementsException;
 import org.opengroup.osdu.core.common.model.entitlements.Groups;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.core.common.model.storage.RecordMetadata;
 import org.opengroup.osdu.core.common.util.Crc32c;
+import org.opengroup.osdu.dataset.util.SingleFlight;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -43,6 +50,9 @@ public class EntitlementsAndCacheServiceImpl implements IEntitlementsAndCacheSer
 
 	private static final String ERROR_REASON = "Access denied";
 	private static final String ERROR_MSG = "The user is not authorized to perform this action";
+	private static final Pattern EMAIL_PATTERN = Pattern.compile(
+			"^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$");
+	private static final int MAX_GROUP_INDEXES = 10000;
 
 	@Inject
 	private IEntitlementsFactory factory;
@@ -53,6 +63,31 @@ public class EntitlementsAndCacheServiceImpl implements IEntitlementsAndCacheSer
 	@Inject
 	private JaxRsDpsLog logger;
 
+	@Inject
+	private MeterRegistry meterRegistry;
+
+	// concurrent misses for the same caller share one call to Entitlements
+	private final SingleFlight<String, Groups> groupsLoader = new SingleFlight<>();
+
+	// group indexes of the cached Groups entries, least recently used first; rebuilt when the groups change
+	private final Map<String, GroupIndex> groupIndexes = Collections.synchronizedMap(
+			new LinkedHashMap<String, GroupIndex>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, GroupIndex> eldest) {
+					return this.size() > MAX_GROUP_INDEXES;
+				}
+			});
+
+	@PostConstruct
+	public void registerMetrics() {
+		FunctionCounter.builder("dataset.entitlements.groups.coalesced", this.groupsLoader, SingleFlight::getCoalescedCount)
+				.description("Entitlements group lookups that waited on an identical lookup already in flight")
+				.register(this.meterRegistry);
+		Gauge.builder("dataset.entitlements.groups.inflight", this.groupsLoader, SingleFlight::getInFlightCount)
+				.description("Entitlements group lookups currently in flight")
+				.register(this.meterRegistry);
+	}
+
 	@Override
 	public String authorize(DpsHeaders headers, String... roles) {
 		Groups groups = this.getGroups(headers);
@@ -72,14 +107,19 @@ public class EntitlementsAndCacheServiceImpl implements IEntitlementsAndCacheSer
 					"Unknown error happened when validating ACL");
 		}
 		String email = groups.getGroups().get(0).getEmail();
-		if (!email.matches("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$")) {
+		if (!EMAIL_PATTERN.matcher(email).matches()) {
 			this.logger.error("Email address is invalid for this group: " + groups.getGroups().get(0));
 			throw new AppException(HttpStatus.SC_INTERNAL_SERVER_ERROR, "Unknown error",
 					"Unknown error happened when validating ACL");
 		}
-		String domain = email.split("@")[1];
+		int domainStart = email.indexOf('@') + 1;
+		int domainLength = email.length() - domainStart;
 		for (String acl : acls) {
-			if (!acl.split("@")[1].equalsIgnoreCase(domain)) {
+			int aclDomainStart = acl.indexOf('@') + 1;
+			int aclDomainEnd = acl.indexOf('@', aclDomainStart);
+			int aclDomainLength = (aclDomainEnd < 0 ? acl.length() : aclDomainEnd) - aclDomainStart;
+			if (aclDomainStart == 0 || aclDomainLength != domainLength
+					|| !acl.regionMatches(true, aclDomainStart, email, domainStart, domainLength)) {
 				return false;
 			}
 		}
@@ -88,25 +128,17 @@ public class EntitlementsAndCacheServiceImpl implements IEntitlementsAndCacheSer
 
 	@Override
 	public boolean hasOwnerAccess(DpsHeaders headers, String[] ownerList) {
-		Groups groups = this.getGroups(headers);
-		Set<String> aclList = new HashSet<>();
-
-		for (String owner : ownerList) {
-			aclList.add(owner.split("@")[0]);
-		}
-
-		String[] acls = new String[aclList.size()];
-		return groups.any(aclList.toArray(acls));
+		return this.getGroupIndex(headers).containsAny(ownerList);
 	}
 
 	@Override
 	public List<RecordMetadata> hasValidAccess(List<RecordMetadata> recordsMetadata, DpsHeaders headers) {
-		Groups groups = this.getGroups(headers);
-		List<RecordMetadata> result = new ArrayList<>();
+		GroupIndex groupIndex = this.getGroupIndex(headers);
+		List<RecordMetadata> result = new ArrayList<>(recordsMetadata.size());
 
 		for (RecordMetadata recordMetadata : recordsMetadata) {
-			Acl storageAcl = recordMetadata.getAcl();
-			if (hasAccess(storageAcl, groups)) {
+			if (groupIndex.containsAny(recordMetadata.getAcl().getViewers())
+					|| groupIndex.containsAny(recordMetadata.getAcl().getOwners())) {
 				result.add(recordMetadata);
 			} else {
 				this.logger.warning("Post ACL check fails: " + recordMetadata.getId());
@@ -116,48 +148,53 @@ public class EntitlementsAndCacheServiceImpl implements IEntitlementsAndCacheSer
 		return result;
 	}
 
-	private boolean hasAccess(Acl storageAcl, Groups groups) {
-		String[] viewers = storageAcl.getViewers();
-		String[] owners = storageAcl.getOwners();
-		Set<String> aclList = new HashSet<>();
-
-		for (String viewer : viewers) {
-			aclList.add(viewer.split("@")[0]);
-		}
-		for (String owner : owners) {
-			aclList.add(owner.split("@")[0]);
-		}
-
-		String[] acls = new String[aclList.size()];
-		if (groups.any(aclList.toArray(acls))) {
-			return true;
-		} else {
-			return false;
+	protected GroupIndex getGroupIndex(DpsHeaders headers) {
+		String cacheKey = getGroupCacheKey(headers);
+		Groups groups = this.getGroups(cacheKey, headers);
+		GroupIndex groupIndex = this.groupIndexes.get(cacheKey);
+		if (groupIndex == null || !groupIndex.isIndexOf(groups)) {
+			groupIndex = GroupIndex.of(groups);
+			this.groupIndexes.put(cacheKey, groupIndex);
 		}
+		return groupIndex;
 	}
 
 	protected Groups getGroups(DpsHeaders headers) {
-		String cacheKey = this.getGroupCacheKey(headers);
+		return this.getGroups(getGroupCacheKey(headers), headers);
+	}
+
+	private Groups getGroups(String cacheKey, DpsHeaders headers) {
 		Groups groups = this.cache.get(cacheKey);
 
 		if (groups == null) {
-			IEntitlementsService service = this.factory.create(headers);
-			try {
-				groups = service.getGroups();
-				this.cache.put(cacheKey, groups);
-				this.logger.info("Entitlements cache miss");
-
-			} catch (EntitlementsException e) {
-				e.printStackTrace();
-				HttpResponse response = e.getHttpResponse();
-				this.logger.error(String.format("Error requesting entitlements service %s", response));
-				throw new AppException(e.getHttpResponse().getResponseCode(), ERROR_REASON, ERROR_MSG, e);
-			}
+			groups = this.groupsLoader.load(cacheKey, () -> this.loadGroups(cacheKey, headers));
 		}
 
 		return groups;
 	}
 
+	private Groups loadGroups(String cacheKey, DpsHeaders headers) {
+		// another lookup may have filled the cache between our miss and taking the flight
+		Groups groups = this.cache.get(cacheKey);
+		if (groups != null) {
+			return groups;
+		}
+
+		IEntitlementsService service = this.factory.create(headers);
+		try {
+			groups = service.getGroups();
+			this.cache.put(cacheKey, groups);
+			this.logger.info("Entitlements cache miss");
+			return groups;
+
+		} catch (EntitlementsException e) {
+			e.printStackTrace();
+			HttpResponse response = e.getHttpResponse();
+			this.logger.error(String.format("Error requesting entitlements service %s", response));
+			throw new AppException(e.getHttpResponse().getResponseCode(), ERROR_REASON, ERROR_MSG, e);
+		}
+	}
+
 	protected static String getGroupCacheKey(DpsHeaders headers) {
 		String key = String.format("entitlement-groups:%s:%s", headers.getPartitionIdWithFallbackToAccountId(),
 				headers.getAuthorization());
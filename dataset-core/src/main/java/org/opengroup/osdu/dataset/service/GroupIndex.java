@@ -0,0 +1,133 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.service;
+
+import java.util.List;
+import java.util.Objects;
+import org.opengroup.osdu.core.common.model.entitlements.GroupInfo;
+import org.opengroup.osdu.core.common.model.entitlements.Groups;
+
+/**
+ * The names of a user's groups in an open addressing hash table, built once per Groups entry so
+ * ACL checks do not scan the groups for every viewer and owner of every record.
+ *
+ * ACL entries are group emails (data.default.viewers@opendes.contoso.com) while groups are matched
+ * by name, i.e. the part before the '@'. Lookups hash and compare that part in place, ignoring case
+ * like Groups.any does, so checking an ACL allocates nothing.
+ *
+ * Caches that deserialize Groups hand out a new instance on every read, so an index is reused for
+ * any Groups with the same group names (see isIndexOf), not only for the instance it was built from.
+ */
+public final class GroupIndex {
+
+    private final String[] groupNames;
+    private final String[] names;
+    private final int mask;
+
+    private GroupIndex(Groups groups) {
+        List<GroupInfo> groupInfos = groups.getGroups();
+        int size = groupInfos == null ? 0 : groupInfos.size();
+        this.groupNames = new String[size];
+        // at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        this.names = new String[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            String name = groupInfos.get(i).getName();
+            this.groupNames[i] = name;
+            if (name != null) {
+                this.add(name);
+            }
+        }
+    }
+
+    public static GroupIndex of(Groups groups) {
+        return new GroupIndex(groups);
+    }
+
+    /**
+     * @return whether the index was built from the same group names, in the same order, as the given groups
+     */
+    public boolean isIndexOf(Groups groups) {
+        List<GroupInfo> groupInfos = groups.getGroups();
+        int size = groupInfos == null ? 0 : groupInfos.size();
+        if (size != this.groupNames.length) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!Objects.equals(this.groupNames[i], groupInfos.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the user is in the group of the given ACL entry
+     */
+    public boolean contains(String aclEntry) {
+        int length = localPartLength(aclEntry);
+        for (int slot = hash(aclEntry, length) & this.mask; ; slot = (slot + 1) & this.mask) {
+            String name = this.names[slot];
+            if (name == null) {
+                return false;
+            }
+            if (name.length() == length && name.regionMatches(true, 0, aclEntry, 0, length)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return whether the user is in the group of any of the given ACL entries
+     */
+    public boolean containsAny(String[] aclEntries) {
+        if (aclEntries == null) {
+            return false;
+        }
+        for (String aclEntry : aclEntries) {
+            if (aclEntry != null && this.contains(aclEntry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String name) {
+        int slot = hash(name, name.length()) & this.mask;
+        while (this.names[slot] != null) {
+            if (this.names[slot].equalsIgnoreCase(name)) {
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.names[slot] = name;
+    }
+
+    private static int localPartLength(String aclEntry) {
+        int at = aclEntry.indexOf('@');
+        return at < 0 ? aclEntry.length() : at;
+    }
+
+    private static int hash(String value, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        }
+        // spread the high bits, the table is indexed with the low ones
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.util;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The attempts of one hedged call, shared by the threads making them.
+ *
+ * A call gets a second chance either from a retry or from a hedge, never from both: once an attempt
+ * retries no hedge is sent, and once a hedge is sent neither attempt retries. When the call is
+ * settled the attempts still running are cancelled, including their outbound calls, which register
+ * how to abort them since interrupting a thread blocked on a socket does not stop it.
+ */
+public final class AttemptScope {
+
+    private static final ThreadLocal<AttemptScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<Runnable> cancellations = ConcurrentHashMap.newKeySet();
+    private boolean retrying;
+    private boolean hedged;
+    private volatile boolean cancelled;
+
+    /**
+     * @return the call, running within this scope on whichever thread executes it
+     */
+    public <T> Callable<T> bind(Callable<T> call) {
+        return () -> {
+            AttemptScope previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return call.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return whether the attempt of the current thread may be retried, always outside of a scope
+     */
+    public static boolean tryRetry() {
+        AttemptScope scope = CURRENT.get();
+        return scope == null || scope.markRetrying();
+    }
+
+    /**
+     * Runs the cancellation if the attempt of the current thread is cancelled before it is
+     * unregistered, right away if it already was.
+     */
+    public static void register(Runnable cancellation) {
+        AttemptScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        scope.cancellations.add(cancellation);
+        if (scope.cancelled) {
+            cancellation.run();
+        }
+    }
+
+    public static void unregister(Runnable cancellation) {
+        AttemptScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.cancellations.remove(cancellation);
+        }
+    }
+
+    /**
+     * @return whether a hedge may be sent, i.e. no attempt is retrying; if so, no attempt retries from now on
+     */
+    public synchronized boolean tryHedge() {
+        if (this.retrying || this.cancelled) {
+            return false;
+        }
+        this.hedged = true;
+        return true;
+    }
+
+    /**
+     * Takes back a hedge that could not be sent after all.
+     */
+    public synchronized void hedgeNotSent() {
+        this.hedged = false;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+        for (Runnable cancellation : this.cancellations) {
+            cancellation.run();
+        }
+    }
+
+    private synchronized boolean markRetrying() {
+        if (this.hedged || this.cancelled) {
+            return false;
+        }
+        this.retrying = true;
+        return true;
+    }
+}
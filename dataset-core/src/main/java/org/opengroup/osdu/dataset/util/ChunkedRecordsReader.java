@@ -0,0 +1,144 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.opengroup.osdu.core.common.model.storage.MultiRecordInfo;
+import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.model.storage.StorageException;
+
+/**
+ * Reads more records than Storage returns per call by splitting the ids into chunks, reading the
+ * chunks concurrently on a FanOutExecutor, at most maxConcurrentChunks at a time (0 for no bound),
+ * and merging the results back into a single MultiRecordInfo. Records, invalid ids and retry ids come back in the order of the requested ids.
+ *
+ * A failing chunk fails the whole read with the StorageException of that chunk, as a single
+ * getRecords call would.
+ */
+public final class ChunkedRecordsReader {
+
+    @FunctionalInterface
+    public interface ChunkReader {
+        MultiRecordInfo read(List<String> ids) throws StorageException;
+    }
+
+    private ChunkedRecordsReader() {
+    }
+
+    public static MultiRecordInfo getRecords(List<String> ids, int chunkSize, FanOutExecutor fanOutExecutor,
+                                             int maxConcurrentChunks, long timeoutMillis, ChunkReader chunkReader)
+            throws StorageException {
+        try {
+            return merge(positionsOf(ids), fanOutExecutor.invokeAll(chunkCalls(ids, chunkSize, chunkReader),
+                    maxConcurrentChunks, timeoutMillis));
+        } catch (ChunkFailure e) {
+            throw e.storageException;
+        }
+    }
+
+    /**
+     * Reads the chunks concurrently like getRecords, but hands each chunk to the consumer on the
+     * calling thread as soon as it and the chunks before it have been read, so callers can stream
+     * records out without holding all of them.
+     */
+    public static void forEachChunk(List<String> ids, int chunkSize, FanOutExecutor fanOutExecutor, int maxConcurrentChunks,
+                                    long timeoutMillis, ChunkReader chunkReader, Consumer<MultiRecordInfo> chunkConsumer)
+            throws StorageException {
+        Map<String, Integer> positions = positionsOf(ids);
+        try {
+            fanOutExecutor.invokeAllInOrder(chunkCalls(ids, chunkSize, chunkReader), maxConcurrentChunks, timeoutMillis,
+                    chunkResult -> chunkConsumer.accept(merge(positions, Collections.singletonList(chunkResult))));
+        } catch (ChunkFailure e) {
+            throw e.storageException;
+        }
+    }
+
+    private static List<Callable<MultiRecordInfo>> chunkCalls(List<String> ids, int chunkSize, ChunkReader chunkReader) {
+        List<Callable<MultiRecordInfo>> chunkCalls = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = new ArrayList<>(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            chunkCalls.add(() -> {
+                try {
+                    return chunkReader.read(chunk);
+                } catch (StorageException e) {
+                    throw new ChunkFailure(e);
+                }
+            });
+        }
+        return chunkCalls;
+    }
+
+    private static Map<String, Integer> positionsOf(List<String> ids) {
+        Map<String, Integer> positions = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            positions.putIfAbsent(ids.get(i), i);
+        }
+        return positions;
+    }
+
+    private static MultiRecordInfo merge(Map<String, Integer> positions, List<MultiRecordInfo> chunkResults) {
+        MultiRecordInfo merged = new MultiRecordInfo();
+        merged.setRecords(new ArrayList<>());
+        merged.setInvalidRecords(new ArrayList<>());
+        merged.setRetryRecords(new ArrayList<>());
+        for (MultiRecordInfo chunkResult : chunkResults) {
+            if (chunkResult == null) {
+                continue;
+            }
+            if (chunkResult.getRecords() != null) {
+                merged.getRecords().addAll(chunkResult.getRecords());
+            }
+            if (chunkResult.getInvalidRecords() != null) {
+                merged.getInvalidRecords().addAll(chunkResult.getInvalidRecords());
+            }
+            if (chunkResult.getRetryRecords() != null) {
+                merged.getRetryRecords().addAll(chunkResult.getRetryRecords());
+            }
+        }
+
+        merged.getRecords().sort(byPosition(positions, Record::getId));
+        merged.getInvalidRecords().sort(byPosition(positions, Function.identity()));
+        merged.getRetryRecords().sort(byPosition(positions, Function.identity()));
+        return merged;
+    }
+
+    private static <T> Comparator<T> byPosition(Map<String, Integer> positions, Function<T, String> idOf) {
+        return Comparator.comparingInt(item -> positions.getOrDefault(idOf.apply(item), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Carries the checked StorageException of a chunk through the FanOutExecutor, which only
+     * rethrows unchecked exceptions unchanged.
+     */
+    private static final class ChunkFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StorageException storageException;
+
+        ChunkFailure(StorageException storageException) {
+            super(storageException);
+            this.storageException = storageException;
+        }
+    }
+}
@@ -16,23 +16,30 @@
 package org.opengroup.osdu.dataset.util;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
+import java.io.PrintWriter;
+
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import com.google.common.base.Strings;
 
 import org.apache.http.HttpStatus;
 import org.opengroup.osdu.core.common.http.ResponseHeadersFactory;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.metrics.RequestTimings;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -42,11 +49,16 @@ public class DatasetFilter implements Filter {
 	private static final String DISABLE_AUTH_PROPERTY = "org.opengroup.osdu.dataset.disableAuth";
 	private static final String OPTIONS_STRING = "OPTIONS";
 	private static final String FOR_HEADER_NAME = "frame-of-reference";
+	private static final String SERVER_TIMING_HEADER_NAME = "Server-Timing";
+	private static final String TIMING_TRAILER_NAME = "Dataset-Timing";
 
 
 	@Inject
 	private DpsHeaders dpsHeaders;
 
+	@Inject
+	private DatasetConfig datasetConfig;
+
 	private ResponseHeadersFactory responseHeadersFactory = new ResponseHeadersFactory();
 
 	// defaults to * for any front-end, string must be comma-delimited if more than one domain
@@ -69,10 +81,22 @@ public class DatasetFilter implements Filter {
 			this.dpsHeaders.put(FOR_HEADER_NAME, fetchConversionHeader);
 		}
 
-		chain.doFilter(request, response);
-
 		HttpServletResponse httpResponse = (HttpServletResponse) response;
 
+		long deadlineMillis = this.getDeadlineMillis(httpRequest);
+		if (deadlineMillis > 0) {
+			RequestDeadline.start(deadlineMillis);
+		}
+		try {
+			if (this.datasetConfig.isServerTimingEnabled()) {
+				this.doFilterTimed(httpRequest, httpResponse, chain);
+			} else {
+				chain.doFilter(request, response);
+			}
+		} finally {
+			RequestDeadline.clear();
+		}
+
 		this.dpsHeaders.addCorrelationIdIfMissing();
 
 		Map<String, String> responseHeaders = responseHeadersFactory.getResponseHeaders(ACCESS_CONTROL_ALLOW_ORIGIN_DOMAINS);
@@ -88,6 +112,117 @@ public class DatasetFilter implements Filter {
 		}
 	}
 
+	/**
+	 * @return the budget the caller gives the request in the Request-Timeout header, capped, or else
+	 * the default of the endpoint; 0 for none
+	 */
+	private long getDeadlineMillis(HttpServletRequest request) {
+		String requestTimeout = request.getHeader(RequestDeadline.HEADER);
+		if (!Strings.isNullOrEmpty(requestTimeout)) {
+			try {
+				long timeoutMillis = Long.parseLong(requestTimeout.trim());
+				if (timeoutMillis > 0) {
+					return Math.min(timeoutMillis, this.datasetConfig.getRequestDeadlineMaxMillis());
+				}
+			} catch (NumberFormatException e) {
+				// not a budget we understand, fall back to the default
+			}
+		}
+		String uri = request.getRequestURI();
+		String endpoint = uri == null ? "" : uri.substring(uri.lastIndexOf('/') + 1);
+		Long endpointDefault = this.datasetConfig.getRequestDeadlineMillisByEndpoint().get(endpoint);
+		return endpointDefault != null ? endpointDefault : this.datasetConfig.getRequestDeadlineDefaultMillis();
+	}
+
+	/**
+	 * Collects the timings of the request and reports them as Server-Timing header, set just before
+	 * the response is committed, i.e. covering the request until its body starts. Streamed responses
+	 * report the whole request as trailers, which are sent to callers that accept them (TE: trailers)
+	 * along with a JSON version.
+	 */
+	private void doFilterTimed(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+
+		RequestTimings requestTimings = RequestTimings.start();
+		try {
+			String te = request.getHeader("TE");
+			if (te != null && te.toLowerCase().contains("trailers")) {
+				response.setHeader("Trailer", SERVER_TIMING_HEADER_NAME + ", " + TIMING_TRAILER_NAME);
+				response.setTrailerFields(() -> {
+					Map<String, String> trailers = new HashMap<>();
+					trailers.put(SERVER_TIMING_HEADER_NAME, requestTimings.toServerTiming());
+					trailers.put(TIMING_TRAILER_NAME, requestTimings.toJson());
+					return trailers;
+				});
+			}
+
+			ServerTimingResponse timedResponse = new ServerTimingResponse(response, requestTimings);
+			chain.doFilter(request, timedResponse);
+			timedResponse.setServerTiming();
+		} finally {
+			RequestTimings.clear();
+		}
+	}
+
+	/**
+	 * Sets the Server-Timing header before anything commits the response, such as the message
+	 * converters flushing the body, after which headers can no longer be added.
+	 */
+	static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+		private final RequestTimings requestTimings;
+		private boolean serverTimingSet;
+
+		ServerTimingResponse(HttpServletResponse response, RequestTimings requestTimings) {
+			super(response);
+			this.requestTimings = requestTimings;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			this.setServerTiming();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			this.setServerTiming();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			this.setServerTiming();
+			super.flushBuffer();
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			this.setServerTiming();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			this.setServerTiming();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			this.setServerTiming();
+			super.sendRedirect(location);
+		}
+
+		void setServerTiming() {
+			if (this.serverTimingSet || this.isCommitted()) {
+				return;
+			}
+			this.serverTimingSet = true;
+			this.setHeader(SERVER_TIMING_HEADER_NAME, this.requestTimings.toServerTiming());
+		}
+	}
+
 	@Override
 	public void destroy() {
 	}
@@ -32,9 +32,15 @@ public final class ExceptionUtils {
     }
 
     public static void handleDmsException(DmsException e) {
+        HttpResponse response = e.getHttpResponse();
+        if (response == null || (response.getResponseCode() == 0 && response.getException() != null)) {
+            throw new AppException(
+                    HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                    "DMS Service did not answer", e);
+        }
         try {
-            HttpResponse response = e.getHttpResponse();
-            String responseBody = response.getBody();
+            String responseBody = response.getBody() == null ? "" : response.getBody();
 
             DmsExceptionResponse body = OBJECT_MAPPER.readValue(responseBody, DmsExceptionResponse.class);
             throw new AppException(body.getCode(), "DMS Service: " + body.getReason(), body.getMessage());
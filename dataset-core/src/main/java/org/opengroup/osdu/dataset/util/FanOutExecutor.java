@@ -0,0 +1,220 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.dataset.metrics.RequestTimings;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Runs a batch of independent outbound calls on a bounded pool and waits for all of them
+ * within a single deadline. Results are returned in the order the calls were submitted.
+ *
+ * The first failing call cancels the rest of the batch and its exception is rethrown to the
+ * caller unchanged, so callers keep the same error semantics they had when the calls ran
+ * one after another. When the pool and its queue are saturated the calling thread runs the
+ * call itself instead of rejecting it.
+ *
+ * Request scoped beans such as DpsHeaders are not available on the pool threads; callers must
+ * capture whatever request state a call needs before submitting it. The request timings and
+ * deadline are carried over, and a request deadline shortens the timeout when it is due earlier.
+ *
+ * Callers with many calls can bound how many of them run at once; the next call is submitted as
+ * soon as an earlier one completes, so a single large batch does not take over the whole pool.
+ */
+public class FanOutExecutor {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    public FanOutExecutor(String name, int poolSize, int queueSize) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new NamedThreadFactory(name),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> List<T> invokeAll(List<Callable<T>> calls, long timeoutMillis) {
+        return invokeAll(calls, 0, timeoutMillis);
+    }
+
+    /**
+     * Like invokeAll, but runs at most maxConcurrentCalls of the calls at a time; 0 for no bound.
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> calls, int maxConcurrentCalls, long timeoutMillis) {
+        if (calls.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        RequestDeadline.check(this.name + " calls");
+        long effectiveTimeoutMillis = RequestDeadline.remainingMillis(timeoutMillis);
+        ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(this.executor);
+        List<Future<T>> futures = new ArrayList<>(calls.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(effectiveTimeoutMillis);
+
+        try {
+            for (int i = 0; i < windowOf(calls.size(), maxConcurrentCalls); i++) {
+                futures.add(completionService.submit(propagate(calls.get(i))));
+            }
+
+            for (int completed = 0; completed < calls.size(); completed++) {
+                long remaining = deadline - System.nanoTime();
+                Future<T> done = remaining > 0 ? completionService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    throw timedOut(effectiveTimeoutMillis);
+                }
+                done.get();
+                if (futures.size() < calls.size()) {
+                    futures.add(completionService.submit(propagate(calls.get(futures.size()))));
+                }
+            }
+
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                    String.format("Interrupted while waiting for %s calls", this.name), e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (CancellationException e) {
+            throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(), HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                    String.format("%s call was cancelled", this.name), e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Runs the calls like invokeAll but hands each result to the consumer on the calling thread as
+     * soon as it and all calls submitted before it have completed, so callers can write results out
+     * while later calls are still running. A failing call is only noticed once its turn comes.
+     */
+    public <T> void invokeAllInOrder(List<Callable<T>> calls, long timeoutMillis, Consumer<T> resultConsumer) {
+        invokeAllInOrder(calls, 0, timeoutMillis, resultConsumer);
+    }
+
+    /**
+     * Like invokeAllInOrder, but runs at most maxConcurrentCalls of the calls at a time; 0 for no bound.
+     * The next call is submitted once the oldest running one has been handed over.
+     */
+    public <T> void invokeAllInOrder(List<Callable<T>> calls, int maxConcurrentCalls, long timeoutMillis,
+                                     Consumer<T> resultConsumer) {
+        RequestDeadline.check(this.name + " calls");
+        long effectiveTimeoutMillis = RequestDeadline.remainingMillis(timeoutMillis);
+        List<Future<T>> futures = new ArrayList<>(calls.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(effectiveTimeoutMillis);
+
+        try {
+            for (int i = 0; i < windowOf(calls.size(), maxConcurrentCalls); i++) {
+                futures.add(this.executor.submit(propagate(calls.get(i))));
+            }
+
+            for (int next = 0; next < calls.size(); next++) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw timedOut(effectiveTimeoutMillis);
+                }
+                T result = futures.get(next).get(remaining, TimeUnit.NANOSECONDS);
+                if (futures.size() < calls.size()) {
+                    futures.add(this.executor.submit(propagate(calls.get(futures.size()))));
+                }
+                resultConsumer.accept(result);
+            }
+
+        } catch (TimeoutException e) {
+            throw timedOut(effectiveTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                    String.format("Interrupted while waiting for %s calls", this.name), e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (CancellationException e) {
+            throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(), HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                    String.format("%s call was cancelled", this.name), e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private static <T> Callable<T> propagate(Callable<T> call) {
+        return RequestDeadline.propagate(RequestTimings.propagate(call));
+    }
+
+    private static int windowOf(int callCount, int maxConcurrentCalls) {
+        return maxConcurrentCalls <= 0 ? callCount : Math.min(callCount, maxConcurrentCalls);
+    }
+
+    private AppException timedOut(long timeoutMillis) {
+        return new AppException(HttpStatus.GATEWAY_TIMEOUT.value(), HttpStatus.GATEWAY_TIMEOUT.getReasonPhrase(),
+                String.format("%s calls did not complete within %d ms", this.name, timeoutMillis));
+    }
+
+    private RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(), HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                String.format("%s call failed: %s", this.name, cause.getMessage()), (Exception) cause);
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.prefix = name + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, this.prefix + this.counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
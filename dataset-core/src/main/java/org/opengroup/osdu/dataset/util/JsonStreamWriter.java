@@ -0,0 +1,163 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+/**
+ * Writes a response item by item straight to the servlet output stream with Jackson's streaming
+ * generator, so large results never have to be held in memory as a whole.
+ *
+ * In NDJSON mode every item is written as its own line. In JSON mode the items form an array field
+ * of a single object, followed by any trailing fields set while streaming, so the document has the
+ * same shape as the non-streamed response.
+ *
+ * Items are buffered until flush() is called. A writer closed without finish() discards whatever
+ * is still buffered, so a failure before the first flush can still be reported with a proper error
+ * response. Once a flush has committed the response its 200 status can no longer change, so
+ * fail() ends the document with an error record instead: a last NDJSON line, or a trailing field
+ * of the JSON object, both named "error" with the code, reason and message of the failure.
+ */
+@Slf4j
+public class JsonStreamWriter implements Closeable {
+
+    public static final String ERROR_FIELD = "error";
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final HttpServletResponse response;
+    private final JsonGenerator generator;
+    private final boolean ndjson;
+    private final Map<String, Object> trailingFields = new LinkedHashMap<>();
+    private boolean finished;
+
+    private JsonStreamWriter(HttpServletResponse response, JsonGenerator generator, boolean ndjson) {
+        this.response = response;
+        this.generator = generator;
+        this.ndjson = ndjson;
+    }
+
+    public static boolean acceptsNdjson(String accept) {
+        return accept != null && accept.contains(APPLICATION_NDJSON_VALUE);
+    }
+
+    public static JsonStreamWriter open(HttpServletResponse response, ObjectMapper objectMapper,
+                                        boolean ndjson, String arrayField) {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(ndjson ? APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart(arrayField);
+            }
+            return new JsonStreamWriter(response, generator, ndjson);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(Object item) {
+        try {
+            this.generator.writeObject(item);
+            if (this.ndjson) {
+                this.generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sets a field written after the items in JSON mode; NDJSON has no place for it.
+     */
+    public void setTrailingField(String name, Object value) {
+        this.trailingFields.put(name, value);
+    }
+
+    public void flush() {
+        try {
+            this.generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() throws IOException {
+        if (!this.ndjson) {
+            this.generator.writeEndArray();
+            for (Map.Entry<String, Object> field : this.trailingFields.entrySet()) {
+                this.generator.writeObjectField(field.getKey(), field.getValue());
+            }
+            this.generator.writeEndObject();
+        }
+        this.generator.close();
+        this.finished = true;
+    }
+
+    /**
+     * Reports a failure that happened while streaming. Before anything was committed the failure is
+     * rethrown, so it gets a regular error response; afterwards the document is ended with an error
+     * record.
+     */
+    public void fail(RuntimeException failure) throws IOException {
+        if (!this.response.isCommitted()) {
+            throw failure;
+        }
+        log.warn(String.format("Streamed response failed after it was committed: %s", failure.getMessage()));
+
+        Map<String, Object> error = new LinkedHashMap<>();
+        if (failure instanceof AppException) {
+            AppException appException = (AppException) failure;
+            error.put("code", appException.getError().getCode());
+            error.put("reason", appException.getError().getReason());
+            error.put("message", appException.getError().getMessage());
+        } else {
+            error.put("code", HttpStatus.INTERNAL_SERVER_ERROR.value());
+            error.put("reason", HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase());
+            error.put("message", "An unknown error has occurred.");
+        }
+
+        if (this.ndjson) {
+            this.generator.writeObject(Collections.singletonMap(ERROR_FIELD, error));
+            this.generator.writeRaw('\n');
+        } else {
+            this.trailingFields.put(ERROR_FIELD, error);
+        }
+        this.finish();
+    }
+
+    @Override
+    public void close() {
+        if (!this.finished && !this.response.isCommitted()) {
+            this.response.resetBuffer();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The point in time by which the current request must be answered, set by DatasetFilter from the
+ * Request-Timeout header or the default of the endpoint. Downstream calls only get the time that is
+ * left and none are made once it is gone: the request fails with 504 instead, so threads are not
+ * kept busy with work whose caller has given up. Without a deadline nothing is bounded beyond the
+ * configured client timeouts. Work handed to other threads takes the deadline along through
+ * {@link #propagate(Callable)}.
+ */
+public final class RequestDeadline {
+
+    // budget of the request in milliseconds, sent on to the downstream services that are called with the rest
+    public static final String HEADER = "Request-Timeout";
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void start(long timeoutMillis) {
+        DEADLINE_NANOS.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE_NANOS.get() != null;
+    }
+
+    /**
+     * @return the milliseconds left, at most the given timeout; the timeout itself without a deadline
+     */
+    public static long remainingMillis(long timeoutMillis) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return timeoutMillis;
+        }
+        return Math.max(0, Math.min(timeoutMillis, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+    }
+
+    /**
+     * @throws AppException 504 when the deadline has passed
+     */
+    public static void check(String nextStep) {
+        if (remainingMillis(Long.MAX_VALUE) <= 0) {
+            throw exceeded(nextStep);
+        }
+    }
+
+    public static AppException exceeded(String nextStep) {
+        return new AppException(HttpStatus.GATEWAY_TIMEOUT.value(), HttpStatus.GATEWAY_TIMEOUT.getReasonPhrase(),
+                String.format("Request deadline exceeded before %s", nextStep));
+    }
+
+    /**
+     * @return the call, running with the current deadline on whichever thread executes it
+     */
+    public static <T> Callable<T> propagate(Callable<T> call) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return call;
+        }
+        return () -> {
+            Long previous = DEADLINE_NANOS.get();
+            DEADLINE_NANOS.set(deadline);
+            try {
+                return call.call();
+            } finally {
+                if (previous == null) {
+                    DEADLINE_NANOS.remove();
+                } else {
+                    DEADLINE_NANOS.set(previous);
+                }
+            }
+        };
+    }
+}
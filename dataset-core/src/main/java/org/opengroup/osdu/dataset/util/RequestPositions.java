@@ -0,0 +1,97 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The positions of the ids of a request that may name the same id more than once. Downstream
+ * calls only need each id once; their results are scattered back so that every requested position,
+ * duplicates included, gets the result of its id in request order.
+ */
+public final class RequestPositions {
+
+    private final List<String> distinctIds;
+    private final Map<String, List<Integer>> positions;
+
+    private RequestPositions(List<String> distinctIds, Map<String, List<Integer>> positions) {
+        this.distinctIds = distinctIds;
+        this.positions = positions;
+    }
+
+    public static RequestPositions of(List<String> ids) {
+        List<String> distinctIds = new ArrayList<>(ids.size());
+        Map<String, List<Integer>> positions = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            List<Integer> idPositions = positions.computeIfAbsent(ids.get(i), id -> new ArrayList<>(1));
+            if (idPositions.isEmpty()) {
+                distinctIds.add(ids.get(i));
+            }
+            idPositions.add(i);
+        }
+        return new RequestPositions(distinctIds, positions);
+    }
+
+    /**
+     * @return the requested ids without duplicates, in the order they were first requested
+     */
+    public List<String> distinctIds() {
+        return this.distinctIds;
+    }
+
+    /**
+     * Orders the items by the positions of their ids, repeating an item for every position its id
+     * was requested at. Items may cover only part of the request, such as one chunk of it; items
+     * whose id was not requested are kept at the end in the order given.
+     */
+    public <T> List<T> scatter(Collection<T> items, Function<T, String> idOf) {
+        List<Placed<T>> placed = new ArrayList<>(items.size());
+        for (T item : items) {
+            List<Integer> idPositions = this.positions.get(idOf.apply(item));
+            if (idPositions == null) {
+                placed.add(new Placed<>(Integer.MAX_VALUE, item));
+                continue;
+            }
+            for (Integer position : idPositions) {
+                placed.add(new Placed<>(position, item));
+            }
+        }
+        placed.sort(Comparator.comparingInt(p -> p.position));
+
+        List<T> scattered = new ArrayList<>(placed.size());
+        for (Placed<T> p : placed) {
+            scattered.add(p.item);
+        }
+        return scattered;
+    }
+
+    private static final class Placed<T> {
+
+        private final int position;
+        private final T item;
+
+        Placed(int position, T item) {
+            this.position = position;
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.util;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds when the signed URLs inside DMS retrieval properties stop being valid.
+ *
+ * Understands the expiry parameters of the signed URLs the DMS implementations hand out:
+ * AWS SigV4 (X-Amz-Date + X-Amz-Expires), GCS V4 (X-Goog-Date + X-Goog-Expires), Azure SAS (se)
+ * and epoch based Expires.
+ */
+public final class SignedUrlExpiry {
+
+    private static final DateTimeFormatter SIGNING_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private SignedUrlExpiry() {
+    }
+
+    /**
+     * @return the earliest expiry in epoch millis of any signed URL found in the properties, or
+     *         null when none of them carries a recognizable expiry
+     */
+    public static Long earliestExpiry(Object retrievalProperties) {
+        if (retrievalProperties instanceof String) {
+            return parseUrl((String) retrievalProperties);
+        }
+        Collection<?> values = null;
+        if (retrievalProperties instanceof Map) {
+            values = ((Map<?, ?>) retrievalProperties).values();
+        } else if (retrievalProperties instanceof Collection) {
+            values = (Collection<?>) retrievalProperties;
+        }
+        if (values == null) {
+            return null;
+        }
+
+        Long earliest = null;
+        for (Object value : values) {
+            Long expiry = earliestExpiry(value);
+            if (expiry != null && (earliest == null || expiry < earliest)) {
+                earliest = expiry;
+            }
+        }
+        return earliest;
+    }
+
+    static Long parseUrl(String url) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+        Map<String, String> parameters = parseQuery(url.substring(query + 1));
+        try {
+            Long expiry = signedAt(parameters.get("X-Amz-Date"), parameters.get("X-Amz-Expires"));
+            if (expiry == null) {
+                expiry = signedAt(parameters.get("X-Goog-Date"), parameters.get("X-Goog-Expires"));
+            }
+            if (expiry == null && parameters.containsKey("se")) {
+                expiry = isoInstant(parameters.get("se"));
+            }
+            if (expiry == null && parameters.containsKey("Expires")) {
+                expiry = Long.parseLong(parameters.get("Expires")) * 1000L;
+            }
+            return expiry;
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long signedAt(String date, String expiresInSeconds) {
+        if (date == null || expiresInSeconds == null) {
+            return null;
+        }
+        long signedAt = LocalDateTime.parse(date, SIGNING_DATE).toInstant(ZoneOffset.UTC).toEpochMilli();
+        return signedAt + Long.parseLong(expiresInSeconds) * 1000L;
+    }
+
+    private static Long isoInstant(String value) {
+        if (value.indexOf('T') < 0) {
+            return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+        return OffsetDateTime.parse(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant().toEpochMilli();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.opengroup.osdu.dataset.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Coalesces concurrent loads of the same key into a single call. The first caller for a key runs
+ * the loader on its own thread; callers arriving while that load is in flight wait for it and get
+ * the same value, or the same exception, instead of loading again.
+ *
+ * Nothing is kept once a load completes, so this sits in front of a cache rather than replacing
+ * one: the loader is expected to populate the cache before returning.
+ *
+ * Waiters can bound how long they wait, so a hung load does not hold every caller of its key; a
+ * waiter that gives up fails with 504 while the load carries on for the others.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V load(K key, Supplier<V> loader) {
+        return load(key, 0, loader);
+    }
+
+    /**
+     * Like load, but waits at most maxWaitMillis, and never past the request deadline, for a load
+     * already in flight; 0 waits as long as the load takes.
+     */
+    public V load(K key, long maxWaitMillis, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = this.flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            this.coalesced.incrementAndGet();
+            return maxWaitMillis > 0 || RequestDeadline.isSet()
+                    ? await(inFlight, RequestDeadline.remainingMillis(maxWaitMillis > 0 ? maxWaitMillis : Long.MAX_VALUE))
+                    : await(inFlight);
+        }
+
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return number of callers that waited on another caller's load instead of loading themselves
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return this.flights.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight, long maxWaitMillis) {
+        try {
+            return flight.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new AppException(HttpStatus.GATEWAY_TIMEOUT.value(), HttpStatus.GATEWAY_TIMEOUT.getReasonPhrase(),
+                    String.format("Load in flight did not complete within %d ms", maxWaitMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                    "Interrupted while waiting for a load in flight", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
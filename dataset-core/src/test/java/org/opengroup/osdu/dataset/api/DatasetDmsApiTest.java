@@ -16,12 +16,21 @@ package org.opengroup.osdu.dataset.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.function.Consumer;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpStatus;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,14 +38,22 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
+import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
+import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.core.common.model.tenant.TenantInfo;
 import org.opengroup.osdu.dataset.logging.AuditLogger;
 import org.opengroup.osdu.dataset.model.request.DeliveryRole;
+import org.opengroup.osdu.dataset.model.request.GetRetrievalInstructionsRequest;
 import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
 import org.opengroup.osdu.dataset.service.DatasetDmsService;
+import org.opengroup.osdu.dataset.util.JsonStreamWriter;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DatasetDmsApiTest {
@@ -56,12 +73,15 @@ public class DatasetDmsApiTest {
     @InjectMocks
     private DatasetDmsApi datasetDmsApi;
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     @Before
     public void setup() {
         initMocks(this);
 
         when(this.httpHeaders.getUserEmail()).thenReturn(this.USER);
         when(this.httpHeaders.getPartitionIdWithFallbackToAccountId()).thenReturn(this.TENANT);
+        ReflectionTestUtils.setField(this.datasetDmsApi, "objectMapper", this.objectMapper);
 
         TenantInfo tenant = new TenantInfo();
         tenant.setName(this.TENANT);
@@ -89,4 +109,66 @@ public class DatasetDmsApiTest {
 
         assertTrue(annotation.value().contains(DeliveryRole.VIEWER));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void should_streamRetrievalInstructionsAsNdjson() throws Exception {
+
+        GetRetrievalInstructionsRequest request = new GetRetrievalInstructionsRequest();
+        request.datasetRegistryIds = Arrays.asList("ID1", "ID2");
+        doAnswer(invocation -> {
+            Consumer<RetrievalInstructionsResponse> consumer = (Consumer<RetrievalInstructionsResponse>) invocation.getArguments()[1];
+            consumer.accept(retrievalInstructions("ID1", "AWS"));
+            consumer.accept(retrievalInstructions("ID2", "GCP"));
+            return null;
+        }).when(this.datasetDmsService).streamRetrievalInstructions(eq(request.datasetRegistryIds), any());
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        this.datasetDmsApi.retrievalInstructions_ndjson(request, servletResponse);
+
+        String[] lines = servletResponse.getContentAsString().split("\n");
+        assertEquals(HttpStatus.SC_OK, servletResponse.getStatus());
+        assertEquals(2, lines.length);
+        assertEquals("ID1", this.objectMapper.readTree(lines[0]).get("datasetRegistryId").asText());
+        assertEquals("GCP", this.objectMapper.readTree(lines[1]).get("providerKey").asText());
+    }
+
+    @Test
+    public void should_endStreamWithErrorField_when_dmsFailsAfterFirstResponse() throws Exception {
+
+        GetRetrievalInstructionsRequest request = new GetRetrievalInstructionsRequest();
+        request.datasetRegistryIds = Arrays.asList("ID1", "ID2");
+        doAnswer(invocation -> {
+            ((Consumer<RetrievalInstructionsResponse>) invocation.getArguments()[1]).accept(retrievalInstructions("ID1", "AWS"));
+            throw new AppException(503, "Service Unavailable", "DMS unavailable");
+        }).when(this.datasetDmsService).streamRetrievalInstructions(eq(request.datasetRegistryIds), any());
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        this.datasetDmsApi.retrievalInstructions_stream(request, MediaType.APPLICATION_JSON_VALUE, servletResponse);
+
+        JsonNode body = this.objectMapper.readTree(servletResponse.getContentAsString());
+        assertEquals("ID1", body.get("datasets").get(0).get("datasetRegistryId").asText());
+        assertEquals("AWS", body.get("providerKey").asText());
+        assertEquals(503, body.get(JsonStreamWriter.ERROR_FIELD).get("code").asInt());
+        assertEquals("DMS unavailable", body.get(JsonStreamWriter.ERROR_FIELD).get("message").asText());
+    }
+
+    @Test(expected = AppException.class)
+    public void should_rethrow_when_dmsFailsBeforeAnyResponse() throws Exception {
+
+        GetRetrievalInstructionsRequest request = new GetRetrievalInstructionsRequest();
+        request.datasetRegistryIds = Collections.singletonList("ID1");
+        doThrow(new AppException(400, "Bad Request", "Invalid id")).when(this.datasetDmsService)
+                .streamRetrievalInstructions(eq(request.datasetRegistryIds), any());
+
+        this.datasetDmsApi.retrievalInstructions_stream(request, MediaType.APPLICATION_JSON_VALUE, new MockHttpServletResponse());
+    }
+
+    private static RetrievalInstructionsResponse retrievalInstructions(String datasetRegistryId, String providerKey) {
+        DatasetRetrievalProperties dataset = new DatasetRetrievalProperties();
+        dataset.setDatasetRegistryId(datasetRegistryId);
+        RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+        response.getDatasets().add(dataset);
+        response.setProviderKey(providerKey);
+        return response;
+    }
+}
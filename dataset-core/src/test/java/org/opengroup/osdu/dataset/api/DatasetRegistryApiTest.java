@@ -17,15 +17,28 @@ package org.opengroup.osdu.dataset.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpStatus;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +48,8 @@ import org.mockito.Mock;
 
 import org.opengroup.osdu.core.common.model.storage.Record;
 import org.opengroup.osdu.core.common.model.storage.StorageRole;
+import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
+import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.core.common.model.tenant.TenantInfo;
 import org.opengroup.osdu.dataset.logging.AuditLogger;
@@ -42,9 +57,13 @@ import org.opengroup.osdu.dataset.model.request.CreateDatasetRegistryRequest;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
 import org.opengroup.osdu.dataset.model.response.GetCreateUpdateDatasetRegistryResponse;
 import org.opengroup.osdu.dataset.service.DatasetRegistryService;
+import org.opengroup.osdu.dataset.util.JsonStreamWriter;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DatasetRegistryApiTest {
@@ -70,6 +89,7 @@ public class DatasetRegistryApiTest {
 
         when(this.httpHeaders.getUserEmail()).thenReturn(this.USER);
         when(this.httpHeaders.getPartitionIdWithFallbackToAccountId()).thenReturn(this.TENANT);
+        ReflectionTestUtils.setField(this.datasetRegistryApi, "objectMapper", new ObjectMapper());
 
         TenantInfo tenant = new TenantInfo();
         tenant.setName(this.TENANT);
@@ -100,6 +120,43 @@ public class DatasetRegistryApiTest {
         assertEquals(expectedResponse, response.getBody());
     }
 
+    @Test
+    public void should_returnOnlyIdsAndVersions_when_minimalReturnIsPreferred() {
+
+        Record r1 = new Record();
+        r1.setId("ID1");
+
+        CreateDatasetRegistryRequest request = new CreateDatasetRegistryRequest();
+        request.datasetRegistries = Collections.singletonList(r1);
+
+        UpsertRecords expectedResponse = new UpsertRecords();
+        expectedResponse.setRecordIds(Collections.singletonList("ID1"));
+        expectedResponse.setRecordIdVersions(Collections.singletonList("ID1:1617000000000000"));
+        when(this.datasetRegistryService.createOrUpdateDatasetRegistryMinimal(request.datasetRegistries)).thenReturn(expectedResponse);
+
+        ResponseEntity<?> response = this.datasetRegistryApi.createOrUpdateDatasetRegistryWithPreference(request, "respond-async, return=minimal");
+
+        assertEquals(HttpStatus.SC_CREATED, response.getStatusCodeValue());
+        assertEquals(expectedResponse, response.getBody());
+        assertEquals("return=minimal", response.getHeaders().getFirst("Preference-Applied"));
+        verify(this.datasetRegistryService, never()).createOrUpdateDatasetRegistry(any());
+    }
+
+    @Test
+    public void should_returnFullRepresentation_when_otherReturnIsPreferred() {
+
+        CreateDatasetRegistryRequest request = new CreateDatasetRegistryRequest();
+        request.datasetRegistries = new ArrayList<>();
+        GetCreateUpdateDatasetRegistryResponse expectedResponse = new GetCreateUpdateDatasetRegistryResponse(request.datasetRegistries);
+        when(this.datasetRegistryService.createOrUpdateDatasetRegistry(request.datasetRegistries)).thenReturn(expectedResponse);
+
+        ResponseEntity<?> response = this.datasetRegistryApi.createOrUpdateDatasetRegistryWithPreference(request, "return=representation");
+
+        assertEquals(HttpStatus.SC_CREATED, response.getStatusCodeValue());
+        assertEquals(expectedResponse, response.getBody());
+        verify(this.datasetRegistryService, never()).createOrUpdateDatasetRegistryMinimal(any());
+    }
+
     @Test
     public void should_allowAccessToCreateOrUpdateDatasetRegistries_when_userBelongsToCreatorOrAdminGroups() throws Exception {
 
@@ -160,4 +217,69 @@ public class DatasetRegistryApiTest {
         assertEquals(HttpStatus.SC_OK, response.getStatusCodeValue());
         assertEquals(expectedResponse, response.getBody());
     }
+
+    @Test
+    public void should_streamDatasetRegistriesAsJsonDocument() throws Exception {
+
+        Record r1 = new Record();
+        r1.setId("ID1");
+
+        GetDatasetRegistryRequest request = new GetDatasetRegistryRequest();
+        request.datasetRegistryIds = Collections.singletonList("ID1");
+        doAnswer(invocation -> {
+            ((Consumer<List<Record>>) invocation.getArguments()[1]).accept(Collections.singletonList(r1));
+            return null;
+        }).when(this.datasetRegistryService).streamDatasetRegistries(eq(request.datasetRegistryIds), any());
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        this.datasetRegistryApi.getDatasetRegistryStream(request, MediaType.APPLICATION_JSON_VALUE, servletResponse);
+
+        JsonNode body = new ObjectMapper().readTree(servletResponse.getContentAsString());
+        assertEquals(HttpStatus.SC_OK, servletResponse.getStatus());
+        assertEquals("ID1", body.get("datasetRegistries").get(0).get("id").asText());
+        assertFalse(body.has(JsonStreamWriter.ERROR_FIELD));
+        verify(this.auditLogger).readDatasetRegistriesSuccess(request.datasetRegistryIds);
+    }
+
+    @Test
+    public void should_endStreamWithErrorRecord_when_failingAfterFirstRecords() throws Exception {
+
+        Record r1 = new Record();
+        r1.setId("ID1");
+
+        GetDatasetRegistryRequest request = new GetDatasetRegistryRequest();
+        request.datasetRegistryIds = Arrays.asList("ID1", "ID2");
+        doAnswer(invocation -> {
+            ((Consumer<List<Record>>) invocation.getArguments()[1]).accept(Collections.singletonList(r1));
+            throw new AppException(502, "Bad Gateway", "Storage unavailable");
+        }).when(this.datasetRegistryService).streamDatasetRegistries(eq(request.datasetRegistryIds), any());
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        this.datasetRegistryApi.getDatasetRegistryNdjson(request, servletResponse);
+
+        String[] lines = servletResponse.getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("ID1", new ObjectMapper().readTree(lines[0]).get("id").asText());
+        assertEquals("{\"error\":{\"code\":502,\"reason\":\"Bad Gateway\",\"message\":\"Storage unavailable\"}}", lines[1]);
+        verify(this.auditLogger, never()).readDatasetRegistriesSuccess(any());
+    }
+
+    @Test
+    public void should_rethrow_when_streamFailsBeforeAnyRecord() throws Exception {
+
+        GetDatasetRegistryRequest request = new GetDatasetRegistryRequest();
+        request.datasetRegistryIds = Collections.singletonList("ID1");
+        AppException failure = new AppException(404, "Not Found", "Dataset not found");
+        doThrow(failure).when(this.datasetRegistryService).streamDatasetRegistries(eq(request.datasetRegistryIds), any());
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        try {
+            this.datasetRegistryApi.getDatasetRegistryNdjson(request, servletResponse);
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertSame(failure, e);
+        }
+        assertFalse(servletResponse.isCommitted());
+        assertEquals("", servletResponse.getContentAsString());
+    }
 }
@@ -0,0 +1,267 @@
+package org.opengroup.osdu.dataset.dms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
+import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
+import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+import org.opengroup.osdu.dataset.retry.RetryPolicy;
+
+public class DmsBulkheadsTest {
+
+    private static final DmsServiceProperties DMS = new DmsServiceProperties("http://slow-dms/api/v1");
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private DatasetConfig datasetConfig;
+    private MeterRegistry meterRegistry;
+    private DmsBulkheads dmsBulkheads;
+
+    @Before
+    public void setup() {
+        datasetConfig = new DatasetConfig();
+        datasetConfig.setDmsBulkheadEnabled(true);
+        datasetConfig.setDmsBulkheadMaxConcurrentCalls(1);
+        datasetConfig.setDmsBulkheadMaxQueuedCalls(0);
+        datasetConfig.setDmsCircuitBreakerWindowSize(4);
+        datasetConfig.setDmsCircuitBreakerMinimumCalls(4);
+        datasetConfig.setDmsCircuitBreakerFailureRateThreshold(50);
+        datasetConfig.setDmsCircuitBreakerOpenSeconds(30);
+        datasetConfig.setDmsCircuitBreakerHalfOpenCalls(2);
+        meterRegistry = new SimpleMeterRegistry();
+        dmsBulkheads = new DmsBulkheads(datasetConfig, meterRegistry, now::get);
+    }
+
+    @Test
+    public void guard_opensAfterFailuresAndFailsFast() throws DmsException {
+        AtomicInteger calls = new AtomicInteger();
+        IDmsProvider failing = dmsBulkheads.guard(provider(() -> {
+            calls.incrementAndGet();
+            throw new AppException(502, "Bad Gateway", "dms down");
+        }), DMS);
+
+        for (int i = 0; i < 4; i++) {
+            assertStatus(502, failing);
+        }
+        assertStatus(503, failing);
+
+        assertEquals(4, calls.get());
+        assertEquals("OPEN", dmsBulkheads.describe().get(DMS.getDmsServiceBaseUrl()).get("circuitBreaker"));
+        assertEquals(1.0, meterRegistry.counter("dataset.dms.rejections",
+                "target", DMS.getDmsServiceBaseUrl(), "reason", "circuit_open").count(), 0);
+    }
+
+    @Test
+    public void guard_closesAgainAfterSuccessfulTrials() throws DmsException {
+        GetDatasetStorageInstructionsResponse instructions = new GetDatasetStorageInstructionsResponse();
+        AtomicInteger failuresLeft = new AtomicInteger(4);
+        IDmsProvider flaky = dmsBulkheads.guard(provider(() -> {
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new AppException(500, "Internal Server Error", "dms down");
+            }
+            return instructions;
+        }), DMS);
+        for (int i = 0; i < 4; i++) {
+            assertStatus(500, flaky);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        assertSame(instructions, flaky.getStorageInstructions());
+        assertEquals("HALF_OPEN", dmsBulkheads.describe().get(DMS.getDmsServiceBaseUrl()).get("circuitBreaker"));
+        assertSame(instructions, flaky.getStorageInstructions());
+
+        assertEquals("CLOSED", dmsBulkheads.describe().get(DMS.getDmsServiceBaseUrl()).get("circuitBreaker"));
+    }
+
+    @Test
+    public void guard_doesNotCountClientErrorsAsFailures() {
+        IDmsProvider rejecting = dmsBulkheads.guard(provider(() -> {
+            throw new AppException(404, "Not Found", "no such dataset");
+        }), DMS);
+
+        for (int i = 0; i < 8; i++) {
+            assertStatus(404, rejecting);
+        }
+
+        assertEquals("CLOSED", dmsBulkheads.describe().get(DMS.getDmsServiceBaseUrl()).get("circuitBreaker"));
+    }
+
+    @Test
+    public void guard_rejectsCallsBeyondBulkhead() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IDmsProvider slow = dmsBulkheads.guard(provider(() -> {
+            started.countDown();
+            release.await();
+            return new GetDatasetStorageInstructionsResponse();
+        }), DMS);
+        Thread inFlight = new Thread(() -> {
+            try {
+                slow.getStorageInstructions();
+            } catch (DmsException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        inFlight.start();
+        started.await(5, TimeUnit.SECONDS);
+
+        IDmsProvider other = dmsBulkheads.guard(provider(GetDatasetStorageInstructionsResponse::new),
+                new DmsServiceProperties("http://other-dms/api/v1"));
+        other.getStorageInstructions();
+        assertStatus(503, slow);
+
+        release.countDown();
+        inFlight.join(5000);
+        assertEquals(1.0, meterRegistry.counter("dataset.dms.rejections",
+                "target", DMS.getDmsServiceBaseUrl(), "reason", "bulkhead_full").count(), 0);
+    }
+
+    @Test
+    public void guard_leavesProvidersAloneWhenDisabled() {
+        datasetConfig.setDmsBulkheadEnabled(false);
+        IDmsProvider dmsProvider = provider(GetDatasetStorageInstructionsResponse::new);
+
+        assertSame(dmsProvider, new DmsBulkheads(datasetConfig, meterRegistry).guard(dmsProvider, DMS));
+    }
+
+    @Test
+    public void guard_isOffByDefault() {
+        DatasetConfig defaults = new DatasetConfig();
+        IDmsProvider dmsProvider = provider(GetDatasetStorageInstructionsResponse::new);
+
+        assertFalse(defaults.isDmsBulkheadEnabled());
+        assertSame(dmsProvider, new DmsBulkheads(defaults, meterRegistry).guard(dmsProvider, DMS));
+    }
+
+    @Test
+    public void guard_retriesDmsErrorsButNotRejections() throws Exception {
+        datasetConfig.setDownstreamRetryMaxAttempts(3);
+        datasetConfig.setDownstreamRetryBaseDelayMillis(0);
+        datasetConfig.setDownstreamRetryBudgetPercent(10);
+        datasetConfig.setDownstreamRetryBudgetMaxTokens(10);
+        RetryPolicy retryPolicy = new RetryPolicy(datasetConfig, meterRegistry);
+
+        // a 503 from the DMS itself is retried, each attempt taking its own permit
+        GetDatasetRetrievalInstructionsResponse instructions = new GetDatasetRetrievalInstructionsResponse();
+        AtomicInteger reads = new AtomicInteger();
+        IDmsProvider recovering = retryPolicy.retry(IDmsProvider.class, dmsBulkheads.guard(reader(() -> {
+            if (reads.incrementAndGet() == 1) {
+                throw new DmsException("Error making request to DMS service", response(503));
+            }
+            return instructions;
+        }), DMS), "dms", DmsResiliencePostProcessor.DMS_READS);
+        assertSame(instructions, recovering.getDatasetRetrievalInstructions(new GetDatasetRegistryRequest()));
+        assertEquals(2, reads.get());
+
+        // a 503 from the full bulkhead sheds the load and is not retried
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IDmsProvider slow = dmsBulkheads.guard(provider(() -> {
+            started.countDown();
+            release.await();
+            return new GetDatasetStorageInstructionsResponse();
+        }), DMS);
+        Thread inFlight = new Thread(() -> {
+            try {
+                slow.getStorageInstructions();
+            } catch (DmsException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        inFlight.start();
+        started.await(5, TimeUnit.SECONDS);
+
+        AtomicInteger rejectedReads = new AtomicInteger();
+        IDmsProvider rejected = retryPolicy.retry(IDmsProvider.class, dmsBulkheads.guard(reader(() -> {
+            rejectedReads.incrementAndGet();
+            return instructions;
+        }), DMS), "dms", DmsResiliencePostProcessor.DMS_READS);
+        try {
+            rejected.getDatasetRetrievalInstructions(new GetDatasetRegistryRequest());
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(503, e.getError().getCode());
+        } finally {
+            release.countDown();
+            inFlight.join(5000);
+        }
+
+        assertEquals(0, rejectedReads.get());
+        assertEquals(1.0, meterRegistry.counter("dataset.dms.retries", "outcome", "retried").count(), 0);
+        assertEquals(1.0, meterRegistry.counter("dataset.dms.rejections",
+                "target", DMS.getDmsServiceBaseUrl(), "reason", "bulkhead_full").count(), 0);
+    }
+
+    private static void assertStatus(int status, IDmsProvider dmsProvider) {
+        try {
+            dmsProvider.getStorageInstructions();
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(status, e.getError().getCode());
+        } catch (DmsException e) {
+            fail("unexpected DmsException");
+        }
+    }
+
+    private static IDmsProvider provider(StorageInstructions storageInstructions) {
+        return new IDmsProvider() {
+            @Override
+            public GetDatasetStorageInstructionsResponse getStorageInstructions() {
+                try {
+                    return storageInstructions.get();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request) {
+                return null;
+            }
+        };
+    }
+
+    private static IDmsProvider reader(RetrievalInstructions retrievalInstructions) {
+        return new IDmsProvider() {
+            @Override
+            public GetDatasetStorageInstructionsResponse getStorageInstructions() {
+                return null;
+            }
+
+            @Override
+            public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request)
+                    throws DmsException {
+                return retrievalInstructions.get();
+            }
+        };
+    }
+
+    private static HttpResponse response(int status) {
+        HttpResponse response = new HttpResponse();
+        response.setResponseCode(status);
+        return response;
+    }
+
+    private interface StorageInstructions {
+        GetDatasetStorageInstructionsResponse get() throws Exception;
+    }
+
+    private interface RetrievalInstructions {
+        GetDatasetRetrievalInstructionsResponse get() throws DmsException;
+    }
+}
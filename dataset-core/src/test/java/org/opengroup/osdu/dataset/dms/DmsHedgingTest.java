@@ -0,0 +1,217 @@
+package org.opengroup.osdu.dataset.dms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
+import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
+import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+import org.opengroup.osdu.dataset.retry.RetryPolicy;
+
+public class DmsHedgingTest {
+
+    private static final DmsServiceProperties DMS = new DmsServiceProperties("http://file-dms/api/v1");
+    private static final GetDatasetRegistryRequest REQUEST = new GetDatasetRegistryRequest();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final RetrievalInstructionsResponse fast = new RetrievalInstructionsResponse();
+    private final RetrievalInstructionsResponse slow = new RetrievalInstructionsResponse();
+
+    private int failingCall = -1;
+    private DatasetConfig datasetConfig;
+    private MeterRegistry meterRegistry;
+    private DmsHedging dmsHedging;
+
+    @Before
+    public void setup() {
+        datasetConfig = new DatasetConfig();
+        datasetConfig.setDmsHedgingEnabled(true);
+        datasetConfig.setDmsHedgingPercentile(50);
+        datasetConfig.setDmsHedgingMinDelayMillis(5);
+        datasetConfig.setDmsHedgingBudgetPercent(100);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void teardown() {
+        release.countDown();
+        if (dmsHedging != null) {
+            dmsHedging.shutdown();
+        }
+    }
+
+    @Test
+    public void create_hedgesSlowReadAndTakesFirstAnswer() throws Exception {
+        IDmsProvider dmsProvider = hedgedProvider(33, 10000);
+        warmUp(dmsProvider, 32);
+
+        long start = System.nanoTime();
+        assertSame(fast, dmsProvider.getRetrievalInstructions(REQUEST));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(34, calls.get());
+        assertEquals(1.0, count("hedge_won"), 0);
+    }
+
+    @Test
+    public void create_learnsLatencyOfCallsRatherThanOfWinningHedges() throws Exception {
+        datasetConfig.setDmsHedgingPercentile(90);
+        dmsHedging = new DmsHedging(datasetConfig, meterRegistry);
+        // after the warm up, every primary is slow and every hedge answers right away
+        IDmsProvider dmsProvider = dmsHedging.create((headers, properties) ->
+                new FakeDms(call -> call > 32 && call % 2 == 1, 10000), new DpsHeaders(), DMS);
+        warmUp(dmsProvider, 32);
+
+        warmUp(dmsProvider, 16);
+
+        assertEquals(16.0, count("hedge_won"), 0);
+        // the hedges won after the 5 ms hedge delay, so that is at least how long those calls took
+        assertTrue(meterRegistry.get("dataset.dms.hedging.threshold").gauge().value() >= 5);
+    }
+
+    @Test
+    public void create_neverHedgesBeyondBudget() throws Exception {
+        datasetConfig.setDmsHedgingBudgetPercent(0);
+        IDmsProvider dmsProvider = hedgedProvider(33, 200);
+        warmUp(dmsProvider, 32);
+
+        assertSame(slow, dmsProvider.getRetrievalInstructions(REQUEST));
+
+        assertEquals(33, calls.get());
+        assertEquals(1.0, count("over_budget"), 0);
+    }
+
+    @Test
+    public void create_doesNotHedgeReadThatIsRetrying() throws Exception {
+        // the primary fails with 503 and its retry is slow
+        failingCall = 33;
+        IDmsProvider dmsProvider = retriedProvider(34, 200);
+        warmUp(dmsProvider, 32);
+
+        assertSame(slow, dmsProvider.getRetrievalInstructions(REQUEST));
+
+        assertEquals(34, calls.get());
+        assertEquals(1.0, count("retrying"), 0);
+        assertEquals(0.0, count("hedge_won") + count("primary_won"), 0);
+    }
+
+    @Test
+    public void create_doesNotRetryHedgedRead() throws Exception {
+        // the primary is slow and the hedge fails with 503
+        failingCall = 34;
+        IDmsProvider dmsProvider = retriedProvider(33, 200);
+        warmUp(dmsProvider, 32);
+
+        assertSame(slow, dmsProvider.getRetrievalInstructions(REQUEST));
+
+        assertEquals(34, calls.get());
+        assertEquals(1.0, count("primary_won"), 0);
+        assertEquals(1.0, meterRegistry.counter("dataset.dms.retries", "outcome", "hedged").count(), 0);
+    }
+
+    @Test
+    public void create_leavesOtherCallsUnhedged() throws Exception {
+        IDmsProvider dmsProvider = hedgedProvider(-1, 0);
+
+        dmsProvider.getStorageInstructions();
+
+        assertEquals(0.0, count("not_hedged"), 0);
+    }
+
+    @Test
+    public void create_returnsProviderAsCreatedWhenDisabled() {
+        datasetConfig.setDmsHedgingEnabled(false);
+        dmsHedging = new DmsHedging(datasetConfig, meterRegistry);
+        IDmsProvider dmsProvider = new FakeDms(-1, 0);
+
+        assertSame(dmsProvider, dmsHedging.create((headers, properties) -> dmsProvider, new DpsHeaders(), DMS));
+    }
+
+    private IDmsProvider hedgedProvider(int slowCall, long slowMillis) {
+        dmsHedging = new DmsHedging(datasetConfig, meterRegistry);
+        return dmsHedging.create((headers, properties) -> new FakeDms(slowCall, slowMillis), new DpsHeaders(), DMS);
+    }
+
+    private IDmsProvider retriedProvider(int slowCall, long slowMillis) {
+        datasetConfig.setDownstreamRetryMaxAttempts(3);
+        datasetConfig.setDownstreamRetryBaseDelayMillis(1);
+        datasetConfig.setDownstreamRetryMaxDelayMillis(1);
+        datasetConfig.setDownstreamRetryBudgetPercent(100);
+        datasetConfig.setDownstreamRetryBudgetMaxTokens(10);
+        RetryPolicy retryPolicy = new RetryPolicy(datasetConfig, meterRegistry);
+        dmsHedging = new DmsHedging(datasetConfig, meterRegistry);
+        return dmsHedging.create((headers, properties) -> retryPolicy.retry(IDmsProvider.class,
+                new FakeDms(slowCall, slowMillis), "dms", DmsResiliencePostProcessor.DMS_READS), new DpsHeaders(), DMS);
+    }
+
+    private void warmUp(IDmsProvider dmsProvider, int calls) throws DmsException {
+        for (int i = 0; i < calls; i++) {
+            dmsProvider.getRetrievalInstructions(REQUEST);
+        }
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("dataset.dms.hedging.calls",
+                "target", DMS.getDmsServiceBaseUrl(), "outcome", outcome).count();
+    }
+
+    private class FakeDms implements IDmsProvider {
+
+        private final IntPredicate slowCall;
+        private final long slowMillis;
+
+        FakeDms(int slowCall, long slowMillis) {
+            this(call -> call == slowCall, slowMillis);
+        }
+
+        FakeDms(IntPredicate slowCall, long slowMillis) {
+            this.slowCall = slowCall;
+            this.slowMillis = slowMillis;
+        }
+
+        @Override
+        public GetDatasetStorageInstructionsResponse getStorageInstructions() {
+            return new GetDatasetStorageInstructionsResponse();
+        }
+
+        @Override
+        public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request) {
+            return null;
+        }
+
+        @Override
+        public RetrievalInstructionsResponse getRetrievalInstructions(GetDatasetRegistryRequest request)
+                throws DmsException {
+            int call = calls.incrementAndGet();
+            if (call == failingCall) {
+                HttpResponse response = new HttpResponse();
+                response.setResponseCode(503);
+                throw new DmsException("Error making request to DMS service", response);
+            }
+            if (!this.slowCall.test(call)) {
+                return fast;
+            }
+            try {
+                release.await(this.slowMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return slow;
+        }
+    }
+}
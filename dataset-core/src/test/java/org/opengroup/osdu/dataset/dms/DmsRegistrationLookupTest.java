@@ -0,0 +1,116 @@
+package org.opengroup.osdu.dataset.dms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+public class DmsRegistrationLookupTest {
+
+    private final DmsServiceProperties fileDms = new DmsServiceProperties("https://file");
+    private final List<Set<String>> loads = new ArrayList<>();
+
+    @Test
+    public void get_loadsOnlyTheCandidateKeysOfTheRequestedKinds() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 60, 100);
+
+        Map<String, DmsServiceProperties> registrations = lookup.get("opendes",
+                Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+
+        assertEquals(Collections.singletonMap("dataset--File.*", fileDms), registrations);
+        assertEquals(1, loads.size());
+        assertEquals(3, loads.get(0).size());
+        assertSame(fileDms, DmsRoutingIndex.of(registrations)
+                .route(KindSubType.of("dataset--File.Generic")).getDmsServiceProperties());
+    }
+
+    @Test
+    public void get_cachesFoundAndMissingKeys() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 60, 100);
+
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--Unknown.Generic")), this::load);
+        Map<String, DmsServiceProperties> registrations = lookup.get("opendes",
+                Collections.singletonList(KindSubType.of("dataset--Unknown.Generic")), this::load);
+
+        assertTrue(registrations.isEmpty());
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    public void get_loadsOnlyKeysNotCachedYet() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 60, 100);
+
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+        lookup.get("opendes", Arrays.asList(KindSubType.of("dataset--File.Generic"), KindSubType.of("dataset--File.Other")),
+                this::load);
+
+        assertEquals(2, loads.size());
+        assertEquals(Arrays.asList("dataset--File.Other", "dataset--File.Other.*"), new ArrayList<>(loads.get(1)));
+    }
+
+    @Test
+    public void get_keepsPartitionsApart() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 60, 100);
+
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+        lookup.get("other", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    public void get_reloadsExpiredNegativeEntries() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 0, 100);
+
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+
+        assertEquals(Arrays.asList("dataset--File.Generic", "dataset--File.Generic.*"), new ArrayList<>(loads.get(1)));
+    }
+
+    @Test
+    public void get_evictsExpiredKeysBeforeCachedRegistrations() {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 0, 3);
+
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--Other")), this::load);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+
+        assertEquals(3, loads.size());
+        assertEquals(Arrays.asList("dataset--File.Generic", "dataset--File.Generic.*"), new ArrayList<>(loads.get(2)));
+    }
+
+    @Test
+    public void get_evictsOldestKeysWhenFull() throws InterruptedException {
+        DmsRegistrationLookup lookup = new DmsRegistrationLookup(60, 60, 5);
+
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+        Thread.sleep(5);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--Other")), this::load);
+        Thread.sleep(5);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--Third")), this::load);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--Other")), this::load);
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--Third")), this::load);
+
+        assertEquals(3, loads.size());
+        lookup.get("opendes", Collections.singletonList(KindSubType.of("dataset--File.Generic")), this::load);
+        assertEquals(4, loads.size());
+    }
+
+    private Map<String, DmsServiceProperties> load(Set<String> registryKeys) {
+        loads.add(registryKeys);
+        Map<String, DmsServiceProperties> registrations = new HashMap<>();
+        if (registryKeys.contains("dataset--File.*")) {
+            registrations.put("dataset--File.*", fileDms);
+        }
+        return registrations;
+    }
+}
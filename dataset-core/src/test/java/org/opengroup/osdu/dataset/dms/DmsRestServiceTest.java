@@ -19,12 +19,17 @@ package org.opengroup.osdu.dataset.dms;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,10 +44,13 @@ import org.opengroup.osdu.core.common.http.HttpResponse;
 import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
 import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+import org.opengroup.osdu.dataset.retry.RetryPolicy;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -79,7 +87,7 @@ public class DmsRestServiceTest {
     }
 
     @Test
-    public void getStorageInstructions_success() {
+    public void getStorageInstructions_success() throws DmsException {
         when(response.getBody()).thenReturn(GetDatasetStorageInstructionsResponse_body);
         when(dmsServiceProperties.getDmsServiceBaseUrl()).thenReturn(URL);
         GetDatasetStorageInstructionsResponse body = dmsRestService.getStorageInstructions();
@@ -129,7 +137,7 @@ public class DmsRestServiceTest {
 
 
     @Test
-    public void getRetrievalInstructions_success() {
+    public void getRetrievalInstructions_success() throws DmsException {
         when(response.getBody()).thenReturn(RetrievalInstructionsResponse_body);
         when(dmsServiceProperties.getDmsServiceBaseUrl()).thenReturn(URL);
         GetDatasetRegistryRequest getDatasetRegistryRequest = new GetDatasetRegistryRequest();
@@ -185,7 +193,7 @@ public class DmsRestServiceTest {
 
 
     @Test
-    public void copyDmsToPersistentStorage_success() {
+    public void copyDmsToPersistentStorage_success() throws DmsException {
         when(response.getBody()).thenReturn(CopyDmsResponse_body);
         when(dmsServiceProperties.getDmsServiceBaseUrl()).thenReturn(URL);
         List<CopyDmsResponse> data = dmsRestService.copyDmsToPersistentStorage(new CopyDmsRequest());
@@ -230,4 +238,61 @@ public class DmsRestServiceTest {
         verify(httpClient, times(1)).send(any(HttpRequest.class));
         verify(headers, times(1)).getHeaders();
     }
+
+    @Test
+    public void getRetrievalInstructions_failsWithDmsExceptionCarryingErrorResponse() {
+        HttpResponse error = new HttpResponse();
+        error.setResponseCode(404);
+        error.setBody("{\"message\":\"not found\"}");
+        when(httpClient.send(any())).thenReturn(error);
+        when(dmsServiceProperties.getDmsServiceBaseUrl()).thenReturn(URL);
+
+        try {
+            dmsRestService.getRetrievalInstructions(new GetDatasetRegistryRequest());
+            fail("expected DmsException");
+        } catch (DmsException e) {
+            assertSame(error, e.getHttpResponse());
+        }
+    }
+
+    @Test
+    public void getRetrievalInstructions_failsWithDmsExceptionWhenDmsDoesNotAnswer() {
+        HttpResponse unanswered = new HttpResponse();
+        unanswered.setException(new IOException("Connection refused"));
+        when(httpClient.send(any())).thenReturn(unanswered);
+        when(dmsServiceProperties.getDmsServiceBaseUrl()).thenReturn(URL);
+
+        try {
+            dmsRestService.getRetrievalInstructions(new GetDatasetRegistryRequest());
+            fail("expected DmsException");
+        } catch (DmsException e) {
+            assertSame(unanswered, e.getHttpResponse());
+        }
+    }
+
+    @Test
+    public void getRetrievalInstructions_keepsRetryAfterForRetryPolicy() {
+        HttpResponse throttled = new HttpResponse();
+        throttled.setResponseCode(429);
+        throttled.setHeaders(Collections.singletonMap("Retry-After", Collections.singletonList("120")));
+        when(httpClient.send(any())).thenReturn(throttled);
+        when(dmsServiceProperties.getDmsServiceBaseUrl()).thenReturn(URL);
+        DatasetConfig datasetConfig = new DatasetConfig();
+        datasetConfig.setDownstreamRetryMaxAttempts(3);
+        datasetConfig.setDownstreamRetryMaxRetryAfterMillis(1000);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IDmsProvider retried = new RetryPolicy(datasetConfig, meterRegistry)
+                .retry(IDmsProvider.class, dmsRestService, "dms", DmsResiliencePostProcessor.DMS_READS);
+
+        try {
+            retried.getRetrievalInstructions(new GetDatasetRegistryRequest());
+            fail("expected DmsException");
+        } catch (DmsException e) {
+            assertSame(throttled, e.getHttpResponse());
+        }
+
+        // the DMS asked for two minutes, longer than the policy waits, so it was not retried
+        verify(httpClient, times(1)).send(any(HttpRequest.class));
+        assertEquals(1.0, meterRegistry.counter("dataset.dms.retries", "outcome", "retry_after_too_long").count(), 0);
+    }
 }
@@ -0,0 +1,110 @@
+package org.opengroup.osdu.dataset.dms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class DmsRoutingIndexTest {
+
+    private final DmsServiceProperties fileDms = new DmsServiceProperties("https://file");
+    private final DmsServiceProperties genericFileDms = new DmsServiceProperties("https://generic-file");
+    private final DmsServiceProperties exactDms = new DmsServiceProperties("https://exact");
+
+    @Test
+    public void kindSubType_parsesKindAndRecordId() {
+        assertEquals("dataset--File.Generic", KindSubType.fromKind("osdu:wks:dataset--File.Generic:1.0.0").getValue());
+        assertEquals("dataset--File.Generic", KindSubType.fromRecordId("opendes:dataset--File.Generic:1234").getValue());
+        assertEquals("dataset--File", KindSubType.fromKind("osdu:wks:dataset--File").getValue());
+        assertTrue(KindSubType.fromRecordId("opendes:dataset--file.generic:1234")
+                .equalsIgnoreCase(KindSubType.fromKind("osdu:wks:dataset--File.Generic:1.0.0")));
+    }
+
+    @Test
+    public void kindSubType_rejectsValuesWithoutSubType() {
+        try {
+            KindSubType.fromKind("osdu:wks");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("osdu:wks"));
+        }
+    }
+
+    @Test
+    public void route_prefersExactOverWildcard() {
+        DmsRoutingIndex index = DmsRoutingIndex.of(registry());
+
+        DmsRoutingIndex.Route route = index.route(KindSubType.of("dataset--File.Generic.Exact"));
+
+        assertEquals("dataset--File.Generic.Exact", route.getDmsMapId());
+        assertSame(exactDms, route.getDmsServiceProperties());
+    }
+
+    @Test
+    public void route_prefersLongestWildcardPrefix() {
+        DmsRoutingIndex index = DmsRoutingIndex.of(registry());
+
+        assertSame(genericFileDms, index.route(KindSubType.of("dataset--File.Generic.Other")).getDmsServiceProperties());
+        assertSame(genericFileDms, index.route(KindSubType.of("dataset--File.Generic")).getDmsServiceProperties());
+        assertSame(fileDms, index.route(KindSubType.of("dataset--File.Other")).getDmsServiceProperties());
+        assertSame(fileDms, index.route(KindSubType.of("dataset--File")).getDmsServiceProperties());
+        assertEquals("dataset--File.*", index.route(KindSubType.of("dataset--File.Other")).getDmsMapId());
+    }
+
+    @Test
+    public void route_returnsNullWhenNothingMatches() {
+        DmsRoutingIndex index = DmsRoutingIndex.of(registry());
+
+        assertNull(index.route(KindSubType.of("dataset--FileCollection.Generic")));
+        assertNull(index.route(KindSubType.of("dataset--Fil")));
+    }
+
+    @Test
+    public void getRegistrations_returnsTheIndexedRegistry() {
+        Map<String, DmsServiceProperties> registry = registry();
+
+        DmsRoutingIndex index = DmsRoutingIndex.of(registry);
+
+        assertSame(registry, index.getRegistrations());
+    }
+
+    @Test
+    public void candidateKeys_listsExactThenWildcardsLongestFirst() {
+        assertEquals(Arrays.asList("dataset--File.Generic", "dataset--File.Generic.*", "dataset--File.*"),
+                DmsRoutingIndex.candidateKeys(KindSubType.of("dataset--File.Generic")));
+        assertEquals(Arrays.asList("dataset--File", "dataset--File.*"),
+                DmsRoutingIndex.candidateKeys(KindSubType.of("dataset--File")));
+    }
+
+    @Test
+    public void candidateKeys_coverEveryKeyTheIndexCanRouteTo() {
+        Map<String, DmsServiceProperties> registry = registry();
+        DmsRoutingIndex index = DmsRoutingIndex.of(registry);
+
+        for (String kindSubType : Arrays.asList("dataset--File.Generic.Exact", "dataset--File.Generic.Other",
+                "dataset--File.Other", "dataset--File")) {
+            Map<String, DmsServiceProperties> subset = new HashMap<>();
+            for (String key : DmsRoutingIndex.candidateKeys(KindSubType.of(kindSubType))) {
+                if (registry.containsKey(key)) {
+                    subset.put(key, registry.get(key));
+                }
+            }
+            assertEquals(index.route(KindSubType.of(kindSubType)).getDmsMapId(),
+                    DmsRoutingIndex.of(subset).route(KindSubType.of(kindSubType)).getDmsMapId());
+        }
+    }
+
+    private Map<String, DmsServiceProperties> registry() {
+        Map<String, DmsServiceProperties> registry = new HashMap<>();
+        registry.put("dataset--File.*", fileDms);
+        registry.put("dataset--File.Generic.*", genericFileDms);
+        registry.put("dataset--File.Generic.Exact", exactDms);
+        return registry;
+    }
+}
@@ -0,0 +1,149 @@
+package org.opengroup.osdu.dataset.dms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+
+public class StorageInstructionsPoolTest {
+
+    private static final String KEY = "storage-instructions:opendes:dataset--File.Generic:caller";
+    private static final DateTimeFormatter SIGNING_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private MeterRegistry meterRegistry;
+    private StorageInstructionsPool pool;
+
+    @Before
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        pool = new StorageInstructionsPool(4, 10, 900, 60, 60, 1, meterRegistry);
+    }
+
+    @After
+    public void teardown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void take_missesFirstAndServesRefilledInstructionsAfterwards() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        GetDatasetStorageInstructionsResponse instructions = signedInstructions(3600);
+
+        assertNull(pool.take(KEY, () -> {
+            loads.incrementAndGet();
+            return instructions;
+        }));
+        awaitCount("dataset.storage.instructions.pool.refills", "success", 1);
+
+        assertSame(instructions, pool.take(KEY, () -> instructions));
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("dataset.storage.instructions.pool.takes", "result", "hit").count(), 0);
+        assertEquals(1.0, meterRegistry.counter("dataset.storage.instructions.pool.takes", "result", "miss").count(), 0);
+    }
+
+    @Test
+    public void take_neverPoolsInstructionsWithoutExpiry() throws Exception {
+        GetDatasetStorageInstructionsResponse instructions = new GetDatasetStorageInstructionsResponse(
+                Collections.singletonMap("unsignedUrl", "s3://bucket/key"), "AWS");
+
+        assertNull(pool.take(KEY, () -> instructions));
+        awaitCount("dataset.storage.instructions.pool.refills", "failure", 1);
+
+        assertNull(pool.take(KEY, () -> instructions));
+    }
+
+    @Test
+    public void take_neverPoolsInstructionsExpiringWithinMargin() throws Exception {
+        GetDatasetStorageInstructionsResponse instructions = signedInstructions(30);
+
+        assertNull(pool.take(KEY, () -> instructions));
+        awaitCount("dataset.storage.instructions.pool.refills", "failure", 1);
+
+        assertNull(pool.take(KEY, () -> instructions));
+    }
+
+    @Test
+    public void take_backsOffAfterInstructionsThatCannotBePooled() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        GetDatasetStorageInstructionsResponse instructions = new GetDatasetStorageInstructionsResponse(
+                Collections.singletonMap("unsignedUrl", "s3://bucket/key"), "AWS");
+
+        pool.take(KEY, () -> {
+            loads.incrementAndGet();
+            return instructions;
+        });
+        awaitCount("dataset.storage.instructions.pool.refills", "failure", 1);
+        for (int i = 0; i < 5; i++) {
+            assertNull(pool.take(KEY, () -> {
+                loads.incrementAndGet();
+                return instructions;
+            }));
+        }
+        Thread.sleep(100);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void take_doesNotRefillWithExpiredLoader() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        GetDatasetStorageInstructionsResponse instructions = signedInstructions(3600);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(pool.take(KEY, System.currentTimeMillis() - 1, () -> {
+                loads.incrementAndGet();
+                return instructions;
+            }));
+        }
+        Thread.sleep(100);
+
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void take_countsFailedRefills() throws Exception {
+        assertNull(pool.take(KEY, () -> {
+            throw new DmsException("dms unavailable", null);
+        }));
+        awaitCount("dataset.storage.instructions.pool.refills", "failure", 1);
+
+        assertEquals(0.0, meterRegistry.counter("dataset.storage.instructions.pool.refills", "outcome", "success").count(), 0);
+    }
+
+    @Test
+    public void take_keepsPoolsApart() throws Exception {
+        GetDatasetStorageInstructionsResponse instructions = signedInstructions(3600);
+
+        pool.take(KEY, () -> instructions);
+        awaitCount("dataset.storage.instructions.pool.refills", "success", 1);
+
+        assertNull(pool.take(KEY + "-other-caller", () -> instructions));
+    }
+
+    private void awaitCount(String name, String outcome, double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter(name, "outcome", outcome).count() < expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, meterRegistry.counter(name, "outcome", outcome).count(), 0);
+    }
+
+    private static GetDatasetStorageInstructionsResponse signedInstructions(int expiresInSeconds) {
+        String url = String.format("https://bucket.s3.amazonaws.com/key?X-Amz-Date=%s&X-Amz-Expires=%d&X-Amz-Signature=abc",
+                SIGNING_DATE.format(Instant.now()), expiresInSeconds);
+        return new GetDatasetStorageInstructionsResponse(Collections.singletonMap("signedUrl", url), "AWS");
+    }
+}
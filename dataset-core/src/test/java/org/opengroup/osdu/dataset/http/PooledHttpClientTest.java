@@ -0,0 +1,108 @@
+package org.opengroup.osdu.dataset.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.http.HttpRequest;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.dataset.util.AttemptScope;
+
+public class PooledHttpClientTest {
+
+    private MockWebServer server;
+    private MeterRegistry meterRegistry;
+    private PooledHttpClient httpClient;
+
+    @Before
+    public void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        httpClient = new PooledHttpClient(PooledHttpClientConfig.builder().build(), meterRegistry);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        httpClient.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void send_reusesPooledConnectionPerHost() {
+        server.enqueue(new MockResponse().setBody("{\"first\":true}").setHeader("Content-Type", "application/json"));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("missing"));
+        String url = server.url("/api/schema").toString();
+
+        HttpResponse first = httpClient.send(HttpRequest.get().url(url).build());
+        HttpResponse second = httpClient.send(HttpRequest.get().url(url).build());
+
+        assertEquals(200, first.getResponseCode());
+        assertEquals("{\"first\":true}", first.getBody());
+        assertEquals("application/json", first.getContentType());
+        assertEquals(404, second.getResponseCode());
+        assertEquals("missing", second.getBody());
+        String host = server.getHostName() + ":" + server.getPort();
+        assertEquals(1.0, meterRegistry.counter("dataset.outbound.http.connections", "host", host, "type", "new").count(), 0);
+        assertEquals(1.0, meterRegistry.counter("dataset.outbound.http.connections", "host", host, "type", "reused").count(), 0);
+    }
+
+    @Test
+    public void send_forwardsHeadersAndBody() throws Exception {
+        server.enqueue(new MockResponse().setBody("{}"));
+        String url = server.url("/api/dms/retrievalInstructions").toString();
+
+        httpClient.send(HttpRequest.post(Collections.singletonMap("datasetRegistryIds", Collections.emptyList()))
+                .url(url)
+                .headers(Collections.singletonMap("data-partition-id", "opendes"))
+                .build());
+
+        RecordedRequest recorded = server.takeRequest();
+        assertEquals("POST", recorded.getMethod());
+        assertEquals("opendes", recorded.getHeader("data-partition-id"));
+        assertEquals("{\"datasetRegistryIds\":[]}", recorded.getBody().readUtf8());
+    }
+
+    @Test
+    public void send_reportsConnectionFailureOnResponse() throws Exception {
+        String url = server.url("/unreachable").toString();
+        server.shutdown();
+
+        HttpResponse response = httpClient.send(HttpRequest.get().url(url).build());
+
+        assertNotNull(response.getException());
+        assertEquals(0, response.getResponseCode());
+    }
+
+    @Test
+    public void send_abortsCallWhenAttemptIsCancelled() throws Exception {
+        server.enqueue(new MockResponse().setBody("late").setBodyDelay(10, TimeUnit.SECONDS));
+        String url = server.url("/api/dms/retrievalInstructions").toString();
+        AttemptScope scope = new AttemptScope();
+        ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+
+        long start = System.nanoTime();
+        try {
+            canceller.schedule(scope::cancel, 100, TimeUnit.MILLISECONDS);
+            HttpResponse response = scope.bind(() -> httpClient.send(HttpRequest.get().url(url).build())).call();
+
+            assertNotNull(response.getException());
+            assertEquals(0, response.getResponseCode());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            canceller.shutdownNow();
+        }
+    }
+}
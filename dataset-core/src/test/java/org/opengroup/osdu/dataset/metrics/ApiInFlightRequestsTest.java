@@ -0,0 +1,51 @@
+package org.opengroup.osdu.dataset.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.opengroup.osdu.dataset.api.DatasetDmsApi;
+import org.opengroup.osdu.dataset.api.InfoApi;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+public class ApiInFlightRequestsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ApiInFlightRequests apiInFlightRequests = new ApiInFlightRequests(meterRegistry);
+
+    @Test
+    public void countsRequestsUntilTheyComplete() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new DatasetDmsApi(), "testEndpoint", String.class);
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletRequest second = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        apiInFlightRequests.preHandle(first, response, handler);
+        apiInFlightRequests.preHandle(second, response, handler);
+        assertEquals(2.0, inFlight("DatasetDmsApi.testEndpoint"), 0);
+
+        apiInFlightRequests.afterCompletion(first, response, handler, null);
+        assertEquals(1.0, inFlight("DatasetDmsApi.testEndpoint"), 0);
+
+        apiInFlightRequests.afterCompletion(second, response, handler, new IllegalStateException());
+        assertEquals(0.0, inFlight("DatasetDmsApi.testEndpoint"), 0);
+    }
+
+    @Test
+    public void ignoresOtherHandlers() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new InfoApi(), "info");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        apiInFlightRequests.preHandle(request, new MockHttpServletResponse(), handler);
+
+        assertNull(meterRegistry.find("dataset.api.requests.inflight").gauge());
+    }
+
+    private double inFlight(String endpoint) {
+        return meterRegistry.find("dataset.api.requests.inflight").tag("endpoint", endpoint).gauge().value();
+    }
+}
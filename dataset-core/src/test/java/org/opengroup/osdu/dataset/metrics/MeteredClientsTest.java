@@ -0,0 +1,76 @@
+package org.opengroup.osdu.dataset.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.DpsException;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.schema.ISchemaFactory;
+import org.opengroup.osdu.dataset.schema.ISchemaService;
+
+public class MeteredClientsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void meter_timesSuccessfulCallsPerOperation() throws DpsException {
+        Object schema = new Object();
+        ISchemaService schemaService = MeteredClients.meter(ISchemaService.class, kind -> schema, meterRegistry,
+                "schema", Tags.of("target", "schema"));
+
+        assertSame(schema, schemaService.getSchema("osdu:wks:dataset--File.Generic:1.0.0"));
+        assertSame(schema, schemaService.getSchema("osdu:wks:dataset--File.Generic:1.0.0"));
+
+        Timer timer = meterRegistry.find("dataset.schema.requests")
+                .tags("target", "schema", "operation", "getSchema", "outcome", "success").timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void meter_rethrowsAndCountsFailures() {
+        DpsException failure = new DpsException("schema unavailable", new HttpResponse());
+        ISchemaService schemaService = MeteredClients.meter(ISchemaService.class, kind -> {
+            throw failure;
+        }, meterRegistry, "schema", Tags.empty());
+
+        try {
+            schemaService.getSchema("osdu:wks:dataset--File.Generic:1.0.0");
+            fail("expected DpsException");
+        } catch (DpsException e) {
+            assertSame(failure, e);
+        }
+
+        assertEquals(1, meterRegistry.find("dataset.schema.requests").tags("outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void meterCreated_metersEveryCreatedClient() throws DpsException {
+        ISchemaFactory schemaFactory = MeteredClients.meterCreated(ISchemaFactory.class,
+                headers -> kind -> kind, ISchemaService.class,
+                () -> meterRegistry, "schema");
+
+        schemaFactory.create(new DpsHeaders()).getSchema("a");
+        schemaFactory.create(new DpsHeaders()).getSchema("b");
+
+        assertEquals(2, meterRegistry.find("dataset.schema.requests").tags("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void meter_passesObjectMethodsThroughUntimed() {
+        ISchemaService delegate = kind -> kind;
+        ISchemaService schemaService = MeteredClients.meter(ISchemaService.class, delegate, meterRegistry,
+                "schema", Tags.empty());
+
+        assertEquals(delegate.toString(), schemaService.toString());
+        assertEquals(0, meterRegistry.getMeters().size());
+    }
+}
@@ -0,0 +1,57 @@
+package org.opengroup.osdu.dataset.metrics;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestTimingsTest {
+
+    @After
+    public void teardown() {
+        RequestTimings.clear();
+    }
+
+    @Test
+    public void record_sumsDurationsAndCountsCallsPerName() {
+        RequestTimings requestTimings = RequestTimings.start();
+
+        RequestTimings.record("dms", TimeUnit.MILLISECONDS.toNanos(10));
+        RequestTimings.record("dms", TimeUnit.MILLISECONDS.toNanos(15));
+        RequestTimings.record("validate", TimeUnit.MICROSECONDS.toNanos(2500));
+
+        String serverTiming = requestTimings.toServerTiming();
+        assertTrue(serverTiming, serverTiming.startsWith("dms;dur=25.0;desc=\"2 calls\", validate;dur=2.5, total;dur="));
+        String json = requestTimings.toJson();
+        assertTrue(json, json.startsWith("{\"dms\":{\"durationMillis\":25.0,\"count\":2},"
+                + "\"validate\":{\"durationMillis\":2.5,\"count\":1},\"total\":{"));
+    }
+
+    @Test
+    public void record_isIgnoredWithoutContext() {
+        RequestTimings.record("dms", TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertTrue(RequestTimings.start().toServerTiming().startsWith("total;dur="));
+    }
+
+    @Test
+    public void propagate_recordsFromOtherThreadsIntoTheRequestContext() throws Exception {
+        RequestTimings requestTimings = RequestTimings.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(RequestTimings.propagate(() -> {
+                RequestTimings.record("storage", TimeUnit.MILLISECONDS.toNanos(4));
+                return null;
+            })).get();
+            // the pool thread must not keep the context of a finished request
+            executor.submit(() -> RequestTimings.record("storage", TimeUnit.MILLISECONDS.toNanos(100))).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(requestTimings.toServerTiming().startsWith("storage;dur=4.0, total;dur="));
+    }
+}
@@ -0,0 +1,141 @@
+package org.opengroup.osdu.dataset.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.core.common.model.http.DpsException;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.dms.DmsException;
+import org.opengroup.osdu.dataset.schema.ISchemaService;
+
+public class RetryPolicyTest {
+
+    private static final Object SCHEMA = Collections.singletonMap("kind", "osdu:wks:dataset--File.Generic:1.0.0");
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private DatasetConfig datasetConfig;
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void setup() {
+        datasetConfig = new DatasetConfig();
+        datasetConfig.setDownstreamRetryBaseDelayMillis(0);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void retry_retriesTransientFailuresUntilSuccess() throws DpsException {
+        ISchemaService schemaService = retried(failing(2, new DpsException("unavailable", response(503))));
+
+        assertSame(SCHEMA, schemaService.getSchema("kind"));
+
+        assertEquals(3, calls.get());
+        assertEquals(2.0, count("retried"), 0);
+    }
+
+    @Test
+    public void retry_retriesFailuresCarriedByAppException() throws DpsException {
+        AppException failure = new AppException(429, "DMS Service Error", "slow down",
+                new DmsException("Error making request to DMS service", response(429)));
+        ISchemaService schemaService = retried(failing(1, failure));
+
+        assertSame(SCHEMA, schemaService.getSchema("kind"));
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void retry_neverRetriesClientErrorsOrOwnFailures() {
+        assertNotRetried(new DpsException("not found", response(404)));
+        assertNotRetried(new AppException(503, "Service Unavailable", "DMS is unavailable after repeated failures"));
+    }
+
+    @Test
+    public void retry_stopsWhenBudgetIsSpent() throws DpsException {
+        datasetConfig.setDownstreamRetryBudgetPercent(0);
+        datasetConfig.setDownstreamRetryBudgetMaxTokens(1);
+        ISchemaService schemaService = retried(failing(Integer.MAX_VALUE, new DpsException("unavailable", response(502))));
+
+        try {
+            schemaService.getSchema("kind");
+            fail("expected DpsException");
+        } catch (DpsException e) {
+            assertEquals(2, calls.get());
+        }
+
+        assertEquals(1.0, count("retried"), 0);
+        assertEquals(1.0, count("budget_exhausted"), 0);
+    }
+
+    @Test
+    public void retry_honorsRetryAfterUpToLimit() {
+        HttpResponse response = response(503);
+        response.setHeaders(Collections.singletonMap("retry-after", Collections.singletonList("120")));
+
+        assertNotRetried(new DpsException("unavailable", response));
+        assertEquals(1.0, count("retry_after_too_long"), 0);
+    }
+
+    @Test
+    public void retryAfterMillis_readsSecondsAndDates() {
+        HttpResponse response = response(503);
+        response.setHeaders(Collections.singletonMap("Retry-After", Arrays.asList("2")));
+        assertEquals(Long.valueOf(2000), RetryPolicy.retryAfterMillis(response));
+
+        response.setHeaders(Collections.singletonMap("Retry-After", Arrays.asList("Wed, 21 Oct 2015 07:28:00 GMT")));
+        assertEquals(Long.valueOf(0), RetryPolicy.retryAfterMillis(response));
+
+        response.setHeaders(Collections.singletonMap("Retry-After", Arrays.asList("soon")));
+        assertNull(RetryPolicy.retryAfterMillis(response));
+    }
+
+    private void assertNotRetried(Exception failure) {
+        calls.set(0);
+        ISchemaService schemaService = retried(failing(Integer.MAX_VALUE, failure));
+        try {
+            schemaService.getSchema("kind");
+            fail("expected failure");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+        assertEquals(1, calls.get());
+    }
+
+    private ISchemaService retried(ISchemaService schemaService) {
+        return new RetryPolicy(datasetConfig, meterRegistry)
+                .retry(ISchemaService.class, schemaService, "schema", Collections.singleton("getSchema"));
+    }
+
+    private ISchemaService failing(int failures, Exception failure) {
+        return kind -> {
+            if (calls.incrementAndGet() <= failures) {
+                if (failure instanceof DpsException) {
+                    throw (DpsException) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+            return SCHEMA;
+        };
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("dataset.schema.retries", "outcome", outcome).count();
+    }
+
+    private static HttpResponse response(int status) {
+        HttpResponse response = new HttpResponse();
+        response.setResponseCode(status);
+        return response;
+    }
+}
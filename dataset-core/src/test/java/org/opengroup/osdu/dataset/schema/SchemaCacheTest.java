@@ -0,0 +1,155 @@
+package org.opengroup.osdu.dataset.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.common.http.HttpResponse;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.opengroup.osdu.core.common.model.http.DpsException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SchemaCacheTest {
+
+    private static final String KEY = "schema:opendes:opendes:wks:dataset--file:1.0.0";
+
+    @Mock
+    private ISchemaRemoteCache remoteCache;
+
+    @Test
+    public void get_loadsOnceAndServesFromMemory() throws DpsException {
+        SchemaCache schemaCache = new SchemaCache(10, 60, null);
+        Object schema = new Object();
+        AtomicInteger loads = new AtomicInteger();
+
+        Object first = schemaCache.get(KEY, () -> {
+            loads.incrementAndGet();
+            return schema;
+        });
+        Object second = schemaCache.get(KEY, () -> {
+            loads.incrementAndGet();
+            return new Object();
+        });
+
+        assertSame(schema, first);
+        assertSame(schema, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void get_concurrentMissesShareOneLoad() throws Exception {
+        SchemaCache schemaCache = new SchemaCache(10, 60, null);
+        Object schema = new Object();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> schemaCache.get(KEY, () -> {
+                    loads.incrementAndGet();
+                    release.await(2, TimeUnit.SECONDS);
+                    return schema;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                assertSame(schema, result.get(2, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void get_waiterGivesUpOnHungLoad() throws Exception {
+        SchemaCache schemaCache = new SchemaCache(10, 60, null, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+
+        try {
+            loader.submit(() -> schemaCache.get(KEY, () -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new Object();
+            }));
+            started.await(2, TimeUnit.SECONDS);
+
+            try {
+                schemaCache.get(KEY, () -> new Object());
+                fail("expected AppException");
+            } catch (AppException e) {
+                assertEquals(504, e.getError().getCode());
+            }
+        } finally {
+            release.countDown();
+            loader.shutdownNow();
+        }
+    }
+
+    @Test
+    public void get_doesNotCacheFailedLoads() throws DpsException {
+        SchemaCache schemaCache = new SchemaCache(10, 60, null);
+        DpsException exception = new DpsException("not found", new HttpResponse());
+
+        try {
+            schemaCache.get(KEY, () -> {
+                throw exception;
+            });
+            fail("expected DpsException");
+        } catch (DpsException e) {
+            assertSame(exception, e);
+        }
+
+        Object schema = new Object();
+        assertSame(schema, schemaCache.get(KEY, () -> schema));
+    }
+
+    @Test
+    public void get_usesRemoteTierBeforeLoading() throws DpsException {
+        SchemaCache schemaCache = new SchemaCache(10, 60, remoteCache);
+        Object schema = new Object();
+        when(remoteCache.get(KEY)).thenReturn(schema);
+
+        Object result = schemaCache.get(KEY, () -> {
+            fail("schema should come from the remote tier");
+            return null;
+        });
+
+        assertSame(schema, result);
+        verify(remoteCache, never()).put(any(), any());
+    }
+
+    @Test
+    public void get_loadsWhenRemoteTierFails() throws DpsException {
+        SchemaCache schemaCache = new SchemaCache(10, 60, remoteCache);
+        Object schema = new Object();
+        when(remoteCache.get(KEY)).thenThrow(new IllegalStateException("redis down"));
+        doThrow(new IllegalStateException("redis down")).when(remoteCache).put(eq(KEY), any());
+
+        assertSame(schema, schemaCache.get(KEY, () -> schema));
+    }
+}
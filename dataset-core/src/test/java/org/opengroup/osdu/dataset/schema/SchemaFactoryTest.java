@@ -20,12 +20,14 @@ package org.opengroup.osdu.dataset.schema;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.http.json.HttpResponseBodyMapper;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 
@@ -52,6 +54,21 @@ public class SchemaFactoryTest {
         assertNotNull(schemaService);
     }
 
+    @Test
+    public void get_schema_with_cache_returns_caching_service() {
+        SchemaFactory schemaFactory = new SchemaFactory(schemaAPIConfig, bodyMapper, new SchemaCache(10, 60, null));
+        ISchemaService schemaService = schemaFactory.create(headers);
+        assertTrue(schemaService instanceof CachingSchemaService);
+    }
+
+    @Test
+    public void get_schema_with_cache_skips_cache_for_callers_without_schema_role() {
+        SchemaFactory schemaFactory = new SchemaFactory(schemaAPIConfig, bodyMapper, new SchemaCache(10, 60, null),
+                mock(IHttpClient.class), callerHeaders -> false);
+        ISchemaService schemaService = schemaFactory.create(headers);
+        assertTrue(schemaService instanceof SchemaService);
+    }
+
     @Test
     public void get_schema_failure_IllegalArgumentException() {
 
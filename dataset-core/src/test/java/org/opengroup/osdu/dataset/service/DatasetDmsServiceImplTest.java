@@ -1,32 +1,55 @@
 package org.opengroup.osdu.dataset.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
 import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.core.common.model.storage.MultiRecordInfo;
+import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.storage.IStorageFactory;
+import org.opengroup.osdu.core.common.storage.IStorageService;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
 import org.opengroup.osdu.dataset.dms.DmsException;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.opengroup.osdu.dataset.dms.IDmsProvider;
+import org.opengroup.osdu.dataset.dms.RetrievalInstructionsCache;
+import org.opengroup.osdu.dataset.dms.StorageInstructionsPool;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
 import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
 import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
 import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
+import org.opengroup.osdu.dataset.util.FanOutExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
-
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -52,6 +75,15 @@ public class DatasetDmsServiceImplTest {
     @Mock
     DmsServiceProperties dmsServiceProperties;
 
+    @Mock
+    private DatasetConfig datasetConfig;
+
+    @Mock
+    private IStorageFactory storageFactory;
+
+    @Mock
+    private IStorageService storageService;
+
     @InjectMocks
     DatasetDmsServiceImpl datasetDmsService;
 
@@ -61,6 +93,8 @@ public class DatasetDmsServiceImplTest {
     private final String KIND = "dataset--file";
     private final String INVALID_KIND = "dataset---file";
     private final String KIND_TYPE_2 = "dataset--file.*";
+    private final String COLLECTION_RECORD_ID = "opendes:dataset--collection:data";
+    private final String COLLECTION_KIND = "dataset--collection";
 
     Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap;
     List<String> datasetRegistryIds;
@@ -135,6 +169,235 @@ public class DatasetDmsServiceImplTest {
         testRetrievalInstructions();
     }
 
+    @Test
+    public void testGetRetrievalInstructionsFromSeveralDmsKeepsRequestOrder() throws Exception {
+        DmsServiceProperties collectionDmsServiceProperties = mock(DmsServiceProperties.class);
+        IDmsProvider collectionDmsProvider = mock(IDmsProvider.class);
+        kindSubTypeToDmsServiceMap.put(COLLECTION_KIND, collectionDmsServiceProperties);
+        FanOutExecutor fanOutExecutor = new FanOutExecutor("test", 2, 2);
+        ReflectionTestUtils.setField(datasetDmsService, "fanOutExecutor", fanOutExecutor);
+
+        when(datasetConfig.getDmsFanOutTimeoutMillis()).thenReturn(5000L);
+        when(headers.getHeaders()).thenReturn(new HashMap<>());
+        when(dmsServiceMap.getResourceTypeToDmsServiceMap()).thenReturn(kindSubTypeToDmsServiceMap);
+        when(dmsFactory.create(any(DpsHeaders.class), eq(dmsServiceProperties))).thenReturn(dmsProvider);
+        when(dmsFactory.create(any(DpsHeaders.class), eq(collectionDmsServiceProperties))).thenReturn(collectionDmsProvider);
+        when(dmsProvider.getRetrievalInstructions(any())).thenReturn(getRetrievalInstructionsResponse(RECORD_ID));
+        when(collectionDmsProvider.getRetrievalInstructions(any())).thenReturn(getRetrievalInstructionsResponse(COLLECTION_RECORD_ID));
+
+        try {
+            RetrievalInstructionsResponse actualResponse =
+                    datasetDmsService.getRetrievalInstructions(Arrays.asList(COLLECTION_RECORD_ID, RECORD_ID));
+
+            assertEquals(2, actualResponse.getDatasets().size());
+            assertEquals(COLLECTION_RECORD_ID, actualResponse.getDatasets().get(0).getDatasetRegistryId());
+            assertEquals(RECORD_ID, actualResponse.getDatasets().get(1).getDatasetRegistryId());
+            verify(dmsProvider, times(1)).getRetrievalInstructions(any());
+            verify(collectionDmsProvider, times(1)).getRetrievalInstructions(any());
+            verify(dmsFactory, never()).create(eq(headers), any());
+        } finally {
+            fanOutExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetRetrievalInstructionsFetchesDuplicateIdsOnceInBatches() throws Exception {
+        String first = RECORD_ID + "1";
+        String second = RECORD_ID + "2";
+        String third = RECORD_ID + "3";
+        List<List<String>> requestedBatches = Collections.synchronizedList(new ArrayList<>());
+        FanOutExecutor fanOutExecutor = new FanOutExecutor("test", 2, 2);
+        ReflectionTestUtils.setField(datasetDmsService, "fanOutExecutor", fanOutExecutor);
+
+        when(datasetConfig.getDmsRetrievalBatchSize()).thenReturn(2);
+        when(datasetConfig.getDmsRetrievalMaxConcurrentBatches()).thenReturn(2);
+        when(datasetConfig.getDmsFanOutTimeoutMillis()).thenReturn(5000L);
+        when(headers.getHeaders()).thenReturn(new HashMap<>());
+        when(dmsServiceMap.getResourceTypeToDmsServiceMap()).thenReturn(kindSubTypeToDmsServiceMap);
+        when(dmsFactory.create(any(DpsHeaders.class), eq(dmsServiceProperties))).thenReturn(dmsProvider);
+        when(dmsProvider.getRetrievalInstructions(any())).thenAnswer(invocation -> {
+            GetDatasetRegistryRequest request = (GetDatasetRegistryRequest) invocation.getArguments()[0];
+            requestedBatches.add(request.datasetRegistryIds);
+            RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+            for (String datasetRegistryId : request.datasetRegistryIds) {
+                response.getDatasets().addAll(getRetrievalInstructionsResponse(datasetRegistryId).getDatasets());
+            }
+            return response;
+        });
+
+        try {
+            RetrievalInstructionsResponse actualResponse =
+                    datasetDmsService.getRetrievalInstructions(Arrays.asList(second, first, second, third, first));
+
+            List<String> actualIds = new ArrayList<>();
+            for (DatasetRetrievalProperties dataset : actualResponse.getDatasets()) {
+                actualIds.add(dataset.getDatasetRegistryId());
+            }
+            assertEquals(Arrays.asList(second, first, second, third, first), actualIds);
+            assertEquals(2, requestedBatches.size());
+            assertTrue(requestedBatches.contains(Arrays.asList(second, first)));
+            assertTrue(requestedBatches.contains(Collections.singletonList(third)));
+        } finally {
+            fanOutExecutor.shutdown();
+        }
+    }
+
+    @Test(expected = AppException.class)
+    public void testGetRetrievalInstructionsRejectsMoreThanMaxIds() {
+        when(datasetConfig.getRetrievalInstructionsMaxIds()).thenReturn(2);
+
+        datasetDmsService.getRetrievalInstructions(Arrays.asList(RECORD_ID, RECORD_ID, RECORD_ID));
+    }
+
+    @Test
+    public void testGetRetrievalInstructionsServesRepeatedCallsFromCache() throws Exception {
+        enableRetrievalInstructionsCache();
+        when(storageService.getRecords(any())).thenReturn(getMultiRecordInfo(RECORD_ID, 3L));
+        when(dmsProvider.getRetrievalInstructions(any())).thenReturn(getSignedRetrievalInstructionsResponse(RECORD_ID));
+
+        datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+        RetrievalInstructionsResponse actualResponse = datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+
+        assertEquals(1, actualResponse.getDatasets().size());
+        assertEquals(RECORD_ID, actualResponse.getDatasets().get(0).getDatasetRegistryId());
+        assertEquals("provider", actualResponse.getProviderKey());
+        verify(dmsProvider, times(1)).getRetrievalInstructions(any());
+        verify(storageService, times(2)).getRecords(any());
+    }
+
+    @Test
+    public void testGetRetrievalInstructionsDoesNotServeCacheToCallerWithoutAccess() throws Exception {
+        enableRetrievalInstructionsCache();
+        when(storageService.getRecords(any()))
+                .thenReturn(getMultiRecordInfo(RECORD_ID, 3L))
+                .thenReturn(new MultiRecordInfo());
+        when(dmsProvider.getRetrievalInstructions(any())).thenReturn(getSignedRetrievalInstructionsResponse(RECORD_ID));
+
+        datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+        datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+
+        verify(dmsProvider, times(2)).getRetrievalInstructions(any());
+    }
+
+    @Test
+    public void testGetRetrievalInstructionsGivesUpWhenStorageLookupRunsOutOfTime() throws Exception {
+        enableRetrievalInstructionsCache();
+        when(storageService.getRecords(any())).thenThrow(new AppException(504, "Gateway Timeout", "Request deadline exceeded"));
+
+        try {
+            datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(504, e.getError().getCode());
+        }
+
+        verify(dmsProvider, never()).getRetrievalInstructions(any());
+    }
+
+    @Test
+    public void testGetRetrievalInstructionsRefetchesNewRecordVersion() throws Exception {
+        enableRetrievalInstructionsCache();
+        when(storageService.getRecords(any()))
+                .thenReturn(getMultiRecordInfo(RECORD_ID, 3L))
+                .thenReturn(getMultiRecordInfo(RECORD_ID, 4L));
+        when(dmsProvider.getRetrievalInstructions(any())).thenReturn(getSignedRetrievalInstructionsResponse(RECORD_ID));
+
+        datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+        datasetDmsService.getRetrievalInstructions(Collections.singletonList(RECORD_ID));
+
+        verify(dmsProvider, times(2)).getRetrievalInstructions(any());
+    }
+
+    @Test
+    public void testGetStorageInstructionsBacksOffPoolWhenInstructionsCannotBePooled() throws Exception {
+        GetDatasetStorageInstructionsResponse unsigned = new GetDatasetStorageInstructionsResponse(
+                Collections.singletonMap("unsignedUrl", "s3://bucket/key"), "AWS");
+        StorageInstructionsPool pool = enableStorageInstructionsPool(System.currentTimeMillis() / 1000 + 3600);
+        when(dmsProvider.getStorageInstructions()).thenReturn(unsigned);
+
+        try {
+            assertEquals(unsigned, datasetDmsService.getStorageInstructions(KIND));
+            // the direct call plus the one refill that found the instructions could not be pooled
+            verify(dmsProvider, timeout(5000).times(2)).getStorageInstructions();
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals(unsigned, datasetDmsService.getStorageInstructions(KIND));
+            }
+            verify(dmsProvider, after(200).times(5)).getStorageInstructions();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetStorageInstructionsDoesNotPoolForTokenWithoutExpiry() throws Exception {
+        StorageInstructionsPool pool = enableStorageInstructionsPool(null);
+        when(dmsProvider.getStorageInstructions()).thenReturn(new GetDatasetStorageInstructionsResponse());
+
+        try {
+            datasetDmsService.getStorageInstructions(KIND);
+            datasetDmsService.getStorageInstructions(KIND);
+
+            verify(dmsProvider, after(200).times(2)).getStorageInstructions();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private StorageInstructionsPool enableStorageInstructionsPool(Long tokenExpirySeconds) {
+        StorageInstructionsPool pool = new StorageInstructionsPool(4, 10, 900, 60, 60, 1, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(datasetDmsService, "storageInstructionsPool", pool);
+        when(datasetConfig.isStorageInstructionsPoolEnabled()).thenReturn(true);
+        when(headers.getHeaders()).thenReturn(new HashMap<>());
+        when(headers.getAuthorization()).thenReturn(tokenExpirySeconds == null ? "Bearer opaque-token"
+                : "Bearer " + jwt(String.format("{\"exp\":%d}", tokenExpirySeconds)));
+        when(dmsServiceMap.getResourceTypeToDmsServiceMap()).thenReturn(kindSubTypeToDmsServiceMap);
+        when(dmsServiceProperties.isAllowStorage()).thenReturn(true);
+        when(dmsFactory.create(any(DpsHeaders.class), eq(dmsServiceProperties))).thenReturn(dmsProvider);
+        return pool;
+    }
+
+    private static String jwt(String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private void enableRetrievalInstructionsCache() {
+        ReflectionTestUtils.setField(datasetDmsService, "retrievalInstructionsCache",
+                new RetrievalInstructionsCache(100, 3600, 60));
+        when(datasetConfig.isRetrievalInstructionsCacheEnabled()).thenReturn(true);
+        when(storageFactory.create(headers)).thenReturn(storageService);
+        injectWhenClauseForDmsServiceMapAndDmsFactory();
+    }
+
+    private MultiRecordInfo getMultiRecordInfo(String recordId, Long version) {
+        Record record = new Record();
+        record.setId(recordId);
+        record.setVersion(version);
+        MultiRecordInfo multiRecordInfo = new MultiRecordInfo();
+        multiRecordInfo.setRecords(Collections.singletonList(record));
+        return multiRecordInfo;
+    }
+
+    private RetrievalInstructionsResponse getSignedRetrievalInstructionsResponse(String datasetRegistryId) {
+        String signedAt = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").format(LocalDateTime.now(ZoneOffset.UTC));
+        Map<String, Object> retrievalProperties = new HashMap<>();
+        retrievalProperties.put("signedUrl", "https://bucket.s3.amazonaws.com/file?X-Amz-Date=" + signedAt + "&X-Amz-Expires=3600");
+        RetrievalInstructionsResponse response = getRetrievalInstructionsResponse(datasetRegistryId);
+        response.getDatasets().get(0).setRetrievalProperties(retrievalProperties);
+        response.setProviderKey("provider");
+        return response;
+    }
+
+    private RetrievalInstructionsResponse getRetrievalInstructionsResponse(String datasetRegistryId) {
+        DatasetRetrievalProperties properties = new DatasetRetrievalProperties();
+        properties.setDatasetRegistryId(datasetRegistryId);
+        RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+        response.getDatasets().add(properties);
+        return response;
+    }
+
     private void addKindType2InMap() {
         kindSubTypeToDmsServiceMap.remove(KIND);
         kindSubTypeToDmsServiceMap.put(KIND_TYPE_2, dmsServiceProperties);
@@ -17,12 +17,19 @@
 
 package org.opengroup.osdu.dataset.service;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,6 +41,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.common.dms.model.CopyDmsRequest;
 import org.opengroup.osdu.core.common.dms.model.CopyDmsResponse;
 import org.opengroup.osdu.core.common.http.HttpResponse;
 import org.opengroup.osdu.core.common.http.json.HttpResponseBodyMapper;
@@ -48,6 +56,7 @@ import org.opengroup.osdu.core.common.model.storage.StorageException;
 import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
 import org.opengroup.osdu.core.common.storage.IStorageFactory;
 import org.opengroup.osdu.core.common.storage.IStorageService;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.opengroup.osdu.dataset.dms.IDmsProvider;
@@ -58,6 +67,8 @@ import org.opengroup.osdu.dataset.model.response.GetCreateUpdateDatasetRegistryR
 import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
 import org.opengroup.osdu.dataset.schema.ISchemaFactory;
 import org.opengroup.osdu.dataset.schema.ISchemaService;
+import org.opengroup.osdu.dataset.util.FanOutExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -136,6 +147,9 @@ public class DatasetRegistryServiceImplTest {
     @Mock
     private UpsertRecords upsertRecords;
 
+    @Mock
+    private DatasetConfig datasetConfig;
+
     @InjectMocks
     private DatasetRegistryServiceImpl datasetRegistryService;
 
@@ -145,6 +159,7 @@ public class DatasetRegistryServiceImplTest {
         when(storageFactory.create(headers)).thenReturn(storageService);
         when(schemaFactory.create(headers)).thenReturn(schemaService);
         when(headers.getPartitionId()).thenReturn(DATA_PARTITION_ID);
+        when(datasetConfig.isRegisterDatasetReadAfterWrite()).thenReturn(true);
     }
 
     @Test
@@ -213,7 +228,7 @@ public class DatasetRegistryServiceImplTest {
         verify(schemaFactory, times(1)).create(headers);
         verify(schemaService, times(1)).getSchema(KIND);
         verify(headers, times(1)).getPartitionId();
-        verify(dmsServiceMap, times(2)).getResourceTypeToDmsServiceMap();
+        verify(dmsServiceMap, times(1)).getResourceTypeToDmsServiceMap();
         verify(dmsFactory, times(1)).create(eq(headers), any(DmsServiceProperties.class));
         verify(dmsProvider, times(1)).copyDmsToPersistentStorage(any());
         verify(storageService, times(1)).upsertRecord(any(Record[].class));
@@ -221,6 +236,65 @@ public class DatasetRegistryServiceImplTest {
         verify(upsertRecords, times(1)).getRecordIds();
     }
 
+    @Test
+    public void createOrUpdateDatasetRegistryBuildsResponseFromSubmittedRecords() throws DpsException {
+        when(datasetConfig.isRegisterDatasetReadAfterWrite()).thenReturn(false);
+        when(schemaService.getSchema(KIND)).thenReturn(schemaObject);
+        when(upsertRecords.getRecordIds()).thenReturn(Collections.singletonList(RECORD_ID));
+        when(upsertRecords.getRecordIdVersions()).thenReturn(Collections.singletonList(RECORD_ID + ":1617000000000000"));
+        when(storageService.upsertRecord(any(Record[].class))).thenReturn(upsertRecords);
+        when(dmsServiceMap.getResourceTypeToDmsServiceMap()).thenReturn(getDmsServicePropertiesMap());
+        when(dmsProvider.copyDmsToPersistentStorage(any())).thenReturn(Collections.singletonList(new CopyDmsResponse(true, "")));
+        when(dmsFactory.create(any(), any())).thenReturn(dmsProvider);
+
+        Record submitted = getRecord(RECORD_ID, KIND);
+        GetCreateUpdateDatasetRegistryResponse result = datasetRegistryService.createOrUpdateDatasetRegistry(Collections.singletonList(submitted));
+
+        assertEquals(1, result.getDatasetRegistries().size());
+        assertEquals(RECORD_ID, result.getDatasetRegistries().get(0).getId());
+        assertEquals(KIND, result.getDatasetRegistries().get(0).getKind());
+        assertEquals(Long.valueOf(1617000000000000L), result.getDatasetRegistries().get(0).getVersion());
+        assertArrayEquals(new String[]{ACL_VIEWER}, result.getDatasetRegistries().get(0).getAcl().getViewers());
+        assertNotSame(submitted, result.getDatasetRegistries().get(0));
+        assertNull(submitted.getVersion());
+        verify(storageService, times(1)).upsertRecord(any(Record[].class));
+        verify(storageService, never()).getRecords(any());
+    }
+
+    @Test
+    public void createOrUpdateDatasetRegistryReadsRecordsBackWhenConfigured() throws DpsException {
+        when(datasetConfig.isRegisterDatasetReadAfterWrite()).thenReturn(true);
+        when(schemaService.getSchema(KIND)).thenReturn(schemaObject);
+        when(multiRecordInfo.getRecords()).thenReturn(Collections.singletonList(getRecord(RECORD_ID, KIND)));
+        when(storageService.getRecords(any())).thenReturn(multiRecordInfo);
+        when(upsertRecords.getRecordIds()).thenReturn(Collections.singletonList(RECORD_ID));
+        when(upsertRecords.getRecordIdVersions()).thenReturn(Collections.singletonList(RECORD_ID + ":1617000000000000"));
+        when(storageService.upsertRecord(any(Record[].class))).thenReturn(upsertRecords);
+        when(dmsServiceMap.getResourceTypeToDmsServiceMap()).thenReturn(getDmsServicePropertiesMap());
+        when(dmsProvider.copyDmsToPersistentStorage(any())).thenReturn(Collections.singletonList(new CopyDmsResponse(true, "")));
+        when(dmsFactory.create(any(), any())).thenReturn(dmsProvider);
+
+        GetCreateUpdateDatasetRegistryResponse result = datasetRegistryService.createOrUpdateDatasetRegistry(Collections.singletonList(getRecord(RECORD_ID, KIND)));
+
+        assertEquals(1, result.getDatasetRegistries().size());
+        verify(storageService, times(1)).getRecords(eq(Collections.singletonList(RECORD_ID)));
+    }
+
+    @Test
+    public void createOrUpdateDatasetRegistryMinimalReturnsStorageResponse() throws DpsException {
+        when(schemaService.getSchema(KIND)).thenReturn(schemaObject);
+        when(storageService.upsertRecord(any(Record[].class))).thenReturn(upsertRecords);
+        when(dmsServiceMap.getResourceTypeToDmsServiceMap()).thenReturn(getDmsServicePropertiesMap());
+        when(dmsProvider.copyDmsToPersistentStorage(any())).thenReturn(Collections.singletonList(new CopyDmsResponse(true, "")));
+        when(dmsFactory.create(any(), any())).thenReturn(dmsProvider);
+
+        UpsertRecords result = datasetRegistryService.createOrUpdateDatasetRegistryMinimal(Collections.singletonList(getRecord(RECORD_ID, KIND)));
+
+        assertSame(upsertRecords, result);
+        verify(dmsProvider, times(1)).copyDmsToPersistentStorage(any());
+        verify(storageService, never()).getRecords(any());
+    }
+
     @Test
     public void createOrUpdateDatasetRegistryAppExceptionInUpsertRecord() throws DpsException, HttpResponseBodyParsingException {
         when(schemaService.getSchema(KIND)).thenReturn(schemaObject);
@@ -249,7 +323,7 @@ public class DatasetRegistryServiceImplTest {
         verify(schemaFactory, times(1)).create(headers);
         verify(schemaService, times(1)).getSchema(KIND);
         verify(headers, times(1)).getPartitionId();
-        verify(dmsServiceMap, times(2)).getResourceTypeToDmsServiceMap();
+        verify(dmsServiceMap, times(1)).getResourceTypeToDmsServiceMap();
         verify(dmsFactory, times(1)).create(eq(headers), any(DmsServiceProperties.class));
         verify(dmsProvider, times(1)).copyDmsToPersistentStorage(any());
         verify(storageService, times(1)).upsertRecord(any(Record[].class));
@@ -283,7 +357,7 @@ public class DatasetRegistryServiceImplTest {
         verify(schemaFactory, times(1)).create(headers);
         verify(schemaService, times(1)).getSchema(KIND);
         verify(headers, times(1)).getPartitionId();
-        verify(dmsServiceMap, times(2)).getResourceTypeToDmsServiceMap();
+        verify(dmsServiceMap, times(1)).getResourceTypeToDmsServiceMap();
         verify(dmsFactory, times(1)).create(eq(headers), any(DmsServiceProperties.class));
         verify(dmsProvider, times(1)).copyDmsToPersistentStorage(any());
         verify(storageService, times(1)).upsertRecord(any(Record[].class));
@@ -320,7 +394,7 @@ public class DatasetRegistryServiceImplTest {
         verify(schemaFactory, times(1)).create(headers);
         verify(schemaService, times(1)).getSchema(KIND);
         verify(headers, times(1)).getPartitionId();
-        verify(dmsServiceMap, times(2)).getResourceTypeToDmsServiceMap();
+        verify(dmsServiceMap, times(1)).getResourceTypeToDmsServiceMap();
         verify(dmsFactory, times(1)).create(eq(headers), any(DmsServiceProperties.class));
         verify(dmsProvider, times(1)).copyDmsToPersistentStorage(any());
         verify(storageService, times(1)).upsertRecord(any(Record[].class));
@@ -356,7 +430,7 @@ public class DatasetRegistryServiceImplTest {
         verify(schemaFactory, times(1)).create(headers);
         verify(schemaService, times(1)).getSchema(KIND);
         verify(headers, times(1)).getPartitionId();
-        verify(dmsServiceMap, times(2)).getResourceTypeToDmsServiceMap();
+        verify(dmsServiceMap, times(1)).getResourceTypeToDmsServiceMap();
         verify(dmsFactory, times(1)).create(eq(headers), any(DmsServiceProperties.class));
         verify(dmsProvider, times(1)).copyDmsToPersistentStorage(any());
         verify(storageService, times(1)).upsertRecord(any(Record[].class));
@@ -499,6 +573,43 @@ public class DatasetRegistryServiceImplTest {
         verify(storageService, times(1)).getRecords(eq(Collections.singletonList(RECORD_ID)));
     }
 
+    @Test
+    public void copyDmsToPersistentStorageFailsWhenAnyDmsRejectsTheCopy() throws Exception {
+        DmsServiceProperties fileDmsServiceProperties = new DmsServiceProperties(URL, true, API_KEY, true);
+        DmsServiceProperties collectionDmsServiceProperties = new DmsServiceProperties("https://collection.contoso.com", true, API_KEY, true);
+        IDmsProvider collectionDmsProvider = mock(IDmsProvider.class);
+        Map<String, DmsServiceProperties> kindSubTypeToDmsServiceMap = new HashMap<>();
+        kindSubTypeToDmsServiceMap.put("dataset--file", fileDmsServiceProperties);
+        kindSubTypeToDmsServiceMap.put("dataset--collection", collectionDmsServiceProperties);
+        Map<String, CopyDmsRequest> datasetRegistryRequestMap = new HashMap<>();
+        datasetRegistryRequestMap.put("dataset--file", new CopyDmsRequest());
+        datasetRegistryRequestMap.put("dataset--collection", new CopyDmsRequest());
+        FanOutExecutor fanOutExecutor = new FanOutExecutor("test", 2, 2);
+        ReflectionTestUtils.setField(datasetRegistryService, "fanOutExecutor", fanOutExecutor);
+
+        when(datasetConfig.getDmsFanOutTimeoutMillis()).thenReturn(5000L);
+        when(headers.getHeaders()).thenReturn(new HashMap<>());
+        when(dmsFactory.create(any(DpsHeaders.class), eq(fileDmsServiceProperties))).thenReturn(dmsProvider);
+        when(dmsFactory.create(any(DpsHeaders.class), eq(collectionDmsServiceProperties))).thenReturn(collectionDmsProvider);
+        when(dmsProvider.copyDmsToPersistentStorage(any())).thenReturn(Collections.singletonList(new CopyDmsResponse(true, "")));
+        when(collectionDmsProvider.copyDmsToPersistentStorage(any())).thenReturn(Collections.singletonList(new CopyDmsResponse(false, "")));
+
+        try {
+            datasetRegistryService.copyDmsToPersistentStorage(datasetRegistryRequestMap, kindSubTypeToDmsServiceMap);
+            fail("expected AppException");
+        }
+        catch (AppException exception) {
+            assertEquals(400, exception.getError().getCode());
+            assertEquals("Invalid dataset metadata", exception.getMessage());
+        }
+        finally {
+            fanOutExecutor.shutdown();
+        }
+
+        verify(collectionDmsProvider, times(1)).copyDmsToPersistentStorage(any());
+        verify(dmsFactory, never()).create(eq(headers), any());
+    }
+
 
     private Record getRecord(String recordId, String kind) {
         Record record = new Record();
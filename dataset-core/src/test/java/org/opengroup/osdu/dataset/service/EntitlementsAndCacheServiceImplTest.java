@@ -20,11 +20,16 @@ package org.opengroup.osdu.dataset.service;
 import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.http.HttpStatus;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,11 +50,19 @@ import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.core.common.model.storage.Record;
 import org.opengroup.osdu.core.common.model.storage.RecordMetadata;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(MockitoJUnitRunner.class)
 public class EntitlementsAndCacheServiceImplTest {
@@ -285,6 +298,137 @@ public class EntitlementsAndCacheServiceImplTest {
         verify(entitlementsService, times(1)).getGroups();
     }
 
+    @Test
+    public void getGroupsCallsEntitlementsOnceForConcurrentLookupsOfSameCaller() throws Exception {
+        Groups groups = new Groups();
+        groups.setDesId(desId);
+        groups.setGroups(Collections.singletonList(getGroupInfo(role, EMAIL)));
+        CountDownLatch entitlementsCalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(entitlementsService.getGroups()).thenAnswer(invocation -> {
+            entitlementsCalled.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return groups;
+        });
+        MeterRegistry meterRegistry = registerMetrics();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Groups> first = executor.submit(() -> entitlementsAndCacheService.getGroups(headers));
+            assertTrue(entitlementsCalled.await(5, TimeUnit.SECONDS));
+            Future<Groups> second = executor.submit(() -> entitlementsAndCacheService.getGroups(headers));
+            awaitCoalesced(meterRegistry, 1);
+            release.countDown();
+
+            assertSame(groups, first.get(5, TimeUnit.SECONDS));
+            assertSame(groups, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        verify(factory, times(1)).create(headers);
+        verify(entitlementsService, times(1)).getGroups();
+    }
+
+    @Test
+    public void registerMetricsReportsCoalescedAndInFlightLookups() throws Exception {
+        Groups groups = new Groups();
+        groups.setDesId(desId);
+        groups.setGroups(Collections.singletonList(getGroupInfo(role, EMAIL)));
+        CountDownLatch entitlementsCalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(entitlementsService.getGroups()).thenAnswer(invocation -> {
+            entitlementsCalled.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return groups;
+        });
+        MeterRegistry meterRegistry = registerMetrics();
+
+        assertEquals(0, meterRegistry.get("dataset.entitlements.groups.inflight").gauge().value(), 0);
+        assertEquals(0, meterRegistry.get("dataset.entitlements.groups.coalesced").functionCounter().count(), 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Groups> first = executor.submit(() -> entitlementsAndCacheService.getGroups(headers));
+            assertTrue(entitlementsCalled.await(5, TimeUnit.SECONDS));
+            assertEquals(1, meterRegistry.get("dataset.entitlements.groups.inflight").gauge().value(), 0);
+
+            Future<Groups> second = executor.submit(() -> entitlementsAndCacheService.getGroups(headers));
+            Future<Groups> third = executor.submit(() -> entitlementsAndCacheService.getGroups(headers));
+            awaitCoalesced(meterRegistry, 2);
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            third.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, meterRegistry.get("dataset.entitlements.groups.inflight").gauge().value(), 0);
+        assertEquals(2, meterRegistry.get("dataset.entitlements.groups.coalesced").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void getGroupIndexReusesIndexForEqualGroupsFromCache() {
+        when(cache.get(anyString())).thenReturn(getGroups(role)).thenReturn(getGroups(role)).thenReturn(getGroups("xyz"));
+
+        GroupIndex first = entitlementsAndCacheService.getGroupIndex(headers);
+        GroupIndex second = entitlementsAndCacheService.getGroupIndex(headers);
+        GroupIndex changed = entitlementsAndCacheService.getGroupIndex(headers);
+
+        assertSame(first, second);
+        assertNotSame(first, changed);
+        assertTrue(changed.contains("xyz@opendes.contoso.com"));
+    }
+
+    @Test
+    public void getGroupIndexEvictsLeastRecentlyUsedIndex() {
+        int maxGroupIndexes = 10000;
+        when(cache.get(anyString())).thenReturn(getGroups(role));
+
+        GroupIndex recentlyUsed = entitlementsAndCacheService.getGroupIndex(callerHeaders(0));
+        GroupIndex leastRecentlyUsed = entitlementsAndCacheService.getGroupIndex(callerHeaders(1));
+        for (int caller = 2; caller < maxGroupIndexes; caller++) {
+            entitlementsAndCacheService.getGroupIndex(callerHeaders(caller));
+        }
+        entitlementsAndCacheService.getGroupIndex(callerHeaders(0));
+        entitlementsAndCacheService.getGroupIndex(callerHeaders(maxGroupIndexes));
+
+        assertSame(recentlyUsed, entitlementsAndCacheService.getGroupIndex(callerHeaders(0)));
+        assertNotSame(leastRecentlyUsed, entitlementsAndCacheService.getGroupIndex(callerHeaders(1)));
+    }
+
+    private Groups getGroups(String groupName) {
+        Groups groups = new Groups();
+        groups.setDesId(desId);
+        groups.setMemberEmail(EMAIL);
+        groups.setGroups(Collections.singletonList(getGroupInfo(groupName, groupName + "@opendes.contoso.com")));
+        return groups;
+    }
+
+    private DpsHeaders callerHeaders(int caller) {
+        Map<String, String> callerHeaders = new HashMap<>();
+        callerHeaders.put(DpsHeaders.DATA_PARTITION_ID, dataPartitionId);
+        callerHeaders.put(DpsHeaders.AUTHORIZATION, "Bearer " + caller);
+        return DpsHeaders.createFromMap(callerHeaders);
+    }
+
+    private MeterRegistry registerMetrics() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(entitlementsAndCacheService, "meterRegistry", meterRegistry);
+        entitlementsAndCacheService.registerMetrics();
+        return meterRegistry;
+    }
+
+    private void awaitCoalesced(MeterRegistry meterRegistry, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("dataset.entitlements.groups.coalesced").functionCounter().count() < expected) {
+            assertTrue("lookups were not coalesced in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
     private GroupInfo getGroupInfo(String name, String email) {
         GroupInfo groupInfo = new GroupInfo();
         groupInfo.setDescription("description");
@@ -0,0 +1,87 @@
+package org.opengroup.osdu.dataset.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.model.entitlements.GroupInfo;
+import org.opengroup.osdu.core.common.model.entitlements.Groups;
+
+public class GroupIndexTest {
+
+    @Test
+    public void contains_matchesGroupNameAgainstLocalPartOfAclEntry() {
+        GroupIndex index = GroupIndex.of(groups("data.default.viewers", "users.datalake.ops"));
+
+        assertTrue(index.contains("data.default.viewers@opendes.contoso.com"));
+        assertTrue(index.contains("users.datalake.ops@opendes.contoso.com"));
+        assertTrue(index.contains("data.default.viewers"));
+        assertFalse(index.contains("data.default.owners@opendes.contoso.com"));
+        assertFalse(index.contains("data.default.viewer@opendes.contoso.com"));
+        assertFalse(index.contains("data.default.viewers.extra@opendes.contoso.com"));
+        assertFalse(index.contains("@opendes.contoso.com"));
+    }
+
+    @Test
+    public void contains_ignoresCase() {
+        GroupIndex index = GroupIndex.of(groups("Data.Default.Viewers"));
+
+        assertTrue(index.contains("data.default.viewers@opendes.contoso.com"));
+        assertTrue(index.contains("DATA.DEFAULT.VIEWERS@opendes.contoso.com"));
+    }
+
+    @Test
+    public void containsAny_findsAnyMatchingEntry() {
+        GroupIndex index = GroupIndex.of(groups("data.default.owners"));
+
+        assertTrue(index.containsAny(new String[]{"data.other@opendes.contoso.com", "data.default.owners@opendes.contoso.com"}));
+        assertFalse(index.containsAny(new String[]{"data.other@opendes.contoso.com"}));
+        assertFalse(index.containsAny(new String[0]));
+        assertFalse(index.containsAny(null));
+    }
+
+    @Test
+    public void contains_handlesManyGroupsAndEmptyGroups() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("data.group." + i);
+        }
+        GroupIndex index = GroupIndex.of(groups(names.toArray(new String[0])));
+
+        for (String name : names) {
+            assertTrue(index.contains(name + "@opendes.contoso.com"));
+        }
+        assertFalse(index.contains("data.group.1000@opendes.contoso.com"));
+
+        Groups empty = new Groups();
+        empty.setGroups(Collections.emptyList());
+        assertFalse(GroupIndex.of(empty).contains("data.group.1@opendes.contoso.com"));
+        assertFalse(GroupIndex.of(new Groups()).contains("data.group.1@opendes.contoso.com"));
+    }
+
+    @Test
+    public void isIndexOf_comparesGroupNamesRatherThanInstances() {
+        GroupIndex index = GroupIndex.of(groups("data.default.viewers", "users.datalake.ops"));
+
+        assertTrue(index.isIndexOf(groups("data.default.viewers", "users.datalake.ops")));
+        assertFalse(index.isIndexOf(groups("data.default.viewers")));
+        assertFalse(index.isIndexOf(groups("data.default.viewers", "data.default.owners")));
+        assertTrue(GroupIndex.of(new Groups()).isIndexOf(groups()));
+    }
+
+    private static Groups groups(String... names) {
+        List<GroupInfo> groupInfos = new ArrayList<>();
+        for (String name : names) {
+            GroupInfo groupInfo = new GroupInfo();
+            groupInfo.setName(name);
+            groupInfo.setEmail(name + "@opendes.contoso.com");
+            groupInfos.add(groupInfo);
+        }
+        Groups groups = new Groups();
+        groups.setGroups(groupInfos);
+        return groups;
+    }
+}
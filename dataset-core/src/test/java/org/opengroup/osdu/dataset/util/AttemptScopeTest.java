@@ -0,0 +1,72 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class AttemptScopeTest {
+
+    private final AttemptScope scope = new AttemptScope();
+
+    @Test
+    public void tryRetry_isAlwaysAllowedOutsideOfScope() {
+        assertTrue(AttemptScope.tryRetry());
+        assertTrue(AttemptScope.tryRetry());
+    }
+
+    @Test
+    public void tryHedge_isRefusedOnceAttemptRetries() throws Exception {
+        assertTrue(scope.bind(AttemptScope::tryRetry).call());
+
+        assertFalse(scope.tryHedge());
+    }
+
+    @Test
+    public void tryRetry_isRefusedOnceHedged() throws Exception {
+        assertTrue(scope.tryHedge());
+
+        assertFalse(scope.bind(AttemptScope::tryRetry).call());
+        assertTrue(AttemptScope.tryRetry());
+    }
+
+    @Test
+    public void tryRetry_isAllowedAgainWhenHedgeWasNotSent() throws Exception {
+        assertTrue(scope.tryHedge());
+        scope.hedgeNotSent();
+
+        assertTrue(scope.bind(AttemptScope::tryRetry).call());
+    }
+
+    @Test
+    public void cancel_runsRegisteredCancellationsOnly() throws Exception {
+        AtomicInteger cancelled = new AtomicInteger();
+        Runnable unregistered = cancelled::incrementAndGet;
+        scope.bind(() -> {
+            AttemptScope.register(cancelled::incrementAndGet);
+            AttemptScope.register(unregistered);
+            AttemptScope.unregister(unregistered);
+            return null;
+        }).call();
+
+        scope.cancel();
+
+        assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    public void register_cancelsRightAwayAfterScopeIsCancelled() throws Exception {
+        AtomicInteger cancelled = new AtomicInteger();
+        scope.cancel();
+
+        scope.bind(() -> {
+            AttemptScope.register(cancelled::incrementAndGet);
+            return null;
+        }).call();
+
+        assertEquals(1, cancelled.get());
+        assertFalse(scope.tryHedge());
+    }
+}
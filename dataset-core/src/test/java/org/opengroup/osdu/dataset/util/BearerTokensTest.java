@@ -0,0 +1,43 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.Test;
+
+public class BearerTokensTest {
+
+    @Test
+    public void expiresAtMillis_readsExpClaim() {
+        assertEquals(Long.valueOf(1622541600_000L), BearerTokens.expiresAtMillis("Bearer " + jwt("{\"exp\":1622541600}")));
+        assertEquals(Long.valueOf(1622541600_000L), BearerTokens.expiresAtMillis(jwt("{\"sub\":\"a\",\"exp\":1622541600}")));
+    }
+
+    @Test
+    public void expiresAtMillis_returnsNullWithoutExpiry() {
+        assertNull(BearerTokens.expiresAtMillis(null));
+        assertNull(BearerTokens.expiresAtMillis("Bearer opaque-token"));
+        assertNull(BearerTokens.expiresAtMillis("Bearer " + jwt("{\"sub\":\"a\"}")));
+        assertNull(BearerTokens.expiresAtMillis("Bearer a.!!!.c"));
+    }
+
+    @Test
+    public void fingerprint_isStablePerTokenAndHidesIt() {
+        String token = "Bearer " + jwt("{\"exp\":1622541600}");
+
+        assertEquals(BearerTokens.fingerprint(token), BearerTokens.fingerprint(token));
+        assertNotEquals(BearerTokens.fingerprint(token), BearerTokens.fingerprint(token + "x"));
+        assertEquals(43, BearerTokens.fingerprint(token).length());
+        assertFalse(BearerTokens.fingerprint(token).contains("1622541600"));
+    }
+
+    private static String jwt(String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
@@ -0,0 +1,114 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.model.storage.MultiRecordInfo;
+import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.model.storage.StorageException;
+
+public class ChunkedRecordsReaderTest {
+
+    private final FanOutExecutor fanOutExecutor = new FanOutExecutor("test", 4, 4);
+
+    @After
+    public void teardown() {
+        fanOutExecutor.shutdown();
+    }
+
+    @Test
+    public void getRecords_readsChunksAndMergesInRequestOrder() throws StorageException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add("opendes:dataset--File.Generic:" + i);
+        }
+        List<List<String>> chunks = Collections.synchronizedList(new ArrayList<>());
+
+        MultiRecordInfo result = ChunkedRecordsReader.getRecords(ids, 3, fanOutExecutor, 0, 5000, chunk -> {
+            chunks.add(chunk);
+            // Storage does not keep the order of the ids within a call
+            MultiRecordInfo info = new MultiRecordInfo();
+            info.setRecords(new ArrayList<>());
+            info.setInvalidRecords(new ArrayList<>());
+            info.setRetryRecords(new ArrayList<>());
+            for (int i = chunk.size() - 1; i >= 0; i--) {
+                String id = chunk.get(i);
+                if (id.endsWith(":1") || id.endsWith(":5")) {
+                    info.getInvalidRecords().add(id);
+                } else if (id.endsWith(":3")) {
+                    info.getRetryRecords().add(id);
+                } else {
+                    info.getRecords().add(record(id));
+                }
+            }
+            return info;
+        });
+
+        assertEquals(3, chunks.size());
+        assertEquals(Arrays.asList(ids.get(0), ids.get(2), ids.get(4), ids.get(6)),
+                result.getRecords().stream().map(Record::getId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(ids.get(1), ids.get(5)), result.getInvalidRecords());
+        assertEquals(Collections.singletonList(ids.get(3)), result.getRetryRecords());
+    }
+
+    @Test
+    public void getRecords_rethrowsStorageExceptionOfFailingChunk() {
+        StorageException failure = new StorageException("storage unavailable", null);
+        List<String> ids = Arrays.asList("opendes:a:1", "opendes:a:2", "opendes:a:3");
+
+        try {
+            ChunkedRecordsReader.getRecords(ids, 2, fanOutExecutor, 0, 5000, chunk -> {
+                if (chunk.contains("opendes:a:3")) {
+                    throw failure;
+                }
+                return new MultiRecordInfo();
+            });
+            fail("expected StorageException");
+        } catch (StorageException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void getRecords_readsAtMostMaxConcurrentChunksAtATime() throws StorageException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ids.add("opendes:dataset--File.Generic:" + i);
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        MultiRecordInfo result = ChunkedRecordsReader.getRecords(ids, 2, fanOutExecutor, 2, 5000, chunk -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            MultiRecordInfo info = new MultiRecordInfo();
+            info.setRecords(chunk.stream().map(ChunkedRecordsReaderTest::record).collect(Collectors.toList()));
+            return info;
+        });
+
+        assertEquals(12, result.getRecords().size());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    private static Record record(String id) {
+        Record record = new Record();
+        record.setId(id);
+        return record;
+    }
+}
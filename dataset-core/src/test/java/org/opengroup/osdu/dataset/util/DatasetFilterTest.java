@@ -6,6 +6,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -13,9 +14,17 @@ import org.springframework.mock.web.MockHttpServletResponse;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DatasetFilterTest {
@@ -23,6 +32,9 @@ public class DatasetFilterTest {
     @Mock
     private DpsHeaders dpsHeaders;
 
+    @Mock
+    private DatasetConfig datasetConfig;
+
     @InjectMocks
     private DatasetFilter datasetFilter;
 
@@ -40,4 +52,78 @@ public class DatasetFilterTest {
         verify(dpsHeaders,times(1)).getCorrelationId();
         verify(dpsHeaders,times(1)).addCorrelationIdIfMissing();
     }
+
+    @Test
+    public void doFilter_omitsServerTimingByDefault() throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        datasetFilter.doFilter(new MockHttpServletRequest(), response, new MockFilterChain());
+
+        assertNull(response.getHeader("Server-Timing"));
+    }
+
+    @Test
+    public void doFilter_reportsServerTimingWhenEnabled() throws IOException, ServletException {
+        when(datasetConfig.isServerTimingEnabled()).thenReturn(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        datasetFilter.doFilter(new MockHttpServletRequest(), response, new MockFilterChain());
+
+        assertTrue(response.getHeader("Server-Timing").startsWith("total;dur="));
+    }
+
+    @Test
+    public void doFilter_reportsServerTimingOnResponseCommittedByChain() throws IOException, ServletException {
+        when(datasetConfig.isServerTimingEnabled()).thenReturn(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        datasetFilter.doFilter(new MockHttpServletRequest(), response, (req, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write("{\"datasets\":[]}".getBytes(StandardCharsets.UTF_8));
+            res.flushBuffer();
+        });
+
+        assertTrue(response.isCommitted());
+        assertEquals("{\"datasets\":[]}", response.getContentAsString());
+        assertTrue(response.getHeader("Server-Timing").startsWith("total;dur="));
+        assertEquals(1, response.getHeaders("Server-Timing").size());
+    }
+
+    @Test
+    public void doFilter_setsDeadlineFromRequestTimeoutHeader() throws IOException, ServletException {
+        when(datasetConfig.getRequestDeadlineMaxMillis()).thenReturn(60000L);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/dataset/v1/retrievalInstructions");
+        request.addHeader("Request-Timeout", "5000");
+        AtomicLong remaining = new AtomicLong();
+
+        datasetFilter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> remaining.set(RequestDeadline.remainingMillis(Long.MAX_VALUE)));
+
+        assertTrue(remaining.get() > 4000 && remaining.get() <= 5000);
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    @Test
+    public void doFilter_fallsBackToEndpointDefaultDeadline() throws IOException, ServletException {
+        when(datasetConfig.getRequestDeadlineMillisByEndpoint())
+                .thenReturn(Collections.singletonMap("retrievalInstructions", 2000L));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/dataset/v1/retrievalInstructions");
+        request.addHeader("Request-Timeout", "soon");
+        AtomicLong remaining = new AtomicLong();
+
+        datasetFilter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> remaining.set(RequestDeadline.remainingMillis(Long.MAX_VALUE)));
+
+        assertTrue(remaining.get() > 1000 && remaining.get() <= 2000);
+    }
+
+    @Test
+    public void doFilter_setsNoDeadlineByDefault() throws IOException, ServletException {
+        AtomicLong remaining = new AtomicLong();
+
+        datasetFilter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                (req, res) -> remaining.set(RequestDeadline.remainingMillis(Long.MAX_VALUE)));
+
+        assertEquals(Long.MAX_VALUE, remaining.get());
+    }
 }
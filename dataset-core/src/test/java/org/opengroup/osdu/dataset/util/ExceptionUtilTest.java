@@ -1,5 +1,6 @@
 package org.opengroup.osdu.dataset.util;
 
+import java.io.IOException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -34,4 +35,14 @@ public class ExceptionUtilTest {
         DmsException e = new DmsException("message", httpResponse);
         ExceptionUtils.handleDmsException(e);
     }
+
+    @Test
+    public void testHandleDmsExceptionWhenDmsDidNotAnswer() {
+
+        exceptionRule.expect(AppException.class);
+        exceptionRule.expectMessage("DMS Service did not answer");
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setException(new IOException("Connection refused"));
+        ExceptionUtils.handleDmsException(new DmsException("message", httpResponse));
+    }
 }
@@ -0,0 +1,166 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.model.http.AppException;
+
+public class FanOutExecutorTest {
+
+    private final FanOutExecutor executor = new FanOutExecutor("test", 4, 4);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void invokeAll_returnsResultsInSubmissionOrder() {
+        List<Callable<String>> calls = new ArrayList<>();
+        calls.add(() -> {
+            Thread.sleep(50);
+            return "slow";
+        });
+        calls.add(() -> "fast");
+
+        List<String> results = executor.invokeAll(calls, 5000);
+
+        assertEquals(Arrays.asList("slow", "fast"), results);
+    }
+
+    @Test
+    public void invokeAll_runsCallsConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Callable<Boolean> call = () -> {
+            bothStarted.countDown();
+            return bothStarted.await(2, TimeUnit.SECONDS);
+        };
+
+        List<Boolean> results = executor.invokeAll(Arrays.asList(call, call), 5000);
+
+        assertEquals(Arrays.asList(true, true), results);
+    }
+
+    @Test
+    public void invokeAll_rethrowsFirstFailureUnchanged() {
+        List<Callable<String>> calls = new ArrayList<>();
+        calls.add(() -> {
+            throw new AppException(400, "Bad Request", "invalid");
+        });
+        calls.add(() -> "ok");
+
+        try {
+            executor.invokeAll(calls, 5000);
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(400, e.getError().getCode());
+            assertEquals("invalid", e.getMessage());
+        }
+    }
+
+    @Test
+    public void invokeAll_failsWithGatewayTimeoutWhenDeadlinePasses() {
+        List<Callable<String>> calls = new ArrayList<>();
+        calls.add(() -> {
+            Thread.sleep(2000);
+            return "late";
+        });
+        calls.add(() -> "ok");
+
+        long start = System.currentTimeMillis();
+        try {
+            executor.invokeAll(calls, 100);
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(504, e.getError().getCode());
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    @Test
+    public void invokeAll_runsAtMostMaxConcurrentCallsAtATime() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int result = i;
+            calls.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return result;
+            });
+        }
+
+        List<Integer> results = executor.invokeAll(calls, 2, 5000);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), results);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void invokeAllInOrder_runsAtMostMaxConcurrentCallsAtATime() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int result = i;
+            calls.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return result;
+            });
+        }
+        List<Integer> results = new ArrayList<>();
+
+        executor.invokeAllInOrder(calls, 2, 5000, results::add);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), results);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void invokeAllInOrder_handsResultsOverInSubmissionOrder() {
+        List<Callable<String>> calls = new ArrayList<>();
+        calls.add(() -> {
+            Thread.sleep(50);
+            return "slow";
+        });
+        calls.add(() -> "fast");
+        List<String> results = new ArrayList<>();
+
+        executor.invokeAllInOrder(calls, 5000, results::add);
+
+        assertEquals(Arrays.asList("slow", "fast"), results);
+    }
+
+    @Test
+    public void invokeAllInOrder_failsWithGatewayTimeoutWhenDeadlinePasses() {
+        List<Callable<String>> calls = new ArrayList<>();
+        calls.add(() -> "ok");
+        calls.add(() -> {
+            Thread.sleep(2000);
+            return "late";
+        });
+        List<String> results = new ArrayList<>();
+
+        try {
+            executor.invokeAllInOrder(calls, 100, results::add);
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(504, e.getError().getCode());
+        }
+        assertEquals(Arrays.asList("ok"), results);
+    }
+}
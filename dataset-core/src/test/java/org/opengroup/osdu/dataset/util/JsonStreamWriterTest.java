@@ -0,0 +1,106 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.model.http.AppException;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class JsonStreamWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void ndjson_writesOneLinePerItem() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(response, objectMapper, true, "items")) {
+            writer.write(Collections.singletonMap("id", "a"));
+            writer.flush();
+            writer.write(Collections.singletonMap("id", "b"));
+            writer.setTrailingField("providerKey", "AWS");
+            writer.finish();
+        }
+
+        assertTrue(response.getContentType().startsWith(JsonStreamWriter.APPLICATION_NDJSON_VALUE));
+        assertEquals("{\"id\":\"a\"}\n{\"id\":\"b\"}\n", response.getContentAsString());
+    }
+
+    @Test
+    public void json_writesItemsAsArrayFieldFollowedByTrailingFields() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(response, objectMapper, false, "items")) {
+            writer.write(Collections.singletonMap("id", "a"));
+            writer.write(Collections.singletonMap("id", "b"));
+            writer.setTrailingField("providerKey", "AWS");
+            writer.finish();
+        }
+
+        assertEquals("{\"items\":[{\"id\":\"a\"},{\"id\":\"b\"}],\"providerKey\":\"AWS\"}", response.getContentAsString());
+    }
+
+    @Test
+    public void close_withoutFinishDiscardsUncommittedOutput() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(response, objectMapper, false, "items")) {
+            writer.write(Collections.singletonMap("id", "a"));
+        }
+
+        assertFalse(response.isCommitted());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    public void fail_afterCommitEndsNdjsonWithErrorLine() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(response, objectMapper, true, "items")) {
+            writer.write(Collections.singletonMap("id", "a"));
+            writer.flush();
+            writer.fail(new AppException(502, "Bad Gateway", "DMS unavailable"));
+        }
+
+        assertEquals(200, response.getStatus());
+        assertEquals("{\"id\":\"a\"}\n{\"error\":{\"code\":502,\"reason\":\"Bad Gateway\",\"message\":\"DMS unavailable\"}}\n",
+                response.getContentAsString());
+    }
+
+    @Test
+    public void fail_afterCommitEndsJsonWithErrorField() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(response, objectMapper, false, "items")) {
+            writer.write(Collections.singletonMap("id", "a"));
+            writer.flush();
+            writer.fail(new IllegalStateException("boom"));
+        }
+
+        assertEquals("{\"items\":[{\"id\":\"a\"}],\"error\":{\"code\":500,\"reason\":\"Internal Server Error\","
+                + "\"message\":\"An unknown error has occurred.\"}}", response.getContentAsString());
+    }
+
+    @Test
+    public void fail_beforeCommitRethrows() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AppException failure = new AppException(404, "Not Found", "missing");
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(response, objectMapper, false, "items")) {
+            writer.write(Collections.singletonMap("id", "a"));
+            writer.fail(failure);
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertSame(failure, e);
+        }
+
+        assertFalse(response.isCommitted());
+        assertEquals("", response.getContentAsString());
+    }
+}
@@ -0,0 +1,72 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import org.junit.After;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.model.http.AppException;
+
+public class RequestDeadlineTest {
+
+    private final FanOutExecutor fanOutExecutor = new FanOutExecutor("test", 2, 2);
+
+    @After
+    public void teardown() {
+        RequestDeadline.clear();
+        fanOutExecutor.shutdown();
+    }
+
+    @Test
+    public void remainingMillis_isBoundedByDeadline() {
+        assertEquals(30000, RequestDeadline.remainingMillis(30000));
+
+        RequestDeadline.start(1000);
+
+        assertTrue(RequestDeadline.remainingMillis(30000) <= 1000);
+        assertEquals(10, RequestDeadline.remainingMillis(10));
+    }
+
+    @Test
+    public void check_failsWith504OncePassed() {
+        RequestDeadline.start(0);
+
+        try {
+            RequestDeadline.check("storage getRecords");
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(504, e.getError().getCode());
+        }
+    }
+
+    @Test
+    public void propagate_carriesDeadlineToOtherThreads() throws Exception {
+        RequestDeadline.start(1000);
+
+        Callable<Long> remaining = () -> RequestDeadline.remainingMillis(Long.MAX_VALUE);
+        long onPool = fanOutExecutor.invokeAll(Arrays.asList(remaining, remaining), 5000).get(0);
+
+        assertTrue(onPool <= 1000);
+    }
+
+    @Test
+    public void invokeAll_timesOutWithRequestDeadline() {
+        RequestDeadline.start(100);
+        Callable<Void> slow = () -> {
+            Thread.sleep(5000);
+            return null;
+        };
+
+        long start = System.currentTimeMillis();
+        try {
+            fanOutExecutor.invokeAll(Arrays.asList(slow, slow), 30000);
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(504, e.getError().getCode());
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+}
@@ -0,0 +1,42 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class RequestPositionsTest {
+
+    @Test
+    public void distinctIds_keepsFirstRequestOrder() {
+        RequestPositions positions = RequestPositions.of(Arrays.asList("b", "a", "b", "c", "a"));
+
+        assertEquals(Arrays.asList("b", "a", "c"), positions.distinctIds());
+    }
+
+    @Test
+    public void scatter_putsItemsAtEveryRequestedPosition() {
+        RequestPositions positions = RequestPositions.of(Arrays.asList("a", "b", "a", "c"));
+
+        assertEquals(Arrays.asList("a", "b", "a", "c"),
+                positions.scatter(Arrays.asList("c", "b", "a"), Function.identity()));
+    }
+
+    @Test
+    public void scatter_ordersPartOfTheRequest() {
+        RequestPositions positions = RequestPositions.of(Arrays.asList("a", "b", "c", "a"));
+
+        assertEquals(Arrays.asList("a", "c", "a"), positions.scatter(Arrays.asList("c", "a"), Function.identity()));
+    }
+
+    @Test
+    public void scatter_keepsUnrequestedItemsAtTheEnd() {
+        RequestPositions positions = RequestPositions.of(Arrays.asList("a", "b"));
+
+        assertEquals(Arrays.asList("b", "x", "y"), positions.scatter(Arrays.asList("x", "b", "y"), Function.identity()));
+        assertEquals(Collections.emptyList(), RequestPositions.of(Collections.emptyList())
+                .scatter(Collections.<String>emptyList(), Function.identity()));
+    }
+}
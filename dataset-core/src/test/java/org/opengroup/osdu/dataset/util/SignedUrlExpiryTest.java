@@ -0,0 +1,57 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class SignedUrlExpiryTest {
+
+    private static final long SIGNED_AT = Instant.parse("2021-06-01T10:00:00Z").toEpochMilli();
+
+    @Test
+    public void earliestExpiry_readsAwsSignature() {
+        Long expiry = SignedUrlExpiry.earliestExpiry(
+                "https://bucket.s3.amazonaws.com/key?X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Date=20210601T100000Z&X-Amz-Expires=3600&X-Amz-Signature=abc");
+
+        assertEquals(Long.valueOf(SIGNED_AT + 3600_000L), expiry);
+    }
+
+    @Test
+    public void earliestExpiry_readsGcsSignature() {
+        Long expiry = SignedUrlExpiry.earliestExpiry(
+                "https://storage.googleapis.com/bucket/key?X-Goog-Date=20210601T100000Z&X-Goog-Expires=600");
+
+        assertEquals(Long.valueOf(SIGNED_AT + 600_000L), expiry);
+    }
+
+    @Test
+    public void earliestExpiry_readsAzureSas() {
+        Long expiry = SignedUrlExpiry.earliestExpiry(
+                "https://account.blob.core.windows.net/container/blob?sv=2019-12-12&se=2021-06-01T10%3A00%3A00Z&sig=abc");
+
+        assertEquals(Long.valueOf(SIGNED_AT), expiry);
+    }
+
+    @Test
+    public void earliestExpiry_takesEarliestOfNestedUrls() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("signedUrl", "https://host/a?Expires=1622545200");
+        properties.put("unsignedUrl", "s3://bucket/a");
+        properties.put("files", Arrays.asList("https://host/b?Expires=1622541600", "https://host/c?Expires=1622548800"));
+
+        assertEquals(Long.valueOf(SIGNED_AT), SignedUrlExpiry.earliestExpiry(properties));
+    }
+
+    @Test
+    public void earliestExpiry_returnsNullWithoutRecognizableExpiry() {
+        assertNull(SignedUrlExpiry.earliestExpiry("s3://bucket/key"));
+        assertNull(SignedUrlExpiry.earliestExpiry("https://host/key?X-Amz-Date=garbage&X-Amz-Expires=60"));
+        assertNull(SignedUrlExpiry.earliestExpiry(new HashMap<>()));
+        assertNull(SignedUrlExpiry.earliestExpiry(null));
+    }
+}
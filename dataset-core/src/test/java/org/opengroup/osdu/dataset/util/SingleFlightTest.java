@@ -0,0 +1,135 @@
+package org.opengroup.osdu.dataset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.model.http.AppException;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void load_concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("key", () -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                return "groups";
+            })));
+        }
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("groups", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS - 1, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void load_waitersGetTheLeadersException() throws Exception {
+        AppException failure = new AppException(403, "Access denied", "The user is not authorized to perform this action");
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("key", () -> {
+                awaitQuietly(release);
+                throw failure;
+            })));
+        }
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("expected AppException");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void load_waiterGivesUpAfterMaxWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.load("key", () -> {
+            awaitQuietly(release);
+            return "groups";
+        }));
+        while (singleFlight.getInFlightCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        try {
+            singleFlight.load("key", 50, () -> "not loaded");
+            fail("expected AppException");
+        } catch (AppException e) {
+            assertEquals(504, e.getError().getCode());
+        } finally {
+            release.countDown();
+        }
+        assertEquals("groups", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void load_loadsAgainOnceTheFlightCompleted() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.load("key", () -> "v" + loads.incrementAndGet());
+        String second = singleFlight.load("key", () -> "v" + loads.incrementAndGet());
+
+        assertEquals("v2", second);
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void load_keepsKeysApart() {
+        assertEquals("a", singleFlight.load("a", () -> singleFlight.load("b", () -> "b").replace("b", "a")));
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getCoalescedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, singleFlight.getCoalescedCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import java.util.Random;
+
+/**
+ * Latency distribution of a stand-in, written as
+ * <ul>
+ *     <li>{@code none}</li>
+ *     <li>{@code fixed:<millis>}</li>
+ *     <li>{@code uniform:<minMillis>:<maxMillis>}</li>
+ *     <li>{@code lognormal:<medianMillis>:<p99Millis>}, the usual shape of service latencies</li>
+ * </ul>
+ */
+final class Latency {
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final String spec;
+    private final Kind kind;
+    private final double first;
+    private final double second;
+
+    private Latency(String spec, Kind kind, double first, double second) {
+        this.spec = spec;
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    static Latency parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "none":
+                    return new Latency(spec, Kind.NONE, 0, 0);
+                case "fixed":
+                    return new Latency(spec, Kind.FIXED, Double.parseDouble(parts[1]), 0);
+                case "uniform":
+                    return new Latency(spec, Kind.UNIFORM, Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "lognormal":
+                    double median = Double.parseDouble(parts[1]);
+                    double p99 = Double.parseDouble(parts[2]);
+                    return new Latency(spec, Kind.LOGNORMAL, Math.log(median), (Math.log(p99) - Math.log(median)) / Z_99);
+                default:
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(String.format("Invalid latency '%s'", spec));
+    }
+
+    long sampleMillis(Random random) {
+        switch (this.kind) {
+            case FIXED:
+                return Math.round(this.first);
+            case UNIFORM:
+                return Math.round(this.first + random.nextDouble() * (this.second - this.first));
+            case LOGNORMAL:
+                return Math.round(Math.exp(this.first + this.second * random.nextGaussian()));
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.spec;
+    }
+
+    private enum Kind {
+        NONE, FIXED, UNIFORM, LOGNORMAL
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one scenario, measured from the time each request was due to be sent.
+ */
+final class LatencyReport {
+
+    private final String scenario;
+    private final long[] latencyMicros;
+    private final long errors;
+    private final double elapsedSeconds;
+
+    LatencyReport(String scenario, long[] latencyMicros, long errors, double elapsedSeconds) {
+        this.scenario = scenario;
+        this.latencyMicros = latencyMicros.clone();
+        Arrays.sort(this.latencyMicros);
+        this.errors = errors;
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    static String header() {
+        return String.format("%-24s %8s %10s %8s %10s %10s %10s %10s",
+                "scenario", "requests", "rps", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s %8d %10.1f %8d %10.1f %10.1f %10.1f %10.1f",
+                this.scenario, this.latencyMicros.length, this.latencyMicros.length / this.elapsedSeconds, this.errors,
+                percentileMillis(0.5), percentileMillis(0.99), percentileMillis(0.999), percentileMillis(1.0));
+    }
+
+    private double percentileMillis(double percentile) {
+        if (this.latencyMicros.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * this.latencyMicros.length) - 1;
+        return this.latencyMicros[Math.max(0, index)] / 1000.0;
+    }
+}
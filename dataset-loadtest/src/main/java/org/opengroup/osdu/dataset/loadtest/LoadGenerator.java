@@ -0,0 +1,133 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Sends the requests of a scenario at a fixed rate, whether or not earlier ones have come back.
+ * Latency is measured from the time a request was due rather than from the time it was actually
+ * sent, so a stalled service shows up in the percentiles instead of silently lowering the rate.
+ */
+final class LoadGenerator {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final String baseUrl;
+    private final List<String> seededIds;
+    private final int batchSize;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OkHttpClient client;
+
+    LoadGenerator(String baseUrl, List<String> seededIds, int batchSize) {
+        this.baseUrl = baseUrl;
+        this.seededIds = seededIds;
+        this.batchSize = batchSize;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(4096);
+        dispatcher.setMaxRequestsPerHost(4096);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(512, 5, TimeUnit.MINUTES))
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    LatencyReport run(Scenario scenario, int rps, int durationSeconds) throws Exception {
+        int total = rps * durationSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        AtomicLongArray latencyMicros = new AtomicLongArray(total);
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(total);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int index = i;
+            this.client.newCall(this.request(scenario)).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    this.complete(false);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try {
+                        response.body().bytes();
+                        this.complete(response.isSuccessful());
+                    } catch (IOException e) {
+                        this.complete(false);
+                    } finally {
+                        response.close();
+                    }
+                }
+
+                private void complete(boolean success) {
+                    latencyMicros.set(index, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+                    if (!success) {
+                        errors.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        done.await(2 * durationSeconds + 60, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = new long[total];
+        for (int i = 0; i < total; i++) {
+            latencies[i] = latencyMicros.get(i);
+        }
+        return new LatencyReport(scenario.getName(), latencies, errors.get(), elapsedSeconds);
+    }
+
+    void shutdown() {
+        this.client.dispatcher().executorService().shutdown();
+        this.client.connectionPool().evictAll();
+    }
+
+    private Request request(Scenario scenario) throws IOException {
+        Object body = scenario.body(this.batchSize, this.seededIds, scenario.sequence.getAndIncrement());
+        RequestBody requestBody = RequestBody.create(JSON,
+                body == null ? new byte[0] : this.objectMapper.writeValueAsBytes(body));
+        return new Request.Builder()
+                .url(this.baseUrl + scenario.getPath())
+                .method(scenario.getMethod(), requestBody)
+                .header("data-partition-id", StandIns.PARTITION)
+                .header("Authorization", "Bearer loadtest")
+                .header("user", StandIns.USER)
+                .build();
+    }
+}
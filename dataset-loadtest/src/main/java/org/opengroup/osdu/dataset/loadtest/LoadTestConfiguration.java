@@ -0,0 +1,65 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.cache.VmCache;
+import org.opengroup.osdu.core.common.model.entitlements.Groups;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+
+/**
+ * The beans a provider would contribute, pointing the service at the stand-ins instead of a cloud.
+ */
+@Configuration
+@EnableWebSecurity
+@EnableGlobalMethodSecurity(prePostEnabled = true)
+public class LoadTestConfiguration extends WebSecurityConfigurerAdapter {
+
+    @Value("${loadtest.dms.file}")
+    private String fileDmsUrl;
+
+    @Value("${loadtest.dms.fileCollection}")
+    private String fileCollectionDmsUrl;
+
+    @Bean
+    public IDatasetDmsServiceMap datasetDmsServiceMap() {
+        Map<String, DmsServiceProperties> dmsServices = new HashMap<>();
+        dmsServices.put("dataset--File.*", new DmsServiceProperties(this.fileDmsUrl, true, null, true));
+        dmsServices.put("dataset--FileCollection.*", new DmsServiceProperties(this.fileCollectionDmsUrl, true, null, true));
+        return () -> dmsServices;
+    }
+
+    @Bean
+    public ICache<String, Groups> groupCache() {
+        return new VmCache<>(60, 1000);
+    }
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http
+            .httpBasic().disable()
+            .csrf().disable();
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.opengroup.osdu.dataset.DatasetApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs the dataset service in process against stand-ins for every service it calls, drives each
+ * scenario at a fixed rate and prints the latency percentiles. Nothing leaves the machine, so runs
+ * before and after a change can be compared without a deployed environment. See
+ * {@link LoadTestSettings} for the knobs, e.g.
+ * <pre>
+ * java -Dloadtest.rps=200 -Dloadtest.scenarios=retrievalInstructions -Dloadtest.fileDms.latency=fixed:50 \
+ *      -jar dataset-loadtest/target/dataset-loadtest-0.16.0-SNAPSHOT-spring-boot.jar
+ * </pre>
+ */
+public final class LoadTestRunner {
+
+    private static final int SEED_RECORDS = 1000;
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        try (StandIns standIns = new StandIns(settings)) {
+            List<String> seededIds = standIns.seed(SEED_RECORDS);
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("server.port", "0");
+            properties.put("STORAGE_API", standIns.getStorageUrl());
+            properties.put("SCHEMA_API", standIns.getSchemaUrl());
+            properties.put("AUTHORIZE_API", standIns.getEntitlementsUrl());
+            properties.put("LOG_PREFIX", "dataset");
+            properties.put("osdu.dataset.config.useRestDms", "true");
+            properties.put("loadtest.dms.file", standIns.getFileDmsUrl());
+            properties.put("loadtest.dms.fileCollection", standIns.getFileCollectionDmsUrl());
+            properties.put("logging.level.root", "WARN");
+            properties.putAll(settings.serviceProperties());
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(DatasetApplication.class)
+                    .properties(properties)
+                    .run(args);
+            LoadGenerator generator = null;
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                generator = new LoadGenerator(String.format("http://localhost:%d/api/dataset/v1/", port),
+                        seededIds, settings.batchSize);
+
+                List<LatencyReport> reports = new ArrayList<>();
+                for (Scenario scenario : settings.scenarios) {
+                    System.out.println(String.format("Running %s: %ds warmup, %ds at %d rps",
+                            scenario.getName(), settings.warmupSeconds, settings.durationSeconds, settings.rps));
+                    if (settings.warmupSeconds > 0) {
+                        generator.run(scenario, settings.rps, settings.warmupSeconds);
+                    }
+                    reports.add(generator.run(scenario, settings.rps, settings.durationSeconds));
+                }
+
+                System.out.println();
+                System.out.println(LatencyReport.header());
+                reports.forEach(System.out::println);
+                System.out.println();
+                standIns.describe().forEach(System.out::println);
+            } finally {
+                if (generator != null) {
+                    generator.shutdown();
+                }
+                context.close();
+            }
+        }
+    }
+}
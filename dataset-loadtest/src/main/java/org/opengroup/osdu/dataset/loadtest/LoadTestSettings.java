@@ -0,0 +1,102 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from system properties:
+ * <ul>
+ *     <li>{@code loadtest.scenarios}: comma separated scenarios, all by default</li>
+ *     <li>{@code loadtest.rps}: target requests per second of each scenario, 50 by default</li>
+ *     <li>{@code loadtest.durationSeconds}: measured time per scenario, 60 by default</li>
+ *     <li>{@code loadtest.warmupSeconds}: unmeasured time per scenario before that, 15 by default</li>
+ *     <li>{@code loadtest.batchSize}: datasets per request, 10 by default</li>
+ *     <li>{@code loadtest.<standIn>.latency}: see {@link Latency}</li>
+ *     <li>{@code loadtest.<standIn>.errorRate}: share of failing calls between 0 and 1, 0 by default</li>
+ * </ul>
+ * Stand-ins are storage, schema, entitlements, fileDms and fileCollectionDms. Any other
+ * {@code loadtest.service.*} property is passed to the service, e.g.
+ * {@code -Dloadtest.service.osdu.dataset.config.serverTimingEnabled=true}.
+ */
+final class LoadTestSettings {
+
+    private static final String PREFIX = "loadtest.";
+    private static final String SERVICE_PREFIX = PREFIX + "service.";
+
+    private static final Map<String, String> DEFAULT_LATENCIES = new HashMap<>();
+
+    static {
+        DEFAULT_LATENCIES.put("storage", "lognormal:25:150");
+        DEFAULT_LATENCIES.put("schema", "lognormal:10:60");
+        DEFAULT_LATENCIES.put("entitlements", "lognormal:15:100");
+        DEFAULT_LATENCIES.put("fileDms", "lognormal:40:250");
+        DEFAULT_LATENCIES.put("fileCollectionDms", "lognormal:40:250");
+    }
+
+    final List<Scenario> scenarios;
+    final int rps;
+    final int durationSeconds;
+    final int warmupSeconds;
+    final int batchSize;
+
+    private LoadTestSettings(List<Scenario> scenarios, int rps, int durationSeconds, int warmupSeconds, int batchSize) {
+        this.scenarios = scenarios;
+        this.rps = rps;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.batchSize = batchSize;
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        List<Scenario> scenarios = new ArrayList<>();
+        String names = System.getProperty(PREFIX + "scenarios");
+        if (names == null || names.trim().isEmpty()) {
+            for (Scenario scenario : Scenario.values()) {
+                scenarios.add(scenario);
+            }
+        } else {
+            for (String name : names.split(",")) {
+                scenarios.add(Scenario.of(name.trim()));
+            }
+        }
+        return new LoadTestSettings(scenarios,
+                Integer.getInteger(PREFIX + "rps", 50),
+                Integer.getInteger(PREFIX + "durationSeconds", 60),
+                Integer.getInteger(PREFIX + "warmupSeconds", 15),
+                Integer.getInteger(PREFIX + "batchSize", 10));
+    }
+
+    StandIn standIn(String name, ObjectMapper objectMapper, StandIn.Handler handler) throws IOException {
+        Latency latency = Latency.parse(System.getProperty(PREFIX + name + ".latency", DEFAULT_LATENCIES.get(name)));
+        double errorRate = Double.parseDouble(System.getProperty(PREFIX + name + ".errorRate", "0"));
+        return new StandIn(name, latency, errorRate, objectMapper, handler);
+    }
+
+    Map<String, Object> serviceProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SERVICE_PREFIX)) {
+                properties.put(name.substring(SERVICE_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+}
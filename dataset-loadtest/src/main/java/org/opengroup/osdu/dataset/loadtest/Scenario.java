@@ -0,0 +1,107 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opengroup.osdu.core.common.model.storage.Record;
+
+/**
+ * The requests a scenario sends. Reads pick their datasets from the seeded ones, registrations
+ * create new datasets on every request.
+ */
+enum Scenario {
+
+    REGISTER_DATASET("registerDataset", "PUT", "registerDataset") {
+        @Override
+        Object body(int batchSize, List<String> seededIds, long sequence) {
+            List<Record> records = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                records.add(StandIns.datasetRecord(i % 2 == 0 ? "File" : "FileCollection",
+                        String.format("run-%d-%d", sequence, i)));
+            }
+            return Collections.singletonMap("datasetRegistries", records);
+        }
+    },
+
+    GET_DATASET_REGISTRY("getDatasetRegistry", "POST", "getDatasetRegistry") {
+        @Override
+        Object body(int batchSize, List<String> seededIds, long sequence) {
+            return datasetRegistryIds(batchSize, seededIds, sequence);
+        }
+    },
+
+    RETRIEVAL_INSTRUCTIONS("retrievalInstructions", "POST", "retrievalInstructions") {
+        @Override
+        Object body(int batchSize, List<String> seededIds, long sequence) {
+            return datasetRegistryIds(batchSize, seededIds, sequence);
+        }
+    },
+
+    STORAGE_INSTRUCTIONS("storageInstructions", "POST", "storageInstructions?kindSubType=dataset--File.Generic") {
+        @Override
+        Object body(int batchSize, List<String> seededIds, long sequence) {
+            return null;
+        }
+    };
+
+    private final String name;
+    private final String method;
+    private final String path;
+    final AtomicLong sequence = new AtomicLong();
+
+    Scenario(String name, String method, String path) {
+        this.name = name;
+        this.method = method;
+        this.path = path;
+    }
+
+    static Scenario of(String name) {
+        for (Scenario scenario : values()) {
+            if (scenario.name.equalsIgnoreCase(name)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown scenario '%s'", name));
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    String getMethod() {
+        return this.method;
+    }
+
+    String getPath() {
+        return this.path;
+    }
+
+    /**
+     * @return the request body, serialized as JSON, or null for none
+     */
+    abstract Object body(int batchSize, List<String> seededIds, long sequence);
+
+    private static Map<String, List<String>> datasetRegistryIds(int batchSize, List<String> seededIds, long sequence) {
+        List<String> ids = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            ids.add(seededIds.get((int) ((sequence * batchSize + i) % seededIds.size())));
+        }
+        return Collections.singletonMap("datasetRegistryIds", ids);
+    }
+}
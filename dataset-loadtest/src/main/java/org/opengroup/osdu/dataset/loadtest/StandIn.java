@@ -0,0 +1,151 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded HTTP server standing in for one dependency of the service. Every request is delayed
+ * by a sample of the configured latency and fails with 503 at the configured error rate before it
+ * reaches the handler.
+ */
+final class StandIn implements Closeable {
+
+    private static final int THREADS = 512;
+
+    private final String name;
+    private final Latency latency;
+    private final double errorRate;
+    private final Handler handler;
+    private final ObjectMapper objectMapper;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger injectedErrors = new AtomicInteger();
+
+    StandIn(String name, Latency latency, double errorRate, ObjectMapper objectMapper, Handler handler) throws IOException {
+        this.name = name;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.handler = handler;
+        this.objectMapper = objectMapper;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, String.format("stand-in-%s-%d", name, threads.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    String getUrl() {
+        return String.format("http://%s:%d", this.server.getAddress().getHostString(), this.server.getAddress().getPort());
+    }
+
+    String describe() {
+        return String.format("%-18s latency=%-20s errorRate=%.3f requests=%d injectedErrors=%d",
+                this.name, this.latency, this.errorRate, this.requests.get(), this.injectedErrors.get());
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            this.requests.incrementAndGet();
+            byte[] body = readFully(exchange.getRequestBody());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = this.latency.sampleMillis(random);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            if (random.nextDouble() < this.errorRate) {
+                this.injectedErrors.incrementAndGet();
+                respond(exchange, 503, "{\"code\":503,\"reason\":\"Service Unavailable\",\"message\":\"injected error\"}");
+                return;
+            }
+
+            Object response = this.handler.handle(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), body);
+            if (response == null) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                respond(exchange, 200, this.objectMapper.writeValueAsString(response));
+            }
+        } catch (NotFoundException e) {
+            respond(exchange, 404, "{\"code\":404,\"reason\":\"Not Found\",\"message\":\"" + e.getMessage() + "\"}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            respond(exchange, 500, "{\"code\":500,\"reason\":\"Internal Server Error\",\"message\":\"stand-in failed\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * @return the response, serialized as JSON, or null for 204
+         */
+        Object handle(String method, String path, byte[] body) throws IOException;
+    }
+
+    static final class NotFoundException extends RuntimeException {
+
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opengroup.osdu.core.common.dms.model.CopyDmsResponse;
+import org.opengroup.osdu.core.common.dms.model.DatasetRetrievalProperties;
+import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
+import org.opengroup.osdu.core.common.model.entitlements.GroupInfo;
+import org.opengroup.osdu.core.common.model.entitlements.Groups;
+import org.opengroup.osdu.core.common.model.storage.MultiRecordInfo;
+import org.opengroup.osdu.core.common.model.storage.Record;
+import org.opengroup.osdu.core.common.model.storage.UpsertRecords;
+import org.opengroup.osdu.dataset.model.response.DatasetRetrievalDeliveryItem;
+import org.opengroup.osdu.dataset.model.response.GetDatasetRetrievalInstructionsResponse;
+import org.opengroup.osdu.dataset.model.response.GetDatasetStorageInstructionsResponse;
+
+/**
+ * Stand-ins for Storage, Schema, Entitlements and the File and FileCollection DMS. They answer the
+ * calls the service makes just well enough for it to do its full work, and Storage keeps the
+ * records registered during the run so they can be read back.
+ */
+final class StandIns implements Closeable {
+
+    static final String PARTITION = "osdu";
+    static final String USER = "loadtest@osdu.example.com";
+
+    private static final List<String> ROLES = Arrays.asList(
+            "service.storage.creator", "service.storage.admin", "service.storage.viewer",
+            "service.delivery.viewer", "service.dataset.editors", "service.dataset.viewers",
+            "data.default.owners", "data.default.viewers");
+    private static final String PROVIDER_KEY = "LOADTEST";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+    private final StandIn storage;
+    private final StandIn schema;
+    private final StandIn entitlements;
+    private final StandIn fileDms;
+    private final StandIn fileCollectionDms;
+
+    StandIns(LoadTestSettings settings) throws IOException {
+        this.storage = settings.standIn("storage", this.objectMapper, this::storage);
+        this.schema = settings.standIn("schema", this.objectMapper, this::schema);
+        this.entitlements = settings.standIn("entitlements", this.objectMapper, this::entitlements);
+        this.fileDms = settings.standIn("fileDms", this.objectMapper, this::dms);
+        this.fileCollectionDms = settings.standIn("fileCollectionDms", this.objectMapper, this::dms);
+    }
+
+    /**
+     * Puts datasets into Storage up front, alternating between File and FileCollection so reads fan
+     * out to both DMS.
+     */
+    List<String> seed(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Record record = datasetRecord(i % 2 == 0 ? "File" : "FileCollection", "seed-" + i);
+            record.setVersion(1L);
+            this.records.put(record.getId(), record);
+            ids.add(record.getId());
+        }
+        return ids;
+    }
+
+    static Record datasetRecord(String type, String uniqueId) {
+        Map<String, Object> fileSourceInfo = new HashMap<>();
+        fileSourceInfo.put("FileSource", "s3://loadtest/" + uniqueId);
+        Map<String, Object> datasetProperties = new HashMap<>();
+        datasetProperties.put("FileSourceInfo", fileSourceInfo);
+        Map<String, Object> data = new HashMap<>();
+        data.put("DatasetProperties", datasetProperties);
+        data.put("Name", uniqueId);
+
+        Record record = new Record();
+        record.setId(String.format("%s:dataset--%s.Generic:%s", PARTITION, type, uniqueId));
+        record.setKind(String.format("osdu:wks:dataset--%s.Generic:1.0.0", type));
+        record.setData(data);
+        return record;
+    }
+
+    String getStorageUrl() {
+        return this.storage.getUrl();
+    }
+
+    String getSchemaUrl() {
+        return this.schema.getUrl();
+    }
+
+    String getEntitlementsUrl() {
+        return this.entitlements.getUrl();
+    }
+
+    String getFileDmsUrl() {
+        return this.fileDms.getUrl();
+    }
+
+    String getFileCollectionDmsUrl() {
+        return this.fileCollectionDms.getUrl();
+    }
+
+    List<String> describe() {
+        return Arrays.asList(this.storage.describe(), this.schema.describe(), this.entitlements.describe(),
+                this.fileDms.describe(), this.fileCollectionDms.describe());
+    }
+
+    @Override
+    public void close() {
+        this.storage.close();
+        this.schema.close();
+        this.entitlements.close();
+        this.fileDms.close();
+        this.fileCollectionDms.close();
+    }
+
+    private Object storage(String method, String path, byte[] body) throws IOException {
+        if ("PUT".equals(method) && path.endsWith("/records")) {
+            Record[] upserted = this.objectMapper.readValue(body, Record[].class);
+            UpsertRecords response = new UpsertRecords();
+            response.setRecordIds(new ArrayList<>());
+            response.setRecordIdVersions(new ArrayList<>());
+            long version = System.currentTimeMillis() * 1000;
+            for (Record record : upserted) {
+                record.setVersion(version);
+                this.records.put(record.getId(), record);
+                response.getRecordIds().add(record.getId());
+                response.getRecordIdVersions().add(record.getId() + ":" + version);
+            }
+            return response;
+        }
+        if ("POST".equals(method) && path.contains("/query/records")) {
+            MultiRecordInfo response = new MultiRecordInfo();
+            response.setRecords(new ArrayList<>());
+            response.setInvalidRecords(new ArrayList<>());
+            response.setRetryRecords(new ArrayList<>());
+            for (JsonNode id : this.objectMapper.readTree(body).path("records")) {
+                Record record = this.records.get(id.asText());
+                if (record == null) {
+                    response.getInvalidRecords().add(id.asText());
+                } else {
+                    response.getRecords().add(record);
+                }
+            }
+            return response;
+        }
+        String id = path.substring(path.lastIndexOf('/') + 1).replace(":delete", "");
+        if ("GET".equals(method) && this.records.containsKey(id)) {
+            return this.records.get(id);
+        }
+        if (("DELETE".equals(method) || path.endsWith(":delete")) && this.records.remove(id) != null) {
+            return null;
+        }
+        throw new StandIn.NotFoundException(String.format("%s %s", method, path));
+    }
+
+    private Object schema(String method, String path, byte[] body) {
+        String kind = path.substring(path.lastIndexOf('/') + 1);
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("$id", "https://schema.osdu.opengroup.org/json/" + kind + ".json");
+        schema.put("type", "object");
+        return schema;
+    }
+
+    private Object entitlements(String method, String path, byte[] body) {
+        List<GroupInfo> groups = new ArrayList<>(ROLES.size());
+        for (String role : ROLES) {
+            GroupInfo group = new GroupInfo();
+            group.setName(role);
+            group.setEmail(String.format("%s@%s.example.com", role, PARTITION));
+            group.setDescription(role);
+            groups.add(group);
+        }
+        Groups response = new Groups();
+        response.setGroups(groups);
+        response.setDesId(USER);
+        response.setMemberEmail(USER);
+        return response;
+    }
+
+    private Object dms(String method, String path, byte[] body) throws IOException {
+        if (path.endsWith("/storageInstructions") || path.endsWith("/getStorageInstructions")) {
+            Map<String, Object> storageLocation = new HashMap<>();
+            storageLocation.put("signedUrl", signedUrl("staging/" + System.nanoTime()));
+            storageLocation.put("unsignedUrl", "s3://loadtest/staging/");
+            return new GetDatasetStorageInstructionsResponse(storageLocation, PROVIDER_KEY);
+        }
+        if (path.endsWith("/retrievalInstructions")) {
+            RetrievalInstructionsResponse response = new RetrievalInstructionsResponse();
+            response.setProviderKey(PROVIDER_KEY);
+            for (JsonNode id : this.objectMapper.readTree(body).path("datasetRegistryIds")) {
+                DatasetRetrievalProperties properties = new DatasetRetrievalProperties();
+                properties.setDatasetRegistryId(id.asText());
+                properties.setRetrievalProperties(Collections.singletonMap("signedUrl", signedUrl(id.asText())));
+                response.getDatasets().add(properties);
+            }
+            return response;
+        }
+        if (path.endsWith("/getRetrievalInstructions")) {
+            List<DatasetRetrievalDeliveryItem> delivery = new ArrayList<>();
+            for (JsonNode id : this.objectMapper.readTree(body).path("datasetRegistryIds")) {
+                delivery.add(new DatasetRetrievalDeliveryItem(id.asText(),
+                        Collections.singletonMap("signedUrl", signedUrl(id.asText())), PROVIDER_KEY));
+            }
+            return new GetDatasetRetrievalInstructionsResponse(delivery);
+        }
+        if (path.endsWith("/copy")) {
+            List<CopyDmsResponse> responses = new ArrayList<>();
+            for (JsonNode source : this.objectMapper.readTree(body).path("datasetSources")) {
+                responses.add(new CopyDmsResponse(true, "s3://loadtest/persistent/" + source.path("id").asText()));
+            }
+            return responses;
+        }
+        throw new StandIn.NotFoundException(String.format("%s %s", method, path));
+    }
+
+    private static String signedUrl(String key) {
+        return "https://loadtest.s3.amazonaws.com/" + key + "?X-Amz-Expires=3600&X-Amz-Signature=loadtest";
+    }
+}
@@ -15,6 +15,9 @@
 package org.opengroup.osdu.dataset.provider.aws.cache;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.opengroup.osdu.core.aws.cache.DummyCache;
 import org.opengroup.osdu.core.aws.ssm.K8sLocalParameterProvider;
 import org.opengroup.osdu.core.aws.ssm.K8sParameterNotFoundException;
@@ -25,43 +28,138 @@ import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.core.common.util.Crc32c;
 import org.opengroup.osdu.dataset.provider.aws.config.ProviderConfigurationBag;
 import org.opengroup.osdu.dataset.provider.aws.model.DmsRegistrations;
+import org.opengroup.osdu.dataset.util.SingleFlight;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
+/**
+ * DMS registrations are the same for every caller of a partition, so they are cached per partition:
+ * in process first, then in Redis shared by all pods.
+ *
+ * The in-process copy is refreshed from the source in the background once it gets within the
+ * refresh-ahead window of its expiry, so requests keep reading memory while the refresh runs and
+ * only a cold or expired partition waits on a load. Concurrent loads of the same partition are
+ * coalesced into one.
+ */
+@Slf4j
 @Component("DmsRegistrationCache")
 public class DmsRegistrationCache implements ICache<String, DmsRegistrations> {
 
+    private static final int REFRESH_QUEUE_SIZE = 64;
+
     private ICache cache;
+    private final boolean localCopyEnabled;
+    private final long expirationMillis;
+    private final long refreshAheadMillis;
+    private final Map<String, LocalCopy> localCopies = new ConcurrentHashMap<>();
+    private final SingleFlight<String, DmsRegistrations> loads = new SingleFlight<>();
+    private final ThreadPoolExecutor refreshExecutor;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter sharedHits;
+    private final Counter sharedMisses;
+    private final Counter evictions;
 
     @Autowired
-    public DmsRegistrationCache(ProviderConfigurationBag providerConfigurationBag) throws K8sParameterNotFoundException, JsonProcessingException {
+    public DmsRegistrationCache(ProviderConfigurationBag providerConfigurationBag, MeterRegistry meterRegistry)
+            throws K8sParameterNotFoundException, JsonProcessingException {
+        this(createSharedCache(providerConfigurationBag), providerConfigurationBag, meterRegistry);
+    }
+
+    // a DummyCache, which DISABLE_CACHE selects in local mode, turns off the in-process copy as well
+    DmsRegistrationCache(ICache cache, ProviderConfigurationBag providerConfigurationBag, MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.localCopyEnabled = !(cache instanceof DummyCache);
+        this.expirationMillis = TimeUnit.SECONDS.toMillis(providerConfigurationBag.dmsRegistrationCacheExpirationSeconds);
+        this.refreshAheadMillis = TimeUnit.SECONDS.toMillis(providerConfigurationBag.dmsRegistrationCacheRefreshAheadSeconds);
+        this.refreshExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(REFRESH_QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "dms-registration-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+
+        this.localHits = meterRegistry.counter("dataset.dms.registrations.cache.requests", "tier", "local", "result", "hit");
+        this.localMisses = meterRegistry.counter("dataset.dms.registrations.cache.requests", "tier", "local", "result", "miss");
+        this.sharedHits = meterRegistry.counter("dataset.dms.registrations.cache.requests", "tier", "shared", "result", "hit");
+        this.sharedMisses = meterRegistry.counter("dataset.dms.registrations.cache.requests", "tier", "shared", "result", "miss");
+        this.evictions = meterRegistry.counter("dataset.dms.registrations.cache.evictions");
+        meterRegistry.gauge("dataset.dms.registrations.cache.size", this.localCopies, Map::size);
+    }
+
+    private static ICache createSharedCache(ProviderConfigurationBag providerConfigurationBag)
+            throws K8sParameterNotFoundException, JsonProcessingException {
+        int expirationSeconds = providerConfigurationBag.dmsRegistrationCacheExpirationSeconds;
         K8sLocalParameterProvider provider = new K8sLocalParameterProvider();
         if (provider.getLocalMode()) {
-            if (Boolean.parseBoolean(System.getenv("DISABLE_CACHE"))) {
-                this.cache = new DummyCache();
-            }
-            this.cache = new VmCache<>(60, 10);
-        } else {
-            String host = provider.getParameterAsStringOrDefault("CACHE_CLUSTER_ENDPOINT", providerConfigurationBag.redisSearchHost);
-            int port = Integer.parseInt(provider.getParameterAsStringOrDefault("CACHE_CLUSTER_PORT", providerConfigurationBag.redisSearchPort));
-            Map<String, String> credential = provider.getCredentialsAsMap("CACHE_CLUSTER_KEY");
-
-            String password = credential != null ? credential.get("token") : providerConfigurationBag.redisSearchKey;
-            this.cache = new RedisCache(host, port, password, 60, String.class, DmsRegistrations.class);
+            return Boolean.parseBoolean(System.getenv("DISABLE_CACHE")) ? new DummyCache() : new VmCache<>(expirationSeconds, 10);
         }
+        String host = provider.getParameterAsStringOrDefault("CACHE_CLUSTER_ENDPOINT", providerConfigurationBag.redisSearchHost);
+        int port = Integer.parseInt(provider.getParameterAsStringOrDefault("CACHE_CLUSTER_PORT", providerConfigurationBag.redisSearchPort));
+        Map<String, String> credential = provider.getCredentialsAsMap("CACHE_CLUSTER_KEY");
+
+        String password = credential != null ? credential.get("token") : providerConfigurationBag.redisSearchKey;
+        return new RedisCache(host, port, password, expirationSeconds, String.class, DmsRegistrations.class);
     }
 
-    public static String getCacheKey(DpsHeaders headers) {
-        String key = String.format("dms-registration:%s:%s", headers.getPartitionIdWithFallbackToAccountId(),
-                                   headers.getAuthorization());
+    public static String getCacheKey(String partitionId) {
+        String key = String.format("dms-registration:%s", partitionId);
         return Crc32c.hashToBase64EncodedString(key);
     }
 
+    public static String getCacheKey(DpsHeaders headers) {
+        return getCacheKey(headers.getPartitionIdWithFallbackToAccountId());
+    }
+
+    /**
+     * Reads the registrations of a partition from memory, Redis or, when neither has them, the loader.
+     * The loader also backs the background refresh, so it must not depend on request scoped state.
+     */
+    public DmsRegistrations get(String k, Supplier<DmsRegistrations> loader) {
+        LocalCopy localCopy = this.localCopies.get(k);
+        long now = System.currentTimeMillis();
+        if (localCopy != null && localCopy.expiresAtMillis > now) {
+            if (localCopy.expiresAtMillis - now <= this.refreshAheadMillis) {
+                this.scheduleRefresh(k, localCopy, loader);
+            }
+            this.localHits.increment();
+            return localCopy.registrations;
+        }
+        this.localMisses.increment();
+        if (localCopy != null && this.localCopies.remove(k, localCopy)) {
+            this.evictions.increment();
+        }
+
+        return this.loads.load(k, () -> {
+            DmsRegistrations registrations = this.get(k);
+            if (registrations != null) {
+                this.sharedHits.increment();
+            } else {
+                this.sharedMisses.increment();
+                registrations = loader.get();
+                this.cache.put(k, registrations);
+            }
+            this.putLocalCopy(k, registrations);
+            return registrations;
+        });
+    }
+
     @Override
     public void put(String k, DmsRegistrations o) {
         this.cache.put(k, o);
+        this.putLocalCopy(k, o);
     }
 
     @Override
@@ -71,11 +169,59 @@ public class DmsRegistrationCache implements ICache<String, DmsRegistrations> {
 
     @Override
     public void delete(String k) {
+        this.localCopies.remove(k);
         this.cache.delete(k);
     }
 
     @Override
     public void clearAll() {
+        this.localCopies.clear();
         this.cache.clearAll();
     }
+
+    @PreDestroy
+    public void shutdown() {
+        this.refreshExecutor.shutdownNow();
+    }
+
+    private void putLocalCopy(String k, DmsRegistrations registrations) {
+        if (this.localCopyEnabled && registrations != null) {
+            // index the copy now rather than on the first request routed with it
+            registrations.getRoutingIndex();
+            this.localCopies.put(k, new LocalCopy(registrations, System.currentTimeMillis() + this.expirationMillis));
+        }
+    }
+
+    private void scheduleRefresh(String k, LocalCopy localCopy, Supplier<DmsRegistrations> loader) {
+        if (!localCopy.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.refreshExecutor.execute(() -> {
+                try {
+                    // straight from the source, Redis may hold the copy we are about to replace
+                    DmsRegistrations registrations = loader.get();
+                    this.put(k, registrations);
+                } catch (RuntimeException e) {
+                    // keep serving the current copy until it expires; a later read retries
+                    localCopy.refreshing.set(false);
+                    log.warn(String.format("Failed to refresh DMS registrations: %s", e.getMessage()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            localCopy.refreshing.set(false);
+        }
+    }
+
+    private static final class LocalCopy {
+
+        private final DmsRegistrations registrations;
+        private final long expiresAtMillis;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private LocalCopy(DmsRegistrations registrations, long expiresAtMillis) {
+            this.registrations = registrations;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
 }
@@ -0,0 +1,76 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.provider.aws.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.opengroup.osdu.core.aws.cache.DummyCache;
+import org.opengroup.osdu.core.aws.ssm.K8sLocalParameterProvider;
+import org.opengroup.osdu.core.aws.ssm.K8sParameterNotFoundException;
+import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.cache.RedisCache;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.provider.aws.config.ProviderConfigurationBag;
+import org.opengroup.osdu.dataset.schema.ISchemaRemoteCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Shared tier of the schema cache on the ElastiCache cluster the other AWS caches use. In local
+ * mode there is no cluster, so the tier stays empty and schemas are only cached in process.
+ */
+@Component
+public class SchemaRedisCache implements ISchemaRemoteCache {
+
+    private final ICache<String, Object> cache;
+
+    @Autowired
+    public SchemaRedisCache(ProviderConfigurationBag providerConfigurationBag, DatasetConfig datasetConfig)
+            throws K8sParameterNotFoundException, JsonProcessingException {
+        K8sLocalParameterProvider provider = new K8sLocalParameterProvider();
+        if (provider.getLocalMode()) {
+            this.cache = new DummyCache<>();
+        } else {
+            String host = provider.getParameterAsStringOrDefault("CACHE_CLUSTER_ENDPOINT", providerConfigurationBag.redisSearchHost);
+            int port = Integer.parseInt(provider.getParameterAsStringOrDefault("CACHE_CLUSTER_PORT", providerConfigurationBag.redisSearchPort));
+            Map<String, String> credential = provider.getCredentialsAsMap("CACHE_CLUSTER_KEY");
+
+            String password = credential != null ? credential.get("token") : providerConfigurationBag.redisSearchKey;
+            this.cache = new RedisCache<>(host, port, password, datasetConfig.getSchemaCacheExpirationSeconds(),
+                    String.class, Object.class);
+        }
+    }
+
+    @Override
+    public void put(String k, Object o) {
+        this.cache.put(k, o);
+    }
+
+    @Override
+    public Object get(String k) {
+        return this.cache.get(k);
+    }
+
+    @Override
+    public void delete(String k) {
+        this.cache.delete(k);
+    }
+
+    @Override
+    public void clearAll() {
+        this.cache.clearAll();
+    }
+}
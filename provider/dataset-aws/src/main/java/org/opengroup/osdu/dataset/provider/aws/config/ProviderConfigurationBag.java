@@ -37,4 +37,19 @@ public class ProviderConfigurationBag {
 
     @Value("${aws.elasticache.cluster.key:null}")
     public String redisSearchKey;
+
+    @Value("${aws.dms.registration.cache.expirationSeconds:60}")
+    public int dmsRegistrationCacheExpirationSeconds;
+
+    @Value("${aws.dms.registration.cache.refreshAheadSeconds:15}")
+    public int dmsRegistrationCacheRefreshAheadSeconds;
+
+    @Value("${aws.dms.registration.lookup.mode:scan}")
+    public String dmsRegistrationLookupMode;
+
+    @Value("${aws.dms.registration.lookup.negativeExpirationSeconds:30}")
+    public int dmsRegistrationLookupNegativeExpirationSeconds;
+
+    @Value("${aws.dms.registration.lookup.maxSize:10000}")
+    public int dmsRegistrationLookupMaxSize;
 }
@@ -15,6 +15,7 @@
 package org.opengroup.osdu.dataset.provider.aws.di;
 
 import lombok.RequiredArgsConstructor;
+import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.opengroup.osdu.dataset.provider.aws.dms.DmsFactory;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
@@ -26,6 +27,8 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class DmsClientFactory extends AbstractFactoryBean<IDmsFactory> {
 
+    private final IHttpClient httpClient;
+
     @Override
     public Class<?> getObjectType() {
         return IDmsFactory.class;
@@ -33,6 +36,6 @@ public class DmsClientFactory extends AbstractFactoryBean<IDmsFactory> {
 
     @Override
     protected IDmsFactory createInstance() {
-        return new DmsFactory();
+        return new DmsFactory(httpClient);
     }
 }
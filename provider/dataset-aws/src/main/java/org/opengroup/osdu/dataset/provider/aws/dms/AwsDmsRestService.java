@@ -27,6 +27,7 @@ import org.opengroup.osdu.core.common.dms.model.RetrievalInstructionsResponse;
 import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.dms.DmsException;
 import org.opengroup.osdu.dataset.dms.DmsRestService;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
@@ -51,7 +52,8 @@ public class AwsDmsRestService extends DmsRestService {
     }
 
     @Override
-    public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request) {
+    public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request)
+            throws DmsException {
         RetrievalInstructionsResponse retrievalInstructions = super.getRetrievalInstructions(request);
         String providerKey = retrievalInstructions.getProviderKey();
 
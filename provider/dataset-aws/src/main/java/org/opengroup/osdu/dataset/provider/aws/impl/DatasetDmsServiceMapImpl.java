@@ -21,30 +21,40 @@ import org.opengroup.osdu.core.aws.dynamodb.IDynamoDBQueryHelperFactory;
 import org.opengroup.osdu.core.common.logging.JaxRsDpsLog;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.dms.DmsRegistrationLookup;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
 import org.opengroup.osdu.dataset.provider.aws.cache.DmsRegistrationCache;
 import org.opengroup.osdu.dataset.provider.aws.config.ProviderConfigurationBag;
 import org.opengroup.osdu.dataset.provider.aws.model.DmsRegistrations;
 import org.opengroup.osdu.dataset.provider.aws.model.DynamoDmsRegistration;
-import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceIndex;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceLookup;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
-public class DatasetDmsServiceMapImpl implements IDatasetDmsServiceMap {
+public class DatasetDmsServiceMapImpl implements IDatasetDmsServiceLookup, IDatasetDmsServiceIndex {
+
+    private static final String POINT_LOOKUP_MODE = "point";
 
     private final ProviderConfigurationBag providerConfigurationBag;
     private final DmsRegistrationCache cache;
     private final DpsHeaders headers;
     private final JaxRsDpsLog logger;
     private final DynamoDBQueryHelperV2 queryHelper;
+    private final DmsRegistrationLookup registrationLookup;
 
     @Autowired
     public DatasetDmsServiceMapImpl(DpsHeaders headers,
@@ -58,6 +68,11 @@ public class DatasetDmsServiceMapImpl implements IDatasetDmsServiceMap {
         this.logger = logger;
         this.queryHelper = queryHelperFactory.getQueryHelperUsingSSM(providerConfigurationBag.ssmParameterPrefix,
                                                                      providerConfigurationBag.dmsRegistrationTableRelativePath);
+        this.registrationLookup = POINT_LOOKUP_MODE.equalsIgnoreCase(providerConfigurationBag.dmsRegistrationLookupMode)
+                                  ? new DmsRegistrationLookup(providerConfigurationBag.dmsRegistrationCacheExpirationSeconds,
+                                                              providerConfigurationBag.dmsRegistrationLookupNegativeExpirationSeconds,
+                                                              providerConfigurationBag.dmsRegistrationLookupMaxSize)
+                                  : null;
     }
 
     @Override
@@ -67,35 +82,78 @@ public class DatasetDmsServiceMapImpl implements IDatasetDmsServiceMap {
         return dmsRegistrations.getDynamoDmsRegistrations();
     }
 
+    @Override
+    public DmsRoutingIndex getRoutingIndex() {
+        return getServicesInfoFromCacheOrDynamoDb(headers).getRoutingIndex();
+    }
+
+    @Override
+    public DmsRoutingIndex getRoutingIndex(Collection<KindSubType> kindSubTypes) {
+        if (this.registrationLookup == null) {
+            return getRoutingIndex();
+        }
+        return DmsRoutingIndex.of(getResourceTypeToDmsServiceMap(kindSubTypes));
+    }
+
+    /**
+     * In point lookup mode reads only the registrations that can route the given kinds, one BatchGetItem
+     * for the registry keys not cached yet; otherwise the whole registration table as before.
+     */
+    @Override
+    public Map<String, DmsServiceProperties> getResourceTypeToDmsServiceMap(Collection<KindSubType> kindSubTypes) {
+        if (this.registrationLookup == null) {
+            return getResourceTypeToDmsServiceMap();
+        }
+        return this.registrationLookup.get(headers.getPartitionIdWithFallbackToAccountId(), kindSubTypes,
+                                           this::getRegistrationsFromDynamoDb);
+    }
+
     protected DmsRegistrations getServicesInfoFromCacheOrDynamoDb(DpsHeaders headers) {
-        String cacheKey = DmsRegistrationCache.getCacheKey(headers);
-        DmsRegistrations dmsRegistrations = this.cache.get(cacheKey);
-
-        if (dmsRegistrations == null) {
-            try {
-                ArrayList<DynamoDmsRegistration> dynamoDmsRegistrations = queryHelper.scanTable(DynamoDmsRegistration.class);
-                HashMap<String, DmsServiceProperties> resourceTypeToDmsServiceMap = new HashMap<>();
-
-                for (DynamoDmsRegistration dmsRegistration : dynamoDmsRegistrations) {
-                    String apiBase = StringUtils.isNotEmpty(providerConfigurationBag.dmsApiBase) ? providerConfigurationBag.dmsApiBase
-                                                                                                 : dmsRegistration.getApiBase();
-                    DmsServiceProperties dmsServiceProperties = new DmsServiceProperties(StringUtils.join(apiBase, dmsRegistration.getRoute()),
-                                                                                         dmsRegistration.getIsStorageAllowed());
-                    resourceTypeToDmsServiceMap.put(dmsRegistration.getDatasetKind(), dmsServiceProperties);
-                }
-
-                dmsRegistrations = new DmsRegistrations(resourceTypeToDmsServiceMap);
-                this.cache.put(cacheKey, dmsRegistrations);
-
-                this.logger.info("DMS Registration cache miss");
-            } catch (Exception e) {
-                log.error("Error occurred.", e);
-                throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(),
-                                       HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
-                                       "Failed to get DMS Service Registrations");
+        String cacheKey = DmsRegistrationCache.getCacheKey(headers.getPartitionIdWithFallbackToAccountId());
+        return this.cache.get(cacheKey, this::getServicesInfoFromDynamoDb);
+    }
+
+    private DmsRegistrations getServicesInfoFromDynamoDb() {
+        try {
+            ArrayList<DynamoDmsRegistration> dynamoDmsRegistrations = queryHelper.scanTable(DynamoDmsRegistration.class);
+            HashMap<String, DmsServiceProperties> resourceTypeToDmsServiceMap = new HashMap<>();
+
+            for (DynamoDmsRegistration dmsRegistration : dynamoDmsRegistrations) {
+                resourceTypeToDmsServiceMap.put(dmsRegistration.getDatasetKind(), toDmsServiceProperties(dmsRegistration));
+            }
+
+            log.info("DMS Registrations loaded from DynamoDB");
+            return new DmsRegistrations(resourceTypeToDmsServiceMap);
+        } catch (Exception e) {
+            log.error("Error occurred.", e);
+            throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                                   HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                                   "Failed to get DMS Service Registrations");
+        }
+    }
+
+    private Map<String, DmsServiceProperties> getRegistrationsFromDynamoDb(Set<String> datasetKinds) {
+        try {
+            // one BatchGetItem for all keys; keys without a registration are simply absent from the result
+            List<DynamoDmsRegistration> dmsRegistrations = queryHelper.batchLoadByPrimaryKey(DynamoDmsRegistration.class,
+                                                                                             datasetKinds);
+            HashMap<String, DmsServiceProperties> resourceTypeToDmsServiceMap = new HashMap<>();
+            for (DynamoDmsRegistration dmsRegistration : dmsRegistrations) {
+                resourceTypeToDmsServiceMap.put(dmsRegistration.getDatasetKind(), toDmsServiceProperties(dmsRegistration));
             }
+            return resourceTypeToDmsServiceMap;
+        } catch (Exception e) {
+            log.error("Error occurred.", e);
+            throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                                   HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+                                   "Failed to get DMS Service Registrations");
         }
+    }
 
-        return dmsRegistrations;
+    private DmsServiceProperties toDmsServiceProperties(DynamoDmsRegistration dmsRegistration) {
+        String apiBase = StringUtils.isNotEmpty(providerConfigurationBag.dmsApiBase) ? providerConfigurationBag.dmsApiBase
+                                                                                     : dmsRegistration.getApiBase();
+        return new DmsServiceProperties(StringUtils.join(apiBase, dmsRegistration.getRoute()),
+                                        dmsRegistration.getIsStorageAllowed());
     }
 }
@@ -14,9 +14,11 @@
 
 package org.opengroup.osdu.dataset.provider.aws.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 
 import java.util.HashMap;
@@ -24,8 +26,30 @@ import java.util.Map;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class DmsRegistrations {
 
     Map<String, DmsServiceProperties> dynamoDmsRegistrations = new HashMap<>();
+
+    // built once per instance; the cache hands out the same instance until the registrations are reloaded
+    @ToString.Exclude
+    private transient volatile DmsRoutingIndex routingIndex;
+
+    public DmsRegistrations(Map<String, DmsServiceProperties> dynamoDmsRegistrations) {
+        this.dynamoDmsRegistrations = dynamoDmsRegistrations;
+    }
+
+    public void setDynamoDmsRegistrations(Map<String, DmsServiceProperties> dynamoDmsRegistrations) {
+        this.dynamoDmsRegistrations = dynamoDmsRegistrations;
+        this.routingIndex = null;
+    }
+
+    @JsonIgnore
+    public DmsRoutingIndex getRoutingIndex() {
+        DmsRoutingIndex index = this.routingIndex;
+        if (index == null) {
+            index = DmsRoutingIndex.of(this.dynamoDmsRegistrations);
+            this.routingIndex = index;
+        }
+        return index;
+    }
 }
@@ -0,0 +1,168 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.provider.aws.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.aws.cache.DummyCache;
+import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.provider.aws.config.ProviderConfigurationBag;
+import org.opengroup.osdu.dataset.provider.aws.model.DmsRegistrations;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DmsRegistrationCacheTest {
+
+    private static final String PARTITION = "opendes";
+    private static final String KEY = DmsRegistrationCache.getCacheKey(PARTITION);
+
+    @Mock
+    private ICache<String, DmsRegistrations> sharedCache;
+
+    @Mock
+    private Supplier<DmsRegistrations> loader;
+
+    private DmsRegistrationCache cache;
+
+    @After
+    public void tearDown() {
+        if (this.cache != null) {
+            this.cache.shutdown();
+        }
+    }
+
+    @Test
+    public void getCacheKey_isSharedByAllCallersOfPartition() {
+        DpsHeaders caller = headers(PARTITION, "Bearer first");
+        DpsHeaders otherCaller = headers(PARTITION, "Bearer second");
+
+        assertEquals(KEY, DmsRegistrationCache.getCacheKey(caller));
+        assertEquals(KEY, DmsRegistrationCache.getCacheKey(otherCaller));
+        assertNotEquals(KEY, DmsRegistrationCache.getCacheKey(headers("other", "Bearer first")));
+    }
+
+    @Test
+    public void get_servesLocalCopyAfterFirstLoad() {
+        DmsRegistrations registrations = registrations("http://file");
+        when(this.loader.get()).thenReturn(registrations);
+        this.cache = cache(this.sharedCache, 60, 0);
+
+        assertSame(registrations, this.cache.get(KEY, this.loader));
+        assertSame(registrations, this.cache.get(KEY, this.loader));
+
+        verify(this.loader, times(1)).get();
+        verify(this.sharedCache, times(1)).get(KEY);
+        verify(this.sharedCache, times(1)).put(KEY, registrations);
+    }
+
+    @Test
+    public void get_readsSharedCacheBeforeLoader() {
+        DmsRegistrations registrations = registrations("http://file");
+        when(this.sharedCache.get(KEY)).thenReturn(registrations);
+        this.cache = cache(this.sharedCache, 60, 0);
+
+        assertSame(registrations, this.cache.get(KEY, this.loader));
+
+        verify(this.loader, never()).get();
+    }
+
+    @Test
+    public void get_refreshesLocalCopyAheadOfExpiry() throws InterruptedException {
+        DmsRegistrations first = registrations("http://file");
+        DmsRegistrations second = registrations("http://file-v2");
+        when(this.loader.get()).thenReturn(first).thenReturn(second);
+        this.cache = cache(this.sharedCache, 60, 60);
+
+        assertSame(first, this.cache.get(KEY, this.loader));
+        // within the refresh-ahead window: still answered from memory while the refresh runs
+        assertSame(first, this.cache.get(KEY, this.loader));
+
+        verify(this.loader, timeout(5000).times(2)).get();
+        verify(this.sharedCache, timeout(5000)).put(KEY, second);
+        awaitLocalCopy(second);
+    }
+
+    @Test
+    public void get_keepsServingLocalCopyWhenRefreshFails() {
+        DmsRegistrations registrations = registrations("http://file");
+        when(this.loader.get()).thenReturn(registrations).thenThrow(new IllegalStateException("DynamoDB unavailable"));
+        this.cache = cache(this.sharedCache, 60, 60);
+
+        assertSame(registrations, this.cache.get(KEY, this.loader));
+        assertSame(registrations, this.cache.get(KEY, this.loader));
+        verify(this.loader, timeout(5000).times(2)).get();
+
+        assertSame(registrations, this.cache.get(KEY, this.loader));
+    }
+
+    @Test
+    public void get_loadsEveryTimeWhenCacheIsDisabled() {
+        DmsRegistrations first = registrations("http://file");
+        DmsRegistrations second = registrations("http://file-v2");
+        when(this.loader.get()).thenReturn(first).thenReturn(second);
+        this.cache = cache(new DummyCache(), 60, 0);
+
+        assertSame(first, this.cache.get(KEY, this.loader));
+        assertSame(second, this.cache.get(KEY, this.loader));
+
+        verify(this.loader, times(2)).get();
+    }
+
+    private void awaitLocalCopy(DmsRegistrations expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.cache.get(KEY, this.loader) != expected) {
+            assertTrue("local copy was not refreshed in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static DmsRegistrationCache cache(ICache sharedCache, int expirationSeconds, int refreshAheadSeconds) {
+        ProviderConfigurationBag providerConfigurationBag = new ProviderConfigurationBag();
+        providerConfigurationBag.dmsRegistrationCacheExpirationSeconds = expirationSeconds;
+        providerConfigurationBag.dmsRegistrationCacheRefreshAheadSeconds = refreshAheadSeconds;
+        return new DmsRegistrationCache(sharedCache, providerConfigurationBag, new SimpleMeterRegistry());
+    }
+
+    private static DmsRegistrations registrations(String dmsServiceBaseUrl) {
+        Map<String, DmsServiceProperties> registrations = new HashMap<>();
+        registrations.put("dataset--File.*", new DmsServiceProperties(dmsServiceBaseUrl));
+        return new DmsRegistrations(registrations);
+    }
+
+    private static DpsHeaders headers(String partitionId, String authorization) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(DpsHeaders.DATA_PARTITION_ID, partitionId);
+        headers.put(DpsHeaders.AUTHORIZATION, authorization);
+        return DpsHeaders.createFromMap(headers);
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright © 2021 Amazon Web Services
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.opengroup.osdu.dataset.provider.aws.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.aws.dynamodb.DynamoDBQueryHelperV2;
+import org.opengroup.osdu.core.aws.dynamodb.IDynamoDBQueryHelperFactory;
+import org.opengroup.osdu.core.common.logging.JaxRsDpsLog;
+import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+import org.opengroup.osdu.dataset.provider.aws.cache.DmsRegistrationCache;
+import org.opengroup.osdu.dataset.provider.aws.config.ProviderConfigurationBag;
+import org.opengroup.osdu.dataset.provider.aws.model.DmsRegistrations;
+import org.opengroup.osdu.dataset.provider.aws.model.DynamoDmsRegistration;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceLookup;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DatasetDmsServiceMapImplTest {
+
+    private static final String PARTITION = "opendes";
+    private static final KindSubType FILE_GENERIC = KindSubType.of("dataset--File.Generic");
+
+    @Mock
+    private DpsHeaders headers;
+
+    @Mock
+    private DmsRegistrationCache cache;
+
+    @Mock
+    private IDynamoDBQueryHelperFactory queryHelperFactory;
+
+    @Mock
+    private DynamoDBQueryHelperV2 queryHelper;
+
+    @Mock
+    private JaxRsDpsLog logger;
+
+    private final ProviderConfigurationBag providerConfigurationBag = new ProviderConfigurationBag();
+
+    @Before
+    public void setUp() {
+        when(this.headers.getPartitionIdWithFallbackToAccountId()).thenReturn(PARTITION);
+        when(this.queryHelperFactory.getQueryHelperUsingSSM(anyString(), anyString())).thenReturn(this.queryHelper);
+        this.providerConfigurationBag.ssmParameterPrefix = "/osdu/dev";
+        this.providerConfigurationBag.dmsRegistrationTableRelativePath = "/common/dataset/DmsRegistrationTable";
+        this.providerConfigurationBag.dmsRegistrationCacheExpirationSeconds = 60;
+        this.providerConfigurationBag.dmsRegistrationLookupNegativeExpirationSeconds = 30;
+        this.providerConfigurationBag.dmsRegistrationLookupMaxSize = 100;
+    }
+
+    @Test
+    public void pointLookup_readsCandidateKeysWithOneBatchLoad() {
+        this.providerConfigurationBag.dmsRegistrationLookupMode = "point";
+        when(this.queryHelper.batchLoadByPrimaryKey(eq(DynamoDmsRegistration.class), any(Set.class)))
+                .thenReturn(Collections.singletonList(registration("dataset--File.*")));
+        DatasetDmsServiceMapImpl dmsServiceMap = dmsServiceMap();
+
+        DmsRoutingIndex routingIndex = IDatasetDmsServiceLookup.resolve(dmsServiceMap, Collections.singletonList(FILE_GENERIC));
+
+        assertEquals("dataset--File.*", routingIndex.route(FILE_GENERIC).getDmsMapId());
+        assertEquals("https://dms/file", routingIndex.route(FILE_GENERIC).getDmsServiceProperties().getDmsServiceBaseUrl());
+        ArgumentCaptor<Set> registryKeys = ArgumentCaptor.forClass(Set.class);
+        verify(this.queryHelper, times(1)).batchLoadByPrimaryKey(eq(DynamoDmsRegistration.class), registryKeys.capture());
+        assertEquals(new HashSet<>(Arrays.asList("dataset--File.Generic", "dataset--File.Generic.*", "dataset--File.*")),
+                     new HashSet<>(registryKeys.getValue()));
+        verify(this.queryHelper, never()).loadByPrimaryKey(eq(DynamoDmsRegistration.class), anyString());
+        verify(this.queryHelper, never()).scanTable(DynamoDmsRegistration.class);
+    }
+
+    @Test
+    public void pointLookup_servesCachedKeysWithoutReadingDynamoDb() {
+        this.providerConfigurationBag.dmsRegistrationLookupMode = "point";
+        when(this.queryHelper.batchLoadByPrimaryKey(eq(DynamoDmsRegistration.class), any(Set.class)))
+                .thenReturn(Collections.singletonList(registration("dataset--File.*")));
+        DatasetDmsServiceMapImpl dmsServiceMap = dmsServiceMap();
+
+        dmsServiceMap.getResourceTypeToDmsServiceMap(Collections.singletonList(FILE_GENERIC));
+        Map<String, DmsServiceProperties> registrations =
+                dmsServiceMap.getResourceTypeToDmsServiceMap(Collections.singletonList(FILE_GENERIC));
+
+        assertEquals(Collections.singleton("dataset--File.*"), registrations.keySet());
+        verify(this.queryHelper, times(1)).batchLoadByPrimaryKey(eq(DynamoDmsRegistration.class), any(Set.class));
+    }
+
+    @Test
+    public void scanLookup_usesRoutingIndexOfCachedRegistrations() {
+        this.providerConfigurationBag.dmsRegistrationLookupMode = "scan";
+        Map<String, DmsServiceProperties> dynamoDmsRegistrations = new HashMap<>();
+        dynamoDmsRegistrations.put("dataset--File.*", new DmsServiceProperties("https://dms/file"));
+        DmsRegistrations registrations = new DmsRegistrations(dynamoDmsRegistrations);
+        when(this.cache.get(eq(DmsRegistrationCache.getCacheKey(PARTITION)), any(Supplier.class))).thenReturn(registrations);
+        DatasetDmsServiceMapImpl dmsServiceMap = dmsServiceMap();
+
+        DmsRoutingIndex routingIndex = IDatasetDmsServiceLookup.resolve(dmsServiceMap, Collections.singletonList(FILE_GENERIC));
+
+        assertSame(registrations.getRoutingIndex(), routingIndex);
+        verify(this.queryHelper, never()).batchLoadByPrimaryKey(eq(DynamoDmsRegistration.class), any(Set.class));
+    }
+
+    private DatasetDmsServiceMapImpl dmsServiceMap() {
+        return new DatasetDmsServiceMapImpl(this.headers, this.providerConfigurationBag, this.cache,
+                                            this.queryHelperFactory, this.logger);
+    }
+
+    private static DynamoDmsRegistration registration(String datasetKind) {
+        return new DynamoDmsRegistration(datasetKind, "https://dms", "/file", true);
+    }
+}
@@ -17,30 +17,200 @@
 
 package org.opengroup.osdu.dataset.provider.azure.cache;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.cache.RedisCache;
 import org.opengroup.osdu.core.common.model.entitlements.Groups;
+import org.opengroup.osdu.dataset.provider.azure.config.GroupCacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-// Todo: Use Redis / VmCache
+/**
+ * Size bounded, expiring in-memory cache of entitlements groups, optionally backed by Redis so
+ * pods can share lookups and start warm.
+ *
+ * Entries expire the configured time after they were read from Entitlements, by whichever pod:
+ * Redis keeps when the groups were cached, and a local copy of them expires when they would have
+ * on the pod that cached them, so a removed membership stops granting access in time. When the
+ * cache is full the oldest entries are evicted first, which are the ones closest to expiring.
+ * Redis is best effort; when it fails the lookup is counted as a miss and the caller asks
+ * Entitlements instead.
+ */
+@Slf4j
 @Component
 public class GroupCache implements ICache<String, Groups> {
-    @Override
-    public void put(String s, Groups o) {
 
+    private final int maxSize;
+    private final long expirationMillis;
+    private final ICache<String, SharedEntry> redis;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter redisErrors;
+    private final Counter evictions;
+
+    @Autowired
+    public GroupCache(GroupCacheConfig config, MeterRegistry meterRegistry) {
+        this(config.getMaxSize(), config.getExpirationSeconds(), createRedis(config), System::currentTimeMillis,
+                meterRegistry);
+    }
+
+    GroupCache(int maxSize, int expirationSeconds, ICache<String, SharedEntry> redis, LongSupplier clock,
+               MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.expirationMillis = TimeUnit.SECONDS.toMillis(expirationSeconds);
+        this.redis = redis;
+        this.clock = clock;
+
+        this.localHits = meterRegistry.counter("dataset.groups.cache.requests", "tier", "local", "result", "hit");
+        this.localMisses = meterRegistry.counter("dataset.groups.cache.requests", "tier", "local", "result", "miss");
+        this.redisHits = meterRegistry.counter("dataset.groups.cache.requests", "tier", "redis", "result", "hit");
+        this.redisMisses = meterRegistry.counter("dataset.groups.cache.requests", "tier", "redis", "result", "miss");
+        this.redisErrors = meterRegistry.counter("dataset.groups.cache.redis.errors");
+        this.evictions = meterRegistry.counter("dataset.groups.cache.evictions");
+        meterRegistry.gauge("dataset.groups.cache.size", this.entries, Map::size);
     }
 
     @Override
-    public Groups get(String s) {
-        return null;
+    public void put(String key, Groups groups) {
+        long now = this.clock.getAsLong();
+        this.putLocal(key, groups, now + this.expirationMillis);
+        if (this.redis != null && groups != null) {
+            try {
+                this.redis.put(key, new SharedEntry(groups, now));
+            } catch (RuntimeException e) {
+                this.redisErrors.increment();
+                log.warn(String.format("Failed to write entitlements groups to Redis: %s", e.getMessage()));
+            }
+        }
     }
 
     @Override
-    public void delete(String s) {
+    public Groups get(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMillis > this.clock.getAsLong()) {
+                this.localHits.increment();
+                return entry.groups;
+            }
+            this.entries.remove(key, entry);
+        }
+        this.localMisses.increment();
+
+        if (this.redis == null) {
+            return null;
+        }
+        try {
+            SharedEntry shared = this.redis.get(key);
+            long expiresAtMillis = shared == null ? 0 : shared.getCachedAtMillis() + this.expirationMillis;
+            if (shared == null || shared.getGroups() == null || expiresAtMillis <= this.clock.getAsLong()) {
+                this.redisMisses.increment();
+                return null;
+            }
+            this.redisHits.increment();
+            this.putLocal(key, shared.getGroups(), expiresAtMillis);
+            return shared.getGroups();
+        } catch (RuntimeException e) {
+            this.redisErrors.increment();
+            this.redisMisses.increment();
+            log.warn(String.format("Failed to read entitlements groups from Redis: %s", e.getMessage()));
+            return null;
+        }
+    }
 
+    @Override
+    public void delete(String key) {
+        this.entries.remove(key);
+        if (this.redis != null) {
+            this.redis.delete(key);
+        }
     }
 
     @Override
     public void clearAll() {
+        this.entries.clear();
+        if (this.redis != null) {
+            this.redis.clearAll();
+        }
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    private void putLocal(String key, Groups groups, long expiresAtMillis) {
+        if (groups == null || this.maxSize <= 0) {
+            return;
+        }
+        Entry entry = new Entry(key, groups, expiresAtMillis);
+        this.entries.put(key, entry);
+        this.insertionOrder.offer(entry);
+        this.queued.incrementAndGet();
+        this.evict();
+    }
+
+    private void evict() {
+        // replaced entries stay queued until they reach the head, so the queue is bounded as well
+        while (this.entries.size() > this.maxSize || this.queued.get() > 2 * this.maxSize) {
+            Entry oldest = this.insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            this.queued.decrementAndGet();
+            if (this.entries.remove(oldest.key, oldest)) {
+                this.evictions.increment();
+            }
+        }
+    }
+
+    private static ICache<String, SharedEntry> createRedis(GroupCacheConfig config) {
+        if (!config.isRedisEnabled()) {
+            return null;
+        }
+        return new RedisCache<>(config.getRedisHost(), config.getRedisPort(), config.getRedisPassword(),
+                config.getRedisExpirationSeconds(), String.class, SharedEntry.class);
+    }
+
+    /**
+     * Groups as kept in Redis, with the time they were cached so every pod expires them alike.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SharedEntry {
+
+        private Groups groups;
+        private long cachedAtMillis;
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final Groups groups;
+        private final long expiresAtMillis;
 
+        private Entry(String key, Groups groups, long expiresAtMillis) {
+            this.key = key;
+            this.groups = groups;
+            this.expiresAtMillis = expiresAtMillis;
+        }
     }
 }
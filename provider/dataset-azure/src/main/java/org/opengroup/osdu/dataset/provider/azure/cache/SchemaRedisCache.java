@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021  Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opengroup.osdu.dataset.provider.azure.cache;
+
+import org.opengroup.osdu.core.common.cache.RedisCache;
+import org.opengroup.osdu.dataset.di.DatasetConfig;
+import org.opengroup.osdu.dataset.provider.azure.config.GroupCacheConfig;
+import org.opengroup.osdu.dataset.schema.ISchemaRemoteCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared tier of the schema cache, on the Redis the entitlements group cache is configured with.
+ * Only registered when that Redis is enabled; otherwise schemas are only cached in process.
+ */
+@Component
+@ConditionalOnProperty(prefix = "azure.groupcache", name = "redisEnabled", havingValue = "true")
+public class SchemaRedisCache extends RedisCache<String, Object> implements ISchemaRemoteCache {
+
+    public SchemaRedisCache(GroupCacheConfig config, DatasetConfig datasetConfig) {
+        super(config.getRedisHost(), config.getRedisPort(), config.getRedisPassword(),
+                datasetConfig.getSchemaCacheExpirationSeconds(), String.class, Object.class);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021  Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengroup.osdu.dataset.provider.azure.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@ConfigurationProperties("azure.groupcache")
+@Configuration
+@Getter
+@Setter
+public class GroupCacheConfig
+{
+    int maxSize = 10000;
+    int expirationSeconds = 60;
+
+    boolean redisEnabled = false;
+    String redisHost;
+    int redisPort = 6379;
+    String redisPassword;
+    // 0 to keep groups in Redis as long as in memory; longer delays removed memberships taking effect
+    int redisExpirationSeconds = 0;
+
+    public int getRedisExpirationSeconds() {
+        return redisExpirationSeconds > 0 ? redisExpirationSeconds : expirationSeconds;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2021  Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengroup.osdu.dataset.provider.azure.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengroup.osdu.core.common.cache.ICache;
+import org.opengroup.osdu.core.common.model.entitlements.Groups;
+
+public class GroupCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        GroupCache cache = new GroupCache(10, 60, null, now::get, meterRegistry);
+        Groups groups = groups("alice");
+
+        assertNull(cache.get("key"));
+        cache.put("key", groups);
+
+        assertSame(groups, cache.get("key"));
+        assertEquals(1.0, count("local", "hit"), 0);
+        assertEquals(1.0, count("local", "miss"), 0);
+    }
+
+    @Test
+    public void get_expiresEntriesAfterTtl() {
+        GroupCache cache = new GroupCache(10, 60, null, now::get, meterRegistry);
+        cache.put("key", groups("alice"));
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(59));
+        assertEquals("alice", cache.get("key").getMemberEmail());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(1));
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_evictsOldestEntriesBeyondMaxSize() {
+        GroupCache cache = new GroupCache(2, 60, null, now::get, meterRegistry);
+
+        cache.put("a", groups("a"));
+        cache.put("b", groups("b"));
+        cache.put("a", groups("a2"));
+        cache.put("c", groups("c"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("a2", cache.get("a").getMemberEmail());
+        assertEquals("c", cache.get("c").getMemberEmail());
+        assertEquals(1.0, meterRegistry.counter("dataset.groups.cache.evictions").count(), 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void get_readsThroughRedisAndKeepsLocalCopy() {
+        ICache<String, GroupCache.SharedEntry> redis = mock(ICache.class);
+        Groups groups = groups("alice");
+        when(redis.get("key")).thenReturn(new GroupCache.SharedEntry(groups, now.get()));
+        GroupCache cache = new GroupCache(10, 60, redis, now::get, meterRegistry);
+
+        assertSame(groups, cache.get("key"));
+        assertSame(groups, cache.get("key"));
+
+        verify(redis, times(1)).get("key");
+        assertEquals(1.0, count("redis", "hit"), 0);
+        assertEquals(1.0, count("local", "hit"), 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void get_expiresLocalCopyWhenRedisEntryExpires() {
+        ICache<String, GroupCache.SharedEntry> redis = mock(ICache.class);
+        GroupCache.SharedEntry shared = new GroupCache.SharedEntry(groups("alice"), now.get());
+        when(redis.get("key")).thenReturn(shared);
+        GroupCache cache = new GroupCache(10, 60, redis, now::get, meterRegistry);
+
+        // cached by another pod 50 seconds ago: the local copy is good for the 10 seconds left
+        now.addAndGet(TimeUnit.SECONDS.toMillis(50));
+        assertEquals("alice", cache.get("key").getMemberEmail());
+        now.addAndGet(TimeUnit.SECONDS.toMillis(9));
+        assertEquals("alice", cache.get("key").getMemberEmail());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(1));
+        assertNull(cache.get("key"));
+        assertEquals(1.0, count("redis", "hit"), 0);
+        assertEquals(1.0, count("redis", "miss"), 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void put_recordsWhenGroupsWereCachedInRedis() {
+        ICache<String, GroupCache.SharedEntry> redis = mock(ICache.class);
+        GroupCache cache = new GroupCache(10, 60, redis, now::get, meterRegistry);
+        Groups groups = groups("alice");
+
+        cache.put("key", groups);
+
+        verify(redis).put("key", new GroupCache.SharedEntry(groups, now.get()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void get_treatsRedisFailureAsMiss() {
+        ICache<String, GroupCache.SharedEntry> redis = mock(ICache.class);
+        when(redis.get("key")).thenThrow(new IllegalStateException("connection refused"));
+        doThrow(new IllegalStateException("connection refused")).when(redis).put(eq("key"), any());
+        GroupCache cache = new GroupCache(10, 60, redis, now::get, meterRegistry);
+
+        assertNull(cache.get("key"));
+        cache.put("key", groups("alice"));
+
+        assertEquals("alice", cache.get("key").getMemberEmail());
+        assertEquals(2.0, meterRegistry.counter("dataset.groups.cache.redis.errors").count(), 0);
+    }
+
+    @Test
+    public void concurrentLoad_staysBoundedAndConsistent() throws Exception {
+        int threads = 16;
+        int operations = 20_000;
+        int maxSize = 100;
+        GroupCache cache = new GroupCache(maxSize, 60, null, System::currentTimeMillis, meterRegistry);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    for (int i = 0; i < operations; i++) {
+                        String key = "key-" + ((i * 31 + seed) % 500);
+                        Groups groups = cache.get(key);
+                        if (groups == null) {
+                            cache.put(key, groups(key));
+                        } else if (!key.equals(groups.getMemberEmail())) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(0), result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= maxSize);
+        assertEquals((double) threads * operations, count("local", "hit") + count("local", "miss"), 0);
+        assertTrue(count("local", "hit") > 0);
+    }
+
+    private double count(String tier, String result) {
+        return meterRegistry.counter("dataset.groups.cache.requests", "tier", tier, "result", result).count();
+    }
+
+    private static Groups groups(String memberEmail) {
+        Groups groups = new Groups();
+        groups.setMemberEmail(memberEmail);
+        return groups;
+    }
+}
@@ -26,4 +26,5 @@ public class GcpConfigProperties {
     private String redisGroupHost;
     private Integer redisGroupPort;
     private String dmsApiBase;
+    private int dmsRegistryRefreshSeconds = 60;
 }
@@ -18,6 +18,7 @@
 package org.opengroup.osdu.dataset.provider.gcp.di;
 
 import lombok.RequiredArgsConstructor;
+import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.dataset.dms.IDmsFactory;
 import org.opengroup.osdu.dataset.provider.gcp.dms.GcpDmsFactory;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
@@ -29,6 +30,8 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class DmsClientFactory extends AbstractFactoryBean<IDmsFactory> {
 
+	private final IHttpClient httpClient;
+
 	@Override
 	public Class<?> getObjectType() {
 		return IDmsFactory.class;
@@ -36,6 +39,6 @@ public class DmsClientFactory extends AbstractFactoryBean<IDmsFactory> {
 
 	@Override
 	protected IDmsFactory createInstance() {
-		return new GcpDmsFactory();
+		return new GcpDmsFactory(httpClient);
 	}
 }
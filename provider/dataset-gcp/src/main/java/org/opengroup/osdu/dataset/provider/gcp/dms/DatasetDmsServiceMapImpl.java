@@ -18,39 +18,27 @@
 package org.opengroup.osdu.dataset.provider.gcp.dms;
 
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
+import org.opengroup.osdu.core.common.model.tenant.TenantInfo;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
-import org.opengroup.osdu.dataset.provider.gcp.config.GcpConfigProperties;
-import org.opengroup.osdu.dataset.provider.gcp.model.dataset.DataSetType;
-import org.opengroup.osdu.dataset.provider.gcp.model.dataset.DmsServicePropertiesEntity;
-import org.opengroup.osdu.dataset.provider.gcp.model.dataset.GcpDmsServiceProperties;
-import org.opengroup.osdu.dataset.provider.gcp.mappers.osm.repository.DmsServicePropertiesRepository;
-import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceMap;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceIndex;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-public class DatasetDmsServiceMapImpl implements IDatasetDmsServiceMap {
+public class DatasetDmsServiceMapImpl implements IDatasetDmsServiceIndex {
 
-  private final DmsServicePropertiesRepository dmsServicePropertiesRepository;
-  private final GcpConfigProperties gcpConfigProperties;
+  private final DmsServicePropertiesSnapshots dmsServicePropertiesSnapshots;
+  private final TenantInfo tenantInfo;
 
   @Override
   public Map<String, DmsServiceProperties> getResourceTypeToDmsServiceMap() {
-    Iterable<DmsServicePropertiesEntity> properties = this.dmsServicePropertiesRepository.findAll();
-    String dmsApiBase = this.gcpConfigProperties.getDmsApiBase();
-    return StreamSupport.stream(properties.spliterator(), false)
-        .collect(Collectors.toMap(DmsServicePropertiesEntity::getDatasetKind,
-            entity -> GcpDmsServiceProperties.builder()
-                .dmsServiceBaseUrl(StringUtils.isEmpty(dmsApiBase) ? entity.getDmsServiceBaseUrl() : dmsApiBase)
-                .allowStorage(entity.isStorageAllowed())
-                .apiKey(entity.getApiKey())
-                .stagingLocationSupported(entity.isStagingLocationSupported())
-                .dataSetType(StringUtils.containsIgnoreCase(entity.getDatasetKind(),
-                    "collection") ? DataSetType.FILE_COLLECTION : DataSetType.FILE)
-                .build()));
+    return this.dmsServicePropertiesSnapshots.get(this.tenantInfo.getName());
+  }
+
+  @Override
+  public DmsRoutingIndex getRoutingIndex() {
+    return this.dmsServicePropertiesSnapshots.getRoutingIndex(this.tenantInfo.getName());
   }
 }
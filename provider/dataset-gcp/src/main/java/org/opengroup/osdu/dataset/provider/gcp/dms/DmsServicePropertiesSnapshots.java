@@ -0,0 +1,181 @@
+/*
+ * Copyright 2021 Google LLC
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengroup.osdu.dataset.provider.gcp.dms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.provider.gcp.config.GcpConfigProperties;
+import org.opengroup.osdu.dataset.provider.gcp.mappers.osm.repository.DmsServicePropertiesRepository;
+import org.opengroup.osdu.dataset.provider.gcp.model.dataset.DataSetType;
+import org.opengroup.osdu.dataset.provider.gcp.model.dataset.DmsServicePropertiesEntity;
+import org.opengroup.osdu.dataset.provider.gcp.model.dataset.GcpDmsServiceProperties;
+import org.opengroup.osdu.dataset.util.SingleFlight;
+import org.springframework.stereotype.Component;
+
+/**
+ * Immutable per tenant snapshots of the DMS registrations, so requests read a map instead of
+ * querying the repository.
+ *
+ * The first request of a tenant loads its snapshot; after that the snapshots are refreshed on a
+ * schedule. A refresh that reads the same registrations keeps the current map. A refresh that
+ * fails keeps serving the current, possibly stale, map until the repository answers again.
+ * Tenants that are not read for a while are dropped and loaded again on their next request.
+ * Each snapshot carries the routing index of its registrations, built when the snapshot is.
+ */
+@Slf4j
+@Component
+public class DmsServicePropertiesSnapshots {
+
+  private static final int IDLE_REFRESH_CYCLES = 10;
+
+  private final DmsServicePropertiesRepository dmsServicePropertiesRepository;
+  private final GcpConfigProperties gcpConfigProperties;
+  private final Map<String, AtomicReference<Snapshot>> snapshots = new ConcurrentHashMap<>();
+  private final SingleFlight<String, Snapshot> loads = new SingleFlight<>();
+  private final long idleMillis;
+  private final ScheduledExecutorService refreshExecutor;
+
+  public DmsServicePropertiesSnapshots(DmsServicePropertiesRepository dmsServicePropertiesRepository,
+      GcpConfigProperties gcpConfigProperties) {
+    this.dmsServicePropertiesRepository = dmsServicePropertiesRepository;
+    this.gcpConfigProperties = gcpConfigProperties;
+
+    int refreshSeconds = gcpConfigProperties.getDmsRegistryRefreshSeconds();
+    this.idleMillis = TimeUnit.SECONDS.toMillis((long) refreshSeconds * IDLE_REFRESH_CYCLES);
+    if (refreshSeconds > 0) {
+      this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dms-registry-refresh");
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.refreshExecutor.scheduleWithFixedDelay(this::refreshAll, refreshSeconds, refreshSeconds,
+          TimeUnit.SECONDS);
+    } else {
+      this.refreshExecutor = null;
+    }
+  }
+
+  public Map<String, DmsServiceProperties> get(String tenantName) {
+    return this.snapshot(tenantName).dmsServiceProperties;
+  }
+
+  public DmsRoutingIndex getRoutingIndex(String tenantName) {
+    return this.snapshot(tenantName).routingIndex;
+  }
+
+  private Snapshot snapshot(String tenantName) {
+    AtomicReference<Snapshot> reference = this.snapshots.get(tenantName);
+    Snapshot snapshot = reference == null ? null : reference.get();
+    if (snapshot == null) {
+      snapshot = this.loads.load(tenantName, () -> {
+        AtomicReference<Snapshot> loaded = this.snapshots.get(tenantName);
+        if (loaded != null) {
+          return loaded.get();
+        }
+        Snapshot created = this.load(tenantName, null);
+        this.snapshots.put(tenantName, new AtomicReference<>(created));
+        return created;
+      });
+    }
+    snapshot.lastReadMillis = System.currentTimeMillis();
+    return snapshot;
+  }
+
+  public void refreshAll() {
+    Iterator<Map.Entry<String, AtomicReference<Snapshot>>> iterator = this.snapshots.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, AtomicReference<Snapshot>> entry = iterator.next();
+      Snapshot current = entry.getValue().get();
+      if (this.idleMillis > 0 && System.currentTimeMillis() - current.lastReadMillis > this.idleMillis) {
+        iterator.remove();
+        continue;
+      }
+      try {
+        entry.getValue().compareAndSet(current, this.load(entry.getKey(), current));
+      } catch (RuntimeException e) {
+        log.warn(String.format("Failed to refresh DMS registrations of tenant %s, serving the previous snapshot: %s",
+            entry.getKey(), e.getMessage()));
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (this.refreshExecutor != null) {
+      this.refreshExecutor.shutdownNow();
+    }
+  }
+
+  private Snapshot load(String tenantName, Snapshot current) {
+    List<DmsServicePropertiesEntity> entities = new ArrayList<>();
+    this.dmsServicePropertiesRepository.findAll(tenantName).forEach(entities::add);
+    String dmsApiBase = this.gcpConfigProperties.getDmsApiBase();
+    if (current != null && current.entities.equals(entities) && StringUtils.equals(current.dmsApiBase, dmsApiBase)) {
+      return current;
+    }
+
+    Map<String, DmsServiceProperties> dmsServiceProperties = new HashMap<>();
+    for (DmsServicePropertiesEntity entity : entities) {
+      dmsServiceProperties.put(entity.getDatasetKind(), GcpDmsServiceProperties.builder()
+          .dmsServiceBaseUrl(StringUtils.isEmpty(dmsApiBase) ? entity.getDmsServiceBaseUrl() : dmsApiBase)
+          .allowStorage(entity.isStorageAllowed())
+          .apiKey(entity.getApiKey())
+          .stagingLocationSupported(entity.isStagingLocationSupported())
+          .dataSetType(StringUtils.containsIgnoreCase(entity.getDatasetKind(),
+              "collection") ? DataSetType.FILE_COLLECTION : DataSetType.FILE)
+          .build());
+    }
+    Snapshot snapshot = new Snapshot(entities, dmsApiBase, Collections.unmodifiableMap(dmsServiceProperties));
+    if (current != null) {
+      snapshot.lastReadMillis = current.lastReadMillis;
+      log.info(String.format("DMS registrations of tenant %s changed, %d registrations", tenantName, entities.size()));
+    }
+    return snapshot;
+  }
+
+  private static final class Snapshot {
+
+    private final List<DmsServicePropertiesEntity> entities;
+    private final String dmsApiBase;
+    private final Map<String, DmsServiceProperties> dmsServiceProperties;
+    private final DmsRoutingIndex routingIndex;
+    private volatile long lastReadMillis = System.currentTimeMillis();
+
+    private Snapshot(List<DmsServicePropertiesEntity> entities, String dmsApiBase,
+        Map<String, DmsServiceProperties> dmsServiceProperties) {
+      this.entities = entities;
+      this.dmsApiBase = dmsApiBase;
+      this.dmsServiceProperties = dmsServiceProperties;
+      this.routingIndex = DmsRoutingIndex.of(dmsServiceProperties);
+    }
+  }
+}
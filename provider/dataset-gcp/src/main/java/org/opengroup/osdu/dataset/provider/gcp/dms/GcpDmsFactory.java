@@ -18,7 +18,6 @@
 package org.opengroup.osdu.dataset.provider.gcp.dms;
 
 import lombok.RequiredArgsConstructor;
-import org.opengroup.osdu.core.common.http.HttpClient;
 import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
@@ -28,7 +27,7 @@ import org.opengroup.osdu.dataset.dms.IDmsProvider;
 @RequiredArgsConstructor
 public class GcpDmsFactory implements IDmsFactory {
 
-  private final IHttpClient httpClient = new HttpClient();
+  private final IHttpClient httpClient;
 
   @Override
   public IDmsProvider create(DpsHeaders headers, DmsServiceProperties dmsServiceRoute) {
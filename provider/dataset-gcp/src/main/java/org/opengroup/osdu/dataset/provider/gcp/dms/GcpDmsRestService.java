@@ -31,6 +31,7 @@ import org.opengroup.osdu.core.common.http.HttpResponse;
 import org.opengroup.osdu.core.common.http.IHttpClient;
 import org.opengroup.osdu.core.common.model.http.AppException;
 import org.opengroup.osdu.core.common.model.http.DpsHeaders;
+import org.opengroup.osdu.dataset.dms.DmsException;
 import org.opengroup.osdu.dataset.dms.DmsRestService;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
 import org.opengroup.osdu.dataset.model.request.GetDatasetRegistryRequest;
@@ -69,7 +70,8 @@ public class GcpDmsRestService extends DmsRestService {
   }
 
   @Override
-  public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request) {
+  public GetDatasetRetrievalInstructionsResponse getDatasetRetrievalInstructions(GetDatasetRegistryRequest request)
+      throws DmsException {
     RetrievalInstructionsResponse retrievalInstructions = super.getRetrievalInstructions(request);
     String providerKey = retrievalInstructions.getProviderKey();
 
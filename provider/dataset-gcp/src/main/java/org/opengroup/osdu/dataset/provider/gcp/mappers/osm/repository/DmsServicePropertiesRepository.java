@@ -40,9 +40,13 @@ public class DmsServicePropertiesRepository {
   private final TenantInfo tenantInfo;
 
   public Iterable<DmsServicePropertiesEntity> findAll() {
+    return findAll(tenantInfo.getName());
+  }
+
+  public Iterable<DmsServicePropertiesEntity> findAll(String tenantName) {
     GetQuery<DmsServicePropertiesEntity> entities = new GetQuery<>(
         DmsServicePropertiesEntity.class,
-        destinationProvider.getDestination(tenantInfo.getName(), KIND_NAME)
+        destinationProvider.getDestination(tenantName, KIND_NAME)
     );
     return context.getResultsAsList(entities);
   }
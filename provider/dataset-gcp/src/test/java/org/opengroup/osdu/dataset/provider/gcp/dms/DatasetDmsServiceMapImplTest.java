@@ -17,26 +17,34 @@
 
 package org.opengroup.osdu.dataset.provider.gcp.dms;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.util.Collections;
 import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.core.common.model.tenant.TenantInfo;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
 import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
 import org.opengroup.osdu.dataset.provider.gcp.config.GcpConfigProperties;
 import org.opengroup.osdu.dataset.provider.gcp.model.dataset.DmsServicePropertiesEntity;
 import org.opengroup.osdu.dataset.provider.gcp.mappers.osm.repository.DmsServicePropertiesRepository;
+import org.opengroup.osdu.dataset.provider.interfaces.IDatasetDmsServiceLookup;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DatasetDmsServiceMapImplTest {
 
   private static final String DATASET_KIND = "example";
+  private static final String TENANT = "opendes";
 
   @Mock
   private DmsServicePropertiesRepository dmsServicePropertiesEntityRepository;
@@ -44,7 +52,9 @@ public class DatasetDmsServiceMapImplTest {
   @Mock
   private GcpConfigProperties gcpConfigProperties;
 
-  @InjectMocks
+  @Mock
+  private TenantInfo tenantInfo;
+
   private DatasetDmsServiceMapImpl datasetDmsServiceMap;
 
   @Before
@@ -52,7 +62,11 @@ public class DatasetDmsServiceMapImplTest {
     DmsServicePropertiesEntity entity = new DmsServicePropertiesEntity();
     entity.setDatasetKind(DATASET_KIND);
     Iterable<DmsServicePropertiesEntity> entities = Collections.singletonList(entity);
-    Mockito.when(this.dmsServicePropertiesEntityRepository.findAll()).thenReturn(entities);
+    Mockito.when(this.dmsServicePropertiesEntityRepository.findAll(TENANT)).thenReturn(entities);
+    Mockito.when(this.tenantInfo.getName()).thenReturn(TENANT);
+    this.datasetDmsServiceMap = new DatasetDmsServiceMapImpl(
+        new DmsServicePropertiesSnapshots(this.dmsServicePropertiesEntityRepository, this.gcpConfigProperties),
+        this.tenantInfo);
   }
 
   @Test
@@ -60,4 +74,17 @@ public class DatasetDmsServiceMapImplTest {
     Map<String, DmsServiceProperties> actual = this.datasetDmsServiceMap.getResourceTypeToDmsServiceMap();
     assertTrue(actual.containsKey(DATASET_KIND));
   }
+
+  @Test
+  public void shouldResolveRoutingIndexOfTenantSnapshot() {
+    DmsRoutingIndex first = IDatasetDmsServiceLookup.resolve(this.datasetDmsServiceMap,
+        Collections.singletonList(KindSubType.of(DATASET_KIND)));
+    DmsRoutingIndex second = IDatasetDmsServiceLookup.resolve(this.datasetDmsServiceMap,
+        Collections.singletonList(KindSubType.of(DATASET_KIND)));
+
+    assertSame(first, second);
+    assertSame(this.datasetDmsServiceMap.getResourceTypeToDmsServiceMap(), first.getRegistrations());
+    assertEquals(DATASET_KIND, first.route(KindSubType.of(DATASET_KIND)).getDmsMapId());
+    verify(this.dmsServicePropertiesEntityRepository, times(1)).findAll(TENANT);
+  }
 }
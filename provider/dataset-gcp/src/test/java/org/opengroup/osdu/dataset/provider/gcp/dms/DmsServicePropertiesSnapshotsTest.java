@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Google LLC
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengroup.osdu.dataset.provider.gcp.dms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.opengroup.osdu.dataset.dms.DmsRoutingIndex;
+import org.opengroup.osdu.dataset.dms.DmsServiceProperties;
+import org.opengroup.osdu.dataset.dms.KindSubType;
+import org.opengroup.osdu.dataset.provider.gcp.config.GcpConfigProperties;
+import org.opengroup.osdu.dataset.provider.gcp.mappers.osm.repository.DmsServicePropertiesRepository;
+import org.opengroup.osdu.dataset.provider.gcp.model.dataset.DmsServicePropertiesEntity;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DmsServicePropertiesSnapshotsTest {
+
+  private static final String TENANT = "opendes";
+  private static final String OTHER_TENANT = "other";
+  private static final String FILE_KIND = "dataset--File.*";
+  private static final String COLLECTION_KIND = "dataset--FileCollection.*";
+
+  @Mock
+  private DmsServicePropertiesRepository repository;
+
+  @Mock
+  private GcpConfigProperties gcpConfigProperties;
+
+  private DmsServicePropertiesSnapshots snapshots;
+
+  @Before
+  public void setUp() {
+    this.snapshots = new DmsServicePropertiesSnapshots(this.repository, this.gcpConfigProperties);
+  }
+
+  @Test
+  public void shouldQueryRepositoryOncePerTenant() {
+    when(this.repository.findAll(TENANT)).thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")));
+
+    Map<String, DmsServiceProperties> first = this.snapshots.get(TENANT);
+    Map<String, DmsServiceProperties> second = this.snapshots.get(TENANT);
+
+    assertSame(first, second);
+    assertEquals("http://file", first.get(FILE_KIND).getDmsServiceBaseUrl());
+    verify(this.repository, times(1)).findAll(TENANT);
+  }
+
+  @Test
+  public void shouldKeepSnapshotWhenRegistrationsAreUnchanged() {
+    when(this.repository.findAll(TENANT))
+        .thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")))
+        .thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")));
+
+    Map<String, DmsServiceProperties> before = this.snapshots.get(TENANT);
+    this.snapshots.refreshAll();
+
+    assertSame(before, this.snapshots.get(TENANT));
+    verify(this.repository, times(2)).findAll(TENANT);
+  }
+
+  @Test
+  public void shouldSwapSnapshotWhenRegistrationsChange() {
+    when(this.repository.findAll(TENANT))
+        .thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")))
+        .thenReturn(Arrays.asList(entity(FILE_KIND, "http://file"), entity(COLLECTION_KIND, "http://collection")));
+
+    Map<String, DmsServiceProperties> before = this.snapshots.get(TENANT);
+    this.snapshots.refreshAll();
+    Map<String, DmsServiceProperties> after = this.snapshots.get(TENANT);
+
+    assertNotSame(before, after);
+    assertEquals(1, before.size());
+    assertEquals(2, after.size());
+  }
+
+  @Test
+  public void shouldBuildRoutingIndexWithSnapshot() {
+    when(this.repository.findAll(TENANT))
+        .thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")))
+        .thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")))
+        .thenReturn(Arrays.asList(entity(FILE_KIND, "http://file"), entity(COLLECTION_KIND, "http://collection")));
+
+    DmsRoutingIndex before = this.snapshots.getRoutingIndex(TENANT);
+    assertSame(this.snapshots.get(TENANT), before.getRegistrations());
+
+    this.snapshots.refreshAll();
+    assertSame(before, this.snapshots.getRoutingIndex(TENANT));
+
+    this.snapshots.refreshAll();
+    DmsRoutingIndex after = this.snapshots.getRoutingIndex(TENANT);
+    assertNotSame(before, after);
+    assertEquals(COLLECTION_KIND, after.route(KindSubType.of("dataset--FileCollection.Generic")).getDmsMapId());
+  }
+
+  @Test
+  public void shouldServeStaleSnapshotWhenRepositoryFails() {
+    when(this.repository.findAll(TENANT))
+        .thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")))
+        .thenThrow(new IllegalStateException("datastore unavailable"));
+
+    Map<String, DmsServiceProperties> before = this.snapshots.get(TENANT);
+    this.snapshots.refreshAll();
+
+    assertSame(before, this.snapshots.get(TENANT));
+  }
+
+  @Test
+  public void shouldKeepTenantsApart() {
+    when(this.repository.findAll(TENANT)).thenReturn(Collections.singletonList(entity(FILE_KIND, "http://file")));
+    when(this.repository.findAll(OTHER_TENANT)).thenReturn(Collections.emptyList());
+
+    assertTrue(this.snapshots.get(TENANT).containsKey(FILE_KIND));
+    assertTrue(this.snapshots.get(OTHER_TENANT).isEmpty());
+  }
+
+  private static DmsServicePropertiesEntity entity(String datasetKind, String dmsServiceBaseUrl) {
+    DmsServicePropertiesEntity entity = new DmsServicePropertiesEntity();
+    entity.setDatasetKind(datasetKind);
+    entity.setDmsServiceBaseUrl(dmsServiceBaseUrl);
+    return entity;
+  }
+}